@@ -4,11 +4,23 @@ import com.tnt.sales.config.FeatureFlags;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
 @EnableConfigurationProperties({FeatureFlags.class})
+@EnableScheduling
 public class TntSalesApplication {
     public static void main(String[] args) {
-        SpringApplication.run(TntSalesApplication.class, args);
+        SpringApplication app = new SpringApplication(TntSalesApplication.class);
+        // 배포 설정(application.yml, 환경변수)에 없을 때만 쓰이는 기본값
+        // - 수요 Excel 스트리밍 업로드: 10만 행 통합문서가 Spring 기본 1MB 제한에 걸리지 않도록
+        // - StreamingResponseBody 응답: 서블릿 컨테이너 기본 async 타임아웃(30초)보다 긴 적재 허용
+        app.setDefaultProperties(Map.of(
+                "spring.servlet.multipart.max-file-size", "100MB",
+                "spring.servlet.multipart.max-request-size", "110MB",
+                "spring.mvc.async.request-timeout", "30m"));
+        app.run(args);
     }
 }
@@ -1,5 +1,8 @@
 package com.tnt.sales.analysis.api;
 
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import com.tnt.sales.config.ReadReplica;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -38,6 +41,8 @@ public class AnalysisController {
 
     @Autowired
     private Environment env;
+    @Autowired
+    private QueryConfigHelper configHelper;
 
     @Value("${app.n8n.url:}")
     private String n8nUrl;
@@ -138,6 +143,7 @@ public class AnalysisController {
      *
      * Data Source: PostgreSQL invoice 테이블 (env 기반)
      */
+    @ReadReplica
     @GetMapping("/price-sim")
     public ResponseEntity<?> getPriceSim(@RequestParam(value = "companyType", required = false) String companyType,
                                          @RequestParam(value = "empName", required = false) String empName,
@@ -152,19 +158,16 @@ public class AnalysisController {
         }
 
         // Use env-configured invoice metadata
-        String tbl = env.getProperty("app.invoice.table", "public.invoice");
-        String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-        String colQty = env.getProperty("app.invoice.columns.qty", "qty");
-        String colEmpName = env.getProperty("app.invoice.columns.curr_emp_name", "curr_emp_name");
-        String colUnit = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-        String colInvoiceSeq = env.getProperty("app.invoice.columns.invoice_seq", "invoice_seq");
-        String colCompanyType = env.getProperty("app.invoice.columns.company_type", "company_type");
-
-        boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-        String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-        String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
-        String yearExpr = "EXTRACT(YEAR FROM " + dateExpr + ")::int";
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String tbl = invCfg.getTableName();
+        String colAmt = invCfg.getCurAmtColumn();
+        String colQty = invCfg.getQtyColumn();
+        String colEmpName = invCfg.getCurrEmpNameColumn();
+        String colUnit = invCfg.getSalesMgmtUnitColumn();
+        String colInvoiceSeq = invCfg.getInvoiceSeqColumn();
+        String colCompanyType = invCfg.getCompanyTypeColumn();
+
+        String yearExpr = invCfg.yearExpr(null);
         int toYear = java.time.LocalDate.now().getYear();
         int startYear = fromYear == null ? 2022 : Math.max(1900, fromYear);
 
@@ -237,6 +240,7 @@ public class AnalysisController {
         }
     }
 
+    @ReadReplica
     @GetMapping("/price-sim/employees")
     public ResponseEntity<?> getPriceSimEmployees(@RequestParam(value = "companyType", required = false) String companyType,
                                                   @RequestParam(value = "fromYear", defaultValue = "2022") Integer fromYear) {
@@ -244,14 +248,11 @@ public class AnalysisController {
             return ResponseEntity.ok(Collections.emptyList());
         }
 
-        String tbl = env.getProperty("app.invoice.table", "public.invoice");
-        String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        String colEmpName = env.getProperty("app.invoice.columns.curr_emp_name", "curr_emp_name");
-        String colCompanyType = env.getProperty("app.invoice.columns.company_type", "company_type");
-        boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-        String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-        String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
-        String yearExpr = "EXTRACT(YEAR FROM " + dateExpr + ")::int";
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String tbl = invCfg.getTableName();
+        String colEmpName = invCfg.getCurrEmpNameColumn();
+        String colCompanyType = invCfg.getCompanyTypeColumn();
+        String yearExpr = invCfg.yearExpr(null);
 
         String empNameExpr = "coalesce(nullif(trim(" + colEmpName + "), ''), '미지정')";
         String companyTypeTrimmed = companyType == null ? "" : companyType.trim();
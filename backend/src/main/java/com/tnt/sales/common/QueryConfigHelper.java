@@ -4,10 +4,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 /**
  * 데이터베이스 쿼리 설정 헬퍼
  * 170회 이상 중복되던 환경 설정 조회 로직을 통합
  *
+ * 설정은 기동 시 1회 읽어 불변 객체로 보관하며, 날짜/연도 SQL 조각(Postgres/MSSQL)도 미리 만들어 둔다.
+ * 요청 처리 중에는 프로퍼티 조회나 고정 SQL 조각의 문자열 조립이 일어나지 않는다.
+ * (app.invoice.* / app.customer.* 변경은 재기동 시 반영)
+ *
  * 사용 예시:
  * <pre>
  * {@code
@@ -17,7 +32,7 @@ import org.springframework.stereotype.Component;
  * public void someMethod() {
  *     InvoiceTableConfig config = configHelper.getInvoiceConfig();
  *     String sql = "SELECT * FROM " + config.getTableName() +
- *                  " WHERE " + configHelper.getDateExpression(config) + " = ?";
+ *                  " WHERE " + configHelper.getYearExpression(config, "i") + " = ?";
  * }
  * }
  * </pre>
@@ -25,54 +40,33 @@ import org.springframework.stereotype.Component;
 @Component
 public class QueryConfigHelper {
 
-    private final Environment env;
+    private final Set<String> activeProfiles;
+    private final InvoiceTableConfig invoiceConfig;
+    private final CustomerTableConfig customerConfig;
 
     @Autowired
     public QueryConfigHelper(Environment env) {
-        this.env = env;
+        this.activeProfiles = Stream.of(env.getActiveProfiles())
+                .map(p -> p.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.invoiceConfig = new InvoiceTableConfig(env);
+        this.customerConfig = new CustomerTableConfig(env);
     }
 
     /**
      * Invoice 테이블 설정을 조회
-     * @return Invoice 테이블 설정 객체
+     * @return Invoice 테이블 설정 객체 (기동 시 생성된 불변 인스턴스)
      */
     public InvoiceTableConfig getInvoiceConfig() {
-        boolean dateIsText = Boolean.parseBoolean(
-            env.getProperty("app.invoice.columns.invoice_date_is_text", "false")
-        );
-        String dateFormat = env.getProperty(
-            "app.invoice.columns.invoice_date_format",
-            "YYYY-MM-DD"
-        );
-
-        InvoiceTableConfig config = new InvoiceTableConfig();
-        config.tableName = env.getProperty("app.invoice.table", "public.invoice");
-        config.customerSeqColumn = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-        config.invoiceDateColumn = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        config.curAmtColumn = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-        config.qtyColumn = env.getProperty("app.invoice.columns.qty", "qty");
-        config.itemSeqColumn = env.getProperty("app.invoice.columns.item_seq", "item_seq");
-        config.companyTypeColumn = env.getProperty("app.invoice.columns.company_type", "company_type");
-        config.dateIsText = dateIsText;
-        config.dateFormat = dateFormat;
-
-        return config;
+        return invoiceConfig;
     }
 
     /**
      * Customer 테이블 설정을 조회
-     * @return Customer 테이블 설정 객체
+     * @return Customer 테이블 설정 객체 (기동 시 생성된 불변 인스턴스)
      */
     public CustomerTableConfig getCustomerConfig() {
-        CustomerTableConfig config = new CustomerTableConfig();
-        config.tableName = env.getProperty("app.customer.table", "public.customer");
-        config.customerSeqColumn = env.getProperty("app.customer.columns.customer_seq", "customer_seq");
-        config.customerIdColumn = env.getProperty("app.customer.columns.customer_id", "customer_id");
-        config.customerNameColumn = env.getProperty("app.customer.columns.customer_name", "customer_name");
-        config.assigneeIdColumn = env.getProperty("app.customer.columns.assignee_id", "assignee_id");
-        config.companyTypeColumn = env.getProperty("app.customer.columns.company_type", "company_type");
-
-        return config;
+        return customerConfig;
     }
 
     /**
@@ -81,7 +75,7 @@ public class QueryConfigHelper {
      * @return SQL 날짜 표현식
      */
     public String getDateExpression(InvoiceTableConfig config) {
-        return getDateExpression(config, null);
+        return config.dateExpr(null);
     }
 
     /**
@@ -91,16 +85,17 @@ public class QueryConfigHelper {
      * @return SQL 날짜 표현식
      */
     public String getDateExpression(InvoiceTableConfig config, String alias) {
-        String colDate = config.getInvoiceDateColumn();
-        if (alias != null && !alias.isEmpty()) {
-            colDate = alias + "." + colDate;
-        }
+        return config.dateExpr(alias);
+    }
 
-        if (config.isDateIsText()) {
-            return "to_date(" + colDate + ", '" + config.getDateFormat() + "')";
-        } else {
-            return colDate + "::date";
-        }
+    /**
+     * 연도 표현식을 생성 (Postgres: EXTRACT(YEAR FROM ...)::int)
+     * @param config Invoice 테이블 설정
+     * @param alias 테이블 별칭 (null이면 컬럼명만 사용)
+     * @return SQL 연도 표현식
+     */
+    public String getYearExpression(InvoiceTableConfig config, String alias) {
+        return config.yearExpr(alias);
     }
 
     /**
@@ -108,13 +103,7 @@ public class QueryConfigHelper {
      * @return nodb 프로파일 활성화 여부
      */
     public boolean isNoDbProfile() {
-        String[] profiles = env.getActiveProfiles();
-        for (String p : profiles) {
-            if ("nodb".equalsIgnoreCase(p)) {
-                return true;
-            }
-        }
-        return false;
+        return activeProfiles.contains("nodb");
     }
 
     /**
@@ -123,50 +112,158 @@ public class QueryConfigHelper {
      * @return 프로파일 활성화 여부
      */
     public boolean isProfileActive(String profileName) {
-        String[] profiles = env.getActiveProfiles();
-        for (String p : profiles) {
-            if (profileName.equalsIgnoreCase(p)) {
-                return true;
-            }
-        }
-        return false;
+        return profileName != null && activeProfiles.contains(profileName.toLowerCase(Locale.ROOT));
     }
 
     /**
-     * Invoice 테이블 설정
+     * Invoice 테이블 설정 (불변)
      */
-    public static class InvoiceTableConfig {
-        private String tableName;
-        private String customerSeqColumn;
-        private String invoiceDateColumn;
-        private String curAmtColumn;
-        private String qtyColumn;
-        private String itemSeqColumn;
-        private String companyTypeColumn;
-        private boolean dateIsText;
-        private String dateFormat;
+    public static final class InvoiceTableConfig {
+        private final String tableName;
+        private final String invoiceSeqColumn;
+        private final String invoiceNoColumn;
+        private final String customerSeqColumn;
+        private final String invoiceDateColumn;
+        private final String curAmtColumn;
+        private final String qtyColumn;
+        private final String stdQtyColumn;
+        private final String itemSeqColumn;
+        private final String itemNameColumn;
+        private final String itemUnitColumn;
+        private final String itemStdUnitColumn;
+        private final String itemSubcategoryColumn;
+        private final String salesMgmtUnitColumn;
+        private final String companyTypeColumn;
+        private final String currEmpNameColumn;
+        private final String currEmpSeqColumn;
+        private final boolean dateIsText;
+        private final String dateFormat;
+        // 텍스트 날짜가 연-월-일 순 고정폭 형식이면 원본 컬럼을 문자열로 범위 비교 (null이면 불가)
+        private final DateTimeFormatter sortableTextFormat;
+
+        // alias -> 날짜/연도 SQL 조각 (자주 쓰는 별칭은 생성 시 미리 채움)
+        private final Map<String, DateFragments> fragments = new ConcurrentHashMap<>();
+
+        private static final Pattern SORTABLE_DATE_FORMAT = Pattern.compile("YYYY([-/.]?)MM\\1DD");
+
+        private record DateFragments(String pgDate, String pgYear, String msDate, String msYear) { }
+
+        private InvoiceTableConfig(Environment env) {
+            tableName = env.getProperty("app.invoice.table", "public.invoice");
+            invoiceSeqColumn = env.getProperty("app.invoice.columns.invoice_seq", "invoice_seq");
+            invoiceNoColumn = env.getProperty("app.invoice.columns.invoice_no", "invoice_no");
+            customerSeqColumn = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
+            invoiceDateColumn = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
+            curAmtColumn = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
+            qtyColumn = env.getProperty("app.invoice.columns.qty", "qty");
+            stdQtyColumn = env.getProperty("app.invoice.columns.std_qty",
+                    env.getProperty("app.invoice.columns.qty", "std_qty"));
+            itemSeqColumn = env.getProperty("app.invoice.columns.item_seq", "item_seq");
+            itemNameColumn = env.getProperty("app.invoice.columns.item_name", "item_name");
+            itemUnitColumn = env.getProperty("app.invoice.columns.item_unit", "item_unit");
+            itemStdUnitColumn = env.getProperty("app.invoice.columns.item_std_unit", "item_std_unit");
+            itemSubcategoryColumn = env.getProperty("app.invoice.columns.item_subcategory", "item_subcategory");
+            salesMgmtUnitColumn = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
+            companyTypeColumn = env.getProperty("app.invoice.columns.company_type", "company_type");
+            currEmpNameColumn = env.getProperty("app.invoice.columns.curr_emp_name", "curr_emp_name");
+            currEmpSeqColumn = env.getProperty("app.invoice.columns.curr_emp_seq", "curr_emp_seq");
+            dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
+            dateFormat = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
+            sortableTextFormat = sortableFormat(dateFormat);
+            for (String alias : new String[]{"", "i"}) {
+                fragments(alias);
+            }
+        }
 
         public String getTableName() { return tableName; }
+        public String getInvoiceSeqColumn() { return invoiceSeqColumn; }
+        public String getInvoiceNoColumn() { return invoiceNoColumn; }
         public String getCustomerSeqColumn() { return customerSeqColumn; }
         public String getInvoiceDateColumn() { return invoiceDateColumn; }
         public String getCurAmtColumn() { return curAmtColumn; }
         public String getQtyColumn() { return qtyColumn; }
+        /** 표준수량 컬럼 (std_qty → qty 순으로 설정 조회, 기본 std_qty) */
+        public String getStdQtyColumn() { return stdQtyColumn; }
         public String getItemSeqColumn() { return itemSeqColumn; }
+        public String getItemNameColumn() { return itemNameColumn; }
+        public String getItemUnitColumn() { return itemUnitColumn; }
+        public String getItemStdUnitColumn() { return itemStdUnitColumn; }
+        public String getItemSubcategoryColumn() { return itemSubcategoryColumn; }
+        public String getSalesMgmtUnitColumn() { return salesMgmtUnitColumn; }
         public String getCompanyTypeColumn() { return companyTypeColumn; }
+        public String getCurrEmpNameColumn() { return currEmpNameColumn; }
+        public String getCurrEmpSeqColumn() { return currEmpSeqColumn; }
         public boolean isDateIsText() { return dateIsText; }
         public String getDateFormat() { return dateFormat; }
+
+        /** Postgres 날짜 표현식: to_date(col, fmt) 또는 col::date */
+        public String dateExpr(String alias) { return fragments(alias).pgDate; }
+
+        /**
+         * 원본 날짜 컬럼을 그대로 범위 비교할 수 있는지 (인덱스 사용 가능)
+         * 날짜 타입 컬럼이거나, 텍스트라도 YYYY-MM-DD / YYYYMMDD 처럼 연-월-일 순 형식이면 가능
+         */
+        public boolean isDateRangeSargable() { return !dateIsText || sortableTextFormat != null; }
+
+        /**
+         * 원본 날짜 컬럼과 비교할 바인드 값 (날짜 타입이면 java.sql.Date, 텍스트면 설정 형식의 문자열)
+         * isDateRangeSargable()이 true일 때만 사용
+         */
+        public Object dateBound(LocalDate day) {
+            return dateIsText ? sortableTextFormat.format(day) : java.sql.Date.valueOf(day);
+        }
+
+        /** Postgres 연도 표현식: EXTRACT(YEAR FROM date)::int */
+        public String yearExpr(String alias) { return fragments(alias).pgYear; }
+
+        /** MSSQL 날짜 표현식: TRY_CONVERT(date, col) 또는 CAST(col AS date) */
+        public String mssqlDateExpr(String alias) { return fragments(alias).msDate; }
+
+        /** MSSQL 연도 표현식: YEAR(date) */
+        public String mssqlYearExpr(String alias) { return fragments(alias).msYear; }
+
+        private DateFragments fragments(String alias) {
+            return fragments.computeIfAbsent(nz(alias), this::buildFragments);
+        }
+
+        private DateFragments buildFragments(String alias) {
+            String col = alias.isEmpty() ? invoiceDateColumn : alias + "." + invoiceDateColumn;
+            String pgDate = dateIsText ? "to_date(" + col + ", '" + dateFormat + "')" : col + "::date";
+            String msDate = dateIsText ? "TRY_CONVERT(date, " + col + ")" : "CAST(" + col + " AS date)";
+            return new DateFragments(pgDate, "EXTRACT(YEAR FROM " + pgDate + ")::int", msDate, "YEAR(" + msDate + ")");
+        }
+
+        private static DateTimeFormatter sortableFormat(String pgFormat) {
+            Matcher m = SORTABLE_DATE_FORMAT.matcher(pgFormat.trim().toUpperCase(Locale.ROOT));
+            if (!m.matches()) return null;
+            String sep = m.group(1);
+            return DateTimeFormatter.ofPattern("yyyy" + sep + "MM" + sep + "dd");
+        }
+
+        private static String nz(String alias) {
+            return alias == null ? "" : alias;
+        }
     }
 
     /**
-     * Customer 테이블 설정
+     * Customer 테이블 설정 (불변)
      */
-    public static class CustomerTableConfig {
-        private String tableName;
-        private String customerSeqColumn;
-        private String customerIdColumn;
-        private String customerNameColumn;
-        private String assigneeIdColumn;
-        private String companyTypeColumn;
+    public static final class CustomerTableConfig {
+        private final String tableName;
+        private final String customerSeqColumn;
+        private final String customerIdColumn;
+        private final String customerNameColumn;
+        private final String assigneeIdColumn;
+        private final String companyTypeColumn;
+
+        private CustomerTableConfig(Environment env) {
+            tableName = env.getProperty("app.customer.table", "public.customer");
+            customerSeqColumn = env.getProperty("app.customer.columns.customer_seq", "customer_seq");
+            customerIdColumn = env.getProperty("app.customer.columns.customer_id", "customer_id");
+            customerNameColumn = env.getProperty("app.customer.columns.customer_name", "customer_name");
+            assigneeIdColumn = env.getProperty("app.customer.columns.assignee_id", "assignee_id");
+            companyTypeColumn = env.getProperty("app.customer.columns.company_type", "company_type");
+        }
 
         public String getTableName() { return tableName; }
         public String getCustomerSeqColumn() { return customerSeqColumn; }
@@ -0,0 +1,136 @@
+package com.tnt.sales.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Postgres 스키마 메타데이터 캐시
+ * 선택 컬럼에 따라 SQL을 조정하는 컨트롤러들이 요청마다 information_schema.columns를
+ * 조회하던 것을 대체한다.
+ *
+ * - 애플리케이션 기동 완료 시(Flyway 마이그레이션 이후) 전체 테이블/컬럼을 1회 적재
+ * - refresh()로 명시적 재적재 (POST /api/v1/health/schema/refresh)
+ * - columnExists()는 불변 스냅샷에 대한 O(1) 조회
+ * - extensionInstalled()로 설치된 확장(pg_trgm 등) 확인
+ * 적재 전(또는 DB 미기동으로 적재 실패 시)에는 일정 간격으로 재적재를 시도하고 그 사이에는 false를 반환한다.
+ */
+@Component
+public class SchemaMetadataService {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMetadataService.class);
+    private static final long RETRY_INTERVAL_MS = 30_000L;
+
+    private final JdbcTemplate jdbc;
+    private volatile Snapshot snapshot;
+    private volatile long lastAttemptMs;
+
+    private record Snapshot(Map<String, Set<String>> columns, Set<String> extensions, Instant loadedAt) { }
+
+    public SchemaMetadataService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        refresh();
+    }
+
+    /**
+     * information_schema.columns 전체(와 설치 확장 목록)를 다시 읽어 스냅샷 교체
+     * @return 적재 성공 여부
+     */
+    public synchronized boolean refresh() {
+        lastAttemptMs = System.currentTimeMillis();
+        try {
+            Map<String, Set<String>> cols = new HashMap<>();
+            jdbc.query("SELECT table_schema, table_name, column_name FROM information_schema.columns " +
+                            "WHERE table_schema NOT IN ('pg_catalog', 'information_schema')",
+                    rs -> {
+                        String key = key(rs.getString(1), rs.getString(2));
+                        cols.computeIfAbsent(key, k -> new HashSet<>()).add(rs.getString(3).toLowerCase(Locale.ROOT));
+                    });
+            Map<String, Set<String>> frozen = new HashMap<>(cols.size() * 2);
+            cols.forEach((k, v) -> frozen.put(k, Set.copyOf(v)));
+            Set<String> exts = Set.copyOf(jdbc.queryForList("SELECT extname FROM pg_extension", String.class));
+            snapshot = new Snapshot(Map.copyOf(frozen), exts, Instant.now());
+            log.info("[SchemaMetadata] loaded {} tables", frozen.size());
+            return true;
+        } catch (Exception e) {
+            log.warn("[SchemaMetadata] load failed: {}", e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 컬럼 존재 여부
+     * @param tableName 테이블명 (public.invoice, "public"."invoice", invoice 형식 지원; 스키마 생략 시 public)
+     * @param columnName 컬럼명
+     */
+    public boolean columnExists(String tableName, String columnName) {
+        if (tableName == null || columnName == null) return false;
+        Set<String> cols = columns(tableName);
+        return cols != null && cols.contains(columnName.replace("\"", "").toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 테이블 존재 여부
+     */
+    public boolean tableExists(String tableName) {
+        return tableName != null && columns(tableName) != null;
+    }
+
+    /**
+     * 확장 설치 여부 (예: pg_trgm)
+     */
+    public boolean extensionInstalled(String name) {
+        Snapshot s = snapshot;
+        if (s == null) {
+            if (System.currentTimeMillis() - lastAttemptMs < RETRY_INTERVAL_MS || !refresh()) return false;
+            s = snapshot;
+        }
+        return s.extensions().contains(name);
+    }
+
+    public Map<String, Object> status() {
+        Snapshot s = snapshot;
+        Map<String, Object> out = new HashMap<>();
+        out.put("loaded", s != null);
+        out.put("tables", s == null ? 0 : s.columns().size());
+        out.put("extensions", s == null ? List.of() : s.extensions());
+        out.put("loadedAt", s == null ? null : s.loadedAt().toString());
+        return out;
+    }
+
+    private Set<String> columns(String tableName) {
+        Snapshot s = snapshot;
+        if (s == null) {
+            if (System.currentTimeMillis() - lastAttemptMs < RETRY_INTERVAL_MS || !refresh()) return null;
+            s = snapshot;
+        }
+        String schema = "public";
+        String table = tableName.replace("\"", "");
+        // Handle schema-qualified names like public.invoice or "public"."invoice"
+        if (table.contains(".")) {
+            String[] parts = table.split("\\.", 2);
+            schema = parts[0];
+            table = parts[1];
+        }
+        return s.columns().get(key(schema, table));
+    }
+
+    private static String key(String schema, String table) {
+        return (schema + "." + table).toLowerCase(Locale.ROOT);
+    }
+}
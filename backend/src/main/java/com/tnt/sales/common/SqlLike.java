@@ -0,0 +1,24 @@
+package com.tnt.sales.common;
+
+/**
+ * LIKE/ILIKE 검색 패턴 조립
+ *
+ * 사용자 입력의 %, _ (MSSQL은 [ 포함)를 이스케이프해 입력 그대로 부분 일치시킨다.
+ * 이스케이프 문자는 '\' (Postgres 기본값, MSSQL은 {@code LIKE ? ESCAPE '\'} 로 지정).
+ * 와일드카드가 섞인 입력은 pg_trgm 인덱스가 추출할 수 있는 trigram을 줄이므로 검색 전에 항상 거친다.
+ */
+public final class SqlLike {
+
+    private SqlLike() { }
+
+    public static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_").replace("[", "\\[");
+    }
+
+    /**
+     * 부분 일치 패턴 (%keyword%, 앞뒤 공백 제거)
+     */
+    public static String contains(String keyword) {
+        return "%" + escape(keyword.trim()) + "%";
+    }
+}
@@ -0,0 +1,82 @@
+package com.tnt.sales.common;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * 동적 조립 SQL 템플릿 캐시
+ *
+ * 선택 필터 몇 개에 따라 모양만 달라지는 조회 SQL을 (endpoint, 필터 비트마스크, dialect) 키로
+ * 한 번만 조립해 재사용한다. 같은 변형에는 항상 동일한 SQL 문자열이 쓰이므로
+ * 드라이버의 서버측 prepared statement 재사용(PG prepareThreshold, MSSQL sp_prepexec 캐시)도 적용된다.
+ *
+ * 빌더는 mask만 보고 SQL을 만들어야 한다 (요청 값은 반드시 바인드 파라미터로 전달).
+ * <pre>
+ * {@code
+ * int mask = SqlTemplateRegistry.bit(0, hasName) | SqlTemplateRegistry.bit(1, hasCity);
+ * String sql = templates.get("customer.search", mask, Dialect.POSTGRES, m -> build(m));
+ * }
+ * </pre>
+ */
+@Component
+public class SqlTemplateRegistry {
+
+    public enum Dialect { POSTGRES, MSSQL }
+
+    private record Key(String endpoint, int mask, Dialect dialect) { }
+
+    private final Map<Key, String> templates = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 템플릿 조회 (없으면 builder로 1회 조립 후 저장)
+     * @param endpoint 호출 지점 식별자 (예: "report.employeeYearly.bySeq")
+     * @param mask 필터 존재 여부 비트마스크
+     * @param dialect SQL dialect
+     * @param builder mask를 받아 SQL을 조립하는 함수
+     */
+    public String get(String endpoint, int mask, Dialect dialect, IntFunction<String> builder) {
+        Key key = new Key(endpoint, mask, dialect);
+        String sql = templates.get(key);
+        if (sql != null) {
+            hits.increment();
+            return sql;
+        }
+        return templates.computeIfAbsent(key, k -> {
+            misses.increment();
+            return builder.apply(k.mask());
+        });
+    }
+
+    /**
+     * 조건이 참이면 해당 비트를 켠 값 반환
+     */
+    public static int bit(int index, boolean present) {
+        return present ? (1 << index) : 0;
+    }
+
+    /**
+     * 비트 확인
+     */
+    public static boolean has(int mask, int index) {
+        return (mask & (1 << index)) != 0;
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("templates", templates.size());
+        out.put("hits", hits.sum());
+        out.put("misses", misses.sum());
+        return out;
+    }
+}
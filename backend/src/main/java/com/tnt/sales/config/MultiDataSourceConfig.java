@@ -1,14 +1,38 @@
 package com.tnt.sales.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
 import javax.sql.DataSource;
 
+/**
+ * Postgres(쓰기/업무 DB)와 MSSQL(ERP 조회 DB) 커넥션 풀 구성
+ *
+ * 풀 설정은 app.datasource.{pg|mssql}.pool.* 로 개별 조정한다.
+ * <pre>
+ * maximum-pool-size, minimum-idle, connection-timeout-ms, idle-timeout-ms,
+ * max-lifetime-ms, leak-detection-threshold-ms
+ * </pre>
+ * 풀은 첫 커넥션 요청 시 시작되므로 nodb 프로파일에서도 DB 없이 기동된다.
+ *
+ * app.datasource.pg-replica.url 이 설정되면 읽기 복제본 풀(pg-read)을 추가로 만들고
+ * pgDataSource를 {@link ReadRoutingDataSource}로 감싼다. readOnly 트랜잭션과 {@link ReadReplica}
+ * 엔드포인트의 조회는 복제본으로, 그 외(쓰기, Flyway, MyBatis)는 primary로 간다.
+ * 미설정 시 pgDataSource는 primary 풀 그대로이다.
+ *
+ * 각 풀 앞에는 {@link ConcurrencyLimitedDataSource}가 붙는다 (app.datasource.{key}.limiter.*).
+ * <pre>
+ * max-concurrent (기본: maximum-pool-size), max-waiting (기본 500), acquire-timeout-ms (기본: connection-timeout-ms)
+ * </pre>
+ * spring.threads.virtual.enabled=true 로 가상 스레드 모드를 켜면 요청 수만큼 스레드가 생기므로
+ * 커넥션 대기는 이 제한기에서 이루어진다.
+ */
 @Configuration
 public class MultiDataSourceConfig {
 
@@ -28,21 +52,44 @@ public class MultiDataSourceConfig {
     @Value("${app.datasource.mssql.password}")
     private String msPass;
 
+    private final Environment env;
+    private final PoolMetrics poolMetrics;
+
+    public MultiDataSourceConfig(Environment env, PoolMetrics poolMetrics) {
+        this.env = env;
+        this.poolMetrics = poolMetrics;
+    }
+
     @Bean(name = "pgDataSource")
     @Primary
     public DataSource pgDataSource() {
-        return DataSourceBuilder.create()
-                .driverClassName("org.postgresql.Driver")
-                .url(pgUrl)
-                .username(pgUser)
-                .password(pgPass)
-                .build();
+        HikariDataSource primary = pool("pg", "pg-write", "org.postgresql.Driver", pgUrl, pgUser, pgPass, 20, 5);
+        pgDriverProperties(primary, "pg");
+
+        String replicaUrl = env.getProperty("app.datasource.pg-replica.url");
+        if (replicaUrl == null || replicaUrl.isBlank()) {
+            return limited("pg", primary);
+        }
+        HikariDataSource replica = pool("pg-replica", "pg-read", "org.postgresql.Driver", replicaUrl,
+                env.getProperty("app.datasource.pg-replica.username", pgUser),
+                env.getProperty("app.datasource.pg-replica.password", pgPass), 20, 2);
+        // 복제본 장애 시 빠르게 primary로 대체되도록 획득 대기를 짧게 둔다
+        replica.setConnectionTimeout(env.getProperty("app.datasource.pg-replica.pool.connection-timeout-ms", Long.class, 3_000L));
+        replica.setReadOnly(true);
+        pgDriverProperties(replica, "pg-replica");
+
+        ReadRoutingDataSource readRouting = new ReadRoutingDataSource(limited("pg", primary), limited("pg-replica", replica),
+                env.getProperty("app.datasource.pg-replica.retry-after-ms", Long.class, 30_000L));
+        poolMetrics.registerRouting(readRouting);
+        return new LazyConnectionDataSourceProxy(readRouting);
     }
 
     @Bean(name = "pgJdbcTemplate")
     @Primary
     public JdbcTemplate pgJdbcTemplate(@org.springframework.beans.factory.annotation.Qualifier("pgDataSource") DataSource pgDataSource) {
-        return new JdbcTemplate(pgDataSource);
+        JdbcTemplate t = new JdbcTemplate(pgDataSource);
+        t.setFetchSize(fetchSize("pg"));
+        return t;
     }
 
     @Bean(name = "mssqlDataSource")
@@ -56,16 +103,72 @@ public class MultiDataSourceConfig {
             urlWithTimeout = urlWithTimeout + ";connectTimeout=5000";
         }
 
-        return DataSourceBuilder.create()
-                .driverClassName("com.microsoft.sqlserver.jdbc.SQLServerDriver")
-                .url(urlWithTimeout)
-                .username(msUser)
-                .password(msPass)
-                .build();
+        HikariDataSource ds = pool("mssql", "mssql-read", "com.microsoft.sqlserver.jdbc.SQLServerDriver",
+                urlWithTimeout, msUser, msPass, 10, 2);
+        // 문자열 파라미터를 VARCHAR로 전송해 VARCHAR 컬럼 인덱스 seek 유지 (NVARCHAR 변환 스캔 방지)
+        // NVARCHAR 컬럼에 DB 코드페이지 밖의 문자를 보내야 하면 true로 변경
+        ds.addDataSourceProperty("sendStringParametersAsUnicode",
+                env.getProperty("app.datasource.mssql.send-string-parameters-as-unicode", "false"));
+        ds.addDataSourceProperty("statementPoolingCacheSize",
+                env.getProperty("app.datasource.mssql.statement-pooling-cache-size", "256"));
+        ds.addDataSourceProperty("disableStatementPooling", "false");
+        ds.addDataSourceProperty("responseBuffering", "adaptive");
+        ds.addDataSourceProperty("applicationName", "tnt-sales");
+        return limited("mssql", ds);
     }
 
     @Bean(name = "mssqlJdbcTemplate")
     public JdbcTemplate mssqlJdbcTemplate(@org.springframework.beans.factory.annotation.Qualifier("mssqlDataSource") DataSource mssqlDataSource) {
-        return new JdbcTemplate(mssqlDataSource);
+        JdbcTemplate t = new JdbcTemplate(mssqlDataSource);
+        t.setFetchSize(fetchSize("mssql"));
+        return t;
+    }
+
+    private void pgDriverProperties(HikariDataSource ds, String key) {
+        // 서버측 prepared statement: 같은 SQL이 3회 실행되면 named statement로 전환, 커넥션당 256개 캐시
+        ds.addDataSourceProperty("prepareThreshold", env.getProperty("app.datasource.pg.prepare-threshold", "3"));
+        ds.addDataSourceProperty("preparedStatementCacheQueries",
+                env.getProperty("app.datasource.pg.prepared-statement-cache-queries", "256"));
+        ds.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                env.getProperty("app.datasource.pg.prepared-statement-cache-size-mib", "5"));
+        ds.addDataSourceProperty("defaultRowFetchSize", String.valueOf(fetchSize(key)));
+        ds.addDataSourceProperty("reWriteBatchedInserts", "true");
+        ds.addDataSourceProperty("ApplicationName", "tnt-sales");
+    }
+
+    private HikariDataSource pool(String key, String poolName, String driver, String url, String user, String pass,
+                                  int defaultMax, int defaultMinIdle) {
+        String p = "app.datasource." + key + ".pool.";
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName(poolName);
+        ds.setDriverClassName(driver);
+        ds.setJdbcUrl(url);
+        ds.setUsername(user);
+        ds.setPassword(pass);
+        ds.setMaximumPoolSize(env.getProperty(p + "maximum-pool-size", Integer.class, defaultMax));
+        ds.setMinimumIdle(env.getProperty(p + "minimum-idle", Integer.class, defaultMinIdle));
+        ds.setConnectionTimeout(env.getProperty(p + "connection-timeout-ms", Long.class, 10_000L));
+        ds.setIdleTimeout(env.getProperty(p + "idle-timeout-ms", Long.class, 600_000L));
+        ds.setMaxLifetime(env.getProperty(p + "max-lifetime-ms", Long.class, 1_800_000L));
+        ds.setLeakDetectionThreshold(env.getProperty(p + "leak-detection-threshold-ms", Long.class, 60_000L));
+        // 기동 시 DB 연결을 강제하지 않음 (nodb 프로파일 / DB 일시 중단 대응)
+        ds.setInitializationFailTimeout(-1);
+        ds.setMetricsTrackerFactory(poolMetrics);
+        poolMetrics.register(ds);
+        return ds;
+    }
+
+    private DataSource limited(String key, HikariDataSource ds) {
+        String p = "app.datasource." + key + ".limiter.";
+        ConcurrencyLimitedDataSource limiter = new ConcurrencyLimitedDataSource(ds.getPoolName(), ds,
+                env.getProperty(p + "max-concurrent", Integer.class, ds.getMaximumPoolSize()),
+                env.getProperty(p + "max-waiting", Integer.class, 500),
+                env.getProperty(p + "acquire-timeout-ms", Long.class, ds.getConnectionTimeout()));
+        poolMetrics.registerLimiter(ds.getPoolName(), limiter);
+        return limiter;
+    }
+
+    private int fetchSize(String key) {
+        return env.getProperty("app.datasource." + key + ".fetch-size", Integer.class, 500);
     }
 }
@@ -0,0 +1,124 @@
+package com.tnt.sales.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hikari 커넥션 풀 지표 수집
+ *
+ * 각 풀에 MetricsTrackerFactory로 연결되어 커넥션 획득 지연(acquire), 사용 시간, 타임아웃을 누적하고
+ * 풀 상태(active/idle/pending)와 함께 GET /api/v1/health/pools 로 노출한다.
+ * 풀 앞단 동시 사용 제한기(permit 사용/대기/거절)와, 읽기 복제본이 설정된 경우 primary/복제본 라우팅 건수도 함께 보고한다.
+ */
+@Component
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+    private final Map<String, HikariDataSource> pools = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrencyLimitedDataSource> limiters = new ConcurrentHashMap<>();
+    private volatile ReadRoutingDataSource readRouting;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return trackers.computeIfAbsent(poolName, k -> new Tracker());
+    }
+
+    void register(HikariDataSource ds) {
+        pools.put(ds.getPoolName(), ds);
+    }
+
+    void registerLimiter(String poolName, ConcurrencyLimitedDataSource limiter) {
+        limiters.put(poolName, limiter);
+    }
+
+    void registerRouting(ReadRoutingDataSource routing) {
+        this.readRouting = routing;
+    }
+
+    /**
+     * 풀별 상태/지표 스냅샷
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        pools.forEach((name, ds) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("maximumPoolSize", ds.getMaximumPoolSize());
+            m.put("minimumIdle", ds.getMinimumIdle());
+            HikariPoolMXBean mx = ds.getHikariPoolMXBean();
+            if (mx == null) {
+                // 풀은 첫 커넥션 요청 시 시작됨
+                m.put("started", false);
+            } else {
+                m.put("started", true);
+                m.put("active", mx.getActiveConnections());
+                m.put("idle", mx.getIdleConnections());
+                m.put("total", mx.getTotalConnections());
+                m.put("pending", mx.getThreadsAwaitingConnection());
+            }
+            Tracker t = trackers.get(name);
+            if (t != null) m.putAll(t.stats());
+            ConcurrencyLimitedDataSource limiter = limiters.get(name);
+            if (limiter != null) m.put("limiter", limiter.stats());
+            out.put(name, m);
+        });
+        ReadRoutingDataSource routing = readRouting;
+        if (routing != null) out.put("readRouting", routing.stats());
+        return out;
+    }
+
+    private static final class Tracker implements IMetricsTracker {
+        private final LongAdder acquireCount = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator acquireMaxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAccumulator usageMaxMillis = new LongAccumulator(Math::max, 0);
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder created = new LongAdder();
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            created.increment();
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMillis.add(elapsedBorrowedMillis);
+            usageMaxMillis.accumulate(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        Map<String, Object> stats() {
+            long n = acquireCount.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("acquireCount", n);
+            m.put("acquireAvgMs", n == 0 ? 0d : acquireNanos.sum() / 1_000_000d / n);
+            m.put("acquireMaxMs", acquireMaxNanos.get() / 1_000_000d);
+            m.put("usageAvgMs", n == 0 ? 0d : (double) usageMillis.sum() / n);
+            m.put("usageMaxMs", usageMaxMillis.get());
+            m.put("timeouts", timeouts.sum());
+            m.put("connectionsCreated", created.sum());
+            return m;
+        }
+    }
+}
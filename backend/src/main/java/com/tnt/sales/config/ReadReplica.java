@@ -0,0 +1,22 @@
+package com.tnt.sales.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 조회 전용 엔드포인트 표시
+ *
+ * 컨트롤러 클래스 또는 핸들러 메서드에 붙이면 GET/HEAD 요청 처리 동안의 pgJdbcTemplate 조회가
+ * 읽기 복제본(pg-read)으로 라우팅된다. 복제본이 설정되지 않았거나 연결할 수 없으면 primary를 사용한다.
+ * 쓰기 트랜잭션(@Transactional, TransactionTemplate) 안의 SQL은 이 표시와 무관하게 항상 primary로 간다.
+ *
+ * @see ReadRoutingDataSource
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadReplica {
+}
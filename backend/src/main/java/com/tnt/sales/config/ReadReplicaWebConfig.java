@@ -0,0 +1,40 @@
+package com.tnt.sales.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * {@link ReadReplica} 엔드포인트의 GET/HEAD 요청을 읽기 복제본 경로로 표시
+ */
+@Configuration
+public class ReadReplicaWebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadReplicaInterceptor()).addPathPatterns("/api/**");
+    }
+
+    static class ReadReplicaInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            String method = request.getMethod();
+            if (("GET".equals(method) || "HEAD".equals(method))
+                    && handler instanceof HandlerMethod hm
+                    && (hm.hasMethodAnnotation(ReadReplica.class) || hm.getBeanType().isAnnotationPresent(ReadReplica.class))) {
+                ReadRoutingDataSource.markReadRoute();
+            }
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            ReadRoutingDataSource.clearReadRoute();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.tnt.sales.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * primary / 읽기 복제본 라우팅 DataSource
+ *
+ * 커넥션을 실제로 얻는 시점에 경로를 결정한다.
+ * <ul>
+ *   <li>트랜잭션 안: readOnly 트랜잭션이면 복제본, 아니면 primary</li>
+ *   <li>트랜잭션 밖: {@link ReadReplica} 엔드포인트 처리 중이면 복제본, 아니면 primary</li>
+ * </ul>
+ * 트랜잭션 속성이 확정된 뒤 커넥션을 얻도록 LazyConnectionDataSourceProxy로 감싸서 사용한다.
+ * 복제본 커넥션 획득이 실패하면 primary로 대체하고 retryAfterMs 동안 복제본을 건너뛴다.
+ */
+public class ReadRoutingDataSource extends AbstractDataSource {
+    private static final Logger log = LoggerFactory.getLogger(ReadRoutingDataSource.class);
+
+    private static final ThreadLocal<Boolean> READ_ROUTE = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long retryAfterMs;
+    private volatile long replicaDownUntil;
+
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReadRoutingDataSource(DataSource primary, DataSource replica, long retryAfterMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    /**
+     * 현재 스레드의 트랜잭션 밖 조회를 복제본으로 보냄 (요청 종료 시 {@link #clearReadRoute()} 필수)
+     */
+    public static void markReadRoute() {
+        READ_ROUTE.set(Boolean.TRUE);
+    }
+
+    public static void clearReadRoute() {
+        READ_ROUTE.remove();
+    }
+
+    /**
+     * 현재 스레드의 복제본 표시를 다른 스레드(executor, CompletableFuture)에서 실행될 작업에 전달
+     * 호출 스레드에서 감싸야 하며, 작업 스레드의 표시는 작업이 끝나면 해제된다.
+     */
+    public static <T> Supplier<T> withCurrentRoute(Supplier<T> task) {
+        if (!Boolean.TRUE.equals(READ_ROUTE.get())) return task;
+        return () -> {
+            markReadRoute();
+            try {
+                return task.get();
+            } finally {
+                clearReadRoute();
+            }
+        };
+    }
+
+    static boolean isReadRoute() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return Boolean.TRUE.equals(READ_ROUTE.get());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (isReadRoute() && System.currentTimeMillis() >= replicaDownUntil) {
+            try {
+                Connection c = replica.getConnection();
+                replicaRoutes.increment();
+                return c;
+            } catch (SQLException e) {
+                replicaDownUntil = System.currentTimeMillis() + retryAfterMs;
+                fallbacks.increment();
+                log.warn("Read replica unavailable, falling back to primary for {} ms: {}", retryAfterMs, e.getMessage());
+            }
+        }
+        primaryRoutes.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryRoutes.increment();
+        return primary.getConnection(username, password);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("primaryRoutes", primaryRoutes.sum());
+        m.put("replicaRoutes", replicaRoutes.sum());
+        m.put("fallbacks", fallbacks.sum());
+        m.put("replicaAvailable", System.currentTimeMillis() >= replicaDownUntil);
+        return m;
+    }
+}
@@ -1,13 +1,21 @@
 package com.tnt.sales.credit.api;
 
+import com.tnt.sales.credit.service.ArAgingDeltaService;
 import com.tnt.sales.credit.service.CreditService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -21,6 +29,15 @@ public class CreditController {
     @Autowired
     CreditService creditService;
 
+    @Autowired
+    ArAgingDeltaService deltaService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final int MAX_DELTA_LIMIT = 5000;
+
     /**
      * GET /api/v1/credit/sales-reps
      * Get unique sales rep list
@@ -69,7 +86,8 @@ public class CreditController {
 
     /**
      * GET /api/v1/credit/ar-aging
-     * Query AR Aging data with filters
+     * Query AR Aging data with filters, one keyset page at a time
+     * (pass the returned nextCursor as cursor to get the next page)
      */
     @GetMapping("/ar-aging")
     public ResponseEntity<Map<String, Object>> getArAging(
@@ -78,57 +96,31 @@ public class CreditController {
             @RequestParam(required = false) String customerName,
             @RequestParam(required = false) String riskLevel,
             @RequestParam(required = false) String agingBucket,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate snapshotDate
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate snapshotDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1000") int pageSize
     ) {
-        log.info("GET /api/v1/credit/ar-aging - company: {}, salesRep: {}, customerName: {}, riskLevel: {}, agingBucket: {}, snapshotDate: {}",
-                company, salesRep, customerName, riskLevel, agingBucket, snapshotDate);
+        log.info("GET /api/v1/credit/ar-aging - company: {}, salesRep: {}, customerName: {}, riskLevel: {}, agingBucket: {}, snapshotDate: {}, cursor: {}",
+                company, salesRep, customerName, riskLevel, agingBucket, snapshotDate, cursor);
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Map<String, Object>> items = creditService.queryArAging(
-                    company, salesRep, customerName, riskLevel, agingBucket, snapshotDate
+            Map<String, Object> page = creditService.queryArAgingPage(
+                    company, salesRep, customerName, riskLevel, agingBucket, snapshotDate,
+                    cursor, Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE))
             );
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> items = (List<Map<String, Object>>) page.get("items");
 
             // Calculate risk level for each item
-            for (Map<String, Object> item : items) {
-                BigDecimal totalAr = (BigDecimal) item.get("total_ar");
-                BigDecimal overdue = BigDecimal.ZERO;
-
-                // Calculate overdue (sum of all aging buckets except 0-30)
-                String[] overdueFields = {"aging_31_60", "aging_61_90", "aging_91_120", "aging_121_150",
-                                         "aging_151_180", "aging_181_210", "aging_211_240", "aging_241_270",
-                                         "aging_271_300", "aging_301_330", "aging_331_365", "aging_over_365"};
-
-                for (String field : overdueFields) {
-                    BigDecimal value = (BigDecimal) item.get(field);
-                    if (value != null) {
-                        overdue = overdue.add(value);
-                    }
-                }
-
-                item.put("overdue", overdue);
-
-                // Determine risk level
-                String riskLevelCalc = "low";
-                if (totalAr != null && totalAr.compareTo(BigDecimal.ZERO) > 0) {
-                    double overdueRatio = overdue.divide(totalAr, 4, RoundingMode.HALF_UP).doubleValue();
-                    if (overdueRatio > 0.3) {
-                        riskLevelCalc = "high";
-                    } else if (overdueRatio > 0.1) {
-                        riskLevelCalc = "medium";
-                    }
-                }
-                item.put("riskLevel", riskLevelCalc);
-            }
-
-            // Filter by risk level if specified
-            if (riskLevel != null && !riskLevel.isEmpty() && !"all".equals(riskLevel)) {
-                items.removeIf(item -> !riskLevel.equals(item.get("riskLevel")));
-            }
+            items.forEach(CreditController::applyRiskLevel);
 
             response.put("items", items);
             response.put("total", items.size());
+            response.put("snapshotDate", page.get("snapshotDate"));
+            response.put("nextCursor", page.get("nextCursor"));
+            response.put("hasMore", page.get("nextCursor") != null);
 
         } catch (Exception e) {
             log.error("Error in GET /api/v1/credit/ar-aging", e);
@@ -139,6 +131,164 @@ public class CreditController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/v1/credit/ar-aging/summary
+     * Summary card totals for the same filters as /ar-aging, aggregated in the database
+     */
+    @GetMapping("/ar-aging/summary")
+    public ResponseEntity<Map<String, Object>> getArAgingSummary(
+            @RequestParam(required = false) String company,
+            @RequestParam(required = false) String salesRep,
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) String riskLevel,
+            @RequestParam(required = false) String agingBucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate snapshotDate
+    ) {
+        log.info("GET /api/v1/credit/ar-aging/summary - company: {}, salesRep: {}, customerName: {}, riskLevel: {}, agingBucket: {}, snapshotDate: {}",
+                company, salesRep, customerName, riskLevel, agingBucket, snapshotDate);
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            response.putAll(creditService.summarizeArAging(company, salesRep, customerName, riskLevel, agingBucket, snapshotDate));
+        } catch (Exception e) {
+            log.error("Error in GET /api/v1/credit/ar-aging/summary", e);
+            response.put("error", "Failed to summarize AR aging data: " + e.getMessage());
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /api/v1/credit/ar-aging/stream
+     * Every matching AR aging row as one streamed JSON document ({"items": [...], "total": n}),
+     * written row by row from a database cursor
+     */
+    @GetMapping(value = "/ar-aging/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamArAging(
+            @RequestParam(required = false) String company,
+            @RequestParam(required = false) String salesRep,
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) String riskLevel,
+            @RequestParam(required = false) String agingBucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate snapshotDate
+    ) {
+        log.info("GET /api/v1/credit/ar-aging/stream - company: {}, salesRep: {}, riskLevel: {}, agingBucket: {}, snapshotDate: {}",
+                company, salesRep, riskLevel, agingBucket, snapshotDate);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("items");
+                long total = creditService.streamArAging(company, salesRep, customerName, riskLevel, agingBucket, snapshotDate,
+                        rs -> {
+                            Map<String, Object> item = rowMapper.mapRow(rs, 0);
+                            applyRiskLevel(item);
+                            try {
+                                objectMapper.writeValue(gen, item);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                gen.writeEndArray();
+                gen.writeNumberField("total", total);
+                gen.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static void applyRiskLevel(Map<String, Object> item) {
+        BigDecimal totalAr = (BigDecimal) item.get("total_ar");
+        BigDecimal overdue = BigDecimal.ZERO;
+
+        // Calculate overdue (sum of all aging buckets except 0-30)
+        String[] overdueFields = {"aging_31_60", "aging_61_90", "aging_91_120", "aging_121_150",
+                                 "aging_151_180", "aging_181_210", "aging_211_240", "aging_241_270",
+                                 "aging_271_300", "aging_301_330", "aging_331_365", "aging_over_365"};
+
+        for (String field : overdueFields) {
+            BigDecimal value = (BigDecimal) item.get(field);
+            if (value != null) {
+                overdue = overdue.add(value);
+            }
+        }
+
+        item.put("overdue", overdue);
+
+        // Determine risk level
+        String riskLevelCalc = "low";
+        if (totalAr != null && totalAr.compareTo(BigDecimal.ZERO) > 0) {
+            double overdueRatio = overdue.divide(totalAr, 4, RoundingMode.HALF_UP).doubleValue();
+            if (overdueRatio > 0.3) {
+                riskLevelCalc = "high";
+            } else if (overdueRatio > 0.1) {
+                riskLevelCalc = "medium";
+            }
+        }
+        item.put("riskLevel", riskLevelCalc);
+    }
+
+    /**
+     * GET /api/v1/credit/snapshot-delta
+     * Per-customer bucket migration between two snapshots (default: previous -> latest),
+     * worst deterioration first
+     */
+    @GetMapping("/snapshot-delta")
+    public ResponseEntity<Map<String, Object>> getSnapshotDelta(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) String changeType,
+            @RequestParam(required = false) String company,
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        log.info("GET /api/v1/credit/snapshot-delta - from: {}, to: {}, changeType: {}, company: {}",
+                fromDate, toDate, changeType, company);
+
+        try {
+            return ResponseEntity.ok(deltaService.getDelta(fromDate, toDate, changeType, company,
+                    Math.max(1, Math.min(limit, MAX_DELTA_LIMIT))));
+        } catch (Exception e) {
+            log.error("Error in GET /api/v1/credit/snapshot-delta", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Failed to compute snapshot delta: " + e.getMessage());
+            response.put("items", new ArrayList<>());
+            return ResponseEntity.ok(response);
+        }
+    }
+
+    /**
+     * POST /api/v1/credit/snapshot-delta/refresh
+     * Recompute and store the delta for a snapshot pair (default: previous -> latest)
+     */
+    @PostMapping("/snapshot-delta/refresh")
+    public ResponseEntity<Map<String, Object>> refreshSnapshotDelta(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LocalDate to = toDate != null ? toDate : creditService.getSnapshotDates().stream().findFirst().orElse(null);
+            LocalDate from = fromDate != null ? fromDate : (to == null ? null : deltaService.previousSnapshot(to));
+            if (from == null || to == null) {
+                response.put("success", false);
+                response.put("error", "Two snapshots are required");
+                return ResponseEntity.ok(response);
+            }
+            int rows = deltaService.refresh(from, to);
+            response.put("success", true);
+            response.put("fromSnapshot", from);
+            response.put("toSnapshot", to);
+            response.put("rows", rows);
+        } catch (Exception e) {
+            log.error("Error in POST /api/v1/credit/snapshot-delta/refresh", e);
+            response.put("success", false);
+            response.put("error", e.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * GET /api/v1/credit/customers/{customerSeq}
      * Get customer credit detail
@@ -0,0 +1,218 @@
+package com.tnt.sales.credit.service;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * credit_ar_aging 스냅샷 간 고객·회사별 변동(버킷 이동, 연체/채권 증감)
+ *
+ * 두 스냅샷을 한 번에 읽어 (customer_seq, company_type)별로 집계하는 단일 쿼리로 계산한다 (company_type NULL은 '').
+ * 주기적으로 최신 스냅샷 쌍(직전 → 최신)을 확인해 아직 저장되지 않은 쌍일 때만 public.credit_ar_aging_delta 에 계산해 두고
+ * (같은 날짜 스냅샷을 다시 적재한 경우는 POST /snapshot-delta/refresh 로 재계산),
+ * 조회 시 해당 쌍이 저장되어 있으면 테이블에서, 아니면 즉석 계산으로 응답한다.
+ */
+@Service
+public class ArAgingDeltaService {
+    private static final Logger log = LoggerFactory.getLogger(ArAgingDeltaService.class);
+
+    // 버킷 순위 → 라벨 (0 = 잔액 없음)
+    static final String[] BUCKET_LABELS = {
+            null, "0-30", "31-60", "61-90", "91-120", "121-150", "151-180", "181-210",
+            "211-240", "241-270", "271-300", "301-330", "331-365", "over-365"};
+
+    // 양수 잔액이 있는 가장 오래된 버킷 순위 (V17 oldest_bucket 과 같은 기준)
+    private static final String BUCKET_RANK_SQL =
+            "CASE WHEN aging_over_365 > 0 THEN 13 WHEN aging_331_365 > 0 THEN 12 WHEN aging_301_330 > 0 THEN 11 " +
+            "WHEN aging_271_300 > 0 THEN 10 WHEN aging_241_270 > 0 THEN 9 WHEN aging_211_240 > 0 THEN 8 " +
+            "WHEN aging_181_210 > 0 THEN 7 WHEN aging_151_180 > 0 THEN 6 WHEN aging_121_150 > 0 THEN 5 " +
+            "WHEN aging_91_120 > 0 THEN 4 WHEN aging_61_90 > 0 THEN 3 WHEN aging_31_60 > 0 THEN 2 " +
+            "WHEN aging_0_30 > 0 THEN 1 ELSE 0 END";
+
+    private static final String DELTA_COLUMNS =
+            "customer_seq, customer_name, company_type, emp_name, from_total_ar, to_total_ar, total_ar_change, " +
+            "from_overdue, to_overdue, overdue_change, from_bucket, to_bucket, bucket_shift, from_risk, to_risk, change_type";
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final QueryConfigHelper configHelper;
+    private final ArAgingSnapshotTracker snapshotTracker;
+    private final TransactionTemplate tx;
+
+    public ArAgingDeltaService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+                               QueryConfigHelper configHelper, ArAgingSnapshotTracker snapshotTracker,
+                               PlatformTransactionManager txManager) {
+        this.jdbc = jdbc;
+        this.env = env;
+        this.configHelper = configHelper;
+        this.snapshotTracker = snapshotTracker;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * 스냅샷 변동 조회
+     * @param from 비교 기준 스냅샷 (null이면 to 직전 스냅샷)
+     * @param to 비교 대상 스냅샷 (null이면 최신)
+     * @param changeType NEW, CLEARED, WORSENED, IMPROVED, UNCHANGED (null/all이면 전체)
+     * @param company 회사 구분 (null/all이면 전체)
+     * @param limit 최대 건수
+     */
+    public Map<String, Object> getDelta(LocalDate from, LocalDate to, String changeType, String company, int limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (to == null) to = snapshotTracker.latestSnapshotDate();
+        if (to != null && from == null) from = previousSnapshot(to);
+        result.put("fromSnapshot", from);
+        result.put("toSnapshot", to);
+        if (from == null || to == null) {
+            result.put("precomputed", false);
+            result.put("items", new ArrayList<>());
+            result.put("total", 0);
+            return result;
+        }
+
+        boolean precomputed = isPrecomputed(from, to);
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(DELTA_COLUMNS).append(" FROM ");
+        if (precomputed) {
+            sql.append("public.credit_ar_aging_delta d WHERE to_snapshot = ? AND from_snapshot = ?");
+            params.add(to);
+            params.add(from);
+        } else {
+            sql.append("(").append(deltaSql()).append(") d WHERE 1=1");
+            params.addAll(deltaParams(from, to));
+        }
+        if (changeType != null && !changeType.isBlank() && !"all".equalsIgnoreCase(changeType)) {
+            sql.append(" AND change_type = ?");
+            params.add(changeType.toUpperCase());
+        }
+        if (company != null && !company.isBlank() && !"all".equals(company)) {
+            sql.append(" AND company_type = ?");
+            params.add(company);
+        }
+        sql.append(" ORDER BY bucket_shift DESC, overdue_change DESC, customer_seq, company_type LIMIT ?");
+        params.add(limit);
+
+        List<Map<String, Object>> items = jdbc.queryForList(sql.toString(), params.toArray());
+        for (Map<String, Object> item : items) {
+            item.put("from_bucket_label", label(item.get("from_bucket")));
+            item.put("to_bucket_label", label(item.get("to_bucket")));
+        }
+        result.put("precomputed", precomputed);
+        result.put("items", items);
+        result.put("total", items.size());
+        return result;
+    }
+
+    /**
+     * 최신 스냅샷 쌍 (직전 → 최신) 이 바뀌었으면 변동 계산 (이미 저장된 쌍이면 건너뜀)
+     */
+    @Scheduled(initialDelayString = "${app.credit.delta.initial-delay-ms:60000}",
+               fixedDelayString = "${app.credit.delta.refresh-ms:300000}")
+    public void scheduledRefresh() {
+        if (!Boolean.parseBoolean(env.getProperty("app.credit.delta.enabled", "true")) || configHelper.isNoDbProfile()) {
+            return;
+        }
+        try {
+            snapshotTracker.invalidate();
+            LocalDate to = snapshotTracker.latestSnapshotDate();
+            LocalDate from = to == null ? null : previousSnapshot(to);
+            if (from != null && !isPrecomputed(from, to)) {
+                refresh(from, to);
+            }
+        } catch (Exception ex) {
+            log.warn("[CreditArAgingDelta] scheduled refresh failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 지정한 스냅샷 쌍의 변동을 다시 계산해 저장
+     * @return 저장된 고객 수
+     */
+    public int refresh(LocalDate from, LocalDate to) {
+        Integer rows = tx.execute(status -> {
+            jdbc.update("DELETE FROM public.credit_ar_aging_delta WHERE to_snapshot = ? AND from_snapshot = ?", to, from);
+            List<Object> params = new ArrayList<>();
+            params.add(from);
+            params.add(to);
+            params.addAll(deltaParams(from, to));
+            return jdbc.update("INSERT INTO public.credit_ar_aging_delta (from_snapshot, to_snapshot, " + DELTA_COLUMNS + ") " +
+                    "SELECT ?, ?, " + DELTA_COLUMNS + " FROM (" + deltaSql() + ") d", params.toArray());
+        });
+        log.info("[CreditArAgingDelta] stored {} customer deltas for {} -> {}", rows, from, to);
+        return rows == null ? 0 : rows;
+    }
+
+    public LocalDate previousSnapshot(LocalDate to) {
+        return jdbc.queryForObject(
+                "SELECT MAX(snapshot_date) FROM public.credit_ar_aging WHERE snapshot_date < ?", LocalDate.class, to);
+    }
+
+    private boolean isPrecomputed(LocalDate from, LocalDate to) {
+        try {
+            Boolean exists = jdbc.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM public.credit_ar_aging_delta WHERE to_snapshot = ? AND from_snapshot = ?)",
+                    Boolean.class, to, from);
+            return Boolean.TRUE.equals(exists);
+        } catch (Exception ex) {
+            // 마이그레이션 전 (테이블 없음)
+            return false;
+        }
+    }
+
+    // 두 스냅샷 행을 고객·회사별로 한 번에 집계 (파라미터: deltaParams 순서)
+    private static String deltaSql() {
+        return "SELECT customer_seq, customer_name, company_type, emp_name, " +
+               "from_total_ar, to_total_ar, COALESCE(to_total_ar, 0) - COALESCE(from_total_ar, 0) AS total_ar_change, " +
+               "from_overdue, to_overdue, COALESCE(to_overdue, 0) - COALESCE(from_overdue, 0) AS overdue_change, " +
+               "from_bucket, to_bucket, to_bucket - from_bucket AS bucket_shift, " +
+               riskSql("from_overdue", "from_total_ar") + " AS from_risk, " +
+               riskSql("to_overdue", "to_total_ar") + " AS to_risk, " +
+               "CASE WHEN NOT in_from THEN 'NEW' WHEN NOT in_to THEN 'CLEARED' " +
+               "     WHEN to_bucket > from_bucket OR COALESCE(to_overdue, 0) > COALESCE(from_overdue, 0) THEN 'WORSENED' " +
+               "     WHEN to_bucket < from_bucket OR COALESCE(to_overdue, 0) < COALESCE(from_overdue, 0) THEN 'IMPROVED' " +
+               "     ELSE 'UNCHANGED' END AS change_type " +
+               "FROM ( " +
+               "  SELECT customer_seq, MAX(customer_name) AS customer_name, company_type, MAX(emp_name) AS emp_name, " +
+               "    SUM(total_ar) FILTER (WHERE snapshot_date = ?) AS from_total_ar, " +
+               "    SUM(total_ar) FILTER (WHERE snapshot_date = ?) AS to_total_ar, " +
+               "    SUM(overdue) FILTER (WHERE snapshot_date = ?) AS from_overdue, " +
+               "    SUM(overdue) FILTER (WHERE snapshot_date = ?) AS to_overdue, " +
+               "    COALESCE(MAX(bucket_rank) FILTER (WHERE snapshot_date = ?), 0) AS from_bucket, " +
+               "    COALESCE(MAX(bucket_rank) FILTER (WHERE snapshot_date = ?), 0) AS to_bucket, " +
+               "    BOOL_OR(snapshot_date = ?) AS in_from, BOOL_OR(snapshot_date = ?) AS in_to " +
+               "  FROM (SELECT customer_seq, customer_name, COALESCE(company_type, '') AS company_type, emp_name, snapshot_date, total_ar, " +
+               "          overdue_amount AS overdue, " + BUCKET_RANK_SQL + " AS bucket_rank " +
+               "        FROM public.credit_ar_aging WHERE snapshot_date IN (?, ?)) a " +
+               "  GROUP BY customer_seq, company_type " +
+               ") g";
+    }
+
+    private static List<Object> deltaParams(LocalDate from, LocalDate to) {
+        return List.of(from, to, from, to, from, to, from, to, from, to);
+    }
+
+    private static String riskSql(String overdue, String total) {
+        return "CASE WHEN " + total + " IS NULL OR " + total + " <= 0 THEN 'low' " +
+               "WHEN ROUND(" + overdue + " / " + total + ", 4) > 0.3 THEN 'high' " +
+               "WHEN ROUND(" + overdue + " / " + total + ", 4) > 0.1 THEN 'medium' ELSE 'low' END";
+    }
+
+    private static String label(Object rank) {
+        if (!(rank instanceof Number n)) return null;
+        int i = n.intValue();
+        return i > 0 && i < BUCKET_LABELS.length ? BUCKET_LABELS[i] : null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.tnt.sales.credit.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * credit_ar_aging 최신 스냅샷 일자 캐시
+ *
+ * 스냅샷은 외부 적재 작업이 넣으므로 적재 시점을 알 수 없다. 최신 일자를 ttl(app.credit.snapshot-cache-ttl-ms,
+ * 기본 60초) 동안 재사용해 화면 조회마다 MAX(snapshot_date) 서브쿼리를 반복하지 않는다.
+ */
+@Component
+public class ArAgingSnapshotTracker {
+    private static final Logger log = LoggerFactory.getLogger(ArAgingSnapshotTracker.class);
+
+    private record Latest(LocalDate date, long checkedAt) { }
+
+    private final JdbcTemplate jdbc;
+    private final long ttlMs;
+    private volatile Latest latest;
+
+    public ArAgingSnapshotTracker(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env) {
+        this.jdbc = jdbc;
+        this.ttlMs = env.getProperty("app.credit.snapshot-cache-ttl-ms", Long.class, 60_000L);
+    }
+
+    /**
+     * 최신 스냅샷 일자 (데이터가 없으면 null)
+     */
+    public LocalDate latestSnapshotDate() {
+        Latest l = latest;
+        long now = System.currentTimeMillis();
+        if (l != null && now - l.checkedAt() < ttlMs) {
+            return l.date();
+        }
+        LocalDate d = jdbc.queryForObject("SELECT MAX(snapshot_date) FROM public.credit_ar_aging", LocalDate.class);
+        if (l != null && d != null && !d.equals(l.date())) {
+            log.info("[CreditArAging] new snapshot detected: {} -> {}", l.date(), d);
+        }
+        latest = new Latest(d, now);
+        return d;
+    }
+
+    public void invalidate() {
+        latest = null;
+    }
+}
@@ -5,15 +5,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class CreditService {
@@ -23,6 +29,17 @@ public class CreditService {
     @Qualifier("pgJdbcTemplate")
     JdbcTemplate pgJdbc;
 
+    @Autowired
+    ArAgingSnapshotTracker snapshotTracker;
+
+    @Autowired
+    PlatformTransactionManager txManager;
+
+    // credit_ar_aging.oldest_bucket 값 (화면 agingBucket 파라미터와 동일)
+    private static final Set<String> AGING_BUCKETS = Set.of(
+            "0-30", "31-60", "61-90", "91-120", "121-150", "151-180", "181-210",
+            "211-240", "241-270", "271-300", "301-330", "331-365", "over-365");
+
     /**
      * Get unique sales rep names
      */
@@ -72,9 +89,119 @@ public class CreditService {
     }
 
     /**
-     * Query AR Aging data with filters
+     * Query AR Aging data with filters (keyset pagination)
+     *
+     * total_ar 내림차순, (total_ar, COALESCE(customer_seq, 0), id) 키셋으로 페이지를 넘긴다. total_ar 가 NULL 인 행은 맨 뒤에 온다.
+     * customer_seq 가 NULL 인 행은 0 으로 정렬해 키셋 비교에서 빠지지 않게 한다 (V19 식 인덱스와 같은 식).
+     * @param cursor 이전 페이지의 nextCursor (첫 페이지는 null)
+     * @param pageSize 페이지 크기
+     * @return items, nextCursor(마지막 페이지면 null), snapshotDate
+     */
+    public Map<String, Object> queryArAgingPage(
+            String company,
+            String salesRep,
+            String customerName,
+            String riskLevel,
+            String agingBucket,
+            LocalDate snapshotDate,
+            String cursor,
+            int pageSize
+    ) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", new ArrayList<>());
+        page.put("nextCursor", null);
+
+        List<Object> params = new ArrayList<>();
+        String base = arAgingBaseSql(params, company, salesRep, customerName, riskLevel, agingBucket, snapshotDate);
+        if (base == null) {
+            return page;
+        }
+        page.put("snapshotDate", params.get(0));
+
+        ArAgingCursor after = ArAgingCursor.decode(cursor);
+        List<Map<String, Object>> items = new ArrayList<>();
+        try {
+            if (after == null || after.totalAr() != null) {
+                List<Object> p = new ArrayList<>(params);
+                StringBuilder sql = new StringBuilder(base).append("AND total_ar IS NOT NULL ");
+                if (after != null) {
+                    sql.append("AND (total_ar, " + CUSTOMER_KEY + ", id) < (?, ?, ?) ");
+                    p.add(after.totalAr());
+                    p.add(after.customerSeq());
+                    p.add(after.id());
+                }
+                sql.append("ORDER BY total_ar DESC, " + CUSTOMER_KEY + " DESC, id DESC LIMIT ?");
+                p.add(pageSize + 1);
+                items.addAll(pgJdbc.queryForList(sql.toString(), p.toArray()));
+            }
+            if (items.size() <= pageSize) {
+                // total_ar NULL 구간
+                List<Object> p = new ArrayList<>(params);
+                StringBuilder sql = new StringBuilder(base).append("AND total_ar IS NULL ");
+                if (after != null && after.totalAr() == null) {
+                    sql.append("AND (" + CUSTOMER_KEY + ", id) < (?, ?) ");
+                    p.add(after.customerSeq());
+                    p.add(after.id());
+                }
+                sql.append("ORDER BY " + CUSTOMER_KEY + " DESC, id DESC LIMIT ?");
+                p.add(pageSize + 1 - items.size());
+                items.addAll(pgJdbc.queryForList(sql.toString(), p.toArray()));
+            }
+        } catch (Exception e) {
+            log.error("Error querying AR aging data", e);
+            return page;
+        }
+
+        if (items.size() > pageSize) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+            page.put("nextCursor", ArAgingCursor.of(items.get(items.size() - 1)).encode());
+        }
+        page.put("items", items);
+        return page;
+    }
+
+    /**
+     * 조건에 맞는 전체 행을 키셋 순서대로 한 행씩 전달 (JSON 스트리밍 용)
+     *
+     * readOnly 트랜잭션 안에서 실행해 드라이버가 fetch size 단위로 커서를 읽게 한다 (전체 결과를 메모리에 올리지 않음).
+     * @return 전달한 행 수
+     */
+    public long streamArAging(
+            String company,
+            String salesRep,
+            String customerName,
+            String riskLevel,
+            String agingBucket,
+            LocalDate snapshotDate,
+            RowCallbackHandler handler
+    ) {
+        List<Object> params = new ArrayList<>();
+        String base = arAgingBaseSql(params, company, salesRep, customerName, riskLevel, agingBucket, snapshotDate);
+        if (base == null) {
+            return 0;
+        }
+        long[] count = {0};
+        RowCallbackHandler counting = rs -> {
+            handler.processRow(rs);
+            count[0]++;
+        };
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        tx.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            pgJdbc.query(base + "AND total_ar IS NOT NULL ORDER BY total_ar DESC, " + CUSTOMER_KEY + " DESC, id DESC",
+                    counting, params.toArray());
+            pgJdbc.query(base + "AND total_ar IS NULL ORDER BY " + CUSTOMER_KEY + " DESC, id DESC",
+                    counting, params.toArray());
+        });
+        return count[0];
+    }
+
+    /**
+     * 조건에 맞는 전체 행의 요약 (화면 요약 카드용, DB 에서 집계해 행을 내려받지 않음)
+     *
+     * @return totalCount, totalAr, overdueAr(30일 초과), aging030Ar, highCount, mediumCount, lowCount, snapshotDate
      */
-    public List<Map<String, Object>> queryArAging(
+    public Map<String, Object> summarizeArAging(
             String company,
             String salesRep,
             String customerName,
@@ -83,10 +210,60 @@ public class CreditService {
             LocalDate snapshotDate
     ) {
         List<Object> params = new ArrayList<>();
+        String base = arAgingBaseSql(params, company, salesRep, customerName, riskLevel, agingBucket, snapshotDate);
+        if (base == null) {
+            Map<String, Object> empty = new HashMap<>();
+            empty.put("totalCount", 0L);
+            empty.put("totalAr", BigDecimal.ZERO);
+            empty.put("overdueAr", BigDecimal.ZERO);
+            empty.put("aging030Ar", BigDecimal.ZERO);
+            empty.put("highCount", 0L);
+            empty.put("mediumCount", 0L);
+            empty.put("lowCount", 0L);
+            empty.put("snapshotDate", null);
+            return empty;
+        }
+        String sql = "SELECT COUNT(*) AS total_count, " +
+                "COALESCE(SUM(total_ar), 0) AS total_ar, " +
+                "COALESCE(SUM(overdue_amount), 0) AS overdue_ar, " +
+                "COALESCE(SUM(aging_0_30), 0) AS aging_0_30_ar, " +
+                "COUNT(CASE WHEN risk_level = 'high' THEN 1 END) AS high_count, " +
+                "COUNT(CASE WHEN risk_level = 'medium' THEN 1 END) AS medium_count, " +
+                "COUNT(CASE WHEN risk_level = 'low' THEN 1 END) AS low_count " +
+                "FROM (" + base + ") t";
+        Map<String, Object> row = pgJdbc.queryForMap(sql, params.toArray());
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalCount", row.get("total_count"));
+        summary.put("totalAr", row.get("total_ar"));
+        summary.put("overdueAr", row.get("overdue_ar"));
+        summary.put("aging030Ar", row.get("aging_0_30_ar"));
+        summary.put("highCount", row.get("high_count"));
+        summary.put("mediumCount", row.get("medium_count"));
+        summary.put("lowCount", row.get("low_count"));
+        summary.put("snapshotDate", params.get(0));
+        return summary;
+    }
+
+    // SELECT ... WHERE (필터) 까지 조립, params 첫 값은 스냅샷 일자 (스냅샷이 없으면 null)
+    private String arAgingBaseSql(List<Object> params, String company, String salesRep, String customerName,
+                                  String riskLevel, String agingBucket, LocalDate snapshotDate) {
+        if (snapshotDate == null) {
+            try {
+                snapshotDate = snapshotTracker.latestSnapshotDate();
+            } catch (Exception e) {
+                log.error("Error resolving latest AR aging snapshot", e);
+                return null;
+            }
+            if (snapshotDate == null) {
+                return null;
+            }
+        }
+
         StringBuilder sql = new StringBuilder();
 
         sql.append("SELECT ");
-        sql.append("  customer_seq, customer_no, customer_name, ");
+        sql.append("  id, customer_seq, customer_no, customer_name, ");
         sql.append("  company_type, ");
         sql.append("  dept_name, assignee_id, emp_name, ");
         sql.append("  total_ar, ");
@@ -94,9 +271,11 @@ public class CreditService {
         sql.append("  aging_91_120, aging_121_150, aging_151_180, ");
         sql.append("  aging_181_210, aging_211_240, aging_241_270, ");
         sql.append("  aging_271_300, aging_301_330, aging_331_365, aging_over_365, ");
+        sql.append("  overdue_amount, overdue_ratio, risk_level, oldest_bucket, ");
         sql.append("  snapshot_date ");
         sql.append("FROM public.credit_ar_aging ");
-        sql.append("WHERE 1=1 ");
+        sql.append("WHERE snapshot_date = ? ");
+        params.add(snapshotDate);
 
         if (company != null && !company.isEmpty() && !"all".equals(company)) {
             sql.append("AND company_type = ? ");
@@ -113,81 +292,50 @@ public class CreditService {
             params.add("%" + customerName + "%");
         }
 
-        if (agingBucket != null && !agingBucket.isEmpty() && !"all".equals(agingBucket)) {
-            switch (agingBucket) {
-                case "0-30":
-                    sql.append("AND aging_0_30 > 0 ");
-                    sql.append("AND (aging_31_60 + aging_61_90 + aging_91_120 + aging_121_150 + aging_151_180 + aging_181_210 + aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "31-60":
-                    sql.append("AND aging_31_60 > 0 ");
-                    sql.append("AND (aging_61_90 + aging_91_120 + aging_121_150 + aging_151_180 + aging_181_210 + aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "61-90":
-                    sql.append("AND aging_61_90 > 0 ");
-                    sql.append("AND (aging_91_120 + aging_121_150 + aging_151_180 + aging_181_210 + aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "91-120":
-                    sql.append("AND aging_91_120 > 0 ");
-                    sql.append("AND (aging_121_150 + aging_151_180 + aging_181_210 + aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "121-150":
-                    sql.append("AND aging_121_150 > 0 ");
-                    sql.append("AND (aging_151_180 + aging_181_210 + aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "151-180":
-                    sql.append("AND aging_151_180 > 0 ");
-                    sql.append("AND (aging_181_210 + aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "181-210":
-                    sql.append("AND aging_181_210 > 0 ");
-                    sql.append("AND (aging_211_240 + aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "211-240":
-                    sql.append("AND aging_211_240 > 0 ");
-                    sql.append("AND (aging_241_270 + aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "241-270":
-                    sql.append("AND aging_241_270 > 0 ");
-                    sql.append("AND (aging_271_300 + aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "271-300":
-                    sql.append("AND aging_271_300 > 0 ");
-                    sql.append("AND (aging_301_330 + aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "301-330":
-                    sql.append("AND aging_301_330 > 0 ");
-                    sql.append("AND (aging_331_365 + aging_over_365) = 0 ");
-                    break;
-                case "331-365":
-                    sql.append("AND aging_331_365 > 0 ");
-                    sql.append("AND aging_over_365 = 0 ");
-                    break;
-                case "over-365":
-                    sql.append("AND aging_over_365 > 0 ");
-                    break;
-            }
+        if (riskLevel != null && !riskLevel.isEmpty() && !"all".equals(riskLevel)) {
+            sql.append("AND risk_level = ? ");
+            params.add(riskLevel);
         }
 
-        if (snapshotDate != null) {
-            sql.append("AND snapshot_date = ? ");
-            params.add(snapshotDate);
-        } else {
-            // Get latest snapshot date
-            sql.append("AND snapshot_date = (SELECT MAX(snapshot_date) FROM public.credit_ar_aging) ");
+        // 버킷 필터는 V17 oldest_bucket (인덱스) 비교
+        if (agingBucket != null && AGING_BUCKETS.contains(agingBucket)) {
+            sql.append("AND oldest_bucket = ? ");
+            params.add(agingBucket);
         }
 
-        sql.append("ORDER BY total_ar DESC ");
-        sql.append("LIMIT 1000");
+        log.debug("Query AR Aging SQL: {} / Parameters: {}", sql, params);
+        return sql.toString();
+    }
+
+    // 키셋 정렬/비교에 쓰는 거래처 키 (NULL 은 0)
+    static final String CUSTOMER_KEY = "COALESCE(customer_seq, 0)";
 
-        log.info("Query AR Aging SQL: {}", sql);
-        log.info("Parameters: {}", params);
+    /**
+     * AR aging 키셋 커서 (total_ar, COALESCE(customer_seq, 0), id), URL-safe base64 로 주고받음
+     */
+    record ArAgingCursor(BigDecimal totalAr, long customerSeq, long id) {
 
-        try {
-            return pgJdbc.queryForList(sql.toString(), params.toArray());
-        } catch (Exception e) {
-            log.error("Error querying AR aging data", e);
-            return new ArrayList<>();
+        static ArAgingCursor of(Map<String, Object> row) {
+            Object total = row.get("total_ar");
+            Object customerSeq = row.get("customer_seq");
+            return new ArAgingCursor(total == null ? null : new BigDecimal(total.toString()),
+                    customerSeq == null ? 0L : ((Number) customerSeq).longValue(), ((Number) row.get("id")).longValue());
+        }
+
+        static ArAgingCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                BigDecimal total = "null".equals(parts[0]) ? null : new BigDecimal(parts[0]);
+                return new ArAgingCursor(total, Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        String encode() {
+            String raw = (totalAr == null ? "null" : totalAr.toPlainString()) + "|" + customerSeq + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
         }
     }
 
@@ -553,78 +701,42 @@ public class CreditService {
 
     /**
      * Auto-add high-risk customers to meeting
+     *
+     * 최신 스냅샷(snapshotTracker 캐시)의 위험도 분류와 회의 대상 추가를 INSERT ... SELECT 한 문장으로 처리한다.
+     * 이미 회의에 있는 고객은 제외하고, 같은 고객의 해당 위험도 행이 여러 개면 첫 행(id 순)만 추가한다.
      */
     public Map<String, Object> autoAddHighRiskCustomers(Long meetingId, String riskLevel) {
         Map<String, Object> result = new HashMap<>();
-        List<Long> addedCustomers = new ArrayList<>();
-
-        try {
-            // Get latest snapshot date
-            String dateSql = "SELECT MAX(snapshot_date) FROM public.credit_ar_aging";
-            LocalDate latestDate = pgJdbc.queryForObject(dateSql, LocalDate.class);
-
-            // Get all AR aging data for latest snapshot
-            String arSql = "SELECT * FROM public.credit_ar_aging WHERE snapshot_date = ?";
-            List<Map<String, Object>> arData = pgJdbc.queryForList(arSql, latestDate);
-
-            // Calculate risk level for each and filter
-            for (Map<String, Object> ar : arData) {
-                BigDecimal totalAr = (BigDecimal) ar.get("total_ar");
-                if (totalAr == null || totalAr.compareTo(BigDecimal.ZERO) == 0) {
-                    continue;
-                }
-
-                // Calculate overdue
-                BigDecimal overdue = BigDecimal.ZERO;
-                String[] agingFields = {"aging_31_60", "aging_61_90", "aging_91_120", "aging_121_150",
-                                       "aging_151_180", "aging_181_210", "aging_211_240", "aging_241_270",
-                                       "aging_271_300", "aging_301_330", "aging_331_365", "aging_over_365"};
-
-                for (String field : agingFields) {
-                    BigDecimal value = (BigDecimal) ar.get(field);
-                    if (value != null) {
-                        overdue = overdue.add(value);
-                    }
-                }
-
-                // Calculate risk level
-                BigDecimal overdueRatio = overdue.divide(totalAr, 4, RoundingMode.HALF_UP);
-                String calculatedRisk = "low";
 
-                if (overdueRatio.compareTo(new BigDecimal("0.3")) > 0) {
-                    calculatedRisk = "high";
-                } else if (overdueRatio.compareTo(new BigDecimal("0.1")) > 0) {
-                    calculatedRisk = "medium";
-                }
+        if (riskLevel == null || riskLevel.isBlank()) {
+            result.put("success", false);
+            result.put("error", "riskLevel is required");
+            return result;
+        }
 
-                // If matches requested risk level, add to meeting
-                if (riskLevel.equals(calculatedRisk)) {
-                    Long customerSeq = ((Number) ar.get("customer_seq")).longValue();
-                    Long arAgingId = ((Number) ar.get("id")).longValue();
-
-                    // Check if already in meeting
-                    String checkSql = "SELECT COUNT(*) FROM public.credit_meeting_customer " +
-                                     "WHERE meeting_id = ? AND customer_seq = ?";
-                    Integer count = pgJdbc.queryForObject(checkSql, Integer.class, meetingId, customerSeq);
-
-                    if (count == null || count == 0) {
-                        // Add to meeting with appropriate decision code
-                        String decisionCode = "WATCH";
-                        if ("high".equals(calculatedRisk)) {
-                            decisionCode = "KEEP_BLOCK";
-                        } else if ("medium".equals(calculatedRisk)) {
-                            decisionCode = "REVIEW_UNBLOCK";
-                        }
-
-                        String insertSql = "INSERT INTO public.credit_meeting_customer " +
-                                          "(meeting_id, customer_seq, ar_aging_id, snapshot_date, decision_code, created_at, updated_at) " +
-                                          "VALUES (?, ?, ?, ?, ?, NOW(), NOW())";
-
-                        pgJdbc.update(insertSql, meetingId, customerSeq, arAgingId, latestDate, decisionCode);
-                        addedCustomers.add(customerSeq);
-                    }
-                }
-            }
+        try {
+            LocalDate latest = snapshotTracker.latestSnapshotDate();
+            String sql = "WITH classified AS ( " +
+                        "  SELECT DISTINCT ON (customer_seq) id, customer_seq, snapshot_date, risk_level " +
+                        "  FROM public.credit_ar_aging " +
+                        "  WHERE snapshot_date = ? " +
+                        "    AND total_ar IS NOT NULL AND total_ar <> 0 " +
+                        // 위험도 조건은 DISTINCT ON 전에 적용 (첫 행이 다른 위험도여도 해당 위험도 행이 있으면 추가)
+                        "    AND risk_level = ? " +
+                        "  ORDER BY customer_seq, id " +
+                        ") " +
+                        "INSERT INTO public.credit_meeting_customer " +
+                        "(meeting_id, customer_seq, ar_aging_id, snapshot_date, decision_code, created_at, updated_at) " +
+                        "SELECT ?, c.customer_seq, c.id, c.snapshot_date, " +
+                        "  CASE c.risk_level WHEN 'high' THEN 'KEEP_BLOCK' WHEN 'medium' THEN 'REVIEW_UNBLOCK' ELSE 'WATCH' END, " +
+                        "  NOW(), NOW() " +
+                        "FROM classified c " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM public.credit_meeting_customer mc " +
+                        "                  WHERE mc.meeting_id = ? AND mc.customer_seq = c.customer_seq) " +
+                        "RETURNING customer_seq";
+
+            List<Long> addedCustomers = latest == null ? new ArrayList<>()
+                    : pgJdbc.queryForList(sql, Long.class, latest, riskLevel, meetingId, meetingId);
 
             result.put("success", true);
             result.put("addedCount", addedCustomers.size());
@@ -1,5 +1,11 @@
 package com.tnt.sales.customer.api;
 
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.common.SqlLike;
+import com.tnt.sales.customer.service.CustomerDirectory;
+import com.tnt.sales.customer.service.CustomerSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +15,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -29,14 +36,26 @@ public class CustomerController {
     private final JdbcTemplate jdbc;
     private final JdbcTemplate mssqlJdbc;
     private final Environment env;
+    private final SchemaMetadataService schemaMetadata;
+    private final QueryConfigHelper configHelper;
+    private final CustomerSearchService searchService;
+    private final CustomerDirectory directory;
 
     @Autowired
     public CustomerController(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc,
                               @Qualifier("mssqlJdbcTemplate") JdbcTemplate mssqlJdbc,
-                              Environment env) {
+                              Environment env,
+                              SchemaMetadataService schemaMetadata,
+                              QueryConfigHelper configHelper,
+                              CustomerSearchService searchService,
+                              CustomerDirectory directory) {
         this.jdbc = jdbc;
         this.mssqlJdbc = mssqlJdbc;
         this.env = env;
+        this.schemaMetadata = schemaMetadata;
+        this.configHelper = configHelper;
+        this.searchService = searchService;
+        this.directory = directory;
     }
 
     @GetMapping
@@ -50,7 +69,7 @@ public class CustomerController {
             @RequestParam(value = "mineOnly", required = false, defaultValue = "true") boolean mineOnly,
             @RequestParam(value = "year", required = false) Integer year,
             @RequestParam(value = "limit", required = false) Integer limit,
-            @RequestParam(value = "offset", required = false) Integer offset
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
         // nodb profile: honor mineOnly (if true and empId missing => 401), else return samples
         for (String p : env.getActiveProfiles()) {
@@ -123,140 +142,80 @@ public class CustomerController {
                 ));
             }
         }
-        // Build query after resolving assigneeFilter so we can optionally join sales_plan
-        List<Object> params = new ArrayList<>();
-
         String assigneeFilter = null;
         if (mineOnly) {
-            String candidate = (assigneeId != null && !assigneeId.trim().isEmpty()) ? assigneeId.trim() : null;
-            if (candidate == null && empId != null && !empId.trim().isEmpty()) {
-                try {
-                    candidate = jdbc.queryForObject(
-                            "SELECT assignee_id FROM public.employee WHERE emp_id = ?",
-                            String.class,
-                            empId.trim()
-                    );
-                } catch (EmptyResultDataAccessException ignore) {
-                    candidate = null;
-                }
-            }
-            if (candidate == null || candidate.isEmpty()) {
+            assigneeFilter = resolveAssignee(assigneeId, empId);
+            if (assigneeFilter == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "로그인이 필요합니다"));
             }
-            assigneeFilter = candidate;
         }
 
-        // Compose base SELECT with optional sales_plan join for has_plan and filtering
-        boolean hasPlanYear = (year != null && year > 0);
-        boolean hasName = (name != null && !name.trim().isEmpty());
-        String tblPlan = env.getProperty("app.sales.plan.table", "public.sales_plan");
-        String yearExprPlan = "EXTRACT(YEAR FROM target_year)";
-
-        StringBuilder sql = new StringBuilder(
-                "SELECT c.id, c.company_seq, c.customer_seq, c.customer_id, c.customer_name, c.customer_full_name, c.customer_status_seq, " +
-                        "c.biz_no, c.owner_name, c.biz_kind, c.biz_type, c.tel_no, c.emp_seq, c.wk_dept_seq, c.dept_seq, " +
-                        "c.addr_province_seq, c.addr_province_name, c.addr_city_seq, c.addr_city_name, c.customer_type_seq, c.customer_type_name, " +
-                        "c.customer_remark, c.created_by, c.updated_by, c.created_at, c.updated_at, " +
-                        "e.emp_name, e.dept_name, c.company_type, " +
-                        "CASE WHEN p.customer_seq IS NULL THEN 0 ELSE 1 END AS has_plan " +
-                        "FROM public.customer c " +
-                        "LEFT JOIN public.employee e ON e.emp_id = c.assignee_id "
-        );
-        List<Object> joinParams = new ArrayList<>();
-        if (hasPlanYear && assigneeFilter != null) {
-            sql.append("LEFT JOIN (SELECT DISTINCT customer_seq FROM ").append(tblPlan)
-               .append(" WHERE ").append(yearExprPlan).append("=? AND assignee_id=?");
-            joinParams.add(year);
-            joinParams.add(assigneeFilter);
-            if (companyType != null && !companyType.trim().isEmpty()) {
-                sql.append(" AND UPPER(company_type)=UPPER(?)");
-                joinParams.add(companyType.trim());
-            }
-            sql.append(") p ON p.customer_seq = c.customer_seq ");
-        } else {
-            sql.append("LEFT JOIN (SELECT NULL::bigint AS customer_seq) p ON false ");
+        // 거래처 디렉터리가 적재돼 있으면 이름 토큰(+담당자)을 메모리에서 id 목록으로 풀어 c.id = ANY(?)로 바인드
+        // 디렉터리에 없으면(갱신 전 신규 거래처일 수 있음) ILIKE 경로로 DB에서 찾는다
+        boolean hasName = name != null && !name.trim().isEmpty();
+        long[] nameIds = null;
+        if (hasName && directory.isReady() && directory.hasRowIds()) {
+            long[] ids = directory.idsMatching(name.trim().split("[\\s,]+"), assigneeFilter);
+            int maxIds = env.getProperty("app.customer.directory.max-ids", Integer.class, 5000);
+            if (ids.length > 0 && ids.length <= maxIds) nameIds = ids;
         }
-        sql.append("WHERE 1=1");
 
-        if (hasName) {
-            String[] toks = name.trim().split("[\\s,]+");
-            for (String t : toks) {
-                if (t == null || t.isBlank()) continue;
-                sql.append(" AND c.customer_name ILIKE ?");
-                params.add("%" + t + "%");
-            }
-        }
-        if (provinceName != null && !provinceName.trim().isEmpty()) {
-            sql.append(" AND c.addr_province_name ILIKE ?");
-            params.add("%" + provinceName.trim() + "%");
-        }
-        if (cityName != null && !cityName.trim().isEmpty()) {
-            sql.append(" AND c.addr_city_name ILIKE ?");
-            params.add("%" + cityName.trim() + "%");
-        }
-        if (companyType != null && !companyType.trim().isEmpty()) {
-            sql.append(" AND UPPER(c.company_type) = UPPER(?)");
-            params.add(companyType.trim());
-        }
-        if (assigneeFilter != null) {
-            sql.append(" AND c.assignee_id = ?");
-            params.add(assigneeFilter);
+        // 응답 본문은 거래처 배열, 다음 페이지가 있으면 X-Next-Cursor 헤더 값을 cursor로 다시 요청
+        try {
+            int size = (limit != null && limit > 0 && limit <= 1000) ? limit : 100;
+            Map<String, Object> page = searchService.search(name, nameIds, provinceName, cityName, companyType,
+                    assigneeFilter, year, cursor, size);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (page.get("nextCursor") != null) ok.header(NEXT_CURSOR_HEADER, page.get("nextCursor").toString());
+            return ok.body(page.get("items"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
+    }
 
-        // When searching by name and year provided, restrict to customers that exist in sales_plan for that year
-        if (hasPlanYear && hasName) {
-            sql.append(" AND p.customer_seq IS NOT NULL");
-        }
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-        int lim = (limit != null && limit > 0 && limit <= 1000) ? limit : 100;
-        int off = (offset != null && offset >= 0) ? offset : 0;
-        sql.append(" ORDER BY CASE WHEN p.customer_seq IS NULL THEN 0 ELSE 1 END DESC, c.customer_name ASC LIMIT ").append(lim).append(" OFFSET ").append(off);
+    // assigneeId 우선, 없으면 empId로 employee.assignee_id 조회 (없으면 null)
+    private String resolveAssignee(String assigneeId, String empId) {
+        if (assigneeId != null && !assigneeId.trim().isEmpty()) return assigneeId.trim();
+        if (empId == null || empId.trim().isEmpty()) return null;
+        try {
+            String candidate = jdbc.queryForObject(
+                    "SELECT assignee_id FROM public.employee WHERE emp_id = ?", String.class, empId.trim());
+            return candidate == null || candidate.isEmpty() ? null : candidate;
+        } catch (EmptyResultDataAccessException ignore) {
+            return null;
+        }
+    }
 
-        // Merge params in the order of placeholders: joinParams first, then WHERE params
-        List<Object> allParams = new ArrayList<>(joinParams.size() + params.size());
-        allParams.addAll(joinParams);
-        allParams.addAll(params);
+    /**
+     * 거래처 디렉터리(메모리 색인) 상태
+     * GET /api/v1/customers/directory
+     */
+    @GetMapping("/directory")
+    public ResponseEntity<?> directoryStatus() {
+        return ResponseEntity.ok(directory.status());
+    }
 
-        List<Map<String, Object>> rows = jdbc.query(sql.toString(), ps -> {
-            for (int idx = 0; idx < allParams.size(); idx++) {
-                ps.setObject(idx + 1, allParams.get(idx));
-            }
-        }, (rs, i) -> {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("id", rs.getLong(1));
-            m.put("companySeq", rs.getLong(2));
-            m.put("customerSeq", rs.getLong(3));
-            m.put("customerId", rs.getString(4));
-            m.put("customerName", rs.getString(5));
-            m.put("customerFullName", rs.getString(6));
-            m.put("customerStatusSeq", rs.getLong(7));
-            m.put("bizNo", rs.getString(8));
-            m.put("ownerName", rs.getString(9));
-            m.put("bizKind", rs.getString(10));
-            m.put("bizType", rs.getString(11));
-            m.put("telNo", rs.getString(12));
-            m.put("empSeq", rs.getLong(13));
-            m.put("wkDeptSeq", rs.getLong(14));
-            m.put("deptSeq", rs.getLong(15));
-            m.put("addrProvinceSeq", rs.getLong(16));
-            m.put("addrProvinceName", rs.getString(17));
-            m.put("addrCitySeq", rs.getLong(18));
-            m.put("addrCityName", rs.getString(19));
-            m.put("customerTypeSeq", rs.getLong(20));
-            m.put("customerTypeName", rs.getString(21));
-            m.put("customerRemark", rs.getString(22));
-            m.put("createdBy", rs.getLong(23));
-            m.put("updatedBy", rs.getLong(24));
-            m.put("createdAt", rs.getTimestamp(25));
-            m.put("updatedAt", rs.getTimestamp(26));
-            m.put("empName", rs.getString(27));
-            m.put("deptName", rs.getString(28));
-            m.put("companyType", rs.getString(29));
-            m.put("hasPlan", rs.getInt(30) > 0);
-            return m;
-        });
-        return ResponseEntity.ok(rows);
+    /**
+     * 거래처 디렉터리 수동 갱신
+     * POST /api/v1/customers/directory/refresh?full=true 이면 전체 재적재
+     */
+    @PostMapping("/directory/refresh")
+    public ResponseEntity<?> refreshDirectory(
+            @RequestParam(value = "full", required = false, defaultValue = "false") boolean full) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            response.put("success", true);
+            response.put("rows", directory.refresh(full));
+            response.putAll(directory.status());
+        } catch (Exception e) {
+            log.error("거래처 디렉터리 갱신 실패", e);
+            response.put("success", false);
+            response.put("error", e.getMessage());
+        }
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/count")
@@ -275,23 +234,11 @@ public class CustomerController {
 
         String assigneeFilter = null;
         if (mineOnly) {
-            String candidate = (assigneeId != null && !assigneeId.trim().isEmpty()) ? assigneeId.trim() : null;
-            if (candidate == null && empId != null && !empId.trim().isEmpty()) {
-                try {
-                    candidate = jdbc.queryForObject(
-                            "SELECT assignee_id FROM public.employee WHERE emp_id = ?",
-                            String.class,
-                            empId.trim()
-                    );
-                } catch (EmptyResultDataAccessException ignore) {
-                    candidate = null;
-                }
-            }
-            if (candidate == null || candidate.isEmpty()) {
+            assigneeFilter = resolveAssignee(assigneeId, empId);
+            if (assigneeFilter == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "로그인이 필요합니다"));
             }
-            assigneeFilter = candidate;
         }
 
         StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM public.customer c WHERE 1=1");
@@ -342,13 +289,10 @@ public class CustomerController {
         // Build invoice join for recent 2 years (by EXTRACT(YEAR from invoice_date))
         int y1 = java.time.LocalDate.now().getYear();
         int y2 = y1 - 1;
-        String tblInv = env.getProperty("app.invoice.table", "public.invoice");
-        String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-        String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-        boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-        String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-        String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String tblInv = invCfg.getTableName();
+        String colCust = invCfg.getCustomerSeqColumn();
+        String colAmt = invCfg.getCurAmtColumn();
 
         StringBuilder sql = new StringBuilder(
                 "SELECT c.company_type, c.customer_name, c.customer_seq, " +
@@ -356,10 +300,10 @@ public class CustomerController {
                 "FROM public.customer c " +
                 "LEFT JOIN public.demand d ON d.customer_name = c.customer_name " +
                 "LEFT JOIN (SELECT "+colCust+" AS customer_seq, SUM(COALESCE("+colAmt+",0)) AS amt FROM "+tblInv+" " +
-                "           WHERE EXTRACT(YEAR FROM "+dateExpr+") = "+y1+" GROUP BY "+colCust+
+                "           WHERE "+invCfg.yearExpr(null)+" = "+y1+" GROUP BY "+colCust+
                 ") y1 ON y1.customer_seq = c.customer_seq " +
                 "LEFT JOIN (SELECT "+colCust+" AS customer_seq, SUM(COALESCE("+colAmt+",0)) AS amt FROM "+tblInv+" " +
-                "           WHERE EXTRACT(YEAR FROM "+dateExpr+") = "+y2+" GROUP BY "+colCust+
+                "           WHERE "+invCfg.yearExpr(null)+" = "+y2+" GROUP BY "+colCust+
                 ") y2 ON y2.customer_seq = c.customer_seq " +
                 "WHERE 1=1"
         );
@@ -370,7 +314,7 @@ public class CustomerController {
             for (String t : toks) {
                 if (t == null || t.isBlank()) continue;
                 sql.append(" AND c.customer_name ILIKE ?");
-                params.add("%" + t + "%");
+                params.add(SqlLike.contains(t));
             }
         }
         sql.append(" AND d.customer_name IS NULL ");
@@ -417,26 +361,27 @@ public class CustomerController {
         }
 
         // Resolve table/column names from env (defaults under public.invoice)
-        String tbl = env.getProperty("app.invoice.table", "public.invoice");
-        String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-        String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        String colMinor = env.getProperty("app.invoice.columns.item_subcategory", "item_subcategory");
-        String colItem = env.getProperty("app.invoice.columns.item_name", "item_name");
-        String colItemSeq = env.getProperty("app.invoice.columns.item_seq", "item_seq");
-        String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-        String colQty = env.getProperty("app.invoice.columns.qty", "qty");
-        String colInv = env.getProperty("app.invoice.columns.invoice_no", "invoice_no");
-        String colCompany = env.getProperty("app.invoice.columns.company_type", "company_type");
-        boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-        String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String tbl = invCfg.getTableName();
+        String colCust = invCfg.getCustomerSeqColumn();
+        String colDate = invCfg.getInvoiceDateColumn();
+        String colMinor = invCfg.getItemSubcategoryColumn();
+        String colItem = invCfg.getItemNameColumn();
+        String colItemSeq = invCfg.getItemSeqColumn();
+        String colAmt = invCfg.getCurAmtColumn();
+        String colQty = invCfg.getQtyColumn();
+        String colInv = invCfg.getInvoiceNoColumn();
+        String colCompany = invCfg.getCompanyTypeColumn();
+        boolean dateIsText = invCfg.isDateIsText();
+        String dateFmt = invCfg.getDateFormat();
         String dateExpr = dateIsText
                 ? ("to_date(" + colDate + ", '" + dateFmt + "')")
                 : (colDate + "::timestamp");
         String itemTbl = env.getProperty("app.item.table", "public.item");
         String itemColSeq = env.getProperty("app.item.columns.item_seq", "item_seq");
         String itemColStdUnit = env.getProperty("app.item.columns.item_std_unit", "item_std_unit");
-        boolean hasItemTable = columnExists(itemTbl, itemColSeq);
-        boolean hasItemStdUnit = hasItemTable && columnExists(itemTbl, itemColStdUnit);
+        boolean hasItemTable = schemaMetadata.columnExists(itemTbl, itemColSeq);
+        boolean hasItemStdUnit = hasItemTable && schemaMetadata.columnExists(itemTbl, itemColStdUnit);
 
         // 고객 company_type과 invoice company_type을 매칭 (컬럼이 있고 값이 있는 경우에만)
         String customerCompanyType = null;
@@ -449,8 +394,8 @@ public class CustomerController {
         } catch (Exception ignore) {
             customerCompanyType = null;
         }
-        boolean hasInvoiceCompanyType = columnExists(tbl, colCompany);
-        boolean hasInvoiceItemSeq = columnExists(tbl, colItemSeq);
+        boolean hasInvoiceCompanyType = schemaMetadata.columnExists(tbl, colCompany);
+        boolean hasInvoiceItemSeq = schemaMetadata.columnExists(tbl, colItemSeq);
         boolean applyCompanyFilter = hasInvoiceCompanyType && customerCompanyType != null && !customerCompanyType.isBlank();
         String companySelectExpr = hasInvoiceCompanyType ? ("i." + colCompany) : "NULL::text";
         String itemSeqSelectExpr = hasInvoiceItemSeq ? ("i." + colItemSeq) : "NULL::bigint";
@@ -557,32 +502,6 @@ public class CustomerController {
         }
     }
 
-    private boolean columnExists(String tableName, String columnName) {
-        if (tableName == null || columnName == null) return false;
-        String schema = "public";
-        String table = tableName;
-        // Handle schema-qualified names like public.invoice or "public"."invoice"
-        if (tableName.contains(".")) {
-            String[] parts = tableName.replace("\"","").split("\\.", 2);
-            if (parts.length == 2) {
-                schema = parts[0];
-                table = parts[1];
-            }
-        }
-        try {
-            Integer cnt = jdbc.queryForObject(
-                    "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = ? AND table_name = ? AND column_name = ?",
-                    Integer.class,
-                    schema,
-                    table,
-                    columnName.replace("\"","")
-            );
-            return cnt != null && cnt > 0;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     private String renderSqlWithParams(String sql, java.util.List<Object> params) {
         if (sql == null || sql.isBlank() || params == null || params.isEmpty()) {
             return sql;
@@ -630,11 +549,12 @@ public class CustomerController {
                 ));
             }
         }
-        String tbl = env.getProperty("app.invoice.table", "public.invoice");
-        String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-        String colMinor = env.getProperty("app.invoice.columns.item_subcategory", "item_subcategory");
-        String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-        String colQty = env.getProperty("app.invoice.columns.qty", "qty");
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String tbl = invCfg.getTableName();
+        String colCust = invCfg.getCustomerSeqColumn();
+        String colMinor = invCfg.getItemSubcategoryColumn();
+        String colAmt = invCfg.getCurAmtColumn();
+        String colQty = invCfg.getQtyColumn();
 
         String sqlWithQty = "SELECT coalesce(nullif(trim(i."+colMinor+"), ''), 'na') AS minor_name, " +
                 "SUM(COALESCE(i."+colQty+",0))::double precision AS qty, " +
@@ -685,15 +605,11 @@ public class CustomerController {
         java.time.LocalDate end = start.plusYears(1);
         // Aggregate strictly by month and amount (no item dim grouping)
         try {
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText
-                    ? ("to_date(" + colDate + ", '" + dateFmt + "')")
-                    : (colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String colAmt = invCfg.getCurAmtColumn();
+            String dateExpr = invCfg.dateExpr(null);
             String sql =
                     "SELECT " +
                     "  EXTRACT(MONTH FROM "+dateExpr+")::int AS month, " +
@@ -738,17 +654,13 @@ public class CustomerController {
         java.time.LocalDate start = java.time.LocalDate.of(y, 1, 1);
         java.time.LocalDate end = start.plusYears(1);
         try {
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colSub = env.getProperty("app.invoice.columns.item_subcategory", "item_subcategory");
-            String colUnit = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-            boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText
-                    ? ("to_date(" + colDate + ", '" + dateFmt + "')")
-                    : (colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String colAmt = invCfg.getCurAmtColumn();
+            String colSub = invCfg.getItemSubcategoryColumn();
+            String colUnit = invCfg.getSalesMgmtUnitColumn();
+            String dateExpr = invCfg.dateExpr(null);
             String sql =
                     "SELECT " +
                     "  coalesce(nullif(trim("+colSub+"), ''), 'na') AS item_subcategory, " +
@@ -787,15 +699,10 @@ public class CustomerController {
     @GetMapping("/{custSeq}/invoice-years")
     public ResponseEntity<?> invoiceYears(@PathVariable("custSeq") long custSeq) {
         try {
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText
-                    ? ("to_date(" + colDate + ", '" + dateFmt + "')")
-                    : (colDate + "::date");
-            String pgSql = "SELECT DISTINCT EXTRACT(YEAR FROM "+dateExpr+")::int AS y FROM "+tbl+" WHERE "+colCust+" = ? ORDER BY y DESC";
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String pgSql = "SELECT DISTINCT "+invCfg.yearExpr(null)+" AS y FROM "+tbl+" WHERE "+colCust+" = ? ORDER BY y DESC";
             java.util.List<Integer> years = jdbc.query(pgSql, (rs, i) -> rs.getInt(1), custSeq);
             return ResponseEntity.ok(years);
         } catch (Exception ignorePg) {
@@ -829,14 +736,10 @@ public class CustomerController {
             }
             if (ids.isEmpty()) return ResponseEntity.ok(java.util.List.of());
 
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText
-                    ? ("to_date(" + colDate + ", '" + dateFmt + "')")
-                    : (colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String dateExpr = invCfg.dateExpr(null);
 
             java.time.LocalDate since = java.time.LocalDate.now().minusYears(Math.max(1, years));
 
@@ -908,17 +811,14 @@ public class CustomerController {
             int prev = Math.max(1, year - 1);
 
             // Resolve invoice table/columns
-            String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String invTbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
 
             String sql = "SELECT UPPER(c.company_type) AS company_type, COUNT(DISTINCT c.customer_seq) AS cnt " +
                     "FROM public.customer c " +
                     "JOIN " + invTbl + " i ON CAST(i." + colCust + " AS TEXT) = CAST(c.customer_seq AS TEXT) " +
-                    "WHERE c.assignee_id = ? AND EXTRACT(YEAR FROM " + dateExpr + ") = ? " +
+                    "WHERE c.assignee_id = ? AND " + invCfg.yearExpr(null) + " = ? " +
                     "GROUP BY UPPER(c.company_type)";
 
             List<Map<String,Object>> rows = jdbc.query(sql, ps -> {
@@ -0,0 +1,364 @@
+package com.tnt.sales.customer.service;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.CustomerTableConfig;
+import com.tnt.sales.common.SchemaMetadataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 거래처 디렉터리 (프로세스 내 이름/회사/담당자 색인)
+ *
+ * 거래처명 → customer_seq, customer_seq → company_type 조회를 DB 왕복 없이 처리한다.
+ * 행은 배열(id, seq, 회사 코드, 담당자 코드, 정규화 이름)로 두고, 이름은 2-gram 별 행 번호 목록(posting list)으로 색인한다.
+ * 토큰 검색은 가장 짧은 posting list 를 후보로 잡아 부분 문자열 일치로 확인하므로 LOWER(name) LIKE '%tok%' 와 같은 결과를 낸다.
+ *
+ * 갱신은 (updated_at, id) 워터마크보다 큰 변경 행만 읽고, 변경이 없으면 스냅샷을 다시 만들지 않는다.
+ * 삭제 반영을 위해 full-refresh-ms 마다 (updated_at 컬럼이 없으면 매번) 전체를 다시 읽는다.
+ * 첫 적재 전이나 마지막 성공 갱신이 stale-after-ms 보다 오래되면 isReady()가 false 이므로 호출부는 기존 SQL 경로를 사용한다.
+ * <pre>
+ * app.customer.directory.enabled (기본 true), initial-delay-ms, refresh-ms (기본 60초), full-refresh-ms (기본 1시간),
+ * stale-after-ms (기본 5분)
+ * </pre>
+ */
+@Component
+public class CustomerDirectory {
+    private static final Logger log = LoggerFactory.getLogger(CustomerDirectory.class);
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final QueryConfigHelper configHelper;
+    private final SchemaMetadataService schemaMetadata;
+
+    private volatile Snapshot snapshot;
+    private volatile long lastFullRefreshMs;
+    private volatile long lastRefreshOkMs;
+
+    public CustomerDirectory(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+                             QueryConfigHelper configHelper, SchemaMetadataService schemaMetadata) {
+        this.jdbc = jdbc;
+        this.env = env;
+        this.configHelper = configHelper;
+        this.schemaMetadata = schemaMetadata;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(env.getProperty("app.customer.directory.enabled", "true"));
+    }
+
+    /**
+     * 적재돼 있고 최근(stale-after-ms 이내)에 갱신에 성공했는지
+     */
+    public boolean isReady() {
+        if (!isEnabled() || snapshot == null) return false;
+        long staleAfter = env.getProperty("app.customer.directory.stale-after-ms", Long.class, 300_000L);
+        return System.currentTimeMillis() - lastRefreshOkMs <= staleAfter;
+    }
+
+    /**
+     * 행 id(customer.id) 보유 여부 - id 기반 조회(idsMatching)는 이때만 의미가 있다
+     */
+    public boolean hasRowIds() {
+        Snapshot s = snapshot;
+        return s != null && s.hasIds;
+    }
+
+    /**
+     * 모든 토큰을 이름에 포함하는 거래처의 customer_seq (UPPER(company_type) 별)
+     */
+    public Map<String, Set<Long>> seqsByCompany(String[] tokens) {
+        Snapshot s = snapshot;
+        Map<String, Set<Long>> out = new HashMap<>();
+        if (s == null) return out;
+        for (int row : s.match(tokens)) {
+            String company = s.companyDict[s.companyCode[row]];
+            out.computeIfAbsent(company, k -> new HashSet<>()).add(s.seqs[row]);
+        }
+        return out;
+    }
+
+    /**
+     * 모든 토큰을 이름에 포함하는 거래처의 customer.id
+     * @param assigneeId 지정 시 해당 담당자 거래처만
+     */
+    public long[] idsMatching(String[] tokens, String assigneeId) {
+        Snapshot s = snapshot;
+        if (s == null) return new long[0];
+        int assignee = -1;
+        if (assigneeId != null) {
+            Integer code = s.assigneeIndex.get(assigneeId);
+            if (code == null) return new long[0];
+            assignee = code;
+        }
+        int[] rows = s.match(tokens);
+        long[] ids = new long[rows.length];
+        int n = 0;
+        for (int row : rows) {
+            if (assignee < 0 || s.assigneeCode[row] == assignee) ids[n++] = s.ids[row];
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * customer_seq 의 company_type (없거나 회사가 여러 개면 null)
+     */
+    public String companyTypeOf(long customerSeq) {
+        Snapshot s = snapshot;
+        if (s == null) return null;
+        int pos = Arrays.binarySearch(s.sortedSeqs, customerSeq);
+        if (pos < 0) return null;
+        while (pos > 0 && s.sortedSeqs[pos - 1] == customerSeq) pos--;
+        String found = null;
+        for (int k = pos; k < s.sortedSeqs.length && s.sortedSeqs[k] == customerSeq; k++) {
+            String company = s.rawCompany[s.seqOrder[k]];
+            if (found != null && !found.equals(company)) return null;
+            found = company;
+        }
+        return found;
+    }
+
+    @Scheduled(initialDelayString = "${app.customer.directory.initial-delay-ms:5000}",
+               fixedDelayString = "${app.customer.directory.refresh-ms:60000}")
+    public void scheduledRefresh() {
+        if (!isEnabled() || configHelper.isNoDbProfile()) return;
+        try {
+            long fullEvery = env.getProperty("app.customer.directory.full-refresh-ms", Long.class, 3_600_000L);
+            refresh(System.currentTimeMillis() - lastFullRefreshMs >= fullEvery);
+        } catch (Exception ex) {
+            log.warn("[CustomerDirectory] refresh failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 디렉터리 갱신
+     * @param full true면 전체 재적재, false면 (updated_at, id) 워터마크 이후 변경분만 반영
+     * @return 읽은 행 수 (증분 갱신에서 0이면 스냅샷은 그대로)
+     */
+    public synchronized int refresh(boolean full) {
+        CustomerTableConfig cfg = configHelper.getCustomerConfig();
+        String table = cfg.getTableName();
+        boolean hasIds = schemaMetadata.columnExists(table, "id");
+        boolean hasUpdatedAt = schemaMetadata.columnExists(table, "updated_at");
+        Snapshot current = snapshot;
+        boolean incremental = !full && hasUpdatedAt && current != null && current.hasIds == hasIds
+                && current.watermark != null;
+
+        String idCol = hasIds ? "id" : cfg.getCustomerSeqColumn();
+        String sql = "SELECT " + idCol + ", " + cfg.getCustomerSeqColumn() + ", "
+                + cfg.getCompanyTypeColumn() + ", " + cfg.getAssigneeIdColumn() + ", " + cfg.getCustomerNameColumn() + ", "
+                + (hasUpdatedAt ? "updated_at" : "NULL::timestamp") + " FROM " + table
+                // 워터마크 행 자체는 다시 읽지 않도록 (updated_at, id) 쌍으로 엄격히 큰 행만
+                + (incremental ? " WHERE (updated_at, " + idCol + ") > (?, ?)" : "");
+        Object[] args = incremental ? new Object[]{current.watermark, current.watermarkId} : new Object[0];
+
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        if (incremental) current.forEach(e -> entries.put(e.id(), e));
+        Timestamp[] watermark = {incremental ? current.watermark : null};
+        long[] watermarkId = {incremental ? current.watermarkId : 0L};
+        int[] read = {0};
+        jdbc.query(sql, rs -> {
+            read[0]++;
+            Timestamp ts = rs.getTimestamp(6);
+            long id = rs.getLong(1);
+            if (ts != null && (watermark[0] == null || ts.after(watermark[0])
+                    || (ts.equals(watermark[0]) && id > watermarkId[0]))) {
+                watermark[0] = ts;
+                watermarkId[0] = id;
+            }
+            entries.put(id, new Entry(id, rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+        }, args);
+
+        lastRefreshOkMs = System.currentTimeMillis();
+        if (incremental && read[0] == 0) return 0;
+        snapshot = new Snapshot(new ArrayList<>(entries.values()), hasIds, watermark[0], watermarkId[0]);
+        if (!incremental) lastFullRefreshMs = System.currentTimeMillis();
+        log.debug("[CustomerDirectory] {} refresh: read {} rows, {} customers", incremental ? "incremental" : "full",
+                read[0], entries.size());
+        return read[0];
+    }
+
+    public Map<String, Object> status() {
+        Snapshot s = snapshot;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", isEnabled());
+        out.put("ready", isReady());
+        out.put("customers", s == null ? 0 : s.ids.length);
+        out.put("ngrams", s == null ? 0 : s.postings.size());
+        out.put("watermark", s == null || s.watermark == null ? null : s.watermark.toInstant().toString());
+        out.put("builtAt", s == null ? null : s.builtAt.toString());
+        return out;
+    }
+
+    /**
+     * 이름 정규화 (NFC + 소문자) - 조합형/완성형 한글과 대소문자 차이를 없앤다
+     */
+    static String normalize(String s) {
+        return s == null ? null : Normalizer.normalize(s, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(long id, long seq, String companyType, String assigneeId, String name) { }
+
+    /**
+     * 불변 색인 스냅샷
+     */
+    private static final class Snapshot {
+        final boolean hasIds;
+        final Timestamp watermark;
+        final long watermarkId;
+        final Instant builtAt = Instant.now();
+        final long[] ids;
+        final long[] seqs;
+        final String[] rawCompany;
+        final byte[] companyCode;
+        final String[] companyDict;
+        final int[] assigneeCode;
+        final String[] assigneeDict;
+        final Map<String, Integer> assigneeIndex;
+        final String[] names;
+        final String[] rawNames;
+        final long[] sortedSeqs;
+        final int[] seqOrder;
+        final Map<Integer, int[]> postings;
+
+        Snapshot(List<Entry> rows, boolean hasIds, Timestamp watermark, long watermarkId) {
+            this.hasIds = hasIds;
+            this.watermark = watermark;
+            this.watermarkId = watermarkId;
+            int n = rows.size();
+            ids = new long[n];
+            seqs = new long[n];
+            rawCompany = new String[n];
+            companyCode = new byte[n];
+            assigneeCode = new int[n];
+            names = new String[n];
+            rawNames = new String[n];
+            Map<String, Integer> companyIndex = new LinkedHashMap<>();
+            assigneeIndex = new HashMap<>();
+            List<String> assignees = new ArrayList<>();
+            Map<Integer, IntList> grams = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Entry e = rows.get(i);
+                ids[i] = e.id();
+                seqs[i] = e.seq();
+                rawCompany[i] = e.companyType();
+                String company = e.companyType() == null ? "NULL" : e.companyType().toUpperCase(Locale.ROOT);
+                companyCode[i] = (byte) (int) companyIndex.computeIfAbsent(company, k -> companyIndex.size());
+                if (e.assigneeId() == null) {
+                    assigneeCode[i] = -1;
+                } else {
+                    assigneeCode[i] = assigneeIndex.computeIfAbsent(e.assigneeId(), k -> {
+                        assignees.add(k);
+                        return assignees.size() - 1;
+                    });
+                }
+                rawNames[i] = e.name();
+                String name = normalize(e.name());
+                names[i] = name;
+                if (name == null) continue;
+                for (int k = 0; k + 1 < name.length(); k++) {
+                    IntList list = grams.computeIfAbsent(gram(name, k), x -> new IntList());
+                    // 같은 이름 안의 중복 2-gram 은 한 번만
+                    if (list.last() != i) list.add(i);
+                }
+            }
+            if (companyIndex.size() > Byte.MAX_VALUE) {
+                throw new IllegalStateException("too many company types: " + companyIndex.size());
+            }
+            companyDict = companyIndex.keySet().toArray(new String[0]);
+            assigneeDict = assignees.toArray(new String[0]);
+            postings = new HashMap<>(grams.size() * 2);
+            grams.forEach((g, list) -> postings.put(g, list.toArray()));
+
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(seqs[a], seqs[b]));
+            sortedSeqs = new long[n];
+            seqOrder = new int[n];
+            for (int i = 0; i < n; i++) {
+                seqOrder[i] = order[i];
+                sortedSeqs[i] = seqs[order[i]];
+            }
+        }
+
+        /**
+         * 모든 토큰을 포함하는 행 번호 (오름차순)
+         */
+        int[] match(String[] tokens) {
+            List<String> norm = new ArrayList<>();
+            for (String t : tokens) {
+                if (t != null && !t.isBlank()) norm.add(normalize(t.trim()));
+            }
+            if (norm.isEmpty()) return EMPTY;
+
+            // 후보: 2자 이상 토큰의 2-gram 중 가장 짧은 posting list (없으면 전체 스캔)
+            int[] candidates = null;
+            for (String t : norm) {
+                for (int k = 0; k + 1 < t.length(); k++) {
+                    int[] p = postings.getOrDefault(gram(t, k), EMPTY);
+                    if (candidates == null || p.length < candidates.length) candidates = p;
+                }
+            }
+            IntList out = new IntList();
+            int limit = candidates == null ? names.length : candidates.length;
+            for (int i = 0; i < limit; i++) {
+                int row = candidates == null ? i : candidates[i];
+                String name = names[row];
+                if (name == null) continue;
+                boolean all = true;
+                for (String t : norm) {
+                    if (!name.contains(t)) { all = false; break; }
+                }
+                if (all) out.add(row);
+            }
+            return out.toArray();
+        }
+
+        void forEach(java.util.function.Consumer<Entry> consumer) {
+            for (int i = 0; i < ids.length; i++) {
+                consumer.accept(new Entry(ids[i], seqs[i], rawCompany[i],
+                        assigneeCode[i] < 0 ? null : assigneeDict[assigneeCode[i]], rawNames[i]));
+            }
+        }
+
+        private static int gram(String s, int k) {
+            return (s.charAt(k) << 16) | s.charAt(k + 1);
+        }
+    }
+
+    private static final class IntList {
+        private int[] a = new int[4];
+        private int size;
+
+        void add(int v) {
+            if (size == a.length) a = Arrays.copyOf(a, size * 2);
+            a[size++] = v;
+        }
+
+        int last() {
+            return size == 0 ? -1 : a[size - 1];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(a, size);
+        }
+    }
+}
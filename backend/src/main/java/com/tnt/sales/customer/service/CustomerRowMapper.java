@@ -0,0 +1,63 @@
+package com.tnt.sales.customer.service;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 거래처 목록 행 (GET /api/v1/customers, /api/v1/customers/search 공용)
+ *
+ * SELECT 목록은 {@link #COLUMNS} 순서로 시작해야 하고 (c = public.customer, e = public.employee),
+ * hasPlan/score 같은 조회별 컬럼은 호출 측에서 결과 Map에 덧붙인다.
+ */
+public final class CustomerRowMapper implements RowMapper<Map<String, Object>> {
+
+    public static final CustomerRowMapper INSTANCE = new CustomerRowMapper();
+
+    public static final String COLUMNS =
+            "c.id, c.company_seq, c.customer_seq, c.customer_id, c.customer_name, c.customer_full_name, c.customer_status_seq, " +
+            "c.biz_no, c.owner_name, c.biz_kind, c.biz_type, c.tel_no, c.emp_seq, c.wk_dept_seq, c.dept_seq, " +
+            "c.addr_province_seq, c.addr_province_name, c.addr_city_seq, c.addr_city_name, c.customer_type_seq, c.customer_type_name, " +
+            "c.customer_remark, c.created_by, c.updated_by, c.created_at, c.updated_at, " +
+            "e.emp_name, e.dept_name, c.company_type";
+
+    private CustomerRowMapper() { }
+
+    @Override
+    public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", rs.getLong(1));
+        m.put("companySeq", rs.getLong(2));
+        m.put("customerSeq", rs.getLong(3));
+        m.put("customerId", rs.getString(4));
+        m.put("customerName", rs.getString(5));
+        m.put("customerFullName", rs.getString(6));
+        m.put("customerStatusSeq", rs.getLong(7));
+        m.put("bizNo", rs.getString(8));
+        m.put("ownerName", rs.getString(9));
+        m.put("bizKind", rs.getString(10));
+        m.put("bizType", rs.getString(11));
+        m.put("telNo", rs.getString(12));
+        m.put("empSeq", rs.getLong(13));
+        m.put("wkDeptSeq", rs.getLong(14));
+        m.put("deptSeq", rs.getLong(15));
+        m.put("addrProvinceSeq", rs.getLong(16));
+        m.put("addrProvinceName", rs.getString(17));
+        m.put("addrCitySeq", rs.getLong(18));
+        m.put("addrCityName", rs.getString(19));
+        m.put("customerTypeSeq", rs.getLong(20));
+        m.put("customerTypeName", rs.getString(21));
+        m.put("customerRemark", rs.getString(22));
+        m.put("createdBy", rs.getLong(23));
+        m.put("updatedBy", rs.getLong(24));
+        m.put("createdAt", rs.getTimestamp(25));
+        m.put("updatedAt", rs.getTimestamp(26));
+        m.put("empName", rs.getString(27));
+        m.put("deptName", rs.getString(28));
+        m.put("companyType", rs.getString(29));
+        return m;
+    }
+}
@@ -0,0 +1,232 @@
+package com.tnt.sales.customer.service;
+
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.common.SqlLike;
+import com.tnt.sales.common.SqlTemplateRegistry;
+import com.tnt.sales.common.SqlTemplateRegistry.Dialect;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 거래처 검색 (GET /api/v1/customers)
+ *
+ * 이름 토큰은 토큰마다 {@code customer_name ILIKE ?} 로 나눠 trigram GIN 인덱스(V22)를 타게 하고,
+ * pg_trgm 이 설치되어 있으면 similarity(이름, 입력) 내림차순으로 정렬한다.
+ * 영업계획 연도와 담당자가 주어지면 해당 연도 계획 보유 거래처(has_plan)를 먼저 보인다.
+ * 페이지는 OFFSET 대신 (has_plan, 점수, 이름, id) keyset 커서로 이어 받으므로 깊은 페이지도 비용이 같다.
+ * 이름 없이 조회하면 (COALESCE(customer_name, ''), id) 인덱스 순서 그대로 읽는다.
+ */
+@Service
+public class CustomerSearchService {
+
+    // 개별 ILIKE 로 펼치는 최대 토큰 수 (초과분은 ILIKE ALL 로 묶음)
+    private static final int MAX_SPLIT_TOKENS = 4;
+
+    // 필터 비트 (0~2: 개별 토큰 수)
+    private static final int S_REST_TOKENS = 3;
+    private static final int S_PROVINCE = 4;
+    private static final int S_CITY = 5;
+    private static final int S_COMPANY = 6;
+    private static final int S_ASSIGNEE = 7;
+    private static final int S_CURSOR = 8;
+    private static final int S_RANKED = 9;
+    private static final int S_PLAN_JOIN = 10;
+    private static final int S_PLAN_COMPANY = 11;
+    private static final int S_REQUIRE_PLAN = 12;
+    private static final int S_NAME_IDS = 13;
+
+    private static final String COLUMNS =
+            CustomerRowMapper.COLUMNS + ", COALESCE(c.customer_name, '') AS sort_name";
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final SchemaMetadataService schemaMetadata;
+    private final SqlTemplateRegistry templates;
+
+    public CustomerSearchService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+                                 SchemaMetadataService schemaMetadata, SqlTemplateRegistry templates) {
+        this.jdbc = jdbc;
+        this.env = env;
+        this.schemaMetadata = schemaMetadata;
+        this.templates = templates;
+    }
+
+    /**
+     * 거래처 검색 1페이지
+     * @param name 이름 (공백/쉼표로 나눈 토큰이 모두 포함되어야 함)
+     * @param nameIds 거래처 디렉터리에서 이름 토큰을 풀어 둔 customer.id (null이면 이름을 ILIKE로 검색, 점수 계산에는 name 사용)
+     * @param assigneeFilter 담당자 제한 (null이면 전체)
+     * @param planYear 지정 시 해당 연도 영업계획 보유 거래처를 먼저 보이고 hasPlan 표시 (assigneeFilter 필요),
+     *                 이름도 주어지면 계획 보유 거래처만
+     * @param cursor 직전 페이지의 nextCursor (null이면 첫 페이지)
+     * @return {items, nextCursor, hasMore, ranked}
+     */
+    public Map<String, Object> search(String name, long[] nameIds, String provinceName, String cityName,
+                                      String companyType, String assigneeFilter, Integer planYear,
+                                      String cursor, int pageSize) {
+        List<String> tokens = new ArrayList<>();
+        if (name != null) {
+            for (String t : name.trim().split("[\\s,]+")) {
+                if (!t.isBlank()) tokens.add(t);
+            }
+        }
+        boolean ranked = !tokens.isEmpty() && schemaMetadata.extensionInstalled("pg_trgm");
+        SearchCursor after = SearchCursor.decode(cursor);
+        boolean hasProvince = provinceName != null && !provinceName.isBlank();
+        boolean hasCity = cityName != null && !cityName.isBlank();
+        boolean hasCompany = companyType != null && !companyType.isBlank();
+        boolean hasPlanYear = planYear != null && planYear > 0;
+        boolean planJoin = hasPlanYear && assigneeFilter != null;
+        // 이름 + 연도 검색은 해당 연도 계획 보유 거래처만 (담당자가 없으면 계획을 알 수 없으므로 결과 없음)
+        if (hasPlanYear && !tokens.isEmpty() && !planJoin) return page(List.of(), false, ranked);
+        boolean byIds = nameIds != null && !tokens.isEmpty();
+        int split = byIds ? 0 : Math.min(tokens.size(), MAX_SPLIT_TOKENS);
+
+        int mask = split
+                | SqlTemplateRegistry.bit(S_REST_TOKENS, !byIds && tokens.size() > MAX_SPLIT_TOKENS)
+                | SqlTemplateRegistry.bit(S_PROVINCE, hasProvince)
+                | SqlTemplateRegistry.bit(S_CITY, hasCity)
+                | SqlTemplateRegistry.bit(S_COMPANY, hasCompany)
+                | SqlTemplateRegistry.bit(S_ASSIGNEE, assigneeFilter != null)
+                | SqlTemplateRegistry.bit(S_CURSOR, after != null)
+                | SqlTemplateRegistry.bit(S_RANKED, ranked)
+                | SqlTemplateRegistry.bit(S_PLAN_JOIN, planJoin)
+                | SqlTemplateRegistry.bit(S_PLAN_COMPANY, planJoin && hasCompany)
+                | SqlTemplateRegistry.bit(S_REQUIRE_PLAN, planJoin && !tokens.isEmpty())
+                | SqlTemplateRegistry.bit(S_NAME_IDS, byIds);
+        String sql = templates.get("customer.search.keyset", mask, Dialect.POSTGRES, this::buildSql);
+
+        // Bind in placeholder order: score, plan join, name tokens, filters, cursor, limit
+        List<Object> params = new ArrayList<>();
+        if (ranked) params.add(String.join(" ", tokens));
+        if (planJoin) {
+            params.add(planYear);
+            params.add(assigneeFilter);
+            if (hasCompany) params.add(companyType.trim());
+        }
+        if (byIds) params.add(Arrays.stream(nameIds).boxed().toArray(Long[]::new));
+        for (int i = 0; i < split; i++) params.add(SqlLike.contains(tokens.get(i)));
+        if (SqlTemplateRegistry.has(mask, S_REST_TOKENS)) {
+            params.add(tokens.subList(MAX_SPLIT_TOKENS, tokens.size()).stream().map(SqlLike::contains).toArray(String[]::new));
+        }
+        if (hasProvince) params.add(SqlLike.contains(provinceName));
+        if (hasCity) params.add(SqlLike.contains(cityName));
+        if (hasCompany) params.add(companyType.trim());
+        if (assigneeFilter != null) params.add(assigneeFilter);
+        if (after != null) {
+            if (planJoin) {
+                params.add(after.plan());
+                params.add(after.plan());
+            }
+            if (ranked) {
+                params.add(after.score());
+                params.add(after.score());
+            }
+            params.add(after.name());
+            params.add(after.id());
+        }
+        params.add(pageSize + 1);
+
+        List<Map<String, Object>> rows = jdbc.query(sql, ps -> {
+            for (int idx = 0; idx < params.size(); idx++) {
+                Object v = params.get(idx);
+                if (v instanceof String[] arr) ps.setArray(idx + 1, ps.getConnection().createArrayOf("text", arr));
+                else if (v instanceof Long[] arr) ps.setArray(idx + 1, ps.getConnection().createArrayOf("bigint", arr));
+                else ps.setObject(idx + 1, v);
+            }
+        }, (rs, i) -> {
+            Map<String, Object> m = CustomerRowMapper.INSTANCE.mapRow(rs, i);
+            m.put("hasPlan", rs.getInt("has_plan") > 0);
+            m.put("score", rs.getDouble("score"));
+            return m;
+        });
+
+        boolean hasMore = rows.size() > pageSize;
+        return page(hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows, hasMore, ranked);
+    }
+
+    private static Map<String, Object> page(List<Map<String, Object>> items, boolean hasMore, boolean ranked) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("items", items);
+        out.put("hasMore", hasMore);
+        out.put("nextCursor", hasMore ? SearchCursor.of(items.get(items.size() - 1)).encode() : null);
+        out.put("ranked", ranked);
+        return out;
+    }
+
+    private String buildSql(int mask) {
+        boolean ranked = SqlTemplateRegistry.has(mask, S_RANKED);
+        boolean planJoin = SqlTemplateRegistry.has(mask, S_PLAN_JOIN);
+        StringBuilder sql = new StringBuilder("SELECT * FROM (SELECT ").append(COLUMNS).append(", ");
+        sql.append(ranked ? "similarity(c.customer_name, ?)::float8" : "0::float8").append(" AS score, ");
+        sql.append(planJoin ? "CASE WHEN p.customer_seq IS NULL THEN 0 ELSE 1 END" : "0").append(" AS has_plan ");
+        sql.append("FROM public.customer c LEFT JOIN public.employee e ON e.emp_id = c.assignee_id ");
+        if (planJoin) {
+            String tblPlan = env.getProperty("app.sales.plan.table", "public.sales_plan");
+            sql.append("LEFT JOIN (SELECT DISTINCT customer_seq FROM ").append(tblPlan)
+               .append(" WHERE EXTRACT(YEAR FROM target_year) = ? AND assignee_id = ?");
+            if (SqlTemplateRegistry.has(mask, S_PLAN_COMPANY)) sql.append(" AND UPPER(company_type) = UPPER(?)");
+            sql.append(") p ON p.customer_seq = c.customer_seq ");
+        }
+        sql.append("WHERE 1=1");
+        if (SqlTemplateRegistry.has(mask, S_NAME_IDS)) sql.append(" AND c.id = ANY(?)");
+        for (int i = 0; i < (mask & 0b111); i++) sql.append(" AND c.customer_name ILIKE ?");
+        if (SqlTemplateRegistry.has(mask, S_REST_TOKENS)) sql.append(" AND c.customer_name ILIKE ALL(?)");
+        if (SqlTemplateRegistry.has(mask, S_PROVINCE)) sql.append(" AND c.addr_province_name ILIKE ?");
+        if (SqlTemplateRegistry.has(mask, S_CITY)) sql.append(" AND c.addr_city_name ILIKE ?");
+        if (SqlTemplateRegistry.has(mask, S_COMPANY)) sql.append(" AND UPPER(c.company_type) = UPPER(?)");
+        if (SqlTemplateRegistry.has(mask, S_ASSIGNEE)) sql.append(" AND c.assignee_id = ?");
+        if (SqlTemplateRegistry.has(mask, S_REQUIRE_PLAN)) sql.append(" AND p.customer_seq IS NOT NULL");
+        sql.append(") s");
+        if (SqlTemplateRegistry.has(mask, S_CURSOR)) {
+            // (has_plan DESC, score DESC, sort_name ASC, id ASC) 순서에서 커서 다음 행
+            String tail = "(s.sort_name, s.id) > (?, ?)";
+            if (ranked) tail = "(s.score < ? OR (s.score = ? AND " + tail + "))";
+            if (planJoin) tail = "(s.has_plan < ? OR (s.has_plan = ? AND " + tail + "))";
+            sql.append(" WHERE ").append(tail);
+        }
+        sql.append(" ORDER BY ");
+        if (planJoin) sql.append("s.has_plan DESC, ");
+        if (ranked) sql.append("s.score DESC, ");
+        sql.append("s.sort_name ASC, s.id ASC LIMIT ?");
+        return sql.toString();
+    }
+
+    /**
+     * 마지막 행의 (has_plan, score, customer_name, id) - base64url("plan|score|id|name")
+     */
+    record SearchCursor(int plan, double score, long id, String name) {
+
+        static SearchCursor of(Map<String, Object> row) {
+            return new SearchCursor(Boolean.TRUE.equals(row.get("hasPlan")) ? 1 : 0,
+                    (Double) row.get("score"), (Long) row.get("id"),
+                    row.get("customerName") == null ? "" : row.get("customerName").toString());
+        }
+
+        static SearchCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+                return new SearchCursor(Integer.parseInt(parts[0]), Double.parseDouble(parts[1]),
+                        Long.parseLong(parts[2]), parts[3]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        String encode() {
+            String raw = plan + "|" + score + "|" + id + "|" + name;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.tnt.sales.dashboard.api;
 
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import com.tnt.sales.common.QueryConfigHelper.CustomerTableConfig;
+import com.tnt.sales.config.ReadReplica;
+import com.tnt.sales.dashboard.service.InvoiceRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +13,7 @@ import org.springframework.core.env.Environment;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,17 +23,23 @@ import java.time.YearMonth;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+@ReadReplica
 @RestController
 @RequestMapping("/api/v1/dashboard")
 public class DashboardController {
     private static final Logger log = LoggerFactory.getLogger(DashboardController.class);
     private final JdbcTemplate jdbc;
     private final Environment env;
+    private final InvoiceRollupService rollupService;
+    private final QueryConfigHelper configHelper;
 
     @Autowired
-    public DashboardController(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env) {
+    public DashboardController(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+            InvoiceRollupService rollupService, QueryConfigHelper configHelper) {
         this.jdbc = jdbc;
         this.env = env;
+        this.rollupService = rollupService;
+        this.configHelper = configHelper;
     }
 
     @GetMapping("/sales-summary")
@@ -63,16 +75,36 @@ public class DashboardController {
         LocalDate curMonStart = LocalDate.of(y, m, 1);
         LocalDate curMonToDateEndEx = d.plusDays(1);
 
+        // Rollup path: read pre-aggregated daily totals instead of scanning invoice
+        if (rollupService.isReady()) {
+            try {
+                double[] s = rollupService.sumRanges(java.util.List.of(
+                        new LocalDate[] { prevYearStart, prevYearEndEx },
+                        new LocalDate[] { prevYearStart, prevYtdEndEx },
+                        new LocalDate[] { curYearStart, curYtdEndEx },
+                        new LocalDate[] { prevMonStart, prevMonEndEx },
+                        new LocalDate[] { prevMonStart, prevMonToDateEndEx },
+                        new LocalDate[] { curMonStart, curMonToDateEndEx }),
+                        companyType);
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("prevYearTotal", s[0]);
+                out.put("prevYearToDate", s[1]);
+                out.put("currentYearToDate", s[2]);
+                out.put("prevYearMonthTotal", s[3]);
+                out.put("prevYearMonthToDate", s[4]);
+                out.put("currentYearMonthToDate", s[5]);
+                return ResponseEntity.ok(out);
+            } catch (Exception ex) {
+                log.warn("[Dashboard] sales-summary rollup read failed, falling back to invoice: {}", ex.toString());
+            }
+        }
+
         try {
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText ? ("to_date(i." + colDate + ", '" + dateFmt + "')")
-                    : ("i." + colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colAmt = invCfg.getCurAmtColumn();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String dateExpr = invCfg.dateExpr("i");
 
             String whereClause = "";
             if (companyType != null && !companyType.trim().isEmpty()) {
@@ -131,6 +163,39 @@ public class DashboardController {
         return ResponseEntity.status(500).body(Map.of("error", "dashboard_summary_failed"));
     }
 
+    /**
+     * Invoice rollup status / manual maintenance.
+     * GET  /api/v1/dashboard/rollup/status
+     * POST /api/v1/dashboard/rollup/refresh  (re-aggregate recent days and days touched by newly landed rows)
+     * POST /api/v1/dashboard/rollup/rebuild  (full rebuild after older corrections; also runs nightly)
+     */
+    @GetMapping("/rollup/status")
+    public ResponseEntity<?> rollupStatus() {
+        return ResponseEntity.ok(rollupService.status());
+    }
+
+    @PostMapping("/rollup/refresh")
+    public ResponseEntity<?> rollupRefresh() {
+        try {
+            int rows = rollupService.refresh();
+            return ResponseEntity.ok(Map.of("ok", true, "rows", rows));
+        } catch (Exception ex) {
+            log.error("[Dashboard] rollup refresh failed: {}", ex.toString());
+            return ResponseEntity.status(500).body(Map.of("error", "rollup_refresh_failed"));
+        }
+    }
+
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<?> rollupRebuild() {
+        try {
+            int rows = rollupService.rebuild();
+            return ResponseEntity.ok(Map.of("ok", true, "rows", rows));
+        } catch (Exception ex) {
+            log.error("[Dashboard] rollup rebuild failed: {}", ex.toString());
+            return ResponseEntity.status(500).body(Map.of("error", "rollup_rebuild_failed"));
+        }
+    }
+
     /**
      * Aggregate invoice amounts by sales management unit for a given employee name.
      * GET /api/v1/dashboard/unit-amounts-by-emp?empName=홍길동
@@ -143,10 +208,11 @@ public class DashboardController {
             if (name.isEmpty())
                 return ResponseEntity.ok(java.util.List.of());
 
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colEmp = env.getProperty("app.invoice.columns.curr_emp_name", "curr_emp_name");
-            String colUnit = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colEmp = invCfg.getCurrEmpNameColumn();
+            String colUnit = invCfg.getSalesMgmtUnitColumn();
+            String colAmt = invCfg.getCurAmtColumn();
 
             String sql = "SELECT coalesce(nullif(trim(" + colUnit + "), ''), 'na') AS sales_mgmt_unit, " +
                     "SUM(COALESCE(" + colAmt + ",0))::double precision AS amount " +
@@ -193,22 +259,15 @@ public class DashboardController {
             if (aid.isEmpty() || comp.isEmpty() || year <= 0)
                 return ResponseEntity.ok(java.util.List.of());
 
-            String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String invTbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String colAmt = invCfg.getCurAmtColumn();
             // Prefer std_qty if configured; fallback to qty
-            String colQty = env.getProperty("app.invoice.columns.std_qty",
-                    env.getProperty("app.invoice.columns.qty", "std_qty"));
-            String colUnit = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-            String colItemUnit = env.getProperty("app.invoice.columns.item_unit", "item_unit");
-            String colItemStdUnit = env.getProperty("app.invoice.columns.item_std_unit", "item_std_unit");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText
-                    ? ("to_date(" + colDate + ", '" + dateFmt + "')")
-                    : (colDate + "::date");
+            String colQty = invCfg.getStdQtyColumn();
+            String colUnit = invCfg.getSalesMgmtUnitColumn();
+            String colItemUnit = invCfg.getItemUnitColumn();
+            String colItemStdUnit = invCfg.getItemStdUnitColumn();
 
             String sql = "SELECT coalesce(nullif(trim(i." + colUnit + "), ''), 'na') AS sales_mgmt_unit, " +
                     "SUM(COALESCE(i." + colAmt + ",0))::double precision AS total_amount, " +
@@ -223,8 +282,8 @@ public class DashboardController {
                     + "), ''), 'na')) AS item_std_unit " +
                     "FROM " + invTbl + " i " +
                     "JOIN public.customer c ON CAST(i." + colCust + " AS TEXT) = CAST(c.customer_seq AS TEXT) " +
-                    "WHERE c.assignee_id = ? AND UPPER(c.company_type) = UPPER(?) AND EXTRACT(YEAR FROM " + dateExpr
-                    + ") = ? " +
+                    "WHERE c.assignee_id = ? AND UPPER(c.company_type) = UPPER(?) AND " + invCfg.yearExpr(null)
+                    + " = ? " +
                     "GROUP BY 1 ORDER BY 1";
 
             java.util.List<java.util.Map<String, Object>> rows = jdbc.query(sql, ps -> {
@@ -272,21 +331,14 @@ public class DashboardController {
             if (comp.isEmpty() || year <= 0)
                 return ResponseEntity.ok(java.util.List.of());
 
-            String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colQty = env.getProperty("app.invoice.columns.std_qty",
-                    env.getProperty("app.invoice.columns.qty", "std_qty"));
-            String colUnit = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-            String colItemUnit = env.getProperty("app.invoice.columns.item_unit", "item_unit");
-            String colItemStdUnit = env.getProperty("app.invoice.columns.item_std_unit", "item_std_unit");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText
-                    ? ("to_date(" + colDate + ", '" + dateFmt + "')")
-                    : (colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String invTbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String colAmt = invCfg.getCurAmtColumn();
+            String colQty = invCfg.getStdQtyColumn();
+            String colUnit = invCfg.getSalesMgmtUnitColumn();
+            String colItemUnit = invCfg.getItemUnitColumn();
+            String colItemStdUnit = invCfg.getItemStdUnitColumn();
 
             String sql = "SELECT coalesce(nullif(trim(i." + colUnit + "), ''), 'na') AS sales_mgmt_unit, " +
                     "SUM(COALESCE(i." + colAmt + ",0))::double precision AS total_amount, " +
@@ -301,7 +353,7 @@ public class DashboardController {
                     + "), ''), 'na')) AS item_std_unit " +
                     "FROM " + invTbl + " i " +
                     "JOIN public.customer c ON CAST(i." + colCust + " AS TEXT) = CAST(c.customer_seq AS TEXT) " +
-                    "WHERE UPPER(c.company_type) = UPPER(?) AND EXTRACT(YEAR FROM " + dateExpr + ") = ? " +
+                    "WHERE UPPER(c.company_type) = UPPER(?) AND " + invCfg.yearExpr(null) + " = ? " +
                     "GROUP BY 1 ORDER BY 1";
 
             java.util.List<java.util.Map<String, Object>> rows = jdbc.query(sql, ps -> {
@@ -348,15 +400,11 @@ public class DashboardController {
             }
         }
         try {
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText ? ("to_date(i." + colDate + ", '" + dateFmt + "')")
-                    : ("i." + colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colAmt = invCfg.getCurAmtColumn();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String dateExpr = invCfg.dateExpr("i");
 
             String whereClause = dateExpr + " >= ? AND " + dateExpr + " < ?";
             String joinClause = "";
@@ -428,15 +476,11 @@ public class DashboardController {
             }
         }
         try {
-            String tbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText ? ("to_date(i." + colDate + ", '" + dateFmt + "')")
-                    : ("i." + colDate + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String tbl = invCfg.getTableName();
+            String colAmt = invCfg.getCurAmtColumn();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String dateExpr = invCfg.dateExpr("i");
 
             String whereClause = dateExpr + " >= ? AND " + dateExpr + " < ?";
             String joinClause = "";
@@ -503,18 +547,16 @@ public class DashboardController {
         LocalDate curYearStart = LocalDate.of(y, 1, 1);
         LocalDate curYtdEndEx = d.plusDays(1);
         try {
-            String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
-
-            String custTbl = env.getProperty("app.customer.table", "public.customer");
-            String custSeqCol = env.getProperty("app.customer.columns.customer_seq", "customer_seq");
-            String custNameCol = env.getProperty("app.customer.columns.customer_name", "customer_name");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String invTbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String colAmt = invCfg.getCurAmtColumn();
+            String dateExpr = invCfg.dateExpr(null);
+
+            CustomerTableConfig custCfg = configHelper.getCustomerConfig();
+            String custTbl = custCfg.getTableName();
+            String custSeqCol = custCfg.getCustomerSeqColumn();
+            String custNameCol = custCfg.getCustomerNameColumn();
 
             String sql = "WITH prev AS (" +
                     "  SELECT " + colCust + ", MAX(customer_name) AS inv_customer_name, SUM(COALESCE(" + colAmt
@@ -572,18 +614,16 @@ public class DashboardController {
         LocalDate curYearStart = LocalDate.of(y, 1, 1);
         LocalDate curYtdEndEx = d.plusDays(1);
         try {
-            String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            boolean dateIsText = Boolean
-                    .parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
-
-            String custTbl = env.getProperty("app.customer.table", "public.customer");
-            String custSeqCol = env.getProperty("app.customer.columns.customer_seq", "customer_seq");
-            String custNameCol = env.getProperty("app.customer.columns.customer_name", "customer_name");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String invTbl = invCfg.getTableName();
+            String colCust = invCfg.getCustomerSeqColumn();
+            String colAmt = invCfg.getCurAmtColumn();
+            String dateExpr = invCfg.dateExpr(null);
+
+            CustomerTableConfig custCfg = configHelper.getCustomerConfig();
+            String custTbl = custCfg.getTableName();
+            String custSeqCol = custCfg.getCustomerSeqColumn();
+            String custNameCol = custCfg.getCustomerNameColumn();
 
             String sql = "WITH prev AS (" +
                     "  SELECT " + colCust + ", SUM(COALESCE(" + colAmt + ",0)) AS amt" +
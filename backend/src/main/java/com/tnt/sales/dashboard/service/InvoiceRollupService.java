@@ -0,0 +1,276 @@
+package com.tnt.sales.dashboard.service;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * 일자별 매출 롤업(public.invoice_daily_rollup, invoice_day x invoice.customer_seq) 관리
+ *
+ * 갱신은 누적이 아니라 일자 단위 재집계(해당 일자 행 삭제 후 원본에서 다시 집계)로 한다.
+ * - invoice_seq 워터마크 - seq-overlap(기본 10000) 이후 행(신규/늦게 커밋된 행)이 속한 일자만 재집계
+ * - 최근 refold-days(기본 2일: 오늘, 어제)는 신규 행이 없어도 재집계: 당일 수정/삭제 반영
+ * - 그 밖의 과거 정정은 rebuild-cron(기본 매일 03:30) 전체 재구성으로 반영
+ * 재집계 대상 일자는 원본 날짜 컬럼 자체의 범위 조건으로 읽는다 (to_date/::date 식이 아니라 인덱스 사용 가능).
+ * 거래처(public.customer)는 조회 시점에 BIGINT customer_seq로 조인하므로 나중에 적재된 거래처, company_type 변경도 바로 반영된다.
+ * 대시보드 요약(sales-summary)은 원본 invoice 대신 이 롤업을 조회한다.
+ */
+@Service
+public class InvoiceRollupService {
+    private static final Logger log = LoggerFactory.getLogger(InvoiceRollupService.class);
+    static final String ROLLUP_NAME = "invoice_daily";
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final QueryConfigHelper configHelper;
+    private final TransactionTemplate tx;
+    // 한 번 갱신된 롤업은 다시 미갱신 상태로 돌아가지 않으므로 true가 되면 더 조회하지 않음
+    private volatile boolean ready;
+
+    public InvoiceRollupService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+                                QueryConfigHelper configHelper, PlatformTransactionManager txManager) {
+        this.jdbc = jdbc;
+        this.env = env;
+        this.configHelper = configHelper;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(env.getProperty("app.dashboard.rollup.enabled", "true"));
+    }
+
+    /**
+     * 롤업이 최소 1회 이상 갱신되었는지 (미갱신 상태면 요약은 원본 테이블로 fallback)
+     */
+    public boolean isReady() {
+        if (!isEnabled()) return false;
+        if (ready) return true;
+        try {
+            Integer cnt = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM public.invoice_rollup_state WHERE rollup_name = ? AND refreshed_at IS NOT NULL",
+                    Integer.class, ROLLUP_NAME);
+            ready = cnt != null && cnt > 0;
+            return ready;
+        } catch (Exception ex) {
+            log.debug("[InvoiceRollup] state not available: {}", ex.toString());
+            return false;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.dashboard.rollup.initial-delay-ms:30000}",
+               fixedDelayString = "${app.dashboard.rollup.refresh-ms:60000}")
+    public void scheduledRefresh() {
+        if (!isEnabled() || configHelper.isNoDbProfile()) return;
+        try {
+            // self-invocation bypasses the @Transactional proxy, so open the transaction explicitly
+            tx.execute(status -> refresh());
+            ready = true;
+        } catch (Exception ex) {
+            log.warn("[InvoiceRollup] scheduled refresh failed: {}", ex.toString());
+        }
+    }
+
+    @Scheduled(cron = "${app.dashboard.rollup.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        if (!isEnabled() || configHelper.isNoDbProfile()) return;
+        try {
+            tx.execute(status -> rebuild());
+            ready = true;
+        } catch (Exception ex) {
+            log.warn("[InvoiceRollup] scheduled rebuild failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 워터마크(- seq-overlap) 이후 행이 속한 일자와 최근 refold-days 일자를 재집계
+     * 아직 한 번도 갱신되지 않았으면 전체 재구성
+     * @return 이번 갱신에서 다시 쓴 롤업 행 수
+     */
+    @Transactional
+    public int refresh() {
+        long from = lockWatermark();
+        if (from <= 0) return rebuildLocked();
+        InvoiceTableConfig cfg = configHelper.getInvoiceConfig();
+        String colSeq = cfg.getInvoiceSeqColumn();
+        String dateExpr = cfg.dateExpr("i");
+        int refoldDays = env.getProperty("app.dashboard.rollup.refold-days", Integer.class, 2);
+        long overlap = env.getProperty("app.dashboard.rollup.seq-overlap", Long.class, 10_000L);
+
+        Long to = jdbc.queryForObject("SELECT MAX(" + colSeq + ") FROM " + cfg.getTableName(), Long.class);
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (int d = 0; d < refoldDays; d++) {
+            days.add(LocalDate.now().minusDays(d));
+        }
+        // 워터마크 이후(늦게 커밋된 낮은 seq 포함) 행이 속한 일자: invoice_seq 범위로만 읽음
+        for (java.sql.Date day : jdbc.queryForList(
+                "SELECT DISTINCT " + dateExpr + " FROM " + cfg.getTableName() + " i " +
+                        "WHERE i." + colSeq + " > ? AND " + dateExpr + " IS NOT NULL",
+                java.sql.Date.class, from - overlap)) {
+            days.add(day.toLocalDate());
+        }
+
+        int rows = refold(cfg, days);
+        jdbc.update("UPDATE public.invoice_rollup_state SET last_invoice_seq = GREATEST(last_invoice_seq, COALESCE(?, 0)), " +
+                "refreshed_at = now() WHERE rollup_name = ?", to, ROLLUP_NAME);
+        log.info("[InvoiceRollup] refolded {} day(s) into {} rollup rows (seq {} -> {})", days.size(), rows, from, to);
+        return rows;
+    }
+
+    /**
+     * 롤업 전체 재구성 (refold-days 이전 invoice 정정/삭제 반영용)
+     */
+    @Transactional
+    public int rebuild() {
+        lockWatermark();
+        return rebuildLocked();
+    }
+
+    private int rebuildLocked() {
+        InvoiceTableConfig cfg = configHelper.getInvoiceConfig();
+        Long to = jdbc.queryForObject("SELECT MAX(" + cfg.getInvoiceSeqColumn() + ") FROM " + cfg.getTableName(), Long.class);
+        jdbc.update("DELETE FROM public.invoice_daily_rollup");
+        int rows = insertDays(cfg, "TRUE", List.of());
+        jdbc.update("UPDATE public.invoice_rollup_state SET last_invoice_seq = COALESCE(?, 0), refreshed_at = now() " +
+                "WHERE rollup_name = ?", to, ROLLUP_NAME);
+        log.info("[InvoiceRollup] rebuilt {} rollup rows (seq {})", rows, to);
+        return rows;
+    }
+
+    /**
+     * 기간별 매출 합계를 롤업에서 계산
+     * @param ranges [start, endExclusive) 쌍의 목록
+     * @param companyType 회사 구분 (null/blank면 전체)
+     * @return ranges 순서대로의 합계
+     */
+    public double[] sumRanges(List<LocalDate[]> ranges, String companyType) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<Object> args = new ArrayList<>();
+        LocalDate min = null;
+        LocalDate max = null;
+        for (int k = 0; k < ranges.size(); k++) {
+            LocalDate[] r = ranges.get(k);
+            if (k > 0) sql.append(", ");
+            sql.append("SUM(CASE WHEN r.invoice_day >= ? AND r.invoice_day < ? THEN r.cur_amt ELSE 0 END)");
+            args.add(java.sql.Date.valueOf(r[0]));
+            args.add(java.sql.Date.valueOf(r[1]));
+            if (min == null || r[0].isBefore(min)) min = r[0];
+            if (max == null || r[1].isAfter(max)) max = r[1];
+        }
+        // 원본 조회와 같이 거래처가 있는 행만, company_type은 조회 시점 값으로
+        sql.append(" FROM public.invoice_daily_rollup r " +
+                "JOIN public.customer c ON c.customer_seq = r.customer_seq " +
+                "WHERE r.invoice_day >= ? AND r.invoice_day < ?");
+        args.add(java.sql.Date.valueOf(min));
+        args.add(java.sql.Date.valueOf(max));
+        if (companyType != null && !companyType.isBlank()) {
+            sql.append(" AND UPPER(c.company_type) = UPPER(?)");
+            args.add(companyType.trim());
+        }
+        return jdbc.queryForObject(sql.toString(), (rs, i) -> {
+            double[] out = new double[ranges.size()];
+            for (int k = 0; k < out.length; k++) {
+                java.math.BigDecimal v = rs.getBigDecimal(k + 1);
+                out[k] = v == null ? 0 : v.doubleValue();
+            }
+            return out;
+        }, args.toArray());
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", isEnabled());
+        try {
+            List<Map<String, Object>> rows = jdbc.queryForList(
+                    "SELECT last_invoice_seq, refreshed_at FROM public.invoice_rollup_state WHERE rollup_name = ?",
+                    ROLLUP_NAME);
+            if (!rows.isEmpty()) out.putAll(rows.get(0));
+        } catch (Exception ex) {
+            out.put("error", ex.getMessage());
+        }
+        return out;
+    }
+
+    // 상태 행을 잠가 동시 갱신(스케줄러/수동 재구성/다중 인스턴스)을 직렬화
+    private long lockWatermark() {
+        jdbc.update("INSERT INTO public.invoice_rollup_state (rollup_name, last_invoice_seq) VALUES (?, 0) " +
+                "ON CONFLICT DO NOTHING", ROLLUP_NAME);
+        Long seq = jdbc.queryForObject(
+                "SELECT last_invoice_seq FROM public.invoice_rollup_state WHERE rollup_name = ? FOR UPDATE",
+                Long.class, ROLLUP_NAME);
+        return seq == null ? 0L : seq;
+    }
+
+    /**
+     * 지정 일자의 롤업 행을 지우고 원본에서 다시 집계
+     * 연속된 일자는 [start, endExclusive) 구간 하나로 묶어 원본 날짜 컬럼의 범위 조건으로 읽는다.
+     */
+    private int refold(InvoiceTableConfig cfg, SortedSet<LocalDate> days) {
+        if (days.isEmpty()) return 0;
+        List<LocalDate[]> ranges = new ArrayList<>();
+        for (LocalDate day : days) {
+            LocalDate[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1].equals(day)) {
+                last[1] = day.plusDays(1);
+            } else {
+                ranges.add(new LocalDate[]{day, day.plusDays(1)});
+            }
+        }
+        List<Object> rollupArgs = new ArrayList<>();
+        jdbc.update("DELETE FROM public.invoice_daily_rollup WHERE " +
+                rangePredicate("invoice_day", ranges, java.sql.Date::valueOf, rollupArgs), rollupArgs.toArray());
+
+        List<Object> invoiceArgs = new ArrayList<>();
+        String predicate = cfg.isDateRangeSargable()
+                ? rangePredicate("i." + cfg.getInvoiceDateColumn(), ranges, cfg::dateBound, invoiceArgs)
+                // 연-월-일 순이 아닌 텍스트 형식은 문자열 비교가 불가해 날짜 변환식으로 비교
+                : rangePredicate(cfg.dateExpr("i"), ranges, java.sql.Date::valueOf, invoiceArgs);
+        return insertDays(cfg, "(" + predicate + ")", invoiceArgs);
+    }
+
+    private static String rangePredicate(String column, List<LocalDate[]> ranges,
+                                         Function<LocalDate, Object> bound, List<Object> args) {
+        StringBuilder sql = new StringBuilder();
+        for (LocalDate[] r : ranges) {
+            if (!sql.isEmpty()) sql.append(" OR ");
+            sql.append("(").append(column).append(" >= ? AND ").append(column).append(" < ?)");
+            args.add(bound.apply(r[0]));
+            args.add(bound.apply(r[1]));
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 조건에 맞는 invoice 행을 일자 x customer_seq로 집계해 롤업에 삽입 (해당 일자 행은 미리 지워져 있어야 함)
+     * customer_seq는 BIGINT로 저장한다. 원본 조회는 TEXT로 비교해 조인하므로, 정수 표기('0' 또는 0으로 시작하지 않는 숫자)가
+     * 아닌 값은 어떤 거래처와도 조인되지 않아 제외한다.
+     */
+    private int insertDays(InvoiceTableConfig cfg, String dayPredicate, List<Object> args) {
+        String dateExpr = cfg.dateExpr("i");
+        String colCust = "CAST(i." + cfg.getCustomerSeqColumn() + " AS TEXT)";
+        String sql = "INSERT INTO public.invoice_daily_rollup (invoice_day, customer_seq, cur_amt, row_count, updated_at) " +
+                "SELECT " + dateExpr + ", CAST(" + colCust + " AS BIGINT), " +
+                "SUM(COALESCE(i." + cfg.getCurAmtColumn() + ", 0)), COUNT(*), now() " +
+                "FROM " + cfg.getTableName() + " i " +
+                "WHERE " + colCust + " ~ '^(0|[1-9][0-9]{0,17})$' AND " + dateExpr + " IS NOT NULL AND " + dayPredicate + " " +
+                "GROUP BY 1, 2";
+        return jdbc.update(sql, args.toArray());
+    }
+}
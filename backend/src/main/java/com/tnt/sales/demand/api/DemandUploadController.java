@@ -2,25 +2,48 @@ package com.tnt.sales.demand.api;
 
 import com.tnt.sales.demand.model.DemandUpsertRow;
 import com.tnt.sales.demand.model.DemandRawRow;
+import com.tnt.sales.demand.service.DemandExcelStreamReader;
 import com.tnt.sales.demand.service.DemandService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/v1/demand")
 public class DemandUploadController {
+    private static final Logger log = LoggerFactory.getLogger(DemandUploadController.class);
     private final DemandService demandService;
+    private final DemandExcelStreamReader excelReader;
+    private final ObjectMapper objectMapper;
     @Autowired(required = false)
     private JdbcTemplate jdbc;
 
     @Autowired
-    public DemandUploadController(DemandService demandService) {
+    public DemandUploadController(DemandService demandService, DemandExcelStreamReader excelReader,
+                                  ObjectMapper objectMapper) {
         this.demandService = demandService;
+        this.excelReader = excelReader;
+        this.objectMapper = objectMapper;
     }
 
     // JSON upload endpoint used by frontend
@@ -71,7 +94,102 @@ public class DemandUploadController {
         }
     }
 
-    // Note: file upload is not supported; frontend parses Excel and posts JSON.
+    /**
+     * Server-side streaming Excel ingest.
+     * POST /api/v1/demand/upload-raw/stream (multipart: file=.xlsx, sheet?, chunkSize?)
+     * The sheet is read with POI's SAX API and merged chunk by chunk (one transaction per chunk),
+     * so memory stays flat regardless of row count. Progress is streamed as NDJSON:
+     * {"chunk":1,"rows":2000,"updated":..,"inserted":..} ... {"done":true,"dataRows":..,"updated":..,"inserted":..}
+     * The temp copy of the upload is removed when async processing completes for any reason
+     * (done, error, timeout, client disconnect), even if the streaming body never ran.
+     */
+    @PostMapping(value = "/upload-raw/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadRawStream(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "sheet", required = false) String sheet,
+            @RequestParam(value = "chunkSize", required = false, defaultValue = "2000") int chunkSize,
+            NativeWebRequest request
+    ) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No file provided"));
+        }
+        File tmp = null;
+        try {
+            // OPCPackage reads zip entries lazily from a File; an InputStream would buffer the whole package
+            tmp = Files.createTempFile("demand-upload-", ".xlsx").toFile();
+            file.transferTo(tmp);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            return ResponseEntity.status(500).body(Map.of("error", e.getClass().getSimpleName()+": "+e.getMessage()));
+        }
+        File upload = tmp;
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(
+                DemandUploadController.class.getName() + ".cleanup", new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest req, Callable<T> task) {
+                        deleteQuietly(upload);
+                    }
+                });
+        int capped = Math.max(100, Math.min(20000, chunkSize));
+        StreamingResponseBody body = out -> {
+            int[] totals = new int[3]; // chunks, updated, inserted
+            try {
+                int dataRows = excelReader.read(upload, sheet, capped, chunk -> {
+                    var res = demandService.upsertFlatBatch(chunk);
+                    totals[0]++;
+                    totals[1] += res.updated();
+                    totals[2] += res.inserted();
+                    Map<String, Object> progress = new LinkedHashMap<>();
+                    progress.put("chunk", totals[0]);
+                    progress.put("rows", chunk.size());
+                    progress.put("updated", totals[1]);
+                    progress.put("inserted", totals[2]);
+                    writeLine(out, progress);
+                });
+                Map<String, Object> done = new LinkedHashMap<>();
+                done.put("done", true);
+                done.put("dataRows", dataRows);
+                done.put("chunks", totals[0]);
+                done.put("updated", totals[1]);
+                done.put("inserted", totals[2]);
+                done.put("total", totals[1] + totals[2]);
+                writeLine(out, done);
+            } catch (Exception e) {
+                log.error("[Demand] streaming upload failed after {} chunks: {}", totals[0], e.toString());
+                Map<String, Object> err = new LinkedHashMap<>();
+                err.put("done", false);
+                err.put("chunks", totals[0]);
+                err.put("updated", totals[1]);
+                err.put("inserted", totals[2]);
+                err.put("error", e.getClass().getSimpleName()+": "+e.getMessage());
+                writeLine(out, err);
+            } finally {
+                deleteQuietly(upload);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("[Demand] could not delete upload temp file {}: {}", file, e.toString());
+        }
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Note: the JSON endpoints above remain for the browser-side parser; large files should use /upload-raw/stream.
 
     @GetMapping("/owner-stats")
     public ResponseEntity<?> ownerStats(
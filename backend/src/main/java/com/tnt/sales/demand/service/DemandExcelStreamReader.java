@@ -0,0 +1,216 @@
+package com.tnt.sales.demand.service;
+
+import com.tnt.sales.demand.model.DemandUpsertRow;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 수요 엑셀(.xlsx) 스트리밍 파서
+ *
+ * POI SAX(event) API로 시트를 한 행씩 읽어 DemandUpsertRow로 변환하고,
+ * chunkSize 단위로 consumer에 넘긴다. 워크북 전체를 메모리에 올리지 않는다.
+ * 헤더 매핑/빈칸 채우기 규칙은 프론트엔드(ExcelUpload.tsx buildUploadPayload)와 동일하다.
+ */
+@Component
+public class DemandExcelStreamReader {
+
+    private static final String[] SALES_REP_HEADERS = {"영업담당자", "영업사원", "sales_owner", "sales_rep", "sales_rep_name"};
+    private static final String[] CUSTOMER_HEADERS = {"거래처", "고객", "customer"};
+    private static final String[] SUBCATEGORY_HEADERS = {"중분류", "품목중분류", "종분류", "category_mid", "item_subcategory"};
+    private static final String[] SUPPLIER_HEADERS = {"공급사(tnt)", "공급사 tnt", "tnt", "공급사", "공급자", "supplier"};
+    private static final String[] UNIT_HEADERS = {"영업관리단위", "관리단위", "mgmt_unit", "sales_mgmt_unit"};
+    private static final String[] SHARE_HEADERS = {"점유율(%)", "점유율", "share", "share_rate"};
+
+    // 숫자 셀은 표시 서식(%, 천단위 등) 대신 원본 값을 사용 (브라우저 파서 sheet_to_json 기본 동작과 동일)
+    private static final DataFormatter RAW_FORMATTER = new DataFormatter() {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            return (value == Math.rint(value) && Math.abs(value) < 1e15)
+                    ? Long.toString((long) value) : Double.toString(value);
+        }
+    };
+
+    /**
+     * @param file      업로드된 .xlsx 파일 (디스크 상의 임시 파일)
+     * @param sheetName 읽을 시트 이름 (null이면 첫 번째 시트)
+     * @param chunkSize consumer로 넘길 행 묶음 크기
+     * @param consumer  변환된 행 묶음 처리기
+     * @return 읽은 데이터 행 수 (헤더 제외)
+     */
+    public int read(File file, String sheetName, int chunkSize, Consumer<List<DemandUpsertRow>> consumer) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                try (InputStream sheet = it.next()) {
+                    if (sheetName != null && !sheetName.isBlank() && !sheetName.equals(it.getSheetName())) continue;
+                    RowHandler handler = new RowHandler(Math.max(1, chunkSize), consumer);
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, handler, RAW_FORMATTER, false));
+                    parser.parse(new InputSource(sheet));
+                    handler.flush();
+                    return handler.dataRows;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Sheet not found: " + sheetName);
+    }
+
+    private static final class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final int chunkSize;
+        private final Consumer<List<DemandUpsertRow>> consumer;
+        private List<DemandUpsertRow> buffer;
+        private final List<String> cells = new ArrayList<>();
+        private boolean headerSeen;
+        private int salesRepIdx = -1, customerIdx = -1, subcatIdx = -1;
+        private int[] supIdx, unitIdx, shareIdx;
+        private int maxGroups;
+        private String lastSalesOwner, lastCustomer, lastCategoryMid;
+        int dataRows;
+
+        RowHandler(int chunkSize, Consumer<List<DemandUpsertRow>> consumer) {
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+            this.buffer = new ArrayList<>(chunkSize);
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (cellReference == null) return;
+            int col = new CellReference(cellReference).getCol();
+            while (cells.size() <= col) cells.add("");
+            cells.set(col, formattedValue == null ? "" : formattedValue);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!headerSeen) {
+                headerSeen = true;
+                resolveHeader();
+                return;
+            }
+            dataRows++;
+            String salesOwner = at(salesRepIdx);
+            String customer = at(customerIdx);
+            String categoryMid = at(subcatIdx);
+            if (salesOwner.isEmpty()) salesOwner = lastSalesOwner == null ? "" : lastSalesOwner;
+            if (customer.isEmpty()) customer = lastCustomer == null ? "" : lastCustomer;
+            if (categoryMid.isEmpty()) categoryMid = lastCategoryMid == null ? "" : lastCategoryMid;
+            if (salesOwner.isEmpty() || customer.isEmpty() || categoryMid.isEmpty()) {
+                if (!salesOwner.isEmpty()) lastSalesOwner = salesOwner;
+                if (!customer.isEmpty()) lastCustomer = customer;
+                if (!categoryMid.isEmpty()) lastCategoryMid = categoryMid;
+                return;
+            }
+            lastSalesOwner = salesOwner;
+            lastCustomer = customer;
+            lastCategoryMid = categoryMid;
+            for (int k = 0; k < maxGroups; k++) {
+                String sup = at(k < supIdx.length ? supIdx[k] : -1);
+                String unit = at(k < unitIdx.length ? unitIdx[k] : -1);
+                Double rawShare = toNum(at(k < shareIdx.length ? shareIdx[k] : -1));
+                boolean hasShare = rawShare != null && rawShare != 0;
+                // Create a record if any of supplier/unit/share present (share=0 is considered missing)
+                if (sup.isEmpty() && unit.isEmpty() && !hasShare) continue;
+                DemandUpsertRow row = new DemandUpsertRow();
+                row.setSalesRepName(salesOwner);
+                row.setCustomerName(customer);
+                row.setItemSubcategory(categoryMid);
+                row.setSupplierName(sup);
+                row.setSalesMgmtUnit(unit);
+                row.setShareRate(hasShare ? rawShare : null);
+                row.setPriority(k + 1);
+                buffer.add(row);
+            }
+            if (buffer.size() >= chunkSize) flush();
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+
+        void flush() {
+            if (buffer.isEmpty()) return;
+            consumer.accept(buffer);
+            buffer = new ArrayList<>(chunkSize);
+        }
+
+        private void resolveHeader() {
+            List<String> header = new ArrayList<>(cells);
+            salesRepIdx = firstIdx(header, SALES_REP_HEADERS);
+            customerIdx = firstIdx(header, CUSTOMER_HEADERS);
+            subcatIdx = firstIdx(header, SUBCATEGORY_HEADERS);
+            supIdx = allIdx(header, SUPPLIER_HEADERS);
+            unitIdx = allIdx(header, UNIT_HEADERS);
+            shareIdx = allIdx(header, SHARE_HEADERS);
+            maxGroups = Math.max(supIdx.length, Math.max(unitIdx.length, shareIdx.length));
+        }
+
+        private String at(int idx) {
+            if (idx < 0 || idx >= cells.size()) return "";
+            return cells.get(idx).trim();
+        }
+    }
+
+    private static int firstIdx(List<String> header, String[] cands) {
+        for (int i = 0; i < header.size(); i++) {
+            if (matches(header.get(i), cands)) return i;
+        }
+        return -1;
+    }
+
+    private static int[] allIdx(List<String> header, String[] cands) {
+        return java.util.stream.IntStream.range(0, header.size())
+                .filter(i -> matches(header.get(i), cands))
+                .toArray();
+    }
+
+    private static boolean matches(String h, String[] cands) {
+        // 빈 헤더는 정규화하면 "" 이 되어 "tnt" 후보(정규화 시 "")와 같아지므로 먼저 제외
+        if (h == null || h.isBlank()) return false;
+        String n = normalizeHeader(h);
+        for (String c : cands) {
+            if (n.equals(normalizeHeader(c))) return true;
+        }
+        return false;
+    }
+
+    private static String normalizeHeader(String h) {
+        if (h == null) return "";
+        return h.trim().replaceAll("[\\s\\-_%()\\[\\]{}]", "").replaceAll("(?i)tnt", "").toLowerCase();
+    }
+
+    private static Double toNum(String v) {
+        if (v == null || v.isEmpty()) return null;
+        try {
+            double d = Double.parseDouble(v.replaceAll("[,\\s%]", ""));
+            return Double.isFinite(d) ? d : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -5,11 +5,14 @@ import com.tnt.sales.demand.model.DemandUploadItem;
 import com.tnt.sales.demand.model.ProductInfo;
 import com.tnt.sales.demand.model.DemandRawRow;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Arrays;
  
 
 @Service
@@ -59,8 +62,7 @@ public class DemandService {
                 return new UpsertResult(0, total);
             }
         }
-        int updated = 0;
-        int inserted = 0;
+        List<StageRow> rows = new ArrayList<>(items.size());
         for (DemandUpsertRow it : items) {
             String salesRepName = trimToNull(it.getSalesRepName());
             String customerName = trimToNull(it.getCustomerName());
@@ -77,40 +79,10 @@ public class DemandService {
             if (isAllBlank(supplierName, salesMgmtUnit, share)) {
                 continue;
             }
-            // Update first; if no row updated, then insert. Avoid exception-driven control flow.
-            String updateSql = "UPDATE public.demand SET share_rate=?, updated_at=now(), updated_by=current_user " +
-                    "WHERE sales_rep_name=? AND customer_name=? " +
-                    "AND coalesce(item_subcategory,'') = coalesce(?, '') " +
-                    "AND coalesce(supplier_name,'') = coalesce(?, '') " +
-                    "AND coalesce(sales_mgmt_unit,'') = coalesce(?, '')";
-            int u = runUpdate(updateSql,
-                    (shareMissing ? null : share),
-                    salesRepName,
-                    customerName,
-                    itemSubcategory,
-                    supplierName,
-                    salesMgmtUnit
-            );
-            if (u > 0) {
-                updated += u;
-            } else {
-                String insertSql = "INSERT INTO public.demand (sales_rep_name, sales_rep_id, customer_id, customer_name, supplier_id, supplier_name, item_subcategory, sales_mgmt_unit, share_rate) " +
-                        "VALUES (?,?,?,?,?,?,?,?,?)";
-                int i = runUpdate(insertSql,
-                        salesRepName,
-                        11,
-                        1,
-                        customerName,
-                        1,
-                        supplierName,
-                        itemSubcategory,
-                        salesMgmtUnit,
-                        (shareMissing ? null : share)
-                );
-                inserted += i;
-            }
+            rows.add(new StageRow(salesRepName, customerName, itemSubcategory, supplierName, salesMgmtUnit,
+                    (shareMissing ? null : share)));
         }
-        return new UpsertResult(updated, inserted);
+        return mergeStaged(rows);
     }
 
     @Transactional
@@ -130,8 +102,7 @@ public class DemandService {
                 return new UpsertResult(0, total);
             }
         }
-        int updated = 0;
-        int inserted = 0;
+        List<StageRow> rows = new ArrayList<>(items.size() * 2);
         for (DemandRawRow r : items) {
             String salesRepName = trimToNull(r.getSalesOwner());
             String customerName = trimToNull(r.getCustomer());
@@ -169,49 +140,99 @@ public class DemandService {
                 boolean shareMissing = (rawShare == null || rawShare.doubleValue() == 0.0);
                 Double share = (shareMissing ? null : rawShare);
 
-                String updateSql2 = "UPDATE public.demand SET share_rate=?, updated_at=now(), updated_by=current_user " +
-                        "WHERE sales_rep_name=? AND customer_name=? " +
-                        "AND coalesce(item_subcategory,'') = coalesce(?, '') " +
-                        "AND coalesce(supplier_name,'') = coalesce(?, '') " +
-                        "AND coalesce(sales_mgmt_unit,'') = coalesce(?, '')";
-                int u = runUpdate(updateSql2,
-                        (shareMissing ? null : share),
-                        salesRepName,
-                        customerName,
-                        itemSubcategory,
-                        supplierName,
-                        salesMgmtUnit
-                );
-                if (u > 0) {
-                    updated += u;
-                } else {
-                    String insertSql = "INSERT INTO public.demand (sales_rep_name, sales_rep_id, customer_id, customer_name, supplier_id, supplier_name, item_subcategory, sales_mgmt_unit, share_rate) " +
-                            "VALUES (?,?,?,?,?,?,?,?,?)";
-                    int i = runUpdate(insertSql,
-                            salesRepName,
-                            11,
-                            1,
-                            customerName,
-                            1,
-                            supplierName,
-                            itemSubcategory,
-                            salesMgmtUnit,
-                            (shareMissing ? null : share)
-                    );
-                    inserted += i;
-                }
+                rows.add(new StageRow(salesRepName, customerName, itemSubcategory, supplierName, salesMgmtUnit, share));
             }
         }
+        return mergeStaged(rows);
+    }
+
+    /** Normalized demand row staged for the set-based merge (input order = last write wins). */
+    private record StageRow(String salesRepName, String customerName, String itemSubcategory,
+                            String supplierName, String salesMgmtUnit, Double shareRate) { }
+
+    /**
+     * Staged rows are shipped as column arrays and unnested server-side, then merged with one statement
+     * per chunk: UPDATE for existing keys + INSERT for new keys (data-modifying CTEs share one snapshot).
+     * Duplicate keys inside a chunk collapse to the last row, and counts mirror the former
+     * row-by-row UPDATE-then-INSERT loop (a repeated new key counts 1 insert + n-1 updates).
+     */
+    private static final String MERGE_SQL =
+            "WITH src AS (" +
+            "  SELECT s.*, coalesce(s.item_subcategory,'') AS k_sub, coalesce(s.supplier_name,'') AS k_sup, " +
+            "         coalesce(s.sales_mgmt_unit,'') AS k_unit " +
+            "  FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::float8[]) WITH ORDINALITY " +
+            "       AS s(sales_rep_name, customer_name, item_subcategory, supplier_name, sales_mgmt_unit, share_rate, ord)" +
+            "), latest AS (" +
+            "  SELECT DISTINCT ON (sales_rep_name, customer_name, k_sub, k_sup, k_unit) *, " +
+            "         COUNT(*) OVER (PARTITION BY sales_rep_name, customer_name, k_sub, k_sup, k_unit) AS dup " +
+            "  FROM src ORDER BY sales_rep_name, customer_name, k_sub, k_sup, k_unit, ord DESC" +
+            "), hit AS (" +
+            "  SELECT l.*, EXISTS (SELECT 1 FROM public.demand d WHERE d.sales_rep_name = l.sales_rep_name " +
+            "      AND d.customer_name = l.customer_name AND coalesce(d.item_subcategory,'') = l.k_sub " +
+            "      AND coalesce(d.supplier_name,'') = l.k_sup AND coalesce(d.sales_mgmt_unit,'') = l.k_unit) AS found " +
+            "  FROM latest l" +
+            "), upd AS (" +
+            "  UPDATE public.demand d SET share_rate = h.share_rate, updated_at = now(), updated_by = current_user " +
+            "  FROM hit h WHERE h.found AND d.sales_rep_name = h.sales_rep_name AND d.customer_name = h.customer_name " +
+            "    AND coalesce(d.item_subcategory,'') = h.k_sub AND coalesce(d.supplier_name,'') = h.k_sup " +
+            "    AND coalesce(d.sales_mgmt_unit,'') = h.k_unit " +
+            "  RETURNING h.dup" +
+            "), ins AS (" +
+            "  INSERT INTO public.demand (sales_rep_name, sales_rep_id, customer_id, customer_name, supplier_id, supplier_name, item_subcategory, sales_mgmt_unit, share_rate) " +
+            "  SELECT h.sales_rep_name, 11, 1, h.customer_name, 1, h.supplier_name, h.item_subcategory, h.sales_mgmt_unit, h.share_rate " +
+            "  FROM hit h WHERE NOT h.found " +
+            "  RETURNING 1" +
+            ") " +
+            "SELECT (SELECT coalesce(SUM(dup),0) FROM upd) + (SELECT coalesce(SUM(dup - 1),0) FROM hit WHERE NOT found), " +
+            "       (SELECT COUNT(*) FROM ins)";
+
+    private UpsertResult mergeStaged(List<StageRow> rows) {
+        if (rows.isEmpty()) return new UpsertResult(0, 0);
+        int chunk = Math.max(1, env.getProperty("app.demand.upsert.batch-size", Integer.class, 5000));
+        int updated = 0;
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += chunk) {
+            int[] res = mergeChunk(rows.subList(from, Math.min(rows.size(), from + chunk)));
+            updated += res[0];
+            inserted += res[1];
+        }
         return new UpsertResult(updated, inserted);
     }
 
-    // TEMP DEBUG: print and propagate SQL with parameters on failure (remove later)
-    private int runUpdate(String sql, Object... params) {
+    private int[] mergeChunk(List<StageRow> chunk) {
+        int n = chunk.size();
+        String[] rep = new String[n];
+        String[] cust = new String[n];
+        String[] sub = new String[n];
+        String[] sup = new String[n];
+        String[] unit = new String[n];
+        Double[] share = new Double[n];
+        for (int i = 0; i < n; i++) {
+            StageRow r = chunk.get(i);
+            rep[i] = r.salesRepName();
+            cust[i] = r.customerName();
+            sub[i] = r.itemSubcategory();
+            sup[i] = r.supplierName();
+            unit[i] = r.salesMgmtUnit();
+            share[i] = r.shareRate();
+        }
         try {
-            return jdbc.update(sql, params);
+            return jdbc.execute((ConnectionCallback<int[]>) con -> {
+                try (PreparedStatement ps = con.prepareStatement(MERGE_SQL)) {
+                    ps.setArray(1, con.createArrayOf("text", rep));
+                    ps.setArray(2, con.createArrayOf("text", cust));
+                    ps.setArray(3, con.createArrayOf("text", sub));
+                    ps.setArray(4, con.createArrayOf("text", sup));
+                    ps.setArray(5, con.createArrayOf("text", unit));
+                    ps.setArray(6, con.createArrayOf("float8", share));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        return new int[] { rs.getInt(1), rs.getInt(2) };
+                    }
+                }
+            });
         } catch (org.springframework.dao.DataAccessException ex) {
-            String msg = "SQL failed: " + sql + " | params=" + Arrays.toString(params) + " | cause=" + (ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage());
-            System.err.println("[DEBUG-SQL] " + msg);
+            String msg = "Demand merge failed for " + n + " rows | cause=" + (ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage());
             throw new RuntimeException(msg, ex);
         }
     }
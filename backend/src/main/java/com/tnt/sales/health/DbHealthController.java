@@ -8,10 +8,14 @@ import java.util.Map;
 
 import javax.sql.DataSource;
 
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.common.SqlTemplateRegistry;
+import com.tnt.sales.config.PoolMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -22,12 +26,20 @@ public class DbHealthController {
     private final JdbcTemplate jdbcTemplate;
     private final DataSource dataSource;
     private final Environment env;
+    private final SchemaMetadataService schemaMetadata;
+    private final SqlTemplateRegistry sqlTemplates;
+    private final PoolMetrics poolMetrics;
 
     @Autowired
-    public DbHealthController(JdbcTemplate jdbcTemplate, DataSource dataSource, Environment env) {
+    public DbHealthController(JdbcTemplate jdbcTemplate, DataSource dataSource, Environment env,
+                              SchemaMetadataService schemaMetadata, SqlTemplateRegistry sqlTemplates,
+                              PoolMetrics poolMetrics) {
         this.jdbcTemplate = jdbcTemplate;
         this.dataSource = dataSource;
         this.env = env;
+        this.schemaMetadata = schemaMetadata;
+        this.sqlTemplates = sqlTemplates;
+        this.poolMetrics = poolMetrics;
     }
 
     @GetMapping("/db")
@@ -52,4 +64,29 @@ public class DbHealthController {
         }
         return res;
     }
+
+    @GetMapping("/schema")
+    public Map<String, Object> schema() {
+        return schemaMetadata.status();
+    }
+
+    // DDL(컬럼 추가 등) 적용 후 메타데이터 캐시 재적재
+    @PostMapping("/schema/refresh")
+    public Map<String, Object> refreshSchema() {
+        boolean ok = schemaMetadata.refresh();
+        Map<String, Object> res = schemaMetadata.status();
+        res.put("refreshed", ok);
+        return res;
+    }
+
+    @GetMapping("/sql-templates")
+    public Map<String, Object> sqlTemplates() {
+        return sqlTemplates.stats();
+    }
+
+    // 커넥션 풀 상태 (active/idle/pending) 및 획득 지연/타임아웃 누적치
+    @GetMapping("/pools")
+    public Map<String, Object> pools() {
+        return poolMetrics.snapshot();
+    }
 }
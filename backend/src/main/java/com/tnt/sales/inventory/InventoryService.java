@@ -4,25 +4,62 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.tnt.sales.common.SqlLike;
+import com.tnt.sales.inventory.model.ExpiryStockAgRow;
+
 @Service
 @Transactional(readOnly = true)
 public class InventoryService {
 
     private final JdbcTemplate pgJdbcTemplate;
+    private final JdbcTemplate mssqlJdbcTemplate;
 
-    public InventoryService(@Qualifier("pgJdbcTemplate") JdbcTemplate pgJdbcTemplate) {
+    public InventoryService(@Qualifier("pgJdbcTemplate") JdbcTemplate pgJdbcTemplate,
+            @Qualifier("mssqlJdbcTemplate") JdbcTemplate mssqlJdbcTemplate) {
         this.pgJdbcTemplate = pgJdbcTemplate;
+        this.mssqlJdbcTemplate = mssqlJdbcTemplate;
     }
 
-    public List<LgExpiryStock> getExpiryStockAG(String itemName, String whName, String expChk, String itemCategory,
+    // getExpiryStockAG() 조회 컬럼 (EXPIRY_AG_ROW_MAPPER 인덱스 순서), remain_day는 daysOffset 차감
+    private static final String EXPIRY_AG_COLUMNS = "id, src_bizunit, item_seq, item_no, item_name, spec, unit_name, "
+            + "item_category, item_subcategory, lot_no, wh_seq, wh_name, stock_qty, exp_date, "
+            + "remain_day - ? AS remain_day, remain_rate, exp_chk";
+
+    private static final RowMapper<ExpiryStockAgRow> EXPIRY_AG_ROW_MAPPER = (rs, i) -> new ExpiryStockAgRow(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getObject(3, Integer.class),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getString(7),
+            rs.getString(8),
+            rs.getString(9),
+            rs.getString(10),
+            rs.getObject(11, Long.class),
+            rs.getString(12),
+            rs.getBigDecimal(13),
+            rs.getString(14),
+            rs.getObject(15, Integer.class),
+            rs.getBigDecimal(16),
+            rs.getString(17));
+
+    /**
+     * 유통기한재고(AG) 조회
+     * daysOffset(> 0)일 후 시점 기준으로 remain_day를 SQL에서 차감해 반환한다.
+     */
+    public List<ExpiryStockAgRow> getExpiryStockAG(String itemName, String whName, String expChk, String itemCategory,
             Integer remainDayMax, Integer minStockQty, String sortOrder, Integer daysOffset, String bizUnit) {
-        StringBuilder sql = new StringBuilder("SELECT * FROM lg_expiry_stock WHERE 1=1 ");
+        int offset = (daysOffset != null && daysOffset > 0) ? daysOffset : 0;
+        StringBuilder sql = new StringBuilder("SELECT " + EXPIRY_AG_COLUMNS + " FROM lg_expiry_stock WHERE 1=1 ");
         List<Object> params = new ArrayList<>();
+        params.add(offset);
 
         if (bizUnit != null && !bizUnit.isBlank() && !bizUnit.equalsIgnoreCase("ALL")) {
             sql.append("AND src_bizunit = ? ");
@@ -31,12 +68,12 @@ public class InventoryService {
 
         if (itemName != null && !itemName.isBlank()) {
             sql.append("AND item_name ILIKE ? ");
-            params.add("%" + itemName + "%");
+            params.add(SqlLike.contains(itemName));
         }
 
         if (whName != null && !whName.isBlank()) {
             sql.append("AND wh_name ILIKE ? ");
-            params.add("%" + whName + "%");
+            params.add(SqlLike.contains(whName));
         }
 
         if (expChk != null && !expChk.isBlank() && !expChk.equals("all")) {
@@ -46,13 +83,13 @@ public class InventoryService {
 
         if (itemCategory != null && !itemCategory.isBlank()) {
             sql.append("AND item_category ILIKE ? ");
-            params.add("%" + itemCategory + "%");
+            params.add(SqlLike.contains(itemCategory));
         }
 
         if (remainDayMax != null) {
-            // Adjust filter: (remain_day - offset) <= max => remain_day <= max + offset
+            // Adjust filter: (remain_day - offset) <= max => remain_day <= max + offset (index-friendly)
             sql.append("AND remain_day <= ? ");
-            params.add(remainDayMax + (daysOffset != null ? daysOffset : 0));
+            params.add(remainDayMax + offset);
         }
 
         if (minStockQty != null) {
@@ -81,25 +118,7 @@ public class InventoryService {
             sql.append("ORDER BY remain_day ASC ");
         }
 
-        List<LgExpiryStock> results = pgJdbcTemplate.query(sql.toString(),
-                new BeanPropertyRowMapper<>(LgExpiryStock.class), params.toArray());
-
-        // Post-processing: Adjust remainDay based on offset
-        if (daysOffset != null && daysOffset > 0) {
-            System.out.println("Applying daysOffset: " + daysOffset + " to " + results.size() + " items.");
-            for (LgExpiryStock item : results) {
-                if (item.getRemainDay() != null) {
-                    int original = item.getRemainDay();
-                    item.setRemainDay(original - daysOffset);
-                    // System.out.println("Item " + item.getItemName() + ": " + original + " -> " +
-                    // item.getRemainDay());
-                } else {
-                    System.out.println("Item " + item.getItemName() + " has NULL remainDay");
-                }
-            }
-        }
-
-        return results;
+        return pgJdbcTemplate.query(sql.toString(), EXPIRY_AG_ROW_MAPPER, params.toArray());
     }
 
     public List<String> getUniqueWarehouses() {
@@ -113,9 +132,10 @@ public class InventoryService {
         List<Object> params = new ArrayList<>();
 
         if (keyword != null && !keyword.isBlank()) {
+            // 컬럼별 trigram 인덱스(V21)를 BitmapOr로 결합
             sql.append("AND (item_name ILIKE ? OR item_no ILIKE ?) ");
-            params.add("%" + keyword + "%");
-            params.add("%" + keyword + "%");
+            params.add(SqlLike.contains(keyword));
+            params.add(SqlLike.contains(keyword));
         }
 
         if (subcategory != null && !subcategory.isBlank()) {
@@ -128,6 +148,25 @@ public class InventoryService {
         return pgJdbcTemplate.queryForList(sql.toString(), params.toArray());
     }
 
+    /**
+     * 품목 팝업 검색 - ERP 품목 마스터(MSSQL _TDAItem) 대체 경로
+     * Postgres(lg_expiry_stock) 조회가 불가할 때 사용하며 소분류 정보는 없다 (itemSubcategory = null).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Map<String, Object>> searchItemsForPopupErp(String keyword) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT DISTINCT TOP 100 ItemName AS itemName, ItemNo AS itemNo, CAST(NULL AS NVARCHAR(100)) AS itemSubcategory "
+                        + "FROM TNT.dbo._TDAItem WHERE ItemName IS NOT NULL ");
+        List<Object> params = new ArrayList<>();
+        if (keyword != null && !keyword.isBlank()) {
+            sql.append("AND (ItemName LIKE ? ESCAPE '\\' OR ItemNo LIKE ? ESCAPE '\\') ");
+            params.add(SqlLike.contains(keyword));
+            params.add(SqlLike.contains(keyword));
+        }
+        sql.append("ORDER BY ItemName ASC");
+        return mssqlJdbcTemplate.queryForList(sql.toString(), params.toArray());
+    }
+
     public List<String> getUniqueSubcategories() {
         String sql = "SELECT DISTINCT item_subcategory FROM lg_expiry_stock WHERE item_subcategory IS NOT NULL ORDER BY item_subcategory ASC";
         return pgJdbcTemplate.queryForList(sql, String.class);
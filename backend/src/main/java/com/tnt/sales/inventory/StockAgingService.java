@@ -0,0 +1,370 @@
+package com.tnt.sales.inventory;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.SqlLike;
+import com.tnt.sales.common.SqlTemplateRegistry;
+import com.tnt.sales.common.SqlTemplateRegistry.Dialect;
+import com.tnt.sales.inventory.model.StockAgingRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 품목 + LOT 재고 aging 조회
+ *
+ * MSSQL 입출고 LOT 원장(_TLGInOutLotStock)의 입고일 묶음(품목 x LOT x 창고 x 입출고일, 잔량 > 0)을
+ * 매일 밤 public.lot_stock_aging_snapshot 에 적재한다. 묶음은 해당 일자 입출고만으로 정해지므로
+ * 적재일(loaded_through) 이전 기준일은 스냅샷만으로, 이후 기준일은 스냅샷 + 적재일 이후 원장분(MSSQL)으로 계산한다.
+ * 스냅샷이 없거나 꺼져 있으면 전체를 MSSQL에서 계산한다.
+ * 소급 입력된 전표는 매일 resync-days 만큼 최근 구간을 다시 적재해 반영하고, 그보다 오래된 정정은 전체 재적재(refresh(true))로 반영한다.
+ */
+@Service
+public class StockAgingService {
+    private static final Logger log = LoggerFactory.getLogger(StockAgingService.class);
+    static final String SNAPSHOT_NAME = "lot_stock_aging";
+    private static final int BATCH_SIZE = 1000;
+
+    // MSSQL 조회 필터 비트
+    private static final int SA_WH = 0;
+    private static final int SA_ITEM_NAME = 1;
+    private static final int SA_AFTER = 2;
+
+    private final JdbcTemplate pgJdbc;
+    private final JdbcTemplate mssqlJdbc;
+    private final Environment env;
+    private final QueryConfigHelper configHelper;
+    private final SqlTemplateRegistry templates;
+    private final TransactionTemplate tx;
+
+    public StockAgingService(@Qualifier("pgJdbcTemplate") JdbcTemplate pgJdbc,
+                             @Qualifier("mssqlJdbcTemplate") JdbcTemplate mssqlJdbc,
+                             Environment env, QueryConfigHelper configHelper, SqlTemplateRegistry templates,
+                             PlatformTransactionManager txManager) {
+        this.pgJdbc = pgJdbc;
+        this.mssqlJdbc = mssqlJdbc;
+        this.env = env;
+        this.configHelper = configHelper;
+        this.templates = templates;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(env.getProperty("app.inventory.aging-snapshot.enabled", "true"));
+    }
+
+    /**
+     * 기준일 재고 aging (총수량 내림차순)
+     * @param whSeq 창고 코드 (null/blank면 전체, 숫자가 아니면 IllegalArgumentException)
+     * @param itemName 품목명 부분 일치 (대소문자 무시)
+     * @param baseDate 기준일
+     */
+    public List<StockAgingRow> getStockAging(String whSeq, String itemName, LocalDate baseDate) {
+        // 스냅샷(wh_seq BIGINT)과 원장(WHSeq) 모두 같은 숫자 값으로 바인딩
+        Long wh = parseWhSeq(whSeq);
+        LocalDate loaded = isEnabled() ? loadedThrough() : null;
+        if (loaded == null) {
+            return queryLedger(wh, itemName, null, baseDate);
+        }
+        List<StockAgingRow> rows = querySnapshot(wh, itemName, baseDate);
+        if (!baseDate.isAfter(loaded)) {
+            return rows;
+        }
+        // 스냅샷 이후 입출고분만 원장에서 계산해 품목 + LOT 단위로 합산
+        Map<String, StockAgingRow> merged = new LinkedHashMap<>();
+        for (StockAgingRow r : rows) merged.put(r.itemSeq() + "|" + r.lotNo(), r);
+        for (StockAgingRow r : queryLedger(wh, itemName, loaded, baseDate)) {
+            merged.merge(r.itemSeq() + "|" + r.lotNo(), r, StockAgingRow::plus);
+        }
+        List<StockAgingRow> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(StockAgingRow::totalQty).reversed()
+                .thenComparingLong(StockAgingRow::itemSeq)
+                .thenComparing(StockAgingRow::lotNo));
+        return result;
+    }
+
+    /**
+     * 전일까지의 원장 묶음 적재 (매일 새벽)
+     */
+    @Scheduled(cron = "${app.inventory.aging-snapshot.cron:0 30 2 * * *}")
+    public void scheduledRefresh() {
+        if (!isEnabled() || configHelper.isNoDbProfile()) return;
+        try {
+            refresh(false);
+        } catch (Exception ex) {
+            log.warn("[StockAgingSnapshot] scheduled refresh failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 스냅샷 갱신
+     * @param full true면 전체 재적재, false면 (loaded_through - resync-days) 이후만 다시 적재
+     * @return 적재한 원장 묶음 행 수
+     */
+    public int refresh(boolean full) {
+        LocalDate target = LocalDate.now().minusDays(1);
+        int resyncDays = env.getProperty("app.inventory.aging-snapshot.resync-days", Integer.class, 7);
+        Integer rows = tx.execute(status -> {
+            LocalDate loaded = lockState();
+            LocalDate from = (full || loaded == null) ? null : loaded.minusDays(resyncDays);
+            if (from == null) {
+                pgJdbc.update("DELETE FROM public.lot_stock_aging_snapshot");
+            } else {
+                pgJdbc.update("DELETE FROM public.lot_stock_aging_snapshot WHERE in_date > ?", from);
+            }
+            int n = loadGroups(from, target);
+            int items = loadItems();
+            pgJdbc.update("UPDATE public.lot_stock_aging_state SET loaded_through = ?, refreshed_at = now() WHERE snapshot_name = ?",
+                    target, SNAPSHOT_NAME);
+            log.info("[StockAgingSnapshot] loaded {} lot groups ({} -> {}], {} items", n, from, target, items);
+            return n;
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", isEnabled());
+        try {
+            List<Map<String, Object>> rows = pgJdbc.queryForList(
+                    "SELECT loaded_through, refreshed_at FROM public.lot_stock_aging_state WHERE snapshot_name = ?",
+                    SNAPSHOT_NAME);
+            if (!rows.isEmpty()) out.putAll(rows.get(0));
+        } catch (Exception ex) {
+            out.put("error", ex.getMessage());
+        }
+        return out;
+    }
+
+    private LocalDate loadedThrough() {
+        try {
+            List<LocalDate> dates = pgJdbc.queryForList(
+                    "SELECT loaded_through FROM public.lot_stock_aging_state WHERE snapshot_name = ? AND loaded_through IS NOT NULL",
+                    LocalDate.class, SNAPSHOT_NAME);
+            return dates.isEmpty() ? null : dates.get(0);
+        } catch (Exception ex) {
+            // 마이그레이션 전 (테이블 없음) / PG 미연결
+            log.debug("[StockAgingSnapshot] state not available: {}", ex.toString());
+            return null;
+        }
+    }
+
+    // 상태 행을 잠가 동시 갱신(스케줄러/수동 재적재/다중 인스턴스)을 직렬화
+    private LocalDate lockState() {
+        pgJdbc.update("INSERT INTO public.lot_stock_aging_state (snapshot_name) VALUES (?) ON CONFLICT (snapshot_name) DO NOTHING",
+                SNAPSHOT_NAME);
+        return pgJdbc.queryForObject(
+                "SELECT loaded_through FROM public.lot_stock_aging_state WHERE snapshot_name = ? FOR UPDATE",
+                LocalDate.class, SNAPSHOT_NAME);
+    }
+
+    // (from, to] 입출고일 묶음을 원장에서 읽어 배치 적재
+    // 원본에서 적재 키(ItemSeq, ISNULL(LotNo, ''), WHSeq, 입고일)로 미리 합산해 둬야 한다:
+    // reWriteBatchedInserts로 묶인 한 INSERT 안에 같은 키가 두 번 나오면 ON CONFLICT DO UPDATE가 실패한다
+    // (NULL과 '' LotNo 묶음이 같은 키가 되는 경우)
+    private int loadGroups(LocalDate from, LocalDate to) {
+        String qtyExpr = "SUM(CASE WHEN ls.InOut = 1 THEN ls.StdQty ELSE -ls.StdQty END)";
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ls.ItemSeq, ISNULL(ls.LotNo, ''), ls.WHSeq, TRY_CONVERT(date, ls.InOutDate, 112), ");
+        sql.append(qtyExpr).append(", SUM(CASE WHEN ls.InOut = 1 THEN ls.Amt ELSE -ls.Amt END) ");
+        sql.append("FROM TNT.dbo._TLGInOutLotStock ls WHERE ls.InOutDate <= ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(to.format(DateTimeFormatter.BASIC_ISO_DATE));
+        if (from != null) {
+            sql.append("AND ls.InOutDate > ? ");
+            params.add(from.format(DateTimeFormatter.BASIC_ISO_DATE));
+        }
+        sql.append("GROUP BY ls.ItemSeq, ISNULL(ls.LotNo, ''), ls.WHSeq, TRY_CONVERT(date, ls.InOutDate, 112) ");
+        sql.append("HAVING ").append(qtyExpr).append(" > 0 AND TRY_CONVERT(date, ls.InOutDate, 112) IS NOT NULL");
+
+        String insert = "INSERT INTO public.lot_stock_aging_snapshot (item_seq, lot_no, wh_seq, in_date, stock_qty, stock_amt) " +
+                "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (item_seq, lot_no, wh_seq, in_date) DO UPDATE SET " +
+                "stock_qty = public.lot_stock_aging_snapshot.stock_qty + EXCLUDED.stock_qty, " +
+                "stock_amt = public.lot_stock_aging_snapshot.stock_amt + EXCLUDED.stock_amt, loaded_at = now()";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int[] total = {0};
+        mssqlJdbc.query(sql.toString(), rs -> {
+            batch.add(new Object[]{rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getDate(4),
+                    zeroIfNull(rs.getBigDecimal(5)), zeroIfNull(rs.getBigDecimal(6))});
+            if (batch.size() >= BATCH_SIZE) {
+                pgJdbc.batchUpdate(insert, batch);
+                total[0] += batch.size();
+                batch.clear();
+            }
+        }, params.toArray());
+        if (!batch.isEmpty()) {
+            pgJdbc.batchUpdate(insert, batch);
+            total[0] += batch.size();
+        }
+        return total[0];
+    }
+
+    // 품목 마스터 사본 갱신 (변경된 행만 UPDATE)
+    private int loadItems() {
+        String upsert = "INSERT INTO public.lot_stock_item (item_seq, item_name, item_no, spec) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT (item_seq) DO UPDATE SET item_name = EXCLUDED.item_name, item_no = EXCLUDED.item_no, " +
+                "spec = EXCLUDED.spec, updated_at = now() " +
+                "WHERE (public.lot_stock_item.item_name, public.lot_stock_item.item_no, public.lot_stock_item.spec) " +
+                "IS DISTINCT FROM (EXCLUDED.item_name, EXCLUDED.item_no, EXCLUDED.spec)";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int[] total = {0};
+        mssqlJdbc.query("SELECT ItemSeq, ItemName, ItemNo, Spec FROM TNT.dbo._TDAItem", rs -> {
+            batch.add(new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)});
+            if (batch.size() >= BATCH_SIZE) {
+                pgJdbc.batchUpdate(upsert, batch);
+                total[0] += batch.size();
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            pgJdbc.batchUpdate(upsert, batch);
+            total[0] += batch.size();
+        }
+        return total[0];
+    }
+
+    private static Long parseWhSeq(String whSeq) {
+        if (whSeq == null || whSeq.isBlank()) return null;
+        try {
+            return Long.valueOf(whSeq.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid whSeq: " + whSeq);
+        }
+    }
+
+    private List<StockAgingRow> querySnapshot(Long whSeq, String itemName, LocalDate baseDate) {
+        boolean hasWh = whSeq != null;
+        boolean hasName = itemName != null && !itemName.isBlank();
+        int mask = SqlTemplateRegistry.bit(SA_WH, hasWh) | SqlTemplateRegistry.bit(SA_ITEM_NAME, hasName);
+        String sql = templates.get("inventory.stockAging.snapshot", mask, Dialect.POSTGRES, StockAgingService::buildSnapshotSql);
+
+        List<Object> params = new ArrayList<>();
+        params.add(baseDate);
+        params.add(baseDate);
+        if (hasWh) params.add(whSeq);
+        if (hasName) params.add(SqlLike.contains(itemName));
+        return pgJdbc.query(sql, STOCK_AGING_ROW_MAPPER, params.toArray());
+    }
+
+    private static String buildSnapshotSql(int mask) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT s.item_seq, s.lot_no, i.item_name, i.item_no, i.spec, ");
+        sql.append("  SUM(s.stock_qty) AS total_qty, SUM(s.stock_amt), ");
+        sql.append("  SUM(s.stock_qty) FILTER (WHERE p.as_of - s.in_date <= 30), ");
+        sql.append("  SUM(s.stock_qty) FILTER (WHERE p.as_of - s.in_date BETWEEN 31 AND 60), ");
+        sql.append("  SUM(s.stock_qty) FILTER (WHERE p.as_of - s.in_date BETWEEN 61 AND 90), ");
+        sql.append("  SUM(s.stock_qty) FILTER (WHERE p.as_of - s.in_date BETWEEN 91 AND 180), ");
+        sql.append("  SUM(s.stock_qty) FILTER (WHERE p.as_of - s.in_date > 180) ");
+        sql.append("FROM public.lot_stock_aging_snapshot s ");
+        sql.append("CROSS JOIN (SELECT CAST(? AS DATE) AS as_of) p ");
+        sql.append("LEFT JOIN public.lot_stock_item i ON i.item_seq = s.item_seq ");
+        sql.append("WHERE s.in_date <= ? ");
+        if (SqlTemplateRegistry.has(mask, SA_WH)) {
+            sql.append("AND s.wh_seq = ? ");
+        }
+        if (SqlTemplateRegistry.has(mask, SA_ITEM_NAME)) {
+            sql.append("AND i.item_name ILIKE ? ");
+        }
+        sql.append("GROUP BY s.item_seq, s.lot_no, i.item_name, i.item_no, i.spec ");
+        sql.append("ORDER BY total_qty DESC, s.item_seq, s.lot_no");
+        return sql.toString();
+    }
+
+    /**
+     * 원장에서 직접 계산 (after가 있으면 after 이후 입출고일 묶음만)
+     */
+    private List<StockAgingRow> queryLedger(Long whSeq, String itemName, LocalDate after, LocalDate baseDate) {
+        boolean hasWh = whSeq != null;
+        boolean hasName = itemName != null && !itemName.isBlank();
+        int mask = SqlTemplateRegistry.bit(SA_WH, hasWh) | SqlTemplateRegistry.bit(SA_ITEM_NAME, hasName)
+                | SqlTemplateRegistry.bit(SA_AFTER, after != null);
+        String sql = templates.get("inventory.stockAging", mask, Dialect.MSSQL, StockAgingService::buildLedgerSql);
+
+        // Bind in placeholder order: DATEDIFF 기준일, 원장 기준일(YYYYMMDD), 하한일, 창고, 품목명
+        List<Object> params = new ArrayList<>();
+        params.add(java.sql.Date.valueOf(baseDate));
+        params.add(baseDate.format(DateTimeFormatter.BASIC_ISO_DATE));
+        if (after != null) params.add(after.format(DateTimeFormatter.BASIC_ISO_DATE));
+        if (hasWh) params.add(whSeq);
+        if (hasName) params.add(SqlLike.contains(itemName.toLowerCase()));
+        return mssqlJdbc.query(sql, STOCK_AGING_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * (ItemSeq, LotNo, WHSeq, InOutDate) 잔량 > 0 인 입고 묶음을 구한 뒤 품목 + LOT 로 다시 합산하며
+     * 기준일 대비 경과일수 구간별 수량을 조건부 합계로 나눈다. 입고일이 날짜 형식이 아닌 묶음은 제외한다.
+     * 품목명 필터는 원장 스캔 단계에서 적용해 집계 대상 자체를 줄인다.
+     */
+    private static String buildLedgerSql(int mask) {
+        String qtyExpr = "SUM(CASE WHEN ls.InOut = 1 THEN ls.StdQty ELSE -ls.StdQty END)";
+        StringBuilder sql = new StringBuilder();
+        sql.append("WITH lot AS ( ");
+        sql.append("  SELECT ls.ItemSeq, ISNULL(ls.LotNo, '') AS LotNo, ");
+        sql.append("    DATEDIFF(day, TRY_CONVERT(date, ls.InOutDate, 112), ?) AS AgeDays, ");
+        sql.append("    ").append(qtyExpr).append(" AS StockQty, ");
+        sql.append("    SUM(CASE WHEN ls.InOut = 1 THEN ls.Amt ELSE -ls.Amt END) AS StockAmt ");
+        sql.append("  FROM TNT.dbo._TLGInOutLotStock ls ");
+        sql.append("  WHERE ls.InOutDate <= ? ");
+        if (SqlTemplateRegistry.has(mask, SA_AFTER)) {
+            sql.append("  AND ls.InOutDate > ? ");
+        }
+        if (SqlTemplateRegistry.has(mask, SA_WH)) {
+            sql.append("  AND ls.WHSeq = ? ");
+        }
+        if (SqlTemplateRegistry.has(mask, SA_ITEM_NAME)) {
+            sql.append("  AND EXISTS (SELECT 1 FROM TNT.dbo._TDAItem fi WHERE fi.ItemSeq = ls.ItemSeq ");
+            sql.append("              AND LOWER(fi.ItemName) LIKE ? ESCAPE '\\') ");
+        }
+        sql.append("  GROUP BY ls.ItemSeq, ISNULL(ls.LotNo, ''), ls.WHSeq, ls.InOutDate ");
+        sql.append("  HAVING ").append(qtyExpr).append(" > 0 ");
+        sql.append(") ");
+        sql.append("SELECT l.ItemSeq, l.LotNo, i.ItemName, i.ItemNo, i.Spec, ");
+        sql.append("  SUM(l.StockQty) AS TotalQty, ");
+        sql.append("  SUM(l.StockAmt) AS TotalAmt, ");
+        sql.append("  SUM(CASE WHEN l.AgeDays <= 30 THEN l.StockQty ELSE 0 END) AS Days0to30Qty, ");
+        sql.append("  SUM(CASE WHEN l.AgeDays BETWEEN 31 AND 60 THEN l.StockQty ELSE 0 END) AS Days31to60Qty, ");
+        sql.append("  SUM(CASE WHEN l.AgeDays BETWEEN 61 AND 90 THEN l.StockQty ELSE 0 END) AS Days61to90Qty, ");
+        sql.append("  SUM(CASE WHEN l.AgeDays BETWEEN 91 AND 180 THEN l.StockQty ELSE 0 END) AS Days91to180Qty, ");
+        sql.append("  SUM(CASE WHEN l.AgeDays > 180 THEN l.StockQty ELSE 0 END) AS Days180PlusQty ");
+        sql.append("FROM lot l ");
+        sql.append("OUTER APPLY (SELECT TOP 1 it.ItemName, it.ItemNo, it.Spec FROM TNT.dbo._TDAItem it WHERE it.ItemSeq = l.ItemSeq) i ");
+        sql.append("WHERE l.AgeDays IS NOT NULL ");
+        sql.append("GROUP BY l.ItemSeq, l.LotNo, i.ItemName, i.ItemNo, i.Spec ");
+        sql.append("ORDER BY TotalQty DESC, l.ItemSeq, l.LotNo");
+        return sql.toString();
+    }
+
+    private static final RowMapper<StockAgingRow> STOCK_AGING_ROW_MAPPER = (rs, i) -> new StockAgingRow(
+            rs.getLong(1),
+            rs.getString(2),
+            Objects.toString(rs.getString(3), ""),
+            Objects.toString(rs.getString(4), ""),
+            Objects.toString(rs.getString(5), ""),
+            zeroIfNull(rs.getBigDecimal(6)),
+            zeroIfNull(rs.getBigDecimal(7)),
+            zeroIfNull(rs.getBigDecimal(8)),
+            zeroIfNull(rs.getBigDecimal(9)),
+            zeroIfNull(rs.getBigDecimal(10)),
+            zeroIfNull(rs.getBigDecimal(11)),
+            zeroIfNull(rs.getBigDecimal(12)));
+
+    private static BigDecimal zeroIfNull(BigDecimal v) {
+        return v != null ? v : BigDecimal.ZERO;
+    }
+}
@@ -5,18 +5,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import com.tnt.sales.inventory.InventoryService;
-import com.tnt.sales.inventory.LgExpiryStock;
+import com.tnt.sales.inventory.model.ExpiryStockAgRow;
+import com.tnt.sales.inventory.model.StockAgingRow;
+import com.tnt.sales.common.SqlLike;
+import com.tnt.sales.inventory.StockAgingService;
 
 @RestController
 @RequestMapping("/api/v1/inventory")
@@ -37,6 +41,9 @@ public class InventoryController {
     @Autowired
     com.tnt.sales.inventory.InventoryService inventoryService;
 
+    @Autowired
+    StockAgingService stockAgingService;
+
     // DEX 임계값 기본값
     private static final int DEFAULT_NEAR_EXPIRE_DAYS = 14;
     private static final BigDecimal DEFAULT_NEAR_EXPIRE_RATE = new BigDecimal("0.15");
@@ -50,6 +57,8 @@ public class InventoryController {
      * - whSeq: 창고 코드 (선택)
      * - itemName: 품목명 검색 (선택)
      * - asOfDate: 기준일자 (YYYY-MM-DD, 기본값: 오늘)
+     *
+     * 전일까지는 야간 적재 스냅샷(PG), 그 이후 입출고분만 MSSQL 원장에서 계산한다 ({@link StockAgingService}).
      */
     @GetMapping("/stock-aging")
     public ResponseEntity<?> getStockAging(
@@ -66,154 +75,11 @@ public class InventoryController {
                     ? LocalDate.parse(asOfDate, DateTimeFormatter.ISO_DATE)
                     : LocalDate.now();
 
-            // Build SQL query
-            StringBuilder sql = new StringBuilder();
-            sql.append("SELECT ");
-            sql.append("  ls.ItemSeq, ");
-            sql.append("  ls.LotNo, ");
-            sql.append("  ls.WHSeq, ");
-            sql.append("  ls.InOutDate, ");
-            sql.append("  SUM(CASE WHEN ls.InOut = 1 THEN ls.StdQty ELSE -ls.StdQty END) AS StockQty, ");
-            sql.append("  SUM(CASE WHEN ls.InOut = 1 THEN ls.Amt ELSE -ls.Amt END) AS StockAmt ");
-            sql.append("FROM TNT.dbo._TLGInOutLotStock ls ");
-            sql.append("WHERE 1=1 ");
-
-            List<Object> params = new ArrayList<>();
-
-            // Filter by warehouse if provided
-            if (whSeq != null && !whSeq.isBlank()) {
-                sql.append("AND ls.WHSeq = ? ");
-                params.add(whSeq);
-            }
-
-            // Filter by date (up to base date)
-            String baseDateStr = baseDate.format(DateTimeFormatter.BASIC_ISO_DATE);
-            sql.append("AND ls.InOutDate <= ? ");
-            params.add(baseDateStr);
-
-            sql.append("GROUP BY ls.ItemSeq, ls.LotNo, ls.WHSeq, ls.InOutDate ");
-            sql.append("HAVING SUM(CASE WHEN ls.InOut = 1 THEN ls.StdQty ELSE -ls.StdQty END) > 0");
-
-            List<Map<String, Object>> stockData = mssqlJdbc.queryForList(sql.toString(), params.toArray());
-
-            // Get item information
-            Map<Long, Map<String, Object>> itemInfoMap = new HashMap<>();
-            if (!stockData.isEmpty()) {
-                Set<Long> itemSeqs = new HashSet<>();
-                for (Map<String, Object> row : stockData) {
-                    Object itemSeqObj = row.get("ItemSeq");
-                    if (itemSeqObj != null) {
-                        itemSeqs.add(Long.valueOf(itemSeqObj.toString()));
-                    }
-                }
-
-                if (!itemSeqs.isEmpty()) {
-                    String itemSeqList = String.join(",",
-                            itemSeqs.stream().map(String::valueOf).toArray(String[]::new));
-                    String itemSql = "SELECT ItemSeq, ItemName, ItemNo, Spec FROM TNT.dbo._TDAItem WHERE ItemSeq IN ("
-                            + itemSeqList + ")";
-                    List<Map<String, Object>> items = mssqlJdbc.queryForList(itemSql);
-
-                    for (Map<String, Object> item : items) {
-                        Long seq = Long.valueOf(item.get("ItemSeq").toString());
-                        itemInfoMap.put(seq, item);
-                    }
-                }
-            }
-
-            // Calculate aging by item + LOT
-            // Key: ItemSeq + "_" + LotNo
-            Map<String, Map<String, Object>> agingMap = new HashMap<>();
-
-            for (Map<String, Object> row : stockData) {
-                Long itemSeq = Long.valueOf(row.get("ItemSeq").toString());
-                String lotNo = String.valueOf(row.get("LotNo"));
-                String inOutDateStr = String.valueOf(row.get("InOutDate"));
-                BigDecimal qty = new BigDecimal(String.valueOf(row.get("StockQty")));
-                BigDecimal amt = new BigDecimal(String.valueOf(row.get("StockAmt")));
-
-                if (qty.compareTo(BigDecimal.ZERO) <= 0)
-                    continue;
-
-                // Parse InOutDate (YYYYMMDD format)
-                LocalDate inOutDate;
-                try {
-                    inOutDate = LocalDate.parse(inOutDateStr, DateTimeFormatter.BASIC_ISO_DATE);
-                } catch (Exception e) {
-                    continue;
-                }
-
-                // Calculate days since stock-in
-                long daysSince = ChronoUnit.DAYS.between(inOutDate, baseDate);
-
-                // Create unique key for item + LOT
-                String agingKey = itemSeq + "_" + (lotNo != null && !lotNo.equals("null") ? lotNo : "NO_LOT");
-
-                // Get or create aging bucket for this item + LOT
-                Map<String, Object> aging = agingMap.computeIfAbsent(agingKey, k -> {
-                    Map<String, Object> a = new HashMap<>();
-                    a.put("itemSeq", itemSeq);
-                    a.put("lotNo", lotNo != null && !lotNo.equals("null") ? lotNo : "");
-
-                    // Add item info
-                    Map<String, Object> itemInfo = itemInfoMap.get(itemSeq);
-                    if (itemInfo != null) {
-                        a.put("itemName", itemInfo.get("ItemName"));
-                        a.put("itemNo", itemInfo.get("ItemNo"));
-                        a.put("spec", itemInfo.get("Spec"));
-                    } else {
-                        a.put("itemName", "");
-                        a.put("itemNo", "");
-                        a.put("spec", "");
-                    }
-
-                    a.put("totalQty", BigDecimal.ZERO);
-                    a.put("totalAmt", BigDecimal.ZERO);
-                    a.put("days0to30Qty", BigDecimal.ZERO);
-                    a.put("days31to60Qty", BigDecimal.ZERO);
-                    a.put("days61to90Qty", BigDecimal.ZERO);
-                    a.put("days91to180Qty", BigDecimal.ZERO);
-                    a.put("days180PlusQty", BigDecimal.ZERO);
-                    return a;
-                });
-
-                // Accumulate totals
-                aging.put("totalQty", ((BigDecimal) aging.get("totalQty")).add(qty));
-                aging.put("totalAmt", ((BigDecimal) aging.get("totalAmt")).add(amt));
-
-                // Categorize by aging bucket
-                if (daysSince <= 30) {
-                    aging.put("days0to30Qty", ((BigDecimal) aging.get("days0to30Qty")).add(qty));
-                } else if (daysSince <= 60) {
-                    aging.put("days31to60Qty", ((BigDecimal) aging.get("days31to60Qty")).add(qty));
-                } else if (daysSince <= 90) {
-                    aging.put("days61to90Qty", ((BigDecimal) aging.get("days61to90Qty")).add(qty));
-                } else if (daysSince <= 180) {
-                    aging.put("days91to180Qty", ((BigDecimal) aging.get("days91to180Qty")).add(qty));
-                } else {
-                    aging.put("days180PlusQty", ((BigDecimal) aging.get("days180PlusQty")).add(qty));
-                }
-            }
-
-            // Filter by item name if provided
-            List<Map<String, Object>> result = new ArrayList<>(agingMap.values());
-            if (itemName != null && !itemName.isBlank()) {
-                String searchTerm = itemName.toLowerCase();
-                result.removeIf(item -> {
-                    String name = String.valueOf(item.get("itemName")).toLowerCase();
-                    return !name.contains(searchTerm);
-                });
-            }
-
-            // Sort by total quantity descending
-            result.sort((a, b) -> {
-                BigDecimal qtyA = (BigDecimal) a.get("totalQty");
-                BigDecimal qtyB = (BigDecimal) b.get("totalQty");
-                return qtyB.compareTo(qtyA);
-            });
-
+            List<StockAgingRow> result = stockAgingService.getStockAging(whSeq, itemName, baseDate);
             return ResponseEntity.ok(result);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.warn("재고 aging 조회 실패: {}", e.getMessage());
             // Return empty list instead of error for better UX (DB connection issues are
@@ -222,6 +88,35 @@ public class InventoryController {
         }
     }
 
+    /**
+     * 재고 aging 스냅샷 적재 상태
+     * GET /api/v1/inventory/stock-aging/snapshot
+     */
+    @GetMapping("/stock-aging/snapshot")
+    public ResponseEntity<?> getStockAgingSnapshotStatus() {
+        return ResponseEntity.ok(stockAgingService.status());
+    }
+
+    /**
+     * 재고 aging 스냅샷 수동 갱신 (전일까지)
+     * POST /api/v1/inventory/stock-aging/snapshot/refresh?full=true 이면 전체 재적재
+     */
+    @PostMapping("/stock-aging/snapshot/refresh")
+    public ResponseEntity<?> refreshStockAgingSnapshot(
+            @RequestParam(value = "full", required = false, defaultValue = "false") boolean full) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("rows", stockAgingService.refresh(full));
+            response.putAll(stockAgingService.status());
+        } catch (Exception e) {
+            log.error("재고 aging 스냅샷 갱신 실패", e);
+            response.put("success", false);
+            response.put("error", e.getMessage());
+        }
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 창고 목록 조회
      * GET /api/v1/inventory/warehouses
@@ -271,7 +166,8 @@ public class InventoryController {
         try {
             // First check if table exists
             try {
-                pgJdbc.queryForObject("SELECT COUNT(*) FROM lg_expiry_stock LIMIT 1", Integer.class);
+                // 전체 COUNT 대신 1행만 읽어 존재/접근 여부 확인
+                pgJdbc.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM lg_expiry_stock LIMIT 1) t", Integer.class);
             } catch (Exception e) {
                 log.error("lg_expiry_stock 테이블이 존재하지 않거나 접근할 수 없습니다: {}", e.getMessage());
                 Map<String, Object> response = new HashMap<>();
@@ -327,13 +223,13 @@ public class InventoryController {
             // Filter by item name
             if (itemName != null && !itemName.isBlank()) {
                 sql.append("AND item_name ILIKE ? ");
-                params.add("%" + itemName + "%");
+                params.add(SqlLike.contains(itemName));
             }
 
             // Filter by category
             if (category != null && !category.isBlank()) {
                 sql.append("AND item_category ILIKE ? ");
-                params.add("%" + category + "%");
+                params.add(SqlLike.contains(category));
             }
 
             sql.append("ORDER BY remain_day ASC NULLS LAST, stock_qty DESC");
@@ -402,15 +298,15 @@ public class InventoryController {
 
             if (itemNo != null && !itemNo.isBlank()) {
                 where.append(" AND item_no ILIKE ? ");
-                params.add("%" + itemNo + "%");
+                params.add(SqlLike.contains(itemNo));
             }
             if (itemName != null && !itemName.isBlank()) {
                 where.append(" AND item_name ILIKE ? ");
-                params.add("%" + itemName + "%");
+                params.add(SqlLike.contains(itemName));
             }
             if (lotNo != null && !lotNo.isBlank()) {
                 where.append(" AND lot_no ILIKE ? ");
-                params.add("%" + lotNo + "%");
+                params.add(SqlLike.contains(lotNo));
             }
             if (whSeq != null) {
                 where.append(" AND wh_seq = ? ");
@@ -529,7 +425,7 @@ public class InventoryController {
             @RequestParam(required = false) String bizUnit) {
         try {
             log.info("Requesting Expiry Stock AG with daysOffset: {}, bizUnit: {}", daysOffset, bizUnit);
-            List<LgExpiryStock> stocks = inventoryService.getExpiryStockAG(itemName, whName, expChk, category,
+            List<ExpiryStockAgRow> stocks = inventoryService.getExpiryStockAG(itemName, whName, expChk, category,
                     remainDayMax, minStockQty, sortOrder, daysOffset, bizUnit);
             return ResponseEntity.ok(stocks);
         } catch (Exception e) {
@@ -554,7 +450,15 @@ public class InventoryController {
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) String subcategory) {
         try {
-            List<Map<String, Object>> items = inventoryService.searchItemsForPopup(keyword, subcategory);
+            List<Map<String, Object>> items;
+            try {
+                items = inventoryService.searchItemsForPopup(keyword, subcategory);
+            } catch (DataAccessException | TransactionException e) {
+                // Postgres 불가 시 소분류 조건이 없으면 ERP 품목 마스터로 대체
+                if (subcategory != null && !subcategory.isBlank()) throw e;
+                log.warn("품목 팝업 검색 Postgres 실패, MSSQL 품목 마스터로 대체: {}", e.getMessage());
+                items = inventoryService.searchItemsForPopupErp(keyword);
+            }
             return ResponseEntity.ok(items);
         } catch (Exception e) {
             log.error("Error searching items for popup", e);
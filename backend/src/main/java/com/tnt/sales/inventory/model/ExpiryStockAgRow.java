@@ -0,0 +1,27 @@
+package com.tnt.sales.inventory.model;
+
+import java.math.BigDecimal;
+
+/**
+ * 유통기한재고(AG) 화면 1행 - lg_expiry_stock 중 화면/필터/정렬에 쓰는 컬럼만
+ * (remainDay는 조회 시 daysOffset 만큼 차감된 값)
+ */
+public record ExpiryStockAgRow(
+        long id,
+        String srcBizunit,
+        Integer itemSeq,
+        String itemNo,
+        String itemName,
+        String spec,
+        String unitName,
+        String itemCategory,
+        String itemSubcategory,
+        String lotNo,
+        Long whSeq,
+        String whName,
+        BigDecimal stockQty,
+        String expDate,
+        Integer remainDay,
+        BigDecimal remainRate,
+        String expChk) {
+}
@@ -0,0 +1,38 @@
+package com.tnt.sales.inventory.model;
+
+import java.math.BigDecimal;
+
+/**
+ * 품목 + LOT 단위 재고 aging 1행 (입고일 기준 경과일수 구간별 잔량)
+ */
+public record StockAgingRow(
+        long itemSeq,
+        String lotNo,
+        String itemName,
+        String itemNo,
+        String spec,
+        BigDecimal totalQty,
+        BigDecimal totalAmt,
+        BigDecimal days0to30Qty,
+        BigDecimal days31to60Qty,
+        BigDecimal days61to90Qty,
+        BigDecimal days91to180Qty,
+        BigDecimal days180PlusQty) {
+
+    /**
+     * 같은 품목 + LOT 행 합산 (품목 정보는 비어 있지 않은 쪽 유지)
+     */
+    public StockAgingRow plus(StockAgingRow o) {
+        return new StockAgingRow(itemSeq, lotNo,
+                itemName.isEmpty() ? o.itemName : itemName,
+                itemNo.isEmpty() ? o.itemNo : itemNo,
+                spec.isEmpty() ? o.spec : spec,
+                totalQty.add(o.totalQty),
+                totalAmt.add(o.totalAmt),
+                days0to30Qty.add(o.days0to30Qty),
+                days31to60Qty.add(o.days31to60Qty),
+                days61to90Qty.add(o.days61to90Qty),
+                days91to180Qty.add(o.days91to180Qty),
+                days180PlusQty.add(o.days180PlusQty));
+    }
+}
@@ -1,5 +1,12 @@
 package com.tnt.sales.item.api;
 
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import com.tnt.sales.common.QueryConfigHelper.CustomerTableConfig;
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.common.SqlTemplateRegistry;
+import com.tnt.sales.common.SqlTemplateRegistry.Dialect;
+import com.tnt.sales.customer.service.CustomerDirectory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.http.ResponseEntity;
@@ -20,10 +27,20 @@ import java.util.Map;
     public class ItemsController {
     private final JdbcTemplate jdbc;
     private final Environment env;
-
-    public ItemsController(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env) {
+    private final SchemaMetadataService schemaMetadata;
+    private final QueryConfigHelper configHelper;
+    private final SqlTemplateRegistry templates;
+    private final CustomerDirectory customerDirectory;
+
+    public ItemsController(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+                           SchemaMetadataService schemaMetadata, QueryConfigHelper configHelper,
+                           SqlTemplateRegistry templates, CustomerDirectory customerDirectory) {
         this.jdbc = jdbc;
         this.env = env;
+        this.schemaMetadata = schemaMetadata;
+        this.configHelper = configHelper;
+        this.templates = templates;
+        this.customerDirectory = customerDirectory;
     }
 
     @GetMapping("/dim")
@@ -100,11 +117,11 @@ import java.util.Map;
         String colItemUnit = env.getProperty("app.item.columns.item_unit", "item_unit"); // 판매단위
         String colActive = env.getProperty("app.item.columns.active", "active");
 
-        boolean hasSalesUnit = columnExists(tbl, colSalesUnit);
-        boolean hasSalesUnitSeq = columnExists(tbl, colSalesUnitSeq);
-        boolean hasStdUnit = columnExists(tbl, colStdUnit);
-        boolean hasItemUnit = columnExists(tbl, colItemUnit);
-        boolean hasActive = columnExists(tbl, colActive);
+        boolean hasSalesUnit = schemaMetadata.columnExists(tbl, colSalesUnit);
+        boolean hasSalesUnitSeq = schemaMetadata.columnExists(tbl, colSalesUnitSeq);
+        boolean hasStdUnit = schemaMetadata.columnExists(tbl, colStdUnit);
+        boolean hasItemUnit = schemaMetadata.columnExists(tbl, colItemUnit);
+        boolean hasActive = schemaMetadata.columnExists(tbl, colActive);
 
         String salesUnitExpr = hasSalesUnit ? "coalesce(nullif(trim(" + colSalesUnit + "), ''), '미지정')" : "'미지정'";
         String salesUnitSeqExpr = hasSalesUnitSeq ? ("coalesce(" + colSalesUnitSeq + ", 0)") : "0";
@@ -157,11 +174,11 @@ import java.util.Map;
         String colItemName = env.getProperty("app.item.columns.item_name", "item_name");
         String colActive = env.getProperty("app.item.columns.active", "active");
 
-        boolean hasSalesUnit = columnExists(tbl, colSalesUnit);
-        boolean hasSalesUnitSeq = columnExists(tbl, colSalesUnitSeq);
-        boolean hasStdUnit = columnExists(tbl, colStdUnit);
-        boolean hasItemUnit = columnExists(tbl, colItemUnit);
-        boolean hasActive = columnExists(tbl, colActive);
+        boolean hasSalesUnit = schemaMetadata.columnExists(tbl, colSalesUnit);
+        boolean hasSalesUnitSeq = schemaMetadata.columnExists(tbl, colSalesUnitSeq);
+        boolean hasStdUnit = schemaMetadata.columnExists(tbl, colStdUnit);
+        boolean hasItemUnit = schemaMetadata.columnExists(tbl, colItemUnit);
+        boolean hasActive = schemaMetadata.columnExists(tbl, colActive);
 
         String salesUnitExpr = hasSalesUnit ? colSalesUnit : "NULL::text";
         String salesUnitSeqExpr = hasSalesUnitSeq ? colSalesUnitSeq : "0";
@@ -272,34 +289,29 @@ import java.util.Map;
         String qt = q == null ? "" : q.trim();
         String[] tokens = qt.isEmpty() ? new String[0] : qt.split("[\\s,]+");
 
-        String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-        String invColCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-        String invColItemName = env.getProperty("app.invoice.columns.item_name", "item_name");
-        String invColItemSeq = env.getProperty("app.invoice.columns.item_seq", "item_seq");
-        String invColDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        String invColAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-        String invColQty = env.getProperty("app.invoice.columns.qty", "qty");
-        boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-        String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String invTbl = invCfg.getTableName();
 
         String itemTbl = env.getProperty("app.item.table", "public.item");
         String itemColName = env.getProperty("app.item.columns.item_name", "item_name");
         String itemColSeq = env.getProperty("app.item.columns.item_seq", "item_seq");
         String itemColCompanyType = env.getProperty("app.item.columns.company_type", "company_type");
         String itemColStdUnit = env.getProperty("app.item.columns.item_std_unit", "item_std_unit");
-        String custTbl = env.getProperty("app.customer.table", "public.customer");
-        String custColSeq = env.getProperty("app.customer.columns.customer_seq", "customer_seq");
-        String custColCompanyType = env.getProperty("app.customer.columns.company_type", "company_type");
-
-        boolean hasInvCompanyType = columnExists(invTbl, "company_type");
-        boolean hasItemCompanyType = columnExists(itemTbl, itemColCompanyType);
-        boolean hasItemStdUnit = columnExists(itemTbl, itemColStdUnit);
+        CustomerTableConfig custCfg = configHelper.getCustomerConfig();
+        String custTbl = custCfg.getTableName();
+        String custColSeq = custCfg.getCustomerSeqColumn();
+        String custColCompanyType = custCfg.getCompanyTypeColumn();
+
+        boolean hasInvCompanyType = schemaMetadata.columnExists(invTbl, "company_type");
+        boolean hasItemCompanyType = schemaMetadata.columnExists(itemTbl, itemColCompanyType);
+        boolean hasItemStdUnit = schemaMetadata.columnExists(itemTbl, itemColStdUnit);
         // Fallback: some schemas keep 단위 in sales_mgmt_unit; use it when item_std_unit is missing
         String itemColSalesUnit = env.getProperty("app.item.columns.sales_mgmt_unit", "sales_mgmt_unit");
-        boolean hasItemSalesUnit = !hasItemStdUnit && columnExists(itemTbl, itemColSalesUnit);
+        boolean hasItemSalesUnit = !hasItemStdUnit && schemaMetadata.columnExists(itemTbl, itemColSalesUnit);
 
-        String customerCompanyType = null;
-        if (customerSeq != null) {
+        // 거래처 디렉터리에 없거나(신규) 회사가 모호하면 DB 조회
+        String customerCompanyType = customerSeq == null ? null : customerDirectory.companyTypeOf(customerSeq);
+        if (customerSeq != null && customerCompanyType == null) {
             try {
                 customerCompanyType = jdbc.queryForObject(
                         "SELECT " + custColCompanyType + " FROM " + custTbl + " WHERE " + custColSeq + " = ?",
@@ -313,18 +325,86 @@ import java.util.Map;
         boolean useInvCompanyFilter = applyCompanyFilter && hasInvCompanyType;
         boolean useItemCompanyFilter = applyCompanyFilter && hasItemCompanyType;
 
-        String invCompanyExpr = hasInvCompanyType ? "MAX(i.company_type)" : "NULL::text";
-        String itemCompanyExpr = hasItemCompanyType ? ("it." + itemColCompanyType) : "NULL::text";
-        String itemStdUnitExpr = hasItemStdUnit
+        String itemColActive = env.getProperty("app.item.columns.active", "active");
+        boolean hasActive = schemaMetadata.columnExists(itemTbl, itemColActive);
+
+        // 스키마 플래그 + 필터 존재 여부로 SQL 모양이 결정됨 → 변형별 1회 조립 후 재사용
+        int mask = SqlTemplateRegistry.bit(I_TOKENS, tokens.length > 0)
+                | SqlTemplateRegistry.bit(I_CUSTOMER, customerSeq != null)
+                | SqlTemplateRegistry.bit(I_INV_COMPANY, useInvCompanyFilter)
+                | SqlTemplateRegistry.bit(I_ITEM_COMPANY, useItemCompanyFilter)
+                | SqlTemplateRegistry.bit(I_HAS_INV_COMPANY, hasInvCompanyType)
+                | SqlTemplateRegistry.bit(I_HAS_ITEM_COMPANY, hasItemCompanyType)
+                | SqlTemplateRegistry.bit(I_HAS_STD_UNIT, hasItemStdUnit)
+                | SqlTemplateRegistry.bit(I_HAS_SALES_UNIT, hasItemSalesUnit)
+                | SqlTemplateRegistry.bit(I_HAS_ACTIVE, hasActive);
+        String sql = templates.get("items.search", mask, Dialect.POSTGRES, m -> buildSearchItemsSql(m,
+                invCfg, itemTbl, itemColName, itemColSeq, itemColCompanyType, itemColStdUnit, itemColSalesUnit, itemColActive));
+        String[] patterns = new String[tokens.length];
+        for (int ti = 0; ti < tokens.length; ti++) patterns[ti] = "%" + tokens[ti] + "%";
+
+        return ResponseEntity.ok(jdbc.query(con -> {
+            var ps = con.prepareStatement(sql);
+            ps.setQueryTimeout(30);
+            int i = 1;
+            // Bind tokens for invoice
+            if (tokens.length > 0) ps.setArray(i++, con.createArrayOf("text", patterns));
+            // Bind optional customer filter
+            if (customerSeq != null) ps.setObject(i++, customerSeq);
+            if (useInvCompanyFilter) ps.setString(i++, customerCompanyTypeVal);
+            // Bind tokens for item master
+            if (tokens.length > 0) ps.setArray(i++, con.createArrayOf("text", patterns));
+            if (useItemCompanyFilter) ps.setString(i++, customerCompanyTypeVal);
+            ps.setInt(i++, Math.max(1, Math.min(limit, 500)));
+            return ps;
+        }, (rs, idx) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("itemSeq", rs.getObject(1));
+            m.put("itemName", rs.getString(2));
+            m.put("recentInvoiceDate", rs.getString(3));
+            m.put("curAmt", rs.getObject(4));
+            m.put("qty", rs.getObject(5));
+            m.put("srcPri", rs.getInt(6));
+            m.put("companyType", rs.getString(7));
+            m.put("itemStdUnit", rs.getString(8));
+            m.put("customerSeq", rs.getObject(9));
+            return m;
+        }));
+    }
+
+    // searchItems() 필터/스키마 비트
+    private static final int I_TOKENS = 0;
+    private static final int I_CUSTOMER = 1;
+    private static final int I_INV_COMPANY = 2;
+    private static final int I_ITEM_COMPANY = 3;
+    private static final int I_HAS_INV_COMPANY = 4;
+    private static final int I_HAS_ITEM_COMPANY = 5;
+    private static final int I_HAS_STD_UNIT = 6;
+    private static final int I_HAS_SALES_UNIT = 7;
+    private static final int I_HAS_ACTIVE = 8;
+
+    private static String buildSearchItemsSql(int mask, InvoiceTableConfig invCfg, String itemTbl, String itemColName,
+                                              String itemColSeq, String itemColCompanyType, String itemColStdUnit,
+                                              String itemColSalesUnit, String itemColActive) {
+        String invTbl = invCfg.getTableName();
+        String invColCust = invCfg.getCustomerSeqColumn();
+        String invColItemName = invCfg.getItemNameColumn();
+        String invColItemSeq = invCfg.getItemSeqColumn();
+        String invColAmt = invCfg.getCurAmtColumn();
+        String invColQty = invCfg.getQtyColumn();
+
+        String invCompanyExpr = SqlTemplateRegistry.has(mask, I_HAS_INV_COMPANY) ? "MAX(i.company_type)" : "NULL::text";
+        String itemCompanyExpr = SqlTemplateRegistry.has(mask, I_HAS_ITEM_COMPANY) ? ("it." + itemColCompanyType) : "NULL::text";
+        String itemStdUnitExpr = SqlTemplateRegistry.has(mask, I_HAS_STD_UNIT)
                 ? ("it." + itemColStdUnit)
-                : (hasItemSalesUnit ? ("it." + itemColSalesUnit) : "NULL::text");
+                : (SqlTemplateRegistry.has(mask, I_HAS_SALES_UNIT) ? ("it." + itemColSalesUnit) : "NULL::text");
 
         StringBuilder sql = new StringBuilder();
         sql.append("WITH inv AS (\n");
         // invoice source aggregated to one row per item (recent date)
-        String dateExpr = dateIsText
-                ? ("to_timestamp(i."+invColDate+", '"+dateFmt+"')")
-                : ("i."+invColDate);
+        String dateExpr = invCfg.isDateIsText()
+                ? ("to_timestamp(i."+invCfg.getInvoiceDateColumn()+", '"+invCfg.getDateFormat()+"')")
+                : ("i."+invCfg.getInvoiceDateColumn());
         sql.append("  SELECT i.").append(invColItemSeq).append(" AS item_seq, i.").append(invColItemName)
            .append(" AS item_name, MAX(").append(dateExpr).append(") AS inv_date, ")
            .append("to_char(MAX(").append(dateExpr).append(") , 'YY-MM-DD') AS inv_date_text, ")
@@ -333,30 +413,29 @@ import java.util.Map;
            .append(" MIN(i.").append(invColCust).append(") AS customer_seq\n")
            .append("  FROM ").append(invTbl).append(" i\n")
            .append("  WHERE 1=1\n");
-        for (int ti = 0; ti < tokens.length; ti++) {
-            sql.append("    AND i.").append(invColItemName).append(" ILIKE ?\n");
+        // order-insensitive tokens: every token must match (ILIKE ALL)
+        if (SqlTemplateRegistry.has(mask, I_TOKENS)) {
+            sql.append("    AND i.").append(invColItemName).append(" ILIKE ALL(?)\n");
         }
-        if (customerSeq != null) {
+        if (SqlTemplateRegistry.has(mask, I_CUSTOMER)) {
             sql.append("    AND i.").append(invColCust).append(" = ?\n");
         }
-        if (useInvCompanyFilter) {
+        if (SqlTemplateRegistry.has(mask, I_INV_COMPANY)) {
             sql.append("    AND (UPPER(coalesce(i.company_type,'')) = UPPER(?) OR UPPER(coalesce(i.company_type,'')) = 'ALL')\n");
         }
         sql.append("  GROUP BY i.").append(invColItemSeq).append(", i.").append(invColItemName).append("\n");
         sql.append("), itm AS (\n");
         // items master source
-        String itemColActive = env.getProperty("app.item.columns.active", "active");
-        boolean hasActive = columnExists(itemTbl, itemColActive);
         sql.append("  SELECT DISTINCT it.").append(itemColSeq).append(" AS item_seq, it.").append(itemColName).append(" AS item_name, ").append(itemCompanyExpr).append(" AS company_type, ").append(itemStdUnitExpr).append(" AS item_std_unit\n")
            .append("  FROM ").append(itemTbl).append(" it\n")
            .append("  WHERE 1=1\n");
-        if (hasActive) {
+        if (SqlTemplateRegistry.has(mask, I_HAS_ACTIVE)) {
             sql.append("    AND it.").append(itemColActive).append(" = '사용'\n");
         }
-        for (int ti = 0; ti < tokens.length; ti++) {
-            sql.append("    AND it.").append(itemColName).append(" ILIKE ?\n");
+        if (SqlTemplateRegistry.has(mask, I_TOKENS)) {
+            sql.append("    AND it.").append(itemColName).append(" ILIKE ALL(?)\n");
         }
-        if (useItemCompanyFilter) {
+        if (SqlTemplateRegistry.has(mask, I_ITEM_COMPANY)) {
             sql.append("    AND (UPPER(coalesce(it.").append(itemColCompanyType).append(",'')) = UPPER(?) OR UPPER(coalesce(it.").append(itemColCompanyType).append(",'')) = 'ALL')\n");
         }
         sql.append("), src AS (\n");
@@ -380,34 +459,8 @@ import java.util.Map;
            .append(") t\n")
            .append("WHERE rn = 1\n")
            .append("ORDER BY src_pri ASC, inv_date DESC NULLS LAST, item_name ASC\n")
-           .append("LIMIT ").append(Math.max(1, Math.min(limit, 500)));
-
-        return ResponseEntity.ok(jdbc.query(con -> {
-            var ps = con.prepareStatement(sql.toString());
-            ps.setQueryTimeout(30);
-            int i = 1;
-            // Bind tokens for invoice
-            for (String t : tokens) ps.setString(i++, "%" + t + "%");
-            // Bind optional customer filter
-            if (customerSeq != null) ps.setObject(i++, customerSeq);
-            if (useInvCompanyFilter && customerCompanyTypeVal != null) ps.setString(i++, customerCompanyTypeVal);
-            // Bind tokens for item master
-            for (String t : tokens) ps.setString(i++, "%" + t + "%");
-            if (useItemCompanyFilter && customerCompanyTypeVal != null) ps.setString(i++, customerCompanyTypeVal);
-            return ps;
-        }, (rs, idx) -> {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("itemSeq", rs.getObject(1));
-            m.put("itemName", rs.getString(2));
-            m.put("recentInvoiceDate", rs.getString(3));
-            m.put("curAmt", rs.getObject(4));
-            m.put("qty", rs.getObject(5));
-            m.put("srcPri", rs.getInt(6));
-            m.put("companyType", rs.getString(7));
-            m.put("itemStdUnit", rs.getString(8));
-            m.put("customerSeq", rs.getObject(9));
-            return m;
-        }));
+           .append("LIMIT ?");
+        return sql.toString();
     }
 
     /**
@@ -424,9 +477,9 @@ import java.util.Map;
         String colStdUnit = env.getProperty("app.item.columns.item_std_unit", "item_std_unit");
         String colCompanyType = env.getProperty("app.item.columns.company_type", "company_type");
         String colActive = env.getProperty("app.item.columns.active", "active");
-        boolean hasStd = columnExists(tbl, colStdUnit);
-        boolean hasCompanyType = columnExists(tbl, colCompanyType);
-        boolean hasActive = columnExists(tbl, colActive);
+        boolean hasStd = schemaMetadata.columnExists(tbl, colStdUnit);
+        boolean hasCompanyType = schemaMetadata.columnExists(tbl, colCompanyType);
+        boolean hasActive = schemaMetadata.columnExists(tbl, colActive);
         String stdExpr = hasStd ? colStdUnit : "NULL::text";
         String companyTypeExpr = hasCompanyType ? colCompanyType : "NULL::text";
         String activeFilter = hasActive ? (" AND " + colActive + " = '사용'") : "";
@@ -540,30 +593,4 @@ import java.util.Map;
             return org.springframework.http.ResponseEntity.status(500).body(java.util.Map.of("error","avail_stock_failed","message", e.getMessage()));
         }
     }
-
-    private boolean columnExists(String tableName, String columnName) {
-        if (tableName == null || columnName == null) return false;
-        String schema = "public";
-        String table = tableName;
-        // Handle schema-qualified names like public.item or "public"."item"
-        if (tableName.contains(".")) {
-            String[] parts = tableName.replace("\"","").split("\\.", 2);
-            if (parts.length == 2) {
-                schema = parts[0];
-                table = parts[1];
-            }
-        }
-        try {
-            Integer cnt = jdbc.queryForObject(
-                    "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = ? AND table_name = ? AND column_name = ?",
-                    Integer.class,
-                    schema,
-                    table,
-                    columnName.replace("\"","")
-            );
-            return cnt != null && cnt > 0;
-        } catch (Exception e) {
-            return false;
-        }
-    }
 }
@@ -1,5 +1,7 @@
 package com.tnt.sales.lab.api;
 
+import com.tnt.sales.config.ReadReplica;
+import com.tnt.sales.lab.model.PortfolioSimulationRow;
 import com.tnt.sales.lab.model.SimulationData;
 import com.tnt.sales.lab.service.PriceSimulationService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -7,6 +9,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,6 +23,7 @@ public class PriceSimulationController {
         this.service = service;
     }
 
+    @ReadReplica
     @GetMapping("/data")
     public ResponseEntity<SimulationData> getSimulationData(
             @RequestParam Long customerSeq,
@@ -28,6 +33,37 @@ public class PriceSimulationController {
         return ResponseEntity.ok(data);
     }
 
+    /**
+     * 담당자/팀/회사 단위 일괄 시뮬레이션 (권장 인상률 내림차순)
+     * GET /api/v1/lab/price-simulation/batch
+     *
+     * Query Parameters (최소 1개 필수):
+     * - assigneeId: 담당자 ID
+     * - deptName: 팀(부서)명
+     * - companyType: 회사 구분 (TNT, DYS)
+     * - limit: 반환 건수 (기본 1000, 순위는 전체 대상 기준)
+     */
+    @ReadReplica
+    @GetMapping("/batch")
+    public ResponseEntity<?> simulatePortfolio(
+            @RequestParam(required = false) String assigneeId,
+            @RequestParam(required = false) String deptName,
+            @RequestParam(required = false) String companyType,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (isBlank(assigneeId) && isBlank(deptName) && isBlank(companyType)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "assigneeId, deptName, companyType 중 하나는 필수입니다"));
+        }
+        try {
+            List<PortfolioSimulationRow> rows = service.simulatePortfolio(assigneeId, deptName, companyType);
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("total", rows.size());
+            out.put("items", rows.subList(0, Math.min(Math.max(limit, 0), rows.size())));
+            return ResponseEntity.ok(out);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "일괄 시뮬레이션 실패: " + e.getMessage()));
+        }
+    }
+
     @PostMapping("/assessment")
     public ResponseEntity<?> saveAssessment(@RequestBody Map<String, Object> payload) {
         Long customerSeq = Long.valueOf(payload.get("customerSeq").toString());
@@ -39,4 +75,8 @@ public class PriceSimulationController {
         return ResponseEntity.ok(Map.of("success", true));
     }
 
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
 }
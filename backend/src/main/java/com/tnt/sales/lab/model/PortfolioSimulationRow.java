@@ -0,0 +1,20 @@
+package com.tnt.sales.lab.model;
+
+/**
+ * 일괄 시뮬레이션 결과 1행 (고객별 요인 점수와 권장 인상률, 인상률 내림차순 순위)
+ */
+public record PortfolioSimulationRow(
+        int rank,
+        long customerSeq,
+        String customerName,
+        double volumeCurrent,
+        double volumeYear1,
+        double volumeGrowthRate,
+        double overdueRatio,
+        int volumeScore,
+        int agingScore,
+        int ratingScore,
+        int assessmentScore,
+        int totalScore,
+        double suggestedIncreaseRate) {
+}
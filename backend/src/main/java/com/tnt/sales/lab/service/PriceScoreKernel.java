@@ -0,0 +1,121 @@
+package com.tnt.sales.lab.service;
+
+import java.util.Arrays;
+
+/**
+ * 가격 시뮬레이션 점수 계산 (일괄용, 고객 n명분 배열을 한 번에 처리)
+ *
+ * {@link PriceSimulationService} 단건 계산(calculateScores)과 같은 규칙을 double/int 배열로 계산한다.
+ * <ul>
+ *   <li>거래량 점수: 전년 대비 성장률 10% 이상 100, -10% 이하 0, 사이는 (성장률 + 10) * 5</li>
+ *   <li>채권 점수: 연체(30일 초과) 비율 50% 이상 0, 그 외 100 - 비율 * 2</li>
+ *   <li>총점: 4개 요인 평균(정수), 권장 인상률: 10% * (1 - 총점 / 100)</li>
+ * </ul>
+ */
+final class PriceScoreKernel {
+
+    static final double MAX_INCREASE = 10.0;
+
+    int size;
+
+    // 입력
+    long[] customerSeq;
+    String[] customerName;
+    double[] volCur;
+    double[] volY1;
+    double[] totalAr;
+    double[] aging030;
+    int[] ratingScore;
+    int[] assessmentScore;
+
+    // 출력 (score() 후 채워짐)
+    double[] growthRate;
+    double[] overdueRatio;
+    int[] volumeScore;
+    int[] agingScore;
+    int[] totalScore;
+    double[] increaseRate;
+
+    PriceScoreKernel(int capacity) {
+        customerSeq = new long[capacity];
+        customerName = new String[capacity];
+        volCur = new double[capacity];
+        volY1 = new double[capacity];
+        totalAr = new double[capacity];
+        aging030 = new double[capacity];
+        ratingScore = new int[capacity];
+        assessmentScore = new int[capacity];
+    }
+
+    void add(long seq, String name, double cur, double y1, double ar, double ar030, int rating, int assessment) {
+        if (size == volCur.length) {
+            int cap = Math.max(16, size * 2);
+            customerSeq = Arrays.copyOf(customerSeq, cap);
+            customerName = Arrays.copyOf(customerName, cap);
+            volCur = Arrays.copyOf(volCur, cap);
+            volY1 = Arrays.copyOf(volY1, cap);
+            totalAr = Arrays.copyOf(totalAr, cap);
+            aging030 = Arrays.copyOf(aging030, cap);
+            ratingScore = Arrays.copyOf(ratingScore, cap);
+            assessmentScore = Arrays.copyOf(assessmentScore, cap);
+        }
+        customerSeq[size] = seq;
+        customerName[size] = name;
+        volCur[size] = cur;
+        volY1[size] = y1;
+        totalAr[size] = ar;
+        aging030[size] = ar030;
+        ratingScore[size] = rating;
+        assessmentScore[size] = assessment;
+        size++;
+    }
+
+    void score() {
+        int n = size;
+        growthRate = new double[n];
+        overdueRatio = new double[n];
+        volumeScore = new int[n];
+        agingScore = new int[n];
+        totalScore = new int[n];
+        increaseRate = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            double g = volY1[i] > 0 ? round4((volCur[i] - volY1[i]) / volY1[i]) * 100 : 0;
+            growthRate[i] = g;
+            volumeScore[i] = g >= 10 ? 100 : g <= -10 ? 0 : (int) ((g + 10) * 5);
+        }
+        for (int i = 0; i < n; i++) {
+            double r = totalAr[i] > 0 ? round4((totalAr[i] - aging030[i]) / totalAr[i]) * 100 : 0;
+            overdueRatio[i] = r;
+            agingScore[i] = r >= 50 ? 0 : (int) (100 - r * 2);
+        }
+        for (int i = 0; i < n; i++) {
+            int total = (volumeScore[i] + agingScore[i] + ratingScore[i] + assessmentScore[i]) / 4;
+            totalScore[i] = total;
+            increaseRate[i] = MAX_INCREASE * (100 - total) / 100.0;
+        }
+    }
+
+    /**
+     * 권장 인상률 내림차순, 같으면 고객명 순 인덱스
+     */
+    int[] rankOrder() {
+        Integer[] idx = new Integer[size];
+        for (int i = 0; i < size; i++) idx[i] = i;
+        Arrays.sort(idx, (a, b) -> {
+            int c = Double.compare(increaseRate[b], increaseRate[a]);
+            if (c != 0) return c;
+            String na = customerName[a] == null ? "" : customerName[a];
+            String nb = customerName[b] == null ? "" : customerName[b];
+            return na.compareTo(nb);
+        });
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = idx[i];
+        return order;
+    }
+
+    private static double round4(double v) {
+        // BigDecimal HALF_UP(scale 4)와 동일하게 0에서 먼 쪽으로 반올림
+        return Math.signum(v) * Math.floor(Math.abs(v) * 10_000 + 0.5) / 10_000;
+    }
+}
@@ -1,8 +1,14 @@
 package com.tnt.sales.lab.service;
 
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.config.ReadRoutingDataSource;
+import com.tnt.sales.lab.model.PortfolioSimulationRow;
 import com.tnt.sales.lab.model.SimulationData;
 import com.tnt.sales.lab.model.CreditRating;
 import com.tnt.sales.lab.model.SalesRepAssessment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -14,64 +20,212 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class PriceSimulationService {
+    private static final Logger log = LoggerFactory.getLogger(PriceSimulationService.class);
 
     private final JdbcTemplate jdbc;
+    // 일괄 시뮬레이션 용 (단건 마감 시간 statement 타임아웃 미적용)
+    private final JdbcTemplate portfolioJdbc;
     private final Environment env;
+    private final SchemaMetadataService schemaMetadata;
+    // 조회 단계 fan-out 용 (요청마다 단계별 가상 스레드, DB 동시성은 커넥션 제한기가 담당)
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+    private final long deadlineMs;
 
-    public PriceSimulationService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env) {
-        this.jdbc = jdbc;
+    public PriceSimulationService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env,
+                                  SchemaMetadataService schemaMetadata) {
         this.env = env;
+        this.schemaMetadata = schemaMetadata;
+        this.deadlineMs = env.getProperty("app.lab.price-simulation.deadline-ms", Long.class, 5_000L);
+        // 마감 시간이 지나 버려진 조회가 커넥션을 계속 잡지 않도록 statement 타임아웃을 같이 건다
+        JdbcTemplate t = new JdbcTemplate(jdbc.getDataSource());
+        t.setFetchSize(jdbc.getFetchSize());
+        t.setQueryTimeout((int) Math.max(1, (deadlineMs + 999) / 1000));
+        this.jdbc = t;
+        this.portfolioJdbc = jdbc;
     }
 
+    @PreDestroy
+    void shutdown() {
+        fanOut.shutdownNow();
+    }
+
+    /**
+     * 고객 1건의 시뮬레이션 데이터
+     *
+     * 서로 독립인 6개 조회(고객, 거래량, 채권 연령, 신용등급, 담당자 평가, 품목 단가)를 동시에 실행하고
+     * 모두 끝나거나 deadline(app.lab.price-simulation.deadline-ms)이 지나면 결과를 합친다.
+     * 실패하거나 마감 시간 안에 끝나지 않은 조회는 단계별 기본값으로 채운다.
+     */
     public SimulationData getSimulationData(Long customerSeq, LocalDate startDate, LocalDate endDate) {
         SimulationData data = new SimulationData();
         data.setCustomerSeq(customerSeq);
 
-        // 1. Fetch Customer Info
-        fetchCustomerInfo(data, customerSeq);
+        // 1~5. 요인별 조회 (각 단계는 data에 반영할 setter 묶음을 반환)
+        List<CompletableFuture<Consumer<SimulationData>>> factors = List.of(
+                submit(() -> fetchCustomerInfo(customerSeq)),
+                submit(() -> fetchTransactionVolume(customerSeq)),
+                submit(() -> fetchCreditAging(customerSeq)),
+                submit(() -> fetchCreditRating(customerSeq)),
+                submit(() -> fetchRepAssessment(customerSeq)));
+        List<Consumer<SimulationData>> fallbacks = List.of(
+                PriceSimulationService::customerInfoFallback,
+                PriceSimulationService::transactionVolumeFallback,
+                PriceSimulationService::creditAgingFallback,
+                PriceSimulationService::creditRatingFallback,
+                PriceSimulationService::repAssessmentFallback);
+        // 7. 품목 조회 (단가 시뮬레이션은 점수 계산 후)
+        CompletableFuture<List<SimulationData.SimulationItem>> itemsFuture =
+                submit(() -> fetchItems(customerSeq, startDate, endDate));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        for (int i = 0; i < factors.size(); i++) {
+            await(factors.get(i), deadline, fallbacks.get(i)).accept(data);
+        }
 
-        // 2. Fetch Transaction Volume (Invoice)
-        fetchTransactionVolume(data, customerSeq);
+        // 6. Calculate Scores
+        calculateScores(data);
 
-        // 3. Fetch Credit Aging
-        fetchCreditAging(data, customerSeq);
+        List<SimulationData.SimulationItem> items = await(itemsFuture, deadline, new ArrayList<>());
+        simulatePrices(data, items);
+        data.setItems(items);
 
-        // 4. Fetch Credit Rating
-        fetchCreditRating(data, customerSeq);
+        return data;
+    }
 
-        // 5. Fetch Rep Assessment
-        fetchRepAssessment(data, customerSeq);
+    // 요청 스레드의 읽기 복제본 경로(ThreadLocal)를 각 작업 스레드에 다시 설정
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(ReadRoutingDataSource.withCurrentRoute(task), fanOut);
+    }
 
-        // 6. Calculate Scores
-        calculateScores(data);
+    private <T> T await(CompletableFuture<T> future, long deadlineNanos, T fallback) {
+        try {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("[PriceSimulation] sub-query not completed within {} ms, using fallback: {}", deadlineMs, e.toString());
+        }
+        future.cancel(true);
+        return fallback;
+    }
 
-        // 7. Fetch Items & Calculate Simulated Prices
-        fetchItemsAndSimulate(data, customerSeq, startDate, endDate);
+    /**
+     * 담당자/팀/회사 단위 일괄 시뮬레이션
+     *
+     * 범위 내 전체 고객의 거래량, 최신 채권 연령, 최신 신용등급, 최신 담당자 평가를 한 번의 조회로 가져와
+     * {@link PriceScoreKernel}로 점수를 계산하고 권장 인상률 내림차순으로 순위를 매긴다.
+     * 요인 테이블이 없으면 단건 조회와 같은 기본값(0 / 신용·평가 50점)을 사용한다.
+     * @param assigneeId 담당자 ID (customer.assignee_id)
+     * @param deptName 팀(부서)명 (employee.dept_name)
+     * @param companyType 회사 구분
+     */
+    public List<PortfolioSimulationRow> simulatePortfolio(String assigneeId, String deptName, String companyType) {
+        boolean hasAssignee = assigneeId != null && !assigneeId.isBlank();
+        boolean hasDept = deptName != null && !deptName.isBlank();
+        boolean hasCompany = companyType != null && !companyType.isBlank();
+        boolean hasAging = schemaMetadata.tableExists("credit_ar_aging");
+        boolean hasRating = schemaMetadata.tableExists("credit_rating");
+        boolean hasAssessment = schemaMetadata.tableExists("sales_rep_assessment");
 
-        return data;
+        int currentYear = LocalDate.now().getYear();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("WITH scope AS (" +
+                "SELECT c.customer_seq, c.customer_name FROM customer c " +
+                "LEFT JOIN employee e ON e.emp_id = c.assignee_id WHERE 1=1");
+        if (hasAssignee) { sql.append(" AND c.assignee_id = ?"); params.add(assigneeId.trim()); }
+        if (hasDept) { sql.append(" AND e.dept_name = ?"); params.add(deptName.trim()); }
+        if (hasCompany) { sql.append(" AND UPPER(c.company_type) = UPPER(?)"); params.add(companyType.trim()); }
+        sql.append("), vol AS (" +
+                "SELECT i.customer_seq, " +
+                "SUM(CASE WHEN EXTRACT(YEAR FROM i.invoice_date) = ? THEN i.cur_amt ELSE 0 END) AS vol_cur, " +
+                "SUM(CASE WHEN EXTRACT(YEAR FROM i.invoice_date) = ? THEN i.cur_amt ELSE 0 END) AS vol_y1 " +
+                "FROM invoice i JOIN scope s ON s.customer_seq = i.customer_seq " +
+                "WHERE i.invoice_date >= ? AND i.invoice_date < ? GROUP BY i.customer_seq)");
+        params.add(currentYear);
+        params.add(currentYear - 1);
+        params.add(LocalDate.of(currentYear - 1, 1, 1));
+        params.add(LocalDate.of(currentYear + 1, 1, 1));
+        if (hasAging) {
+            sql.append(", ar AS (SELECT DISTINCT ON (a.customer_seq) a.customer_seq, a.total_ar, a.aging_0_30 " +
+                    "FROM credit_ar_aging a JOIN scope s ON s.customer_seq = a.customer_seq " +
+                    "ORDER BY a.customer_seq, a.snapshot_date DESC)");
+        }
+        if (hasRating) {
+            sql.append(", rating AS (SELECT DISTINCT ON (r.customer_seq) r.customer_seq, r.rating_score " +
+                    "FROM credit_rating r JOIN scope s ON s.customer_seq = r.customer_seq " +
+                    "ORDER BY r.customer_seq, r.rating_date DESC)");
+        }
+        if (hasAssessment) {
+            sql.append(", assess AS (SELECT DISTINCT ON (a.customer_seq) a.customer_seq, a.assessment_score " +
+                    "FROM sales_rep_assessment a JOIN scope s ON s.customer_seq = a.customer_seq " +
+                    "ORDER BY a.customer_seq, a.assessment_date DESC)");
+        }
+        sql.append(" SELECT s.customer_seq, s.customer_name, " +
+                "COALESCE(vol.vol_cur, 0) AS vol_cur, COALESCE(vol.vol_y1, 0) AS vol_y1, ");
+        sql.append(hasAging ? "COALESCE(ar.total_ar, 0) AS total_ar, COALESCE(ar.aging_0_30, 0) AS aging_0_30, "
+                : "0 AS total_ar, 0 AS aging_0_30, ");
+        sql.append(hasRating ? "COALESCE(rating.rating_score, 50) AS rating_score, " : "50 AS rating_score, ");
+        sql.append(hasAssessment ? "COALESCE(assess.assessment_score, 50) AS assessment_score " : "50 AS assessment_score ");
+        sql.append("FROM scope s LEFT JOIN vol ON vol.customer_seq = s.customer_seq");
+        if (hasAging) sql.append(" LEFT JOIN ar ON ar.customer_seq = s.customer_seq");
+        if (hasRating) sql.append(" LEFT JOIN rating ON rating.customer_seq = s.customer_seq");
+        if (hasAssessment) sql.append(" LEFT JOIN assess ON assess.customer_seq = s.customer_seq");
+
+        // 행을 읽으면서 바로 배열에 채운 뒤 한 번에 점수 계산
+        PriceScoreKernel kernel = new PriceScoreKernel(256);
+        portfolioJdbc.query(sql.toString(), rs -> {
+            kernel.add(rs.getLong("customer_seq"), rs.getString("customer_name"),
+                    rs.getDouble("vol_cur"), rs.getDouble("vol_y1"),
+                    rs.getDouble("total_ar"), rs.getDouble("aging_0_30"),
+                    rs.getInt("rating_score"), rs.getInt("assessment_score"));
+        }, params.toArray());
+        kernel.score();
+
+        int[] order = kernel.rankOrder();
+        List<PortfolioSimulationRow> out = new ArrayList<>(order.length);
+        for (int r = 0; r < order.length; r++) {
+            int i = order[r];
+            out.add(new PortfolioSimulationRow(r + 1, kernel.customerSeq[i], kernel.customerName[i],
+                    kernel.volCur[i], kernel.volY1[i], kernel.growthRate[i], kernel.overdueRatio[i],
+                    kernel.volumeScore[i], kernel.agingScore[i], kernel.ratingScore[i], kernel.assessmentScore[i],
+                    kernel.totalScore[i], kernel.increaseRate[i]));
+        }
+        return out;
     }
 
     public void saveAssessment(Long customerSeq, String assessorId, int score, String comment) {
         String sql = "INSERT INTO sales_rep_assessment (customer_seq, assessor_id, assessment_score, assessment_comment, assessment_date) "
                 +
                 "VALUES (?, ?, ?, ?, CURRENT_DATE)";
-        jdbc.update(sql, customerSeq, assessorId, score, comment);
+        // 쓰기는 마감 시간 statement 타임아웃이 없는 템플릿으로 (느린 DB에서 저장이 조회 마감에 잘리지 않게)
+        portfolioJdbc.update(sql, customerSeq, assessorId, score, comment);
     }
 
-    private void fetchCustomerInfo(SimulationData data, Long customerSeq) {
+    private Consumer<SimulationData> fetchCustomerInfo(Long customerSeq) {
         String sql = "SELECT customer_name FROM customer WHERE customer_seq = ?";
         try {
             String name = jdbc.queryForObject(sql, String.class, customerSeq);
-            data.setCustomerName(name);
+            return data -> data.setCustomerName(name);
         } catch (Exception e) {
-            data.setCustomerName("Unknown Customer");
+            return PriceSimulationService::customerInfoFallback;
         }
     }
 
-    private void fetchTransactionVolume(SimulationData data, Long customerSeq) {
+    private static void customerInfoFallback(SimulationData data) {
+        data.setCustomerName("Unknown Customer");
+    }
+
+    private Consumer<SimulationData> fetchTransactionVolume(Long customerSeq) {
         // Mocking logic for now as invoice table structure might vary.
         // In real impl, query invoice table for last 3 years.
         // Assuming current year is 2025 based on prompt context (though system time
@@ -88,16 +242,26 @@ public class PriceSimulationService {
         try {
             Map<String, Object> result = jdbc.queryForMap(sql, currentYear, currentYear - 1, currentYear - 2,
                     customerSeq);
-            data.setVolumeCurrent((BigDecimal) result.get("vol_cur"));
-            data.setVolumeYear1((BigDecimal) result.get("vol_y1"));
-            data.setVolumeYear2((BigDecimal) result.get("vol_y2"));
+            return data -> {
+                data.setVolumeCurrent((BigDecimal) result.get("vol_cur"));
+                data.setVolumeYear1((BigDecimal) result.get("vol_y1"));
+                data.setVolumeYear2((BigDecimal) result.get("vol_y2"));
+                applyGrowthRate(data);
+            };
         } catch (Exception e) {
-            // Fallback if query fails or table doesn't exist as expected
-            data.setVolumeCurrent(BigDecimal.ZERO);
-            data.setVolumeYear1(BigDecimal.ZERO);
-            data.setVolumeYear2(BigDecimal.ZERO);
+            return PriceSimulationService::transactionVolumeFallback;
         }
+    }
 
+    private static void transactionVolumeFallback(SimulationData data) {
+        // Fallback if query fails or table doesn't exist as expected
+        data.setVolumeCurrent(BigDecimal.ZERO);
+        data.setVolumeYear1(BigDecimal.ZERO);
+        data.setVolumeYear2(BigDecimal.ZERO);
+        applyGrowthRate(data);
+    }
+
+    private static void applyGrowthRate(SimulationData data) {
         // Calculate Growth Rate (Current vs Last Year)
         if (data.getVolumeYear1() != null && data.getVolumeYear1().compareTo(BigDecimal.ZERO) > 0) {
             BigDecimal growth = data.getVolumeCurrent().subtract(data.getVolumeYear1())
@@ -109,7 +273,7 @@ public class PriceSimulationService {
         }
     }
 
-    private void fetchCreditAging(SimulationData data, Long customerSeq) {
+    private Consumer<SimulationData> fetchCreditAging(Long customerSeq) {
         // Fetch latest aging snapshot
         String sql = "SELECT total_ar, aging_0_30, aging_31_60, aging_61_90, aging_91_120, " +
                 "aging_121_150, aging_151_180, aging_181_210, aging_211_240, aging_241_270, " +
@@ -123,52 +287,68 @@ public class PriceSimulationService {
 
             // Overdue is everything > 30 days
             BigDecimal overdue = totalAr.subtract(aging030);
-
-            data.setTotalAr(totalAr);
-            data.setOverdueAr(overdue);
-
-            if (totalAr.compareTo(BigDecimal.ZERO) > 0) {
-                data.setOverdueRatio(
-                        overdue.divide(totalAr, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)));
-            } else {
-                data.setOverdueRatio(BigDecimal.ZERO);
-            }
+            BigDecimal overdueRatio = totalAr.compareTo(BigDecimal.ZERO) > 0
+                    ? overdue.divide(totalAr, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
+                    : BigDecimal.ZERO;
+
+            return data -> {
+                data.setTotalAr(totalAr);
+                data.setOverdueAr(overdue);
+                data.setOverdueRatio(overdueRatio);
+            };
         } catch (Exception e) {
-            data.setTotalAr(BigDecimal.ZERO);
-            data.setOverdueAr(BigDecimal.ZERO);
-            data.setOverdueRatio(BigDecimal.ZERO);
+            return PriceSimulationService::creditAgingFallback;
         }
     }
 
-    private void fetchCreditRating(SimulationData data, Long customerSeq) {
+    private static void creditAgingFallback(SimulationData data) {
+        data.setTotalAr(BigDecimal.ZERO);
+        data.setOverdueAr(BigDecimal.ZERO);
+        data.setOverdueRatio(BigDecimal.ZERO);
+    }
+
+    private Consumer<SimulationData> fetchCreditRating(Long customerSeq) {
         String sql = "SELECT rating_agency, rating_grade, rating_score FROM credit_rating " +
                 "WHERE customer_seq = ? ORDER BY rating_date DESC LIMIT 1";
         try {
             Map<String, Object> result = jdbc.queryForMap(sql, customerSeq);
-            data.setRatingAgency((String) result.get("rating_agency"));
-            data.setRatingGrade((String) result.get("rating_grade"));
-            data.setRatingScore((Integer) result.get("rating_score"));
+            return data -> {
+                data.setRatingAgency((String) result.get("rating_agency"));
+                data.setRatingGrade((String) result.get("rating_grade"));
+                data.setRatingScore((Integer) result.get("rating_score"));
+            };
         } catch (Exception e) {
-            data.setRatingAgency("None");
-            data.setRatingGrade("-");
-            data.setRatingScore(50); // Default neutral score
+            return PriceSimulationService::creditRatingFallback;
         }
     }
 
-    private void fetchRepAssessment(SimulationData data, Long customerSeq) {
+    private static void creditRatingFallback(SimulationData data) {
+        data.setRatingAgency("None");
+        data.setRatingGrade("-");
+        data.setRatingScore(50); // Default neutral score
+    }
+
+    private Consumer<SimulationData> fetchRepAssessment(Long customerSeq) {
         String sql = "SELECT assessment_score, assessment_comment FROM sales_rep_assessment " +
                 "WHERE customer_seq = ? ORDER BY assessment_date DESC LIMIT 1";
         try {
             Map<String, Object> result = jdbc.queryForMap(sql, customerSeq);
             int score = (Integer) result.get("assessment_score");
-            data.setAssessmentScore(score); // Assuming stored as 0-100
-            data.setAssessmentComment((String) result.get("assessment_comment"));
+            String comment = (String) result.get("assessment_comment");
+            return data -> {
+                data.setAssessmentScore(score); // Assuming stored as 0-100
+                data.setAssessmentComment(comment);
+            };
         } catch (Exception e) {
-            data.setAssessmentScore(50); // Default neutral
-            data.setAssessmentComment("No assessment yet.");
+            return PriceSimulationService::repAssessmentFallback;
         }
     }
 
+    private static void repAssessmentFallback(SimulationData data) {
+        data.setAssessmentScore(50); // Default neutral
+        data.setAssessmentComment("No assessment yet.");
+    }
+
     private void calculateScores(SimulationData data) {
         // 1. Volume Score: Growth > 10% = 100, < -10% = 0
         BigDecimal growth = data.getVolumeGrowthRate();
@@ -212,7 +392,7 @@ public class PriceSimulationService {
         data.setSuggestedIncreaseRate(increase);
     }
 
-    private void fetchItemsAndSimulate(SimulationData data, Long customerSeq, LocalDate startDate, LocalDate endDate) {
+    private List<SimulationData.SimulationItem> fetchItems(Long customerSeq, LocalDate startDate, LocalDate endDate) {
         // Fetch items sold to this customer in the period
         String sql = "SELECT i.item_seq, i.item_name, MAX(it.item_unit) as item_unit, " +
                 "SUM(i.cur_amt) / NULLIF(SUM(i.qty), 0) as avg_price, " +
@@ -239,17 +419,29 @@ public class PriceSimulationService {
                 BigDecimal qty = (BigDecimal) row.get("total_qty");
                 item.setRecentQty(qty);
 
-                // Simulate Price
-                BigDecimal increaseRate = data.getSuggestedIncreaseRate().divide(BigDecimal.valueOf(100), 4,
-                        RoundingMode.HALF_UP);
-                BigDecimal simulatedPrice = avgPrice.multiply(BigDecimal.ONE.add(increaseRate));
-                item.setSimulatedUnitPrice(simulatedPrice);
-
                 items.add(item);
             }
         } catch (Exception e) {
             // Handle empty or error
         }
-        data.setItems(items);
+        return items;
+    }
+
+    // 기존과 같이 계산 오류는 삼키고, 오류 전까지 계산된 품목만 남긴다
+    private void simulatePrices(SimulationData data, List<SimulationData.SimulationItem> items) {
+        int done = 0;
+        try {
+            BigDecimal increaseRate = data.getSuggestedIncreaseRate().divide(BigDecimal.valueOf(100), 4,
+                    RoundingMode.HALF_UP);
+            for (SimulationData.SimulationItem item : items) {
+                // Simulate Price
+                BigDecimal simulatedPrice = item.getRecentUnitPrice().multiply(BigDecimal.ONE.add(increaseRate));
+                item.setSimulatedUnitPrice(simulatedPrice);
+                done++;
+            }
+        } catch (Exception e) {
+            log.debug("[PriceSimulation] price simulation failed for {}: {}", data.getCustomerSeq(), e.toString());
+            items.subList(done, items.size()).clear();
+        }
     }
 }
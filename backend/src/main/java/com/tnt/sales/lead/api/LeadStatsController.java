@@ -1,5 +1,6 @@
 package com.tnt.sales.lead.api;
 
+import com.tnt.sales.config.ReadReplica;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +13,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 
+@ReadReplica
 @RestController
 @RequestMapping("/api/v1/lead-stats")
 public class LeadStatsController {
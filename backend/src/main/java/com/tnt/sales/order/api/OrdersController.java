@@ -7,7 +7,6 @@ import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -16,6 +15,8 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
+import com.tnt.sales.order.service.ErpOrderClient;
+import com.tnt.sales.order.service.OrderOutboxService;
 import com.tnt.sales.slack.service.SlackService;
 
 @RestController
@@ -25,6 +26,8 @@ public class OrdersController {
     @Autowired Environment env;
     @Autowired(required = false) JdbcTemplate jdbc; // primary (Postgres)
     @Autowired(required = false) SlackService slackService;
+    @Autowired ErpOrderClient erpClient;
+    @Autowired(required = false) OrderOutboxService outbox;
 
     public static class OrderItemReq {
         public String itemSeq;
@@ -66,21 +69,6 @@ public class OrdersController {
             if (req == null || req.items == null || req.items.isEmpty())
                 return ResponseEntity.badRequest().body(Map.of("error","empty_cart"));
 
-            // Read config (fallbacks provided per spec message)
-            // Default TNT endpoint (no explicit :8300 port)
-            String apiUrl = env.getProperty(
-                    "tnt.orders.api.url",
-                    "http://220.73.213.73/Angkor.Ylw.Common.HttpExecute/RestOutsideService.svc/OpenApi/IsStoredProcedure/tnt_SWAPIMESOrderTextSave"
-            );
-            String certId = env.getProperty("tnt.orders.api.certId", "TNT_CRM");
-            String certKey = env.getProperty("tnt.orders.api.certKey", "9836164F-3601-4DBB-9D6D-54685CD89B95");
-            String dsn = env.getProperty("tnt.orders.api.dsn", "tnt_bis");
-            String dsnOper = env.getProperty("tnt.orders.api.dsnOper", "tnt_oper");
-            String dsnBis = env.getProperty("tnt.orders.api.dsnBis", "tnt_bis");
-            String companySeq = env.getProperty("tnt.orders.api.companySeq", "1");
-            int languageSeq = Integer.parseInt(env.getProperty("tnt.orders.api.languageSeq", "1"));
-            int securityType = Integer.parseInt(env.getProperty("tnt.orders.api.securityType", "0"));
-
             // Dates
             String todayYmd = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE); // yyyymmdd
             String stdDate = (req.stdDate != null && !req.stdDate.isBlank()) ? req.stdDate : todayYmd;
@@ -91,25 +79,6 @@ public class OrdersController {
 
             // Resolve SalesEmpSeq from assignee_id per company rule (TNT → tnt_emp_seq, DYS → dys_emp_seq)
             String companyCode = Optional.ofNullable(req.companyCode).orElse("TNT").trim().toUpperCase();
-            // Select external API endpoint by company (TNT keeps existing URL; DYS uses :81 + dys_ proc)
-            try {
-                String apiUrlDys = env.getProperty(
-                        "tnt.orders.api.url.dys",
-                        "http://220.73.213.73:81/Angkor.Ylw.Common.HttpExecute/RestOutsideService.svc/OpenApi/IsStoredProcedure/tnt_SWAPIMESOrderTextSave");
-                if ("DYS".equals(companyCode)) {
-                    apiUrl = apiUrlDys;
-                    // Override certKey for DYS (configurable with default)
-                    certKey = env.getProperty(
-                            "tnt.orders.api.certKey.dys",
-                            "A66C1236-0FFF-4F1D-96AC-27B5839548F9"
-                    );
-                    // Override certId/dsn for DYS as requested (configurable with defaults)
-                    certId = env.getProperty("tnt.orders.api.certId.dys", "DYS_CRM");
-                    dsn = env.getProperty("tnt.orders.api.dsn.dys", "dys_bis");
-                    dsnOper = env.getProperty("tnt.orders.api.dsnOper.dys", "dys_oper");
-                    dsnBis = env.getProperty("tnt.orders.api.dsnBis.dys", "dys_bis");
-                }
-            } catch (Exception ignore) {}
             String salesEmpSeqResolved = Optional.ofNullable(req.salesEmpSeq).orElse("");
             if ((salesEmpSeqResolved == null || salesEmpSeqResolved.isBlank()) && jdbc != null) {
                 String assigneeId = Optional.ofNullable(req.assigneeId).orElse("").trim();
@@ -156,42 +125,25 @@ public class OrdersController {
             String remarkText = remarkRaw.isEmpty() ? "요청사항:" : "요청사항:\n" + remarkRaw;
             row.put("OrderRemark", remarkText);
 
-            Map<String,Object> payload = new LinkedHashMap<>();
-            Map<String,Object> root = new LinkedHashMap<>();
-            payload.put("ROOT", root);
-            root.put("certId", certId);
-            root.put("certKey", certKey);
-            root.put("dsn", dsn);
-            root.put("dsnOper", dsnOper);
-            root.put("dsnBis", dsnBis);
-            root.put("companySeq", companySeq);
-            root.put("languageSeq", languageSeq);
-            root.put("securityType", securityType);
-            root.put("userId", Optional.ofNullable(req.createdBy).orElse(""));
-            Map<String,Object> data = new LinkedHashMap<>();
-            root.put("data", data);
-            Map<String,Object> dataRoot = new LinkedHashMap<>();
-            data.put("ROOT", dataRoot);
-            List<Map<String,Object>> dataBlock1 = new ArrayList<>();
-            dataRoot.put("DataBlock1", dataBlock1);
-            dataBlock1.add(row);
-            Map<String,Object> slackPayload = new LinkedHashMap<>();
-            slackPayload.put("orderNo", orderTextNo);
-            slackPayload.put("companyCode", companyCode);
-            slackPayload.put("customerName", Optional.ofNullable(req.customerName).orElse(""));
-            slackPayload.put("createdBy", Optional.ofNullable(req.createdBy).orElse(""));
-            slackPayload.put("regionGroup", Optional.ofNullable(req.regionGroup).orElse(""));
-            slackPayload.put("orderText", orderText);
-            slackPayload.put("orderRemark", remarkText);
-            slackPayload.put("requestDate", Optional.ofNullable(req.deliveryDueDate).orElse(""));
-            Map<String,Object> debugPayload = new LinkedHashMap<>();
-            debugPayload.put("apiUrl", apiUrl);
-            debugPayload.put("erpPayload", payload);
-            debugPayload.put("orderTextNo", orderTextNo);
-            debugPayload.put("orderText", orderText);
-            debugPayload.put("orderRemark", remarkText);
-            debugPayload.put("slackPayload", slackPayload);
+            // Slack 알림 인자 (outbox 저장, 동기 전송, debug 응답 공용)
+            Map<String,Object> slackArgs = new LinkedHashMap<>();
+            slackArgs.put("orderNo", orderTextNo);
+            slackArgs.put("companyCode", companyCode);
+            slackArgs.put("customerName", Optional.ofNullable(req.customerName).orElse(""));
+            slackArgs.put("createdBy", Optional.ofNullable(req.createdBy).orElse(""));
+            slackArgs.put("regionGroup", Optional.ofNullable(req.regionGroup).orElse(""));
+            slackArgs.put("orderText", orderText);
+            slackArgs.put("requests", Optional.ofNullable(req.requests).orElse(""));
+            slackArgs.put("requestDate", Optional.ofNullable(req.deliveryDueDate).orElse(""));
             if (debugMode) {
+                // 전송하지 않고 보낼 내용만 돌려줌
+                Map<String,Object> debugPayload = new LinkedHashMap<>();
+                debugPayload.put("apiUrl", erpClient.apiUrl(companyCode));
+                debugPayload.put("erpPayload", erpClient.buildPayload(companyCode, req.createdBy, row));
+                debugPayload.put("orderTextNo", orderTextNo);
+                debugPayload.put("orderText", orderText);
+                debugPayload.put("orderRemark", remarkText);
+                debugPayload.put("slackPayload", slackArgs);
                 return ResponseEntity.ok(Map.of(
                         "debug", true,
                         "debugPayload", debugPayload,
@@ -199,44 +151,54 @@ public class OrdersController {
                 ));
             }
 
-            RestTemplate rt = new RestTemplate();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            HttpEntity<Map<String,Object>> entity = new HttpEntity<>(payload, headers);
-            ResponseEntity<Map> resp = rt.postForEntity(apiUrl, entity, Map.class);
+            // 기본: outbox에 넣고 바로 응답 (ERP 전송/재시도/Slack 알림은 OrderOutboxService가 백그라운드로 처리)
+            if (outbox != null && outbox.isEnabled()) {
+                OrderOutboxService.Enqueued queued = outbox.enqueue(orderTextNo, companyCode, req.createdBy, row, slackArgs);
+                if (queued.conflict()) {
+                    // 같은 번호로 다른 주문이 이미 접수됨 (일련번호 리셋/폴백 등) → 번호를 새로 받아 다시 요청해야 함
+                    Map<String,Object> conflict = new LinkedHashMap<>();
+                    conflict.put("error", "order_text_no_conflict");
+                    conflict.put("orderTextNo", orderTextNo);
+                    conflict.put("message", "이미 다른 주문에 사용된 수주장번호입니다. 번호를 새로 받아 다시 전송하세요.");
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(conflict);
+                }
+                Map<String,Object> result = new LinkedHashMap<>();
+                result.put("queued", true);
+                result.put("duplicate", queued.duplicate());
+                result.put("orderTextNo", orderTextNo);
+                result.put("outboxId", queued.id());
+                result.put("outboxStatus", queued.status());
+                result.put("statusUrl", "/api/v1/orders/outbox/" + orderTextNo);
+                return ResponseEntity.status(queued.duplicate() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(result);
+            }
 
-            Map<?,?> body = resp.getBody();
+            // outbox 미사용(nodb, V23 미적용, app.orders.outbox.enabled=false): 동기 전송
+            ErpOrderClient.Result resp = erpClient.send(companyCode, req.createdBy, row);
+            Map<?,?> body = resp.body();
             Map<String,Object> result = new LinkedHashMap<>();
-            result.put("status", resp.getStatusCode().value());
-            result.put("ok", resp.getStatusCode().is2xxSuccessful());
-            result.put("url", apiUrl);
-            result.put("sendPayload", payload);
+            result.put("status", resp.status());
+            result.put("ok", resp.ok());
+            result.put("url", resp.url());
+            result.put("sendPayload", resp.sendPayload());
             if (body != null) result.put("receivedPayload", body);
-            // Try to extract ROOT.DataBlock1.Status/Results
-            try {
-                Object rRoot = ((Map<?,?>) body.get("ROOT")).get("DataBlock1");
-                if (rRoot instanceof Map<?,?> rr) {
-                    result.put("externalStatus", rr.get("Status"));
-                    result.put("externalResults", rr.get("Results"));
-                }
-            } catch (Exception ignore) {}
+            if (resp.externalStatus() != null || resp.externalResults() != null) {
+                result.put("externalStatus", resp.externalStatus());
+                result.put("externalResults", resp.externalResults());
+            }
 
             // Also send Slack notification using copy-format when API call succeeded (best effort)
             boolean slackOk = false;
             try {
-                if (resp.getStatusCode().is2xxSuccessful() && slackService != null) {
-                    String regionGroupVal = Optional.ofNullable(req.regionGroup).orElse("");
-                    String createdByVal = Optional.ofNullable(req.createdBy).orElse("");
+                if (resp.ok() && slackService != null) {
                     slackOk = slackService.sendOrderCopyFormat(
-                            orderTextNo,
-                            companyCode,
-                            Optional.ofNullable(req.customerName).orElse(""),
-                            createdByVal,
-                            regionGroupVal,
-                            orderText,
-                            Optional.ofNullable(req.requests).orElse(""),
-                            Optional.ofNullable(req.deliveryDueDate).orElse("")
+                            (String) slackArgs.get("orderNo"),
+                            (String) slackArgs.get("companyCode"),
+                            (String) slackArgs.get("customerName"),
+                            (String) slackArgs.get("createdBy"),
+                            (String) slackArgs.get("regionGroup"),
+                            (String) slackArgs.get("orderText"),
+                            (String) slackArgs.get("requests"),
+                            (String) slackArgs.get("requestDate")
                     );
                 }
             } catch (Exception e) {
@@ -244,13 +206,60 @@ public class OrdersController {
                 slackOk = false;
             }
             result.put("slackOk", slackOk);
-            return ResponseEntity.status(resp.getStatusCode()).body(result);
+            return ResponseEntity.status(resp.status()).body(result);
         } catch (Exception e) {
             log.error("[Orders.create] failed: {}", e.toString());
             return ResponseEntity.status(500).body(Map.of("error","order_create_failed","message", e.getMessage()));
         }
     }
 
+    /**
+     * outbox 요약 (상태별 건수, 가장 오래된 대기 건, 전송 중 건수)
+     * GET /api/v1/orders/outbox
+     */
+    @GetMapping("/outbox")
+    public ResponseEntity<?> outboxSummary() {
+        if (outbox == null || !outbox.isEnabled()) return ResponseEntity.ok(Map.of("enabled", false));
+        try {
+            return ResponseEntity.ok(outbox.summary());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "outbox_query_failed", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * 주문 1건 ERP 전송 상태 (접수 응답의 statusUrl)
+     * GET /api/v1/orders/outbox/{orderTextNo}
+     */
+    @GetMapping("/outbox/{orderTextNo}")
+    public ResponseEntity<?> outboxStatus(@PathVariable("orderTextNo") String orderTextNo) {
+        if (outbox == null || !outbox.isEnabled()) return ResponseEntity.status(404).body(Map.of("error", "outbox_disabled"));
+        try {
+            Map<String,Object> st = outbox.status(orderTextNo);
+            if (st == null) return ResponseEntity.status(404).body(Map.of("error", "not_found", "orderTextNo", orderTextNo));
+            return ResponseEntity.ok(st);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "outbox_query_failed", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * FAILED 건 재전송
+     * POST /api/v1/orders/outbox/{orderTextNo}/retry
+     */
+    @PostMapping("/outbox/{orderTextNo}/retry")
+    public ResponseEntity<?> retryOutbox(@PathVariable("orderTextNo") String orderTextNo) {
+        if (outbox == null || !outbox.isEnabled()) return ResponseEntity.status(404).body(Map.of("error", "outbox_disabled"));
+        try {
+            if (!outbox.retry(orderTextNo)) {
+                return ResponseEntity.status(409).body(Map.of("error", "not_failed", "orderTextNo", orderTextNo));
+            }
+            return ResponseEntity.ok(Map.of("orderTextNo", orderTextNo, "status", "PENDING"));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "outbox_retry_failed", "message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/next-order-text-no")
     public ResponseEntity<?> nextOrderTextNo(
             @RequestParam(name = "companyCode", required = false) String companyCode,
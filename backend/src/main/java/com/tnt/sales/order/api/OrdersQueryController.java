@@ -1,7 +1,12 @@
 package com.tnt.sales.order.api;
 
+import com.tnt.sales.customer.service.CustomerDirectory;
+import com.tnt.sales.order.service.OrderEnrichmentLookup;
+import com.tnt.sales.order.service.OrderEnrichmentLookup.CustomerInfo;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,6 +15,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -20,12 +30,48 @@ public class OrdersQueryController {
 
     private final JdbcTemplate mssql;
     private final JdbcTemplate pg;
+    private final CustomerDirectory customerDirectory;
+    private final OrderEnrichmentLookup enrichmentLookup;
+    // company=ALL 에서 TNT/DYS 동시 조회 용 (DB 동시성은 커넥션 제한기가 담당)
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+    // DB별로 성공한 날짜 컬럼/ORDER BY 변형 (다음 요청부터 먼저 시도)
+    private final Map<String, QueryVariant> queryVariants = new ConcurrentHashMap<>();
+
+    private static final String[] DATE_COL_VARIANTS = { "OrderTextDate", "OrderTextDat", "LastDateTime" };
+    private static final String[] ORDER_VARIANTS = {
+            "ORDER BY LastDateTime DESC",
+            "ORDER BY OrderTextDate DESC, OrderTextNo DESC",
+            "ORDER BY OrderTextDat DESC, OrderTextNoe DESC",
+            "ORDER BY OrderTextNo DESC",
+            ""
+    };
+    // ALL 병합 순서: LastDateTime DESC, null은 마지막
+    private static final Comparator<Map<String, Object>> LAST_DATE_TIME_DESC = (a, b) -> {
+        Object aDate = a.get("LastDateTime");
+        Object bDate = b.get("LastDateTime");
+        if (aDate == null && bDate == null) return 0;
+        if (aDate == null) return 1;
+        if (bDate == null) return -1;
+        // Compare as strings (descending)
+        return String.valueOf(bDate).compareTo(String.valueOf(aDate));
+    };
+
+    private record QueryVariant(String dateCol, String order) { }
 
     @Autowired
     public OrdersQueryController(@Qualifier("mssqlJdbcTemplate") JdbcTemplate mssql,
-                                 @Qualifier("pgJdbcTemplate") JdbcTemplate pg) {
+                                 @Qualifier("pgJdbcTemplate") JdbcTemplate pg,
+                                 CustomerDirectory customerDirectory,
+                                 OrderEnrichmentLookup enrichmentLookup) {
         this.mssql = mssql;
         this.pg = pg;
+        this.customerDirectory = customerDirectory;
+        this.enrichmentLookup = enrichmentLookup;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fanOut.shutdownNow();
     }
 
     /**
@@ -186,13 +232,18 @@ public class OrdersQueryController {
                 }
             }
 
-            // Query both TNT and DYS with their respective emp_seq and custSeq filters
-            List<Map<String, Object>> tntRows = (tntCustSeqFilter == null || !tntCustSeqFilter.isEmpty())
-                    ? queryCompanyData("TNT", from, to, tntSalesEmpSeq, tntCustSeqFilter, 0, limit * 2)
-                    : new ArrayList<>();
-            List<Map<String, Object>> dysRows = (dysCustSeqFilter == null || !dysCustSeqFilter.isEmpty())
-                    ? queryCompanyData("DYS", from, to, dysSalesEmpSeq, dysCustSeqFilter, 0, limit * 2)
-                    : new ArrayList<>();
+            // 병합 결과의 offset+limit 구간을 채우려면 회사별로 상위 offset+limit 행이면 충분 → 두 DB를 동시에 조회
+            int fetch = offset + limit;
+            Set<Long> tntFilter = tntCustSeqFilter;
+            Set<Long> dysFilter = dysCustSeqFilter;
+            CompletableFuture<List<Map<String, Object>>> tntFuture = (tntFilter == null || !tntFilter.isEmpty())
+                    ? CompletableFuture.supplyAsync(() -> queryCompanyData("TNT", from, to, tntSalesEmpSeq, tntFilter, 0, fetch), fanOut)
+                    : CompletableFuture.completedFuture(new ArrayList<>());
+            CompletableFuture<List<Map<String, Object>>> dysFuture = (dysFilter == null || !dysFilter.isEmpty())
+                    ? CompletableFuture.supplyAsync(() -> queryCompanyData("DYS", from, to, dysSalesEmpSeq, dysFilter, 0, fetch), fanOut)
+                    : CompletableFuture.completedFuture(new ArrayList<>());
+            List<Map<String, Object>> tntRows = tntFuture.join();
+            List<Map<String, Object>> dysRows = dysFuture.join();
 
             // Add CompanyType field to distinguish rows
             for (Map<String, Object> row : tntRows) {
@@ -202,26 +253,10 @@ public class OrdersQueryController {
                 row.put("CompanyType", "DYS");
             }
 
-            // Combine and sort by LastDateTime DESC
-            List<Map<String, Object>> combined = new ArrayList<>();
-            combined.addAll(tntRows);
-            combined.addAll(dysRows);
-
-            // Sort by LastDateTime DESC (try to find the date field)
-            combined.sort((a, b) -> {
-                Object aDate = a.get("LastDateTime");
-                Object bDate = b.get("LastDateTime");
-                if (aDate == null && bDate == null) return 0;
-                if (aDate == null) return 1;
-                if (bDate == null) return -1;
-                // Compare as strings (descending)
-                return String.valueOf(bDate).compareTo(String.valueOf(aDate));
-            });
-
-            // Apply offset and limit
-            int start = Math.min(offset, combined.size());
-            int end = Math.min(start + limit, combined.size());
-            List<Map<String, Object>> paged = combined.subList(start, end);
+            // LastDateTime 변형으로 조회됐으면 이미 정렬돼 있어 sort는 확인만 하고 끝남 → offset만큼 건너뛰며 limit건 병합
+            tntRows.sort(LAST_DATE_TIME_DESC);
+            dysRows.sort(LAST_DATE_TIME_DESC);
+            List<Map<String, Object>> paged = mergeSorted(List.of(tntRows, dysRows), LAST_DATE_TIME_DESC, offset, limit);
 
             // Enrich with PG data (we need to handle both TNT and DYS)
             List<Map<String, Object>> enriched = enrichWithPgUnion(paged);
@@ -241,15 +276,13 @@ public class OrdersQueryController {
      * Query single company database
      */
     private List<Map<String, Object>> queryCompanyData(String db, LocalDate from, LocalDate to, Long salesEmpSeq, Set<Long> custSeqFilter, int offset, int limit) {
-        // 날짜 필터용 컬럼명 변형 시도
-        String[] dateColVariants = new String[] { "OrderTextDate", "OrderTextDat", "LastDateTime" };
-        String[] orderVariants = new String[] {
-                "ORDER BY LastDateTime DESC",
-                "ORDER BY OrderTextDate DESC, OrderTextNo DESC",
-                "ORDER BY OrderTextDat DESC, OrderTextNoe DESC",
-                "ORDER BY OrderTextNo DESC",
-                ""
-        };
+        // 날짜 컬럼/ORDER BY 변형 시도 (이 DB에서 성공했던 변형을 먼저, 날짜 필터가 없으면 날짜 컬럼 변형은 무의미)
+        boolean hasDateFilter = from != null || to != null;
+        QueryVariant cached = queryVariants.get(db);
+        String[] dateColVariants = hasDateFilter
+                ? preferFirst(DATE_COL_VARIANTS, cached == null ? null : cached.dateCol())
+                : new String[] { null };
+        String[] orderVariants = preferFirst(ORDER_VARIANTS, cached == null ? null : cached.order());
 
         for (String dateCol : dateColVariants) {
             for (String ord : orderVariants) {
@@ -282,17 +315,67 @@ public class OrdersQueryController {
                     args.add(offset);
                     args.add(limit);
 
-                    return mssql.queryForList(sql, args.toArray());
-                } catch (Exception ignored) {
+                    List<Map<String, Object>> rows = mssql.queryForList(sql, args.toArray());
+                    queryVariants.put(db, new QueryVariant(hasDateFilter ? dateCol : (cached == null ? null : cached.dateCol()), ord));
+                    return rows;
+                } catch (DataAccessException e) {
+                    // 이 DB에 없는 컬럼일 때만 다음 변형으로 (타임아웃/커넥션 제한 등은 변형을 바꾸지 않고 그대로 실패)
+                    if (!isInvalidColumn(e)) throw e;
                 }
             }
         }
-        return new ArrayList<>();
+        throw new IllegalStateException("no tnt_TSLOrderText query variant matches the " + db + " schema");
+    }
+
+    /**
+     * SQL Server 207 (Invalid column name) 여부
+     */
+    private static boolean isInvalidColumn(Throwable e) {
+        for (Throwable t = e; t != null && t.getCause() != t; t = t.getCause()) {
+            if (t instanceof SQLException sql && sql.getErrorCode() == 207) return true;
+        }
+        return false;
+    }
+
+    /**
+     * preferred가 variants에 있으면 맨 앞으로 옮긴 배열, 아니면 variants 그대로
+     */
+    private static String[] preferFirst(String[] variants, String preferred) {
+        if (preferred == null || variants[0].equals(preferred) || !Arrays.asList(variants).contains(preferred)) return variants;
+        List<String> out = new ArrayList<>(variants.length);
+        out.add(preferred);
+        for (String v : variants) {
+            if (!v.equals(preferred)) out.add(v);
+        }
+        return out.toArray(new String[0]);
+    }
+
+    /**
+     * 정렬된 목록들의 k-way 병합: 앞에서 offset건을 건너뛰고 limit건만 만든다 (동순위는 앞 목록 우선)
+     */
+    private static List<Map<String, Object>> mergeSorted(List<List<Map<String, Object>>> sources,
+                                                         Comparator<Map<String, Object>> cmp, int offset, int limit) {
+        int[] pos = new int[sources.size()];
+        List<Map<String, Object>> out = new ArrayList<>(limit);
+        int skipped = 0;
+        while (out.size() < limit) {
+            int best = -1;
+            for (int k = 0; k < sources.size(); k++) {
+                if (pos[k] >= sources.get(k).size()) continue;
+                if (best < 0 || cmp.compare(sources.get(k).get(pos[k]), sources.get(best).get(pos[best])) < 0) best = k;
+            }
+            if (best < 0) break;
+            Map<String, Object> row = sources.get(best).get(pos[best]++);
+            if (skipped < offset) skipped++;
+            else out.add(row);
+        }
+        return out;
     }
 
     /**
      * PostgreSQL에서 거래처명으로 customer_seq 목록 조회 (company_type별로 분리)
      * 토큰 기반 AND 검색 (모든 토큰이 포함된 거래처만 반환)
+     * 거래처 디렉터리가 적재돼 있으면 DB 조회 없이 메모리 색인에서 찾는다.
      * @return Map with keys "TNT" and "DYS", each containing Set<Long> of customer_seq
      */
     private Map<String, Set<Long>> findCustomerSeqsByNameByCompany(String custName) {
@@ -304,6 +387,16 @@ public class OrdersQueryController {
             return result;
         }
 
+        // 디렉터리에 없으면(갱신 전 신규 거래처일 수 있음) DB 조회
+        if (customerDirectory.isReady()) {
+            Map<String, Set<Long>> found = customerDirectory.seqsByCompany(custName.trim().split("\\s+"));
+            if (!found.isEmpty()) {
+                result.get("TNT").addAll(found.getOrDefault("TNT", Set.of()));
+                result.get("DYS").addAll(found.getOrDefault("DYS", Set.of()));
+                return result;
+            }
+        }
+
         try {
             // 토큰으로 분리하여 LIKE 조건 생성
             String[] tokens = custName.trim().toLowerCase().split("\\s+");
@@ -388,58 +481,11 @@ public class OrdersQueryController {
             }
         }
 
-        // Build customer map
-        Map<Long, String> custMap = new HashMap<>();
-        Map<Long, String> regionGroupMap = new HashMap<>();
-        if (!custIds.isEmpty()) {
-            String in = joinIds(custIds);
-            try {
-                String sql = "SELECT customer_seq, customer_name, addr_province_name, addr_city_name FROM public.customer WHERE customer_seq IN " + in;
-                pg.query(sql, rs -> {
-                    long id = rs.getLong("customer_seq");
-                    String name = rs.getString("customer_name");
-                    String province = rs.getString("addr_province_name");
-                    String city = rs.getString("addr_city_name");
-                    custMap.put(id, name);
-
-                    List<String> parts = new ArrayList<>();
-                    if (province != null && !province.trim().isEmpty()) parts.add(province.trim());
-                    if (city != null && !city.trim().isEmpty()) parts.add(city.trim());
-                    String regionGroup = String.join(" ", parts);
-                    if (!regionGroup.isEmpty()) regionGroupMap.put(id, regionGroup);
-                });
-            } catch (Exception ignore) {
-            }
-        }
-
-        // Build employee maps for both TNT and DYS
-        Map<Long, String> tntEmpMap = new HashMap<>();
-        if (!tntEmpSeqs.isEmpty()) {
-            String in = joinIds(tntEmpSeqs);
-            try {
-                String sql = "SELECT emp_name, tnt_emp_seq FROM public.employee WHERE tnt_emp_seq IN " + in;
-                pg.query(sql, rs -> {
-                    long id = rs.getLong("tnt_emp_seq");
-                    String name = rs.getString("emp_name");
-                    tntEmpMap.put(id, name);
-                });
-            } catch (Exception ignore) {
-            }
-        }
-
-        Map<Long, String> dysEmpMap = new HashMap<>();
-        if (!dysEmpSeqs.isEmpty()) {
-            String in = joinIds(dysEmpSeqs);
-            try {
-                String sql = "SELECT emp_name, dys_emp_seq FROM public.employee WHERE dys_emp_seq IN " + in;
-                pg.query(sql, rs -> {
-                    long id = rs.getLong("dys_emp_seq");
-                    String name = rs.getString("emp_name");
-                    dysEmpMap.put(id, name);
-                });
-            } catch (Exception ignore) {
-            }
-        }
+        // 거래처/담당자 정보는 캐시 조회 (캐시에 없는 키만 페이지당 = ANY(?) 한 번)
+        Map<Long, CustomerInfo> custMap = enrichmentLookup.customers(custIds);
+        Map<String, Map<Long, String>> empNames = enrichmentLookup.employeeNames(tntEmpSeqs, dysEmpSeqs);
+        Map<Long, String> tntEmpMap = empNames.get("TNT");
+        Map<Long, String> dysEmpMap = empNames.get("DYS");
 
         // Replace values in rows
         List<Map<String, Object>> out = new ArrayList<>(rows.size());
@@ -453,10 +499,10 @@ public class OrdersQueryController {
 
                 if ("CustSeq".equalsIgnoreCase(k)) {
                     Long id = readLong(r, k);
-                    String name = (id != null) ? custMap.get(id) : null;
-                    m.put(e.getKey(), name != null ? name : v);
-                    if (id != null && regionGroupMap.containsKey(id)) {
-                        m.put("RegionGroup", regionGroupMap.get(id));
+                    CustomerInfo cust = (id != null) ? custMap.get(id) : null;
+                    m.put(e.getKey(), cust != null && cust.name() != null ? cust.name() : v);
+                    if (cust != null && cust.regionGroup() != null) {
+                        m.put("RegionGroup", cust.regionGroup());
                     }
                 } else if ("SalesEmpSeq".equalsIgnoreCase(k)) {
                     Long id = readLong(r, k);
@@ -508,46 +554,11 @@ public class OrdersQueryController {
             Long s = readLong(r, "SalesEmpSeq");
             if (s != null) empSeqs.add(s);
         }
-        // Build maps from PG (including company_type)
-        Map<Long,String> custMap = new HashMap<>();
-        Map<Long,String> regionGroupMap = new HashMap<>();
-        Map<Long,String> custCompanyTypeMap = new HashMap<>();
-        if (!custIds.isEmpty()) {
-            String in = joinIds(custIds);
-            try {
-                String sql = "SELECT customer_seq, customer_name, addr_province_name, addr_city_name, UPPER(company_type) AS company_type FROM public.customer WHERE customer_seq IN " + in;
-                pg.query(sql, rs -> {
-                    long id = rs.getLong("customer_seq");
-                    String name = rs.getString("customer_name");
-                    String province = rs.getString("addr_province_name");
-                    String city = rs.getString("addr_city_name");
-                    String companyType = rs.getString("company_type");
-                    custMap.put(id, name);
-                    if (companyType != null && !companyType.trim().isEmpty()) {
-                        custCompanyTypeMap.put(id, companyType.trim().toUpperCase());
-                    }
-                    // Build region group from province and city
-                    List<String> parts = new ArrayList<>();
-                    if (province != null && !province.trim().isEmpty()) parts.add(province.trim());
-                    if (city != null && !city.trim().isEmpty()) parts.add(city.trim());
-                    String regionGroup = String.join(" ", parts);
-                    if (!regionGroup.isEmpty()) regionGroupMap.put(id, regionGroup);
-                });
-            } catch (Exception ignore) {}
-        }
-        Map<Long,String> empMap = new HashMap<>();
-        if (!empSeqs.isEmpty()) {
-            String in = joinIds(empSeqs);
-            String col = "DYS".equalsIgnoreCase(db) ? "dys_emp_seq" : "tnt_emp_seq";
-            try {
-                String sql = "SELECT emp_name, " + col + " AS emp_seq FROM public.employee WHERE " + col + " IN " + in;
-                pg.query(sql, rs -> {
-                    long id = rs.getLong("emp_seq");
-                    String name = rs.getString("emp_name");
-                    empMap.put(id, name);
-                });
-            } catch (Exception ignore) {}
-        }
+        // 거래처(company_type 포함)/담당자 정보는 캐시 조회
+        Map<Long, CustomerInfo> custMap = enrichmentLookup.customers(custIds);
+        Map<Long,String> empMap = "DYS".equalsIgnoreCase(db)
+                ? enrichmentLookup.employeeNames(Set.of(), empSeqs).get("DYS")
+                : enrichmentLookup.employeeNames(empSeqs, Set.of()).get("TNT");
         // Replace values in rows
         List<Map<String,Object>> out = new ArrayList<>(rows.size());
         for (Map<String,Object> r : rows) {
@@ -558,11 +569,11 @@ public class OrdersQueryController {
                 Object v = e.getValue();
                 if ("CustSeq".equalsIgnoreCase(k)) {
                     Long id = readLong(r, k);
-                    String name = (id!=null) ? custMap.get(id) : null;
-                    m.put(e.getKey(), name != null ? name : v); // replace with name
+                    CustomerInfo cust = (id!=null) ? custMap.get(id) : null;
+                    m.put(e.getKey(), cust != null && cust.name() != null ? cust.name() : v); // replace with name
                     // Add RegionGroup right after CustSeq
-                    if (id != null && regionGroupMap.containsKey(id)) {
-                        m.put("RegionGroup", regionGroupMap.get(id));
+                    if (cust != null && cust.regionGroup() != null) {
+                        m.put("RegionGroup", cust.regionGroup());
                     }
                 } else if ("SalesEmpSeq".equalsIgnoreCase(k)) {
                     Long id = readLong(r, k);
@@ -573,8 +584,9 @@ public class OrdersQueryController {
                 }
             }
             // Add CompanyType from customer's actual company_type
-            if (custId != null && custCompanyTypeMap.containsKey(custId)) {
-                m.put("CompanyType", custCompanyTypeMap.get(custId));
+            CustomerInfo custInfo = (custId != null) ? custMap.get(custId) : null;
+            if (custInfo != null && custInfo.companyType() != null) {
+                m.put("CompanyType", custInfo.companyType());
             } else {
                 // Fallback to db parameter if customer company_type not found
                 m.put("CompanyType", db);
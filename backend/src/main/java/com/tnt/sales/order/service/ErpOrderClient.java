@@ -0,0 +1,140 @@
+package com.tnt.sales.order.service;
+
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ERP 수주 저장 프로시저(tnt_SWAPIMESOrderTextSave) 호출
+ *
+ * 회사별 URL/인증 정보는 tnt.orders.api.* (DYS는 *.dys) 설정에서 읽고, DataBlock1 행만 받아 요청 본문을 조립한다.
+ * 연결/응답 타임아웃은 tnt.orders.api.connect-timeout-ms (기본 5초), read-timeout-ms (기본 30초).
+ */
+@Component
+public class ErpOrderClient {
+    private final Environment env;
+    private final RestTemplate rt;
+
+    /**
+     * 호출 결과
+     * @param ok HTTP 2xx 이고 ERP 처리 결과(externalStatus)도 성공
+     * @param externalStatus 응답 ROOT.DataBlock1.Status (없으면 null, "0"이 정상)
+     */
+    public record Result(int status, boolean ok, String url, Map<String, Object> sendPayload, Map<?, ?> body,
+                         Object externalStatus, Object externalResults) {
+
+        /**
+         * HTTP는 2xx 였지만 ERP가 저장을 거부함 (DataBlock1.Status 가 0이 아님)
+         */
+        public boolean externalFailure() {
+            return status >= 200 && status < 300 && !isExternalSuccess(externalStatus);
+        }
+    }
+
+    /**
+     * DataBlock1.Status 성공 여부 (Status 가 없는 응답은 HTTP 결과를 따름)
+     */
+    static boolean isExternalSuccess(Object externalStatus) {
+        if (externalStatus == null) return true;
+        String s = String.valueOf(externalStatus).trim();
+        return s.isEmpty() || "0".equals(s);
+    }
+
+    public ErpOrderClient(Environment env) {
+        this.env = env;
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(env.getProperty("tnt.orders.api.connect-timeout-ms", Integer.class, 5_000));
+        factory.setReadTimeout(env.getProperty("tnt.orders.api.read-timeout-ms", Integer.class, 30_000));
+        this.rt = new RestTemplate(factory);
+    }
+
+    public String apiUrl(String companyCode) {
+        if ("DYS".equals(companyCode)) {
+            return env.getProperty(
+                    "tnt.orders.api.url.dys",
+                    "http://220.73.213.73:81/Angkor.Ylw.Common.HttpExecute/RestOutsideService.svc/OpenApi/IsStoredProcedure/tnt_SWAPIMESOrderTextSave");
+        }
+        // Default TNT endpoint (no explicit :8300 port)
+        return env.getProperty(
+                "tnt.orders.api.url",
+                "http://220.73.213.73/Angkor.Ylw.Common.HttpExecute/RestOutsideService.svc/OpenApi/IsStoredProcedure/tnt_SWAPIMESOrderTextSave");
+    }
+
+    /**
+     * ERP 요청 본문 (ROOT 인증 정보 + data.ROOT.DataBlock1[row])
+     */
+    public Map<String, Object> buildPayload(String companyCode, String userId, Map<String, Object> row) {
+        boolean dys = "DYS".equals(companyCode);
+        // DYS는 certKey/certId/dsn을 별도 설정으로 덮어씀 (configurable with defaults)
+        String certId = dys ? env.getProperty("tnt.orders.api.certId.dys", "DYS_CRM")
+                : env.getProperty("tnt.orders.api.certId", "TNT_CRM");
+        String certKey = dys ? env.getProperty("tnt.orders.api.certKey.dys", "A66C1236-0FFF-4F1D-96AC-27B5839548F9")
+                : env.getProperty("tnt.orders.api.certKey", "9836164F-3601-4DBB-9D6D-54685CD89B95");
+        String dsn = dys ? env.getProperty("tnt.orders.api.dsn.dys", "dys_bis")
+                : env.getProperty("tnt.orders.api.dsn", "tnt_bis");
+        String dsnOper = dys ? env.getProperty("tnt.orders.api.dsnOper.dys", "dys_oper")
+                : env.getProperty("tnt.orders.api.dsnOper", "tnt_oper");
+        String dsnBis = dys ? env.getProperty("tnt.orders.api.dsnBis.dys", "dys_bis")
+                : env.getProperty("tnt.orders.api.dsnBis", "tnt_bis");
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        Map<String, Object> root = new LinkedHashMap<>();
+        payload.put("ROOT", root);
+        root.put("certId", certId);
+        root.put("certKey", certKey);
+        root.put("dsn", dsn);
+        root.put("dsnOper", dsnOper);
+        root.put("dsnBis", dsnBis);
+        root.put("companySeq", env.getProperty("tnt.orders.api.companySeq", "1"));
+        root.put("languageSeq", Integer.parseInt(env.getProperty("tnt.orders.api.languageSeq", "1")));
+        root.put("securityType", Integer.parseInt(env.getProperty("tnt.orders.api.securityType", "0")));
+        root.put("userId", userId == null ? "" : userId);
+        Map<String, Object> data = new LinkedHashMap<>();
+        root.put("data", data);
+        Map<String, Object> dataRoot = new LinkedHashMap<>();
+        data.put("ROOT", dataRoot);
+        List<Map<String, Object>> dataBlock1 = new ArrayList<>();
+        dataRoot.put("DataBlock1", dataBlock1);
+        dataBlock1.add(row);
+        return payload;
+    }
+
+    /**
+     * 수주 1건 전송 (4xx/5xx는 RestClientResponseException, 연결/타임아웃은 ResourceAccessException)
+     */
+    @SuppressWarnings("rawtypes")
+    public Result send(String companyCode, String userId, Map<String, Object> row) {
+        String url = apiUrl(companyCode);
+        Map<String, Object> payload = buildPayload(companyCode, userId, row);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        ResponseEntity<Map> resp = rt.postForEntity(url, new HttpEntity<>(payload, headers), Map.class);
+
+        Map<?, ?> body = resp.getBody();
+        Object externalStatus = null;
+        Object externalResults = null;
+        // Try to extract ROOT.DataBlock1.Status/Results (DataBlock1 은 객체 또는 1행 배열)
+        try {
+            Object rRoot = ((Map<?, ?>) body.get("ROOT")).get("DataBlock1");
+            if (rRoot instanceof List<?> rows && !rows.isEmpty()) rRoot = rows.get(0);
+            if (rRoot instanceof Map<?, ?> rr) {
+                externalStatus = rr.get("Status");
+                externalResults = rr.get("Results");
+            }
+        } catch (Exception ignore) {}
+        boolean ok = resp.getStatusCode().is2xxSuccessful() && isExternalSuccess(externalStatus);
+        return new Result(resp.getStatusCode().value(), ok, url, payload, body, externalStatus, externalResults);
+    }
+}
@@ -0,0 +1,160 @@
+package com.tnt.sales.order.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 외부(MSSQL) 주문 행 보강용 거래처/담당자 조회 캐시
+ *
+ * 페이지의 customer_seq, 담당자 seq를 모아 캐시에 없는 것만 = ANY(?) 한 번으로 읽고,
+ * 결과(없는 키 포함)를 ttl(app.orders.enrich-cache.ttl-ms, 기본 60초) 동안 재사용한다.
+ * 항목 수가 max-entries(기본 20000)를 넘으면 해당 캐시를 비운다.
+ */
+@Component
+public class OrderEnrichmentLookup {
+    private static final Logger log = LoggerFactory.getLogger(OrderEnrichmentLookup.class);
+
+    /**
+     * 거래처 보강 정보
+     * @param regionGroup 시/도 + 시/군/구 (둘 다 없으면 null)
+     * @param companyType UPPER(company_type) (없으면 null)
+     */
+    public record CustomerInfo(String name, String regionGroup, String companyType) { }
+
+    private record Cached<V>(V value, long loadedAt) { }
+
+    private final JdbcTemplate jdbc;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final Map<Long, Cached<CustomerInfo>> customers = new ConcurrentHashMap<>();
+    private final Map<Long, Cached<String>> tntEmployees = new ConcurrentHashMap<>();
+    private final Map<Long, Cached<String>> dysEmployees = new ConcurrentHashMap<>();
+
+    public OrderEnrichmentLookup(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc, Environment env) {
+        this.jdbc = jdbc;
+        this.ttlMs = env.getProperty("app.orders.enrich-cache.ttl-ms", Long.class, 60_000L);
+        this.maxEntries = env.getProperty("app.orders.enrich-cache.max-entries", Integer.class, 20_000);
+    }
+
+    /**
+     * customer_seq → 거래처 정보 (없는 seq는 결과에 없음)
+     */
+    public Map<Long, CustomerInfo> customers(Collection<Long> customerSeqs) {
+        long now = System.currentTimeMillis();
+        Map<Long, CustomerInfo> out = new HashMap<>();
+        List<Long> missing = collect(customers, customerSeqs, now, out);
+        if (missing.isEmpty()) return out;
+
+        Map<Long, CustomerInfo> loaded = new HashMap<>();
+        try {
+            jdbc.query("SELECT customer_seq, customer_name, addr_province_name, addr_city_name, UPPER(company_type) AS company_type " +
+                            "FROM public.customer WHERE customer_seq = ANY(?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", missing.toArray())),
+                    rs -> {
+                        List<String> parts = new ArrayList<>();
+                        String province = rs.getString("addr_province_name");
+                        String city = rs.getString("addr_city_name");
+                        if (province != null && !province.trim().isEmpty()) parts.add(province.trim());
+                        if (city != null && !city.trim().isEmpty()) parts.add(city.trim());
+                        String regionGroup = String.join(" ", parts);
+                        String companyType = rs.getString("company_type");
+                        loaded.put(rs.getLong("customer_seq"), new CustomerInfo(rs.getString("customer_name"),
+                                regionGroup.isEmpty() ? null : regionGroup,
+                                companyType == null || companyType.trim().isEmpty() ? null : companyType.trim()));
+                    });
+        } catch (Exception e) {
+            // 조회 실패는 캐시하지 않음 (보강 없이 원래 값 사용)
+            log.warn("[OrderEnrichment] customer lookup failed: {}", e.toString());
+            return out;
+        }
+        store(customers, missing, loaded, now);
+        out.putAll(loaded);
+        return out;
+    }
+
+    /**
+     * 회사별 담당자 seq(tnt_emp_seq / dys_emp_seq) → 담당자명, 두 회사를 한 번에 조회
+     * @return "TNT", "DYS" 키별 seq → emp_name
+     */
+    public Map<String, Map<Long, String>> employeeNames(Collection<Long> tntEmpSeqs, Collection<Long> dysEmpSeqs) {
+        long now = System.currentTimeMillis();
+        Map<Long, String> tnt = new HashMap<>();
+        Map<Long, String> dys = new HashMap<>();
+        List<Long> tntMissing = collect(tntEmployees, tntEmpSeqs, now, tnt);
+        List<Long> dysMissing = collect(dysEmployees, dysEmpSeqs, now, dys);
+        if (!tntMissing.isEmpty() || !dysMissing.isEmpty()) {
+            Map<Long, String> tntLoaded = new HashMap<>();
+            Map<Long, String> dysLoaded = new HashMap<>();
+            Set<Long> tntWanted = new HashSet<>(tntMissing);
+            Set<Long> dysWanted = new HashSet<>(dysMissing);
+            try {
+                jdbc.query("SELECT emp_name, tnt_emp_seq, dys_emp_seq FROM public.employee " +
+                                "WHERE tnt_emp_seq = ANY(?) OR dys_emp_seq = ANY(?)",
+                        ps -> {
+                            ps.setArray(1, ps.getConnection().createArrayOf("bigint", tntMissing.toArray()));
+                            ps.setArray(2, ps.getConnection().createArrayOf("bigint", dysMissing.toArray()));
+                        },
+                        rs -> {
+                            String name = rs.getString("emp_name");
+                            long t = rs.getLong("tnt_emp_seq");
+                            if (!rs.wasNull() && tntWanted.contains(t)) tntLoaded.put(t, name);
+                            long d = rs.getLong("dys_emp_seq");
+                            if (!rs.wasNull() && dysWanted.contains(d)) dysLoaded.put(d, name);
+                        });
+                store(tntEmployees, tntMissing, tntLoaded, now);
+                store(dysEmployees, dysMissing, dysLoaded, now);
+                tnt.putAll(tntLoaded);
+                dys.putAll(dysLoaded);
+            } catch (Exception e) {
+                log.warn("[OrderEnrichment] employee lookup failed: {}", e.toString());
+            }
+        }
+        Map<String, Map<Long, String>> out = new HashMap<>();
+        out.put("TNT", tnt);
+        out.put("DYS", dys);
+        return out;
+    }
+
+    public void invalidate() {
+        customers.clear();
+        tntEmployees.clear();
+        dysEmployees.clear();
+    }
+
+    /**
+     * 유효한 캐시 값은 out에 담고, 없거나 만료된 키 목록을 반환 (keys는 중복 없는 집합)
+     */
+    private <V> List<Long> collect(Map<Long, Cached<V>> cache, Collection<Long> keys, long now, Map<Long, V> out) {
+        List<Long> missing = new ArrayList<>();
+        for (Long key : keys) {
+            if (key == null) continue;
+            Cached<V> c = cache.get(key);
+            if (c == null || now - c.loadedAt() >= ttlMs) missing.add(key);
+            else if (c.value() != null) out.put(key, c.value());
+        }
+        return missing;
+    }
+
+    /**
+     * 조회한 키 전체를 캐시 (찾지 못한 키는 null 값으로 기록해 반복 조회 방지)
+     */
+    private <V> void store(Map<Long, Cached<V>> cache, List<Long> requested, Map<Long, V> loaded, long now) {
+        if (cache.size() + requested.size() > maxEntries) cache.clear();
+        for (Long key : requested) {
+            cache.put(key, new Cached<>(loaded.get(key), now));
+        }
+    }
+}
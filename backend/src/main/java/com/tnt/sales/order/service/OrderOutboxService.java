@@ -0,0 +1,442 @@
+package com.tnt.sales.order.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.slack.service.SlackService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ERP 수주 전송 outbox
+ *
+ * POST /api/v1/orders 는 order_outbox(V23)에 DataBlock1 행을 넣고 바로 응답하고, 전송은 이 서비스가 백그라운드에서 한다.
+ * - 멱등: order_text_no UNIQUE, 같은 번호·같은 내용(erp_row_hash)으로 다시 접수하면 기존 행을 돌려주고,
+ *   같은 번호에 다른 내용이면 conflict로 거절한다 (번호 재발급 필요)
+ * - 동시성: 전송 중 건수를 concurrency(기본 4) 이하로 유지, 빈 자리만큼만 FOR UPDATE SKIP LOCKED로 가져온다
+ * - 재시도: 5xx/408/429/연결 실패는 backoff-ms * 2^(시도-1) (max-backoff-ms 상한, 0~20% 지터) 뒤 재전송,
+ *   그 밖의 4xx이거나 max-attempts를 넘으면 FAILED. HTTP 2xx라도 ERP 응답 DataBlock1.Status가 0이 아니면
+ *   (ERP가 저장을 거부) 같은 내용으로 다시 보내도 결과가 같으므로 재시도 없이 FAILED
+ * - 요청을 보낸 뒤의 오류(응답 타임아웃 등)는 ERP가 저장했는지 알 수 없으므로 outcome_unknown으로 두고,
+ *   verify-delay-ms(기본 2분) 이후 다음 시도에서 MSSQL &lt;DB&gt;.dbo.tnt_TSLOrderText에 OrderTextNo가 있으면 SENT,
+ *   없을 때만 다시 보낸다 (조회 실패 시 보내지 않고 다음 시도로 미룸)
+ * - 전송 중 프로세스가 죽으면 lease-ms 뒤 다른 폴링이 다시 가져가며, 이때도 결과 미확인으로 보고 ERP를 먼저 확인한다
+ * 전송 성공 시 Slack 알림은 기존과 같이 best effort.
+ * <pre>
+ * app.orders.outbox.enabled (기본 true), poll-ms (기본 2초), concurrency, max-attempts (기본 8),
+ * backoff-ms (기본 5초), max-backoff-ms (기본 10분), lease-ms (기본 60초), verify-delay-ms (기본 2분)
+ * </pre>
+ */
+@Service
+public class OrderOutboxService {
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxService.class);
+    private static final String TABLE = "public.order_outbox";
+
+    /**
+     * 접수 결과
+     * @param duplicate 같은 order_text_no·같은 내용이 이미 있어 새로 넣지 않음
+     * @param conflict 같은 order_text_no에 다른 내용이 이미 있음 (넣지 않음)
+     */
+    public record Enqueued(long id, String orderTextNo, String status, boolean duplicate, boolean conflict) { }
+
+    record Claimed(long id, String orderTextNo, String companyCode, String userId,
+                           String erpRow, String slackPayload, int attempts, boolean outcomeUnknown) { }
+
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate mssql;
+    private final Environment env;
+    private final QueryConfigHelper configHelper;
+    private final SchemaMetadataService schemaMetadata;
+    private final ErpOrderClient erpClient;
+    private final ObjectProvider<SlackService> slackService;
+    private final ObjectMapper objectMapper;
+
+    // 전송 작업 용 (동시 건수는 inFlight로 제한)
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean kickPending = new AtomicBoolean();
+
+    public OrderOutboxService(@Qualifier("pgJdbcTemplate") JdbcTemplate jdbc,
+                              @Qualifier("mssqlJdbcTemplate") JdbcTemplate mssql, Environment env,
+                              QueryConfigHelper configHelper, SchemaMetadataService schemaMetadata,
+                              ErpOrderClient erpClient, ObjectProvider<SlackService> slackService,
+                              ObjectMapper objectMapper) {
+        this.jdbc = jdbc;
+        this.mssql = mssql;
+        this.env = env;
+        this.configHelper = configHelper;
+        this.schemaMetadata = schemaMetadata;
+        this.erpClient = erpClient;
+        this.slackService = slackService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * outbox 사용 여부 (nodb 프로필이거나 V23이 적용되지 않았으면 기존 동기 전송)
+     */
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(env.getProperty("app.orders.outbox.enabled", "true"))
+                && !configHelper.isNoDbProfile()
+                && schemaMetadata.tableExists(TABLE);
+    }
+
+    /**
+     * 수주 접수 (order_text_no + 내용 해시 기준 멱등)
+     * @param erpRow DataBlock1 행
+     * @param slackPayload 전송 성공 후 Slack 알림 인자 (orderNo, companyCode, customerName, createdBy, regionGroup,
+     *                     orderText, requests, requestDate)
+     */
+    public Enqueued enqueue(String orderTextNo, String companyCode, String userId,
+                            Map<String, Object> erpRow, Map<String, Object> slackPayload) throws Exception {
+        String erpRowJson = objectMapper.writeValueAsString(erpRow);
+        String hash = rowHash(companyCode, erpRowJson);
+        List<Map<String, Object>> inserted = jdbc.queryForList(
+                "INSERT INTO " + TABLE + " (order_text_no, company_code, user_id, erp_row, erp_row_hash, slack_payload) " +
+                        "VALUES (?, ?, ?, CAST(? AS jsonb), ?, CAST(? AS jsonb)) " +
+                        "ON CONFLICT (order_text_no) DO NOTHING RETURNING id, status",
+                orderTextNo, companyCode, userId, erpRowJson, hash, objectMapper.writeValueAsString(slackPayload));
+        if (!inserted.isEmpty()) {
+            kick();
+            Map<String, Object> r = inserted.get(0);
+            return new Enqueued(((Number) r.get("id")).longValue(), orderTextNo, (String) r.get("status"), false, false);
+        }
+        Map<String, Object> existing = jdbc.queryForMap(
+                "SELECT id, status, erp_row_hash = ? AS same FROM " + TABLE + " WHERE order_text_no = ?",
+                hash, orderTextNo);
+        boolean same = Boolean.TRUE.equals(existing.get("same"));
+        if (!same) {
+            log.warn("[OrderOutbox] {} already queued with a different order body, rejecting", orderTextNo);
+        }
+        return new Enqueued(((Number) existing.get("id")).longValue(), orderTextNo, (String) existing.get("status"),
+                same, !same);
+    }
+
+    /**
+     * company_code + erp_row JSON의 SHA-256 (hex)
+     */
+    static String rowHash(String companyCode, String erpRowJson) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(String.valueOf(companyCode).getBytes(StandardCharsets.UTF_8));
+        md.update((byte) '\n');
+        md.update(erpRowJson.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * 주문 1건 전송 상태 (없으면 null)
+     */
+    public Map<String, Object> status(String orderTextNo) {
+        List<Map<String, Object>> rows = jdbc.query(
+                "SELECT id, order_text_no, company_code, status, outcome_unknown, attempts, next_attempt_at, http_status, " +
+                        "external_status, external_results, last_error, slack_ok, created_at, updated_at, sent_at " +
+                        "FROM " + TABLE + " WHERE order_text_no = ?",
+                (rs, i) -> {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("id", rs.getLong("id"));
+                    m.put("orderTextNo", rs.getString("order_text_no"));
+                    m.put("companyCode", rs.getString("company_code"));
+                    m.put("status", rs.getString("status"));
+                    m.put("outcomeUnknown", rs.getBoolean("outcome_unknown"));
+                    m.put("attempts", rs.getInt("attempts"));
+                    m.put("nextAttemptAt", rs.getTimestamp("next_attempt_at"));
+                    m.put("httpStatus", rs.getObject("http_status"));
+                    m.put("externalStatus", rs.getString("external_status"));
+                    m.put("externalResults", rs.getString("external_results"));
+                    m.put("lastError", rs.getString("last_error"));
+                    m.put("slackOk", rs.getObject("slack_ok"));
+                    m.put("createdAt", rs.getTimestamp("created_at"));
+                    m.put("updatedAt", rs.getTimestamp("updated_at"));
+                    m.put("sentAt", rs.getTimestamp("sent_at"));
+                    return m;
+                }, orderTextNo);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * 상태별 건수, 가장 오래된 대기 건, 전송 중 건수
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        jdbc.query("SELECT status, COUNT(*) AS cnt FROM " + TABLE + " GROUP BY status ORDER BY status",
+                rs -> { counts.put(rs.getString("status"), rs.getLong("cnt")); });
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", isEnabled());
+        out.put("counts", counts);
+        out.put("oldestPendingAt", jdbc.queryForObject(
+                "SELECT MIN(created_at) FROM " + TABLE + " WHERE status IN ('PENDING', 'SENDING')", java.sql.Timestamp.class));
+        out.put("inFlight", inFlight.get());
+        return out;
+    }
+
+    /**
+     * FAILED 건을 즉시 재시도 대기로 되돌림
+     * @return 되돌렸으면 true
+     */
+    public boolean retry(String orderTextNo) {
+        int n = jdbc.update("UPDATE " + TABLE + " SET status = 'PENDING', attempts = 0, next_attempt_at = now(), " +
+                "last_error = NULL, updated_at = now() WHERE order_text_no = ? AND status = 'FAILED'", orderTextNo);
+        if (n > 0) kick();
+        return n > 0;
+    }
+
+    @Scheduled(initialDelayString = "${app.orders.outbox.initial-delay-ms:10000}",
+               fixedDelayString = "${app.orders.outbox.poll-ms:2000}")
+    public void scheduledDispatch() {
+        if (!isEnabled()) return;
+        try {
+            dispatchDue();
+        } catch (Exception ex) {
+            log.warn("[OrderOutbox] dispatch failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * 폴링을 기다리지 않고 곧바로 한 번 가져가기 (접수/전송 완료 직후, 중복 요청은 하나로 합침)
+     */
+    public void kick() {
+        if (!kickPending.compareAndSet(false, true)) return;
+        workers.execute(() -> {
+            kickPending.set(false);
+            try {
+                dispatchDue();
+            } catch (Exception ex) {
+                log.warn("[OrderOutbox] dispatch failed: {}", ex.toString());
+            }
+        });
+    }
+
+    /**
+     * 빈 전송 자리만큼 대기 건을 lease로 가져와 전송 시작
+     * @return 시작한 건수
+     */
+    public synchronized int dispatchDue() {
+        int free = env.getProperty("app.orders.outbox.concurrency", Integer.class, 4) - inFlight.get();
+        if (free <= 0) return 0;
+        long leaseMs = env.getProperty("app.orders.outbox.lease-ms", Long.class, 60_000L);
+        List<Claimed> claimed = jdbc.query(
+                // lease가 만료된 SENDING 건은 전송 도중 프로세스가 죽은 것이므로 결과 미확인으로 취급
+                "UPDATE " + TABLE + " SET status = 'SENDING', attempts = attempts + 1, " +
+                        "outcome_unknown = outcome_unknown OR status = 'SENDING', " +
+                        "locked_until = now() + (? * interval '1 millisecond'), updated_at = now() " +
+                        "WHERE id IN (SELECT id FROM " + TABLE + " " +
+                        "WHERE (status = 'PENDING' AND next_attempt_at <= now()) OR (status = 'SENDING' AND locked_until < now()) " +
+                        "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id, order_text_no, company_code, user_id, erp_row::text AS erp_row, " +
+                        "slack_payload::text AS slack_payload, attempts, outcome_unknown",
+                (rs, i) -> new Claimed(rs.getLong("id"), rs.getString("order_text_no"), rs.getString("company_code"),
+                        rs.getString("user_id"), rs.getString("erp_row"), rs.getString("slack_payload"), rs.getInt("attempts"),
+                        rs.getBoolean("outcome_unknown")),
+                leaseMs, free);
+        for (Claimed c : claimed) {
+            inFlight.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    deliver(c);
+                } finally {
+                    inFlight.decrementAndGet();
+                    kick();
+                }
+            });
+        }
+        return claimed.size();
+    }
+
+    void deliver(Claimed c) {
+        Map<String, Object> row;
+        try {
+            row = objectMapper.readValue(c.erpRow(), new TypeReference<LinkedHashMap<String, Object>>() { });
+        } catch (Exception e) {
+            fail(c, null, "invalid erp_row: " + e, false);
+            return;
+        }
+        if (c.outcomeUnknown()) {
+            // 지난 시도가 응답 없이 끝남 → ERP에 이미 저장됐으면 다시 보내지 않음
+            Boolean saved = existsInErp(c);
+            if (saved == null) {
+                fail(c, null, "outcome unknown, ERP lookup failed", true);
+                return;
+            }
+            if (saved) {
+                jdbc.update("UPDATE " + TABLE + " SET status = 'SENT', sent_at = now(), outcome_unknown = false, " +
+                        "last_error = 'confirmed in ERP after unknown outcome', locked_until = NULL, updated_at = now() " +
+                        "WHERE id = ? AND status = 'SENDING'", c.id());
+                log.info("[OrderOutbox] {} found in ERP after unknown outcome, marked SENT", c.orderTextNo());
+                notifySlack(c);
+                return;
+            }
+            jdbc.update("UPDATE " + TABLE + " SET outcome_unknown = false WHERE id = ?", c.id());
+        }
+        try {
+            ErpOrderClient.Result r = erpClient.send(c.companyCode(), c.userId(), row);
+            if (r.externalFailure()) {
+                // ERP가 요청을 받고 저장을 거부함 → 응답 내용을 남기고 재시도 없이 FAILED
+                jdbc.update("UPDATE " + TABLE + " SET external_status = ?, external_results = ? WHERE id = ?",
+                        text(r.externalStatus()), text(r.externalResults()), c.id());
+                fail(c, r.status(), "ERP Status " + r.externalStatus() + ": " + text(r.externalResults()), false);
+                return;
+            }
+            if (!r.ok()) {
+                fail(c, r.status(), "HTTP " + r.status(), isRetryable(r.status()));
+                return;
+            }
+            jdbc.update("UPDATE " + TABLE + " SET status = 'SENT', sent_at = now(), http_status = ?, external_status = ?, " +
+                            "external_results = ?, last_error = NULL, locked_until = NULL, updated_at = now() " +
+                            "WHERE id = ? AND status = 'SENDING'",
+                    r.status(), text(r.externalStatus()), text(r.externalResults()), c.id());
+            log.info("[OrderOutbox] sent {} (attempt {})", c.orderTextNo(), c.attempts());
+            notifySlack(c);
+        } catch (RestClientResponseException e) {
+            int status = e.getStatusCode().value();
+            fail(c, status, "HTTP " + status + ": " + e.getMessage(), isRetryable(status));
+        } catch (Exception e) {
+            if (isConnectFailure(e)) {
+                // 요청이 ERP에 도달하지 못함 → 그대로 재전송
+                fail(c, null, e.toString(), true);
+            } else {
+                // 응답 타임아웃 등: ERP가 저장했을 수 있음 → 다음 시도에서 확인 후 재전송
+                markOutcomeUnknown(c, e.toString());
+            }
+        }
+    }
+
+    /**
+     * MSSQL &lt;DB&gt;.dbo.tnt_TSLOrderText에 OrderTextNo가 있는지 (조회 실패면 null)
+     */
+    private Boolean existsInErp(Claimed c) {
+        String db = "DYS".equals(c.companyCode()) ? "DYS" : "TNT";
+        try {
+            Integer n = mssql.queryForObject(
+                    "SELECT COUNT(*) FROM " + db + ".dbo.tnt_TSLOrderText WHERE OrderTextNo = ?", Integer.class, c.orderTextNo());
+            return n != null && n > 0;
+        } catch (Exception e) {
+            log.warn("[OrderOutbox] ERP lookup for {} failed: {}", c.orderTextNo(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 요청이 ERP에 도달하지 못한 오류인지 (연결 거부/호스트 없음/연결 타임아웃)
+     */
+    private static boolean isConnectFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException || t instanceof UnknownHostException || t instanceof NoRouteToHostException) {
+                return true;
+            }
+            if (t instanceof SocketTimeoutException && t.getMessage() != null
+                    && t.getMessage().toLowerCase(Locale.ROOT).contains("connect")) {
+                return true;
+            }
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+
+    private void markOutcomeUnknown(Claimed c, String error) {
+        int maxAttempts = env.getProperty("app.orders.outbox.max-attempts", Integer.class, 8);
+        if (c.attempts() >= maxAttempts) {
+            jdbc.update("UPDATE " + TABLE + " SET status = 'FAILED', outcome_unknown = true, http_status = NULL, " +
+                    "last_error = ?, locked_until = NULL, updated_at = now() WHERE id = ? AND status = 'SENDING'",
+                    "outcome unknown: " + error, c.id());
+            log.error("[OrderOutbox] {} outcome unknown after {} attempt(s), check ERP before retrying: {}",
+                    c.orderTextNo(), c.attempts(), error);
+            return;
+        }
+        // ERP가 타임아웃 뒤에 저장을 끝내는 경우가 있어 확인은 verify-delay-ms 이후로 미룸
+        long delayMs = Math.max(backoffMs(c.attempts()),
+                env.getProperty("app.orders.outbox.verify-delay-ms", Long.class, 120_000L));
+        jdbc.update("UPDATE " + TABLE + " SET status = 'PENDING', outcome_unknown = true, http_status = NULL, " +
+                        "last_error = ?, locked_until = NULL, next_attempt_at = now() + (? * interval '1 millisecond'), " +
+                        "updated_at = now() WHERE id = ? AND status = 'SENDING'",
+                "outcome unknown: " + error, delayMs, c.id());
+        log.warn("[OrderOutbox] {} attempt {} outcome unknown, verify in {} ms: {}",
+                c.orderTextNo(), c.attempts(), delayMs, error);
+    }
+
+    private void fail(Claimed c, Integer httpStatus, String error, boolean retryable) {
+        int maxAttempts = env.getProperty("app.orders.outbox.max-attempts", Integer.class, 8);
+        if (!retryable || c.attempts() >= maxAttempts) {
+            jdbc.update("UPDATE " + TABLE + " SET status = 'FAILED', http_status = ?, last_error = ?, locked_until = NULL, " +
+                    "updated_at = now() WHERE id = ? AND status = 'SENDING'", httpStatus, error, c.id());
+            log.error("[OrderOutbox] {} failed after {} attempt(s): {}", c.orderTextNo(), c.attempts(), error);
+            return;
+        }
+        long delayMs = backoffMs(c.attempts());
+        jdbc.update("UPDATE " + TABLE + " SET status = 'PENDING', http_status = ?, last_error = ?, locked_until = NULL, " +
+                        "next_attempt_at = now() + (? * interval '1 millisecond'), updated_at = now() " +
+                        "WHERE id = ? AND status = 'SENDING'",
+                httpStatus, error, delayMs, c.id());
+        log.warn("[OrderOutbox] {} attempt {} failed, retry in {} ms: {}", c.orderTextNo(), c.attempts(), delayMs, error);
+    }
+
+    private long backoffMs(int attempts) {
+        long base = env.getProperty("app.orders.outbox.backoff-ms", Long.class, 5_000L);
+        long max = env.getProperty("app.orders.outbox.max-backoff-ms", Long.class, 600_000L);
+        long delay = Math.min(max, base << Math.min(20, Math.max(0, attempts - 1)));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    private static boolean isRetryable(int httpStatus) {
+        return httpStatus >= 500 || httpStatus == 408 || httpStatus == 429;
+    }
+
+    private void notifySlack(Claimed c) {
+        SlackService slack = slackService.getIfAvailable();
+        if (slack == null || c.slackPayload() == null) return;
+        boolean slackOk = false;
+        try {
+            Map<String, Object> p = objectMapper.readValue(c.slackPayload(), new TypeReference<Map<String, Object>>() { });
+            slackOk = slack.sendOrderCopyFormat(
+                    str(p.get("orderNo")), str(p.get("companyCode")), str(p.get("customerName")), str(p.get("createdBy")),
+                    str(p.get("regionGroup")), str(p.get("orderText")), str(p.get("requests")), str(p.get("requestDate")));
+        } catch (Exception e) {
+            log.warn("[OrderOutbox] Slack notify failed for {}: {}", c.orderTextNo(), e.toString());
+        }
+        jdbc.update("UPDATE " + TABLE + " SET slack_ok = ? WHERE id = ?", slackOk, c.id());
+    }
+
+    private String text(Object v) {
+        if (v == null) return null;
+        if (v instanceof String s) return s;
+        try {
+            return objectMapper.writeValueAsString(v);
+        } catch (Exception e) {
+            return String.valueOf(v);
+        }
+    }
+
+    private static String str(Object v) {
+        return v == null ? "" : String.valueOf(v);
+    }
+}
@@ -1,5 +1,9 @@
 package com.tnt.sales.plan.api;
 
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.plan.service.SalesPlanGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +23,9 @@ public class SalesPlanController {
     private static final Logger log = LoggerFactory.getLogger(SalesPlanController.class);
     @Autowired JdbcTemplate jdbc;
     @Autowired Environment env;
+    @Autowired SalesPlanGenerator planGenerator;
+    @Autowired SchemaMetadataService schemaMetadata;
+    @Autowired QueryConfigHelper configHelper;
 
     static class InitReq {
         public Integer year; // target year (e.g., 2026)
@@ -488,39 +495,6 @@ public class SalesPlanController {
 
             int prev = Math.max(1, year - 1);
 
-            String invTbl = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colQty = env.getProperty("app.invoice.columns.std_qty",
-                    env.getProperty("app.invoice.columns.qty", "std_qty"));
-            String colUnit = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-            String colSub = env.getProperty("app.invoice.columns.item_subcategory", "item_subcategory");
-            boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            boolean mssql = false; try { for (String p : env.getActiveProfiles()) { if ("mssql".equalsIgnoreCase(p)) { mssql = true; break; } } } catch (Exception ignore) {}
-            String unitExpr;
-            String subMinExpr;
-            String qtySumExpr = "SUM(COALESCE(i."+colQty+",0))";
-            String yearExpr;
-            if (mssql) {
-                unitExpr = "COALESCE(NULLIF(LTRIM(RTRIM(i."+colUnit+")), ''), 'na')";
-                subMinExpr = "COALESCE(MIN(NULLIF(LTRIM(RTRIM(i."+colSub+")), '')), 'na')";
-                if (dateIsText) {
-                    yearExpr = "CAST(LEFT(i."+colDate+",4) AS INT)";
-                } else {
-                    yearExpr = "YEAR(i."+colDate+")";
-                }
-            } else {
-                unitExpr = "coalesce(nullif(trim(i."+colUnit+"), ''), 'na')";
-                subMinExpr = "coalesce(MIN(NULLIF(trim(i."+colSub+"), '')), 'na')";
-                if (dateIsText) {
-                    yearExpr = "CAST(substring(i."+colDate+" from 1 for 4) AS int)";
-                } else {
-                    yearExpr = "EXTRACT(YEAR FROM i."+colDate+")";
-                }
-            }
-
             // Determine company types to process: always include any existing for this assignee (TNT/DYS), plus requested companyType if present
             Set<String> companies = new LinkedHashSet<>();
             try {
@@ -534,185 +508,19 @@ public class SalesPlanController {
             if (companyType != null && !companyType.isBlank()) companies.add(companyType.toUpperCase());
             if (companies.isEmpty()) companies.add("TNT"); // fallback
 
-            int totalUpserts = 0;
-            for (String comp : companies) {
-                final String assigneeIdFinalForQuery = assigneeId;
-                final String companyTypeFinalForQuery = comp;
-                StringBuilder sql = new StringBuilder();
-                sql.append("SELECT c.customer_seq, MIN(c.customer_name) AS customer_name, ")
-                   .append(unitExpr).append(" AS sales_mgmt_unit, ")
-                   .append(subMinExpr).append(" AS item_subcategory, ")
-                   .append(qtySumExpr).append(" AS qty_sum ")
-                   .append("FROM public.customer c ")
-                   .append("JOIN ").append(invTbl).append(" i ON CAST(i.").append(colCust).append(" AS TEXT) = CAST(c.customer_seq AS TEXT) ")
-                   .append("WHERE c.assignee_id = ? AND UPPER(c.company_type) = UPPER(?) AND ")
-                   .append(yearExpr).append(" = ? ")
-                   .append("GROUP BY c.customer_seq, ").append(unitExpr).append(" ")
-                   .append("ORDER BY c.customer_seq, 2");
-
-                List<Map<String,Object>> rows = jdbc.query(sql.toString(), ps -> {
-                    ps.setString(1, assigneeIdFinalForQuery);
-                    ps.setString(2, companyTypeFinalForQuery);
-                    ps.setInt(3, prev);
-                }, (rs, i) -> {
-                    Map<String,Object> m = new LinkedHashMap<>();
-                    m.put("customer_seq", rs.getLong(1));
-                    m.put("customer_name", rs.getString(2));
-                    m.put("sales_mgmt_unit", rs.getString(3));
-                    m.put("item_subcategory", rs.getString(4));
-                    m.put("qty_sum", rs.getDouble(5));
-                    return m;
-                });
-
-                // Average unit price map for previous year by sales_mgmt_unit
-                Map<String, Double> avgUnitPriceMap = new LinkedHashMap<>();
-                try {
-                    String invTbl2 = env.getProperty("app.invoice.table", "public.invoice");
-                    String colCust2 = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-                    String colDate2 = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-                    String colAmt2 = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-                    String colQty2 = env.getProperty("app.invoice.columns.std_qty",
-                            env.getProperty("app.invoice.columns.qty", "std_qty"));
-                    String colUnit2 = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-                    boolean dateIsText2 = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-                    String dateFmt2 = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-                    String dateExpr2 = dateIsText2 ? ("to_date(" + colDate2 + ", '" + dateFmt2 + "')") : (colDate2 + "::date");
-
-                    String sqlAvg = "SELECT coalesce(nullif(trim(i."+colUnit2+"), ''), 'na') AS sales_mgmt_unit, " +
-                            "CASE WHEN SUM(COALESCE(i."+colQty2+",0)) > 0 THEN (SUM(COALESCE(i."+colAmt2+",0)) / SUM(COALESCE(i."+colQty2+",0))) ELSE 0 END AS avg_unit_price " +
-                            "FROM "+invTbl2+" i " +
-                            "JOIN public.customer c ON CAST(i."+colCust2+" AS TEXT) = CAST(c.customer_seq AS TEXT) " +
-                            "WHERE c.assignee_id = ? AND UPPER(c.company_type) = UPPER(?) AND EXTRACT(YEAR FROM "+dateExpr2+") = ? " +
-                            "GROUP BY 1";
-                    List<Map<String,Object>> avgRows = jdbc.query(sqlAvg, ps -> {
-                        ps.setString(1, assigneeIdFinalForQuery);
-                        ps.setString(2, companyTypeFinalForQuery);
-                        ps.setInt(3, prev);
-                    }, (rs, i) -> {
-                        Map<String,Object> m = new LinkedHashMap<>();
-                        m.put("sales_mgmt_unit", rs.getString(1));
-                        m.put("avg_unit_price", rs.getDouble(2));
-                        return m;
-                    });
-                    for (Map<String,Object> r2 : avgRows) {
-                        String k = String.valueOf(r2.get("sales_mgmt_unit"));
-                        double v = 0d; try { v = Double.parseDouble(String.valueOf(r2.get("avg_unit_price"))); } catch (Exception ignore) {}
-                        avgUnitPriceMap.put(k, v);
-                    }
-                } catch (Exception ignore) {}
-
-            // Upsert into sales_plan
-            String tblPlan = env.getProperty("app.sales.plan.table", mssql ? "dbo.sales_plan" : "public.sales_plan");
-            // Resolve metadata for auditing
-            // created_by / updated_by: numeric(15,0) from assignee_id (digits only)
-            BigDecimal assigneeNumeric = null;
-            try {
-                String digits = assigneeId == null ? "" : assigneeId.replaceAll("\\D+", "");
-                if (!digits.isEmpty()) assigneeNumeric = new BigDecimal(digits);
-            } catch (Exception ignore) { assigneeNumeric = null; }
-            // emp_name: login user name — prefer lookup via empId, fallback via assigneeId
+            // emp_name: login user name when called with X-EMP-ID; otherwise resolved per assignee inside the generator
             String empNameVal = null;
             try {
                 if (empIdHeader != null && !empIdHeader.isBlank()) {
                     empNameVal = jdbc.queryForObject("SELECT emp_name FROM public.employee WHERE emp_id = ? LIMIT 1", String.class, empIdHeader.trim());
                 }
             } catch (Exception ignore) {}
-            if (empNameVal == null || empNameVal.isBlank()) {
-                try {
-                    if (assigneeId != null && !assigneeId.isBlank()) {
-                        empNameVal = jdbc.queryForObject("SELECT emp_name FROM public.employee WHERE assignee_id = ? LIMIT 1", String.class, assigneeId.trim());
-                    }
-                } catch (Exception ignore) {}
-            }
-            // Freeze values for lambda usage
-            final BigDecimal assigneeNumericFinal = assigneeNumeric;
-            final String empNameValFinal = (empNameVal != null && !empNameVal.isBlank()) ? empNameVal : null;
-            Date ty = Date.valueOf(LocalDate.of(year, 1, 1));
-            for (Map<String,Object> r : rows) {
-                long custSeq = ((Number)r.get("customer_seq")).longValue();
-                String custName = String.valueOf(r.get("customer_name"));
-                String unit = String.valueOf(r.get("sales_mgmt_unit"));
-                String sub = String.valueOf(r.get("item_subcategory"));
-                double qtySum = 0d; try { qtySum = Double.parseDouble(String.valueOf(r.get("qty_sum"))); } catch (Exception ignore) {}
-                if (qtySum <= 0d) continue;
-
-                // Compute total with 2-decimal precision
-                java.math.BigDecimal totalQty = java.math.BigDecimal.valueOf(qtySum)
-                        .multiply(java.math.BigDecimal.valueOf(1.0 + (uplift/100.0)))
-                        .setScale(2, java.math.RoundingMode.HALF_UP);
-                java.math.BigDecimal[] monthsDec = distributeDecimal(totalQty, 12);
-
-                final java.math.BigDecimal[] monthsArr = monthsDec;
-                final long custSeqFinal = custSeq;
-                final String unitFinal = unit;
-                final String subFinal = sub;
-                final String custNameFinal = custName;
-                final Date tyFinal = ty;
-                final String companyTypeFinal = comp;
-                final String assigneeIdFinal = assigneeId;
-                final int versionNoFinal = versionNo;
-
-                // compute monthly amounts using prev year's avg unit price
-                double unitPrice = 0d; try { unitPrice = avgUnitPriceMap.getOrDefault(unit, 0d); } catch (Exception ignore) {}
-                java.math.BigDecimal unitPriceBD = java.math.BigDecimal.valueOf(unitPrice).setScale(2, java.math.RoundingMode.HALF_UP);
-                java.math.BigDecimal[] amounts = new java.math.BigDecimal[12];
-                for (int i=0;i<12;i++) {
-                    amounts[i] = monthsArr[i].multiply(unitPriceBD).setScale(2, java.math.RoundingMode.HALF_UP);
-                }
 
-                int updated = jdbc.update(
-                        "UPDATE "+tblPlan+" SET updated_at=now(), updated_by=?, " +
-                                "plan_type='B', target_stage='I', assignee_id=?, item_subcategory=?, sales_mgmt_unit=?, "+
-                                "qty_01=?, qty_02=?, qty_03=?, qty_04=?, qty_05=?, qty_06=?, qty_07=?, qty_08=?, qty_09=?, qty_10=?, qty_11=?, qty_12=?, "+
-                                "amount_01=?, amount_02=?, amount_03=?, amount_04=?, amount_05=?, amount_06=?, amount_07=?, amount_08=?, amount_09=?, amount_10=?, amount_11=?, amount_12=? " +
-                                "WHERE target_year=? AND company_type=? AND plan_type='B' AND customer_seq=? AND item_subcategory=? AND sales_mgmt_unit=? AND COALESCE(version_no,1)=?",
-                        ps -> {
-                            // updated_by is VARCHAR(20) on sales_plan
-                            ps.setString(1, assigneeIdFinal);
-                            ps.setString(2, assigneeIdFinal);
-                            ps.setString(3, subFinal);
-                            ps.setString(4, unitFinal);
-                            for (int i=0;i<12;i++) ps.setBigDecimal(5+i, monthsArr[i]);
-                            for (int i=0;i<12;i++) ps.setBigDecimal(17+i, amounts[i]);
-                            ps.setDate(29, tyFinal);
-                            ps.setString(30, companyTypeFinal);
-                            ps.setLong(31, custSeqFinal);
-                            ps.setString(32, subFinal);
-                            ps.setString(33, unitFinal);
-                            ps.setInt(34, versionNoFinal);
-                        }
-                );
-                if (updated == 0) {
-                    jdbc.update(
-                            "INSERT INTO "+tblPlan+" (created_at, updated_at, target_year, company_type, plan_type, customer_seq, customer_name, assignee_id, emp_name, item_subcategory_seq, sales_mgmt_unit_seq, item_subcategory, sales_mgmt_unit, target_stage, "+
-                                    "qty_01, qty_02, qty_03, qty_04, qty_05, qty_06, qty_07, qty_08, qty_09, qty_10, qty_11, qty_12, "+
-                                    "amount_01, amount_02, amount_03, amount_04, amount_05, amount_06, amount_07, amount_08, amount_09, amount_10, amount_11, amount_12, version_no, created_by, updated_by) "+
-                                    "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)",
-                            ps -> {
-                                ps.setTimestamp(1, new java.sql.Timestamp(System.currentTimeMillis()));
-                                ps.setTimestamp(2, new java.sql.Timestamp(System.currentTimeMillis()));
-                                ps.setDate(3, tyFinal);
-                                ps.setString(4, companyTypeFinal);
-                                ps.setString(5, "B");
-                                ps.setLong(6, custSeqFinal);
-                                ps.setString(7, custNameFinal);
-                                ps.setString(8, assigneeIdFinal);
-                                if (empNameValFinal == null) ps.setObject(9, null); else ps.setString(9, empNameValFinal);
-                                ps.setObject(10, null); // item_subcategory_seq unknown
-                                ps.setObject(11, null); // sales_mgmt_unit_seq unknown
-                                ps.setString(12, subFinal);
-                                ps.setString(13, unitFinal);
-                                ps.setString(14, "I");
-                                for (int i=0;i<12;i++) ps.setBigDecimal(15+i, monthsArr[i]);
-                                for (int i=0;i<12;i++) ps.setBigDecimal(27+i, amounts[i]);
-                                ps.setInt(39, versionNoFinal);
-                                ps.setString(40, assigneeIdFinal);
-                                ps.setString(41, assigneeIdFinal);
-                            }
-                    );
-                }
-                totalUpserts++;
-            } // end for comp types
+            // One set-based statement per company type (see SalesPlanGenerator)
+            int totalUpserts = 0;
+            for (String comp : companies) {
+                totalUpserts += planGenerator.generate(new SalesPlanGenerator.Request(
+                        year, comp, uplift, versionNo, assigneeId, empNameVal));
             }
             Map<String,Object> resp = new LinkedHashMap<>();
             resp.put("ok", true);
@@ -735,6 +543,51 @@ public class SalesPlanController {
         }
     }
 
+    static class InitAllReq {
+        public Integer year; // target year
+        public String companyType; // optional: TNT | DYS (default both)
+        public Double upliftPercent; // default 10.0
+        public Integer versionNo; // default 1
+    }
+
+    /**
+     * Regenerate baseline plans (plan_type='B') for every assignee of the company in one batch.
+     * POST /api/v1/sales/plan/init-all { year, companyType?, upliftPercent?, versionNo? }
+     * Returns: { ok, count, companies: { TNT: n, DYS: n } }
+     */
+    @PostMapping("/init-all")
+    public ResponseEntity<?> initAll(@RequestBody(required = false) InitAllReq body) {
+        try {
+            int year = body != null && body.year != null && body.year > 0 ? body.year : LocalDate.now().getYear();
+            double uplift = body != null && body.upliftPercent != null ? body.upliftPercent : 10.0;
+            int versionNo = body != null && body.versionNo != null && body.versionNo > 0 ? body.versionNo : 1;
+            List<String> companies = (body != null && body.companyType != null && !body.companyType.isBlank())
+                    ? List.of(body.companyType.trim().toUpperCase()) : List.of("TNT", "DYS");
+            for (String p : env.getActiveProfiles()) {
+                if ("nodb".equalsIgnoreCase(p)) {
+                    return ResponseEntity.ok(Map.of("ok", true, "count", 0));
+                }
+            }
+            long started = System.currentTimeMillis();
+            Map<String,Object> perCompany = new LinkedHashMap<>();
+            int total = 0;
+            for (String comp : companies) {
+                int n = planGenerator.generate(new SalesPlanGenerator.Request(year, comp, uplift, versionNo, null, null));
+                perCompany.put(comp, n);
+                total += n;
+            }
+            Map<String,Object> resp = new LinkedHashMap<>();
+            resp.put("ok", true);
+            resp.put("count", total);
+            resp.put("companies", perCompany);
+            resp.put("elapsedMs", System.currentTimeMillis() - started);
+            return ResponseEntity.ok(resp);
+        } catch (Exception e) {
+            log.error("[Plan.InitAll] failed: {}", e.toString());
+            return ResponseEntity.status(500).body(Map.of("error","plan_init_all_failed","message",e.getMessage()));
+        }
+    }
+
     /**
      * Set target_stage='C' for all sales_plan rows of the assignee/year/customer (optionally filtered by company_type).
      */
@@ -1230,21 +1083,6 @@ public class SalesPlanController {
         return out;
     }
 
-    // Distribute a 2-decimal BigDecimal total into 'parts' buckets such that sums match exactly (cent-wise)
-    private static java.math.BigDecimal[] distributeDecimal(java.math.BigDecimal total, int parts) {
-        java.math.BigDecimal[] out = new java.math.BigDecimal[parts];
-        for (int i=0;i<parts;i++) out[i] = java.math.BigDecimal.ZERO.setScale(2, java.math.RoundingMode.HALF_UP);
-        if (total == null || parts <= 0 || total.signum() <= 0) return out;
-        // work in cents
-        java.math.BigDecimal hundred = java.math.BigDecimal.valueOf(100);
-        long cents = total.multiply(hundred).setScale(0, java.math.RoundingMode.HALF_UP).longValue();
-        long base = cents / parts;
-        int rem = (int)(cents % parts);
-        for (int i=0;i<parts;i++) out[i] = java.math.BigDecimal.valueOf(base).divide(hundred, 2, java.math.RoundingMode.HALF_UP);
-        for (int i=0;i<rem;i++) out[i] = out[i].add(java.math.BigDecimal.valueOf(0.01));
-        return out;
-    }
-
     /**
      * Upsert a single sales_plan row (plan_type='P', target_stage='P') for given customer/sub/unit with provided monthly qty.
      * Amounts are computed from previous year's avg unit price by sales_mgmt_unit (same assignee/companyType criteria).
@@ -1280,26 +1118,23 @@ public class SalesPlanController {
 
             // Compute amounts from previous year's avg unit price
             int prev = Math.max(1, year - 1);
-            String invTbl2 = env.getProperty("app.invoice.table", "public.invoice");
-            String colCust2 = env.getProperty("app.invoice.columns.customer_seq", "customer_seq");
-            String colDate2 = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-            String colAmt2 = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
-            String colQty2 = env.getProperty("app.invoice.columns.std_qty", env.getProperty("app.invoice.columns.qty", "std_qty"));
-            String colUnit2 = env.getProperty("app.invoice.columns.sales_mgmt_unit", "sales_mgmt_unit");
-            boolean dateIsText2 = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-            String dateFmt2 = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-            String dateExpr2 = dateIsText2 ? ("to_date(" + colDate2 + ", '" + dateFmt2 + "')") : (colDate2 + "::date");
+            InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+            String invTbl2 = invCfg.getTableName();
+            String colCust2 = invCfg.getCustomerSeqColumn();
+            String colAmt2 = invCfg.getCurAmtColumn();
+            String colQty2 = invCfg.getStdQtyColumn();
+            String colUnit2 = invCfg.getSalesMgmtUnitColumn();
 
             String sqlAvg = "SELECT CASE WHEN SUM(COALESCE(i."+colQty2+",0)) > 0 THEN (SUM(COALESCE(i."+colAmt2+",0)) / SUM(COALESCE(i."+colQty2+",0))) ELSE 0 END AS avg_unit_price " +
                     "FROM "+invTbl2+" i JOIN public.customer c ON CAST(i."+colCust2+" AS TEXT) = CAST(c.customer_seq AS TEXT) " +
-                    "WHERE c.assignee_id=? AND UPPER(c.company_type)=UPPER(?) AND EXTRACT(YEAR FROM "+dateExpr2+")=? AND coalesce(nullif(trim(i."+colUnit2+"), ''), 'na') = ?";
+                    "WHERE c.assignee_id=? AND UPPER(c.company_type)=UPPER(?) AND "+invCfg.yearExpr(null)+"=? AND coalesce(nullif(trim(i."+colUnit2+"), ''), 'na') = ?";
             Double upObj; try { upObj = jdbc.queryForObject(sqlAvg, Double.class, assigneeId, companyType, prev, unit); } catch (Exception ex) { upObj = 0d; }
             double unitPrice = upObj == null ? 0d : upObj.doubleValue();
             // Fallback: if no employee-specific average, use company-wide average for the unit
             if (unitPrice <= 0d) {
                 String sqlAvgGlobal = "SELECT CASE WHEN SUM(COALESCE(i."+colQty2+",0)) > 0 THEN (SUM(COALESCE(i."+colAmt2+",0)) / SUM(COALESCE(i."+colQty2+",0))) ELSE 0 END AS avg_unit_price " +
                         "FROM "+invTbl2+" i JOIN public.customer c ON CAST(i."+colCust2+" AS TEXT) = CAST(c.customer_seq AS TEXT) " +
-                        "WHERE UPPER(c.company_type)=UPPER(?) AND EXTRACT(YEAR FROM "+dateExpr2+")=? AND coalesce(nullif(trim(i."+colUnit2+"), ''), 'na') = ?";
+                        "WHERE UPPER(c.company_type)=UPPER(?) AND "+invCfg.yearExpr(null)+"=? AND coalesce(nullif(trim(i."+colUnit2+"), ''), 'na') = ?";
                 try {
                     Double upG = jdbc.queryForObject(sqlAvgGlobal, Double.class, companyType, prev, unit);
                     if (upG != null && upG.doubleValue() > 0d) unitPrice = upG.doubleValue();
@@ -1324,16 +1159,7 @@ public class SalesPlanController {
             java.sql.Date ty = java.sql.Date.valueOf(java.time.LocalDate.of(year, 1, 1));
 
             // Column presence and resolved customer_name (used for UPDATE/INSERT)
-            boolean hasCustNameCol = false;
-            try {
-                Integer cnt = jdbc.queryForObject(
-                        "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema=? AND table_name=? AND column_name=?",
-                        Integer.class,
-                        "public",
-                        (tblPlan.contains(".") ? tblPlan.substring(tblPlan.indexOf('.')+1) : tblPlan),
-                        "customer_name");
-                hasCustNameCol = (cnt != null && cnt > 0);
-            } catch (Exception ignore) {}
+            boolean hasCustNameCol = schemaMetadata.columnExists(tblPlan, "customer_name");
             String custName = null;
             if (hasCustNameCol) {
                 try { custName = jdbc.queryForObject("SELECT customer_name FROM public.customer WHERE customer_seq=?", String.class, customerSeq); } catch (Exception ignore) {}
@@ -0,0 +1,206 @@
+package com.tnt.sales.plan.service;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 기준 영업계획(plan_type='B') 일괄 생성기
+ *
+ * 전년도 실적(거래처 × 영업관리단위 수량, 담당자 × 영업관리단위 평균단가)을 DB 안에서 집계하고
+ * 증가율 적용/월 분배/금액 계산까지 한 문장으로 처리한다.
+ * - Postgres: 데이터 변경 CTE (UPDATE 기존행 + INSERT 신규행)
+ * - MSSQL: MERGE
+ * 월 분배는 센트 단위로 12등분하고 나머지는 앞쪽 월부터 0.01씩 더한다.
+ * 금액은 월 수량 × 전년도 평균단가(소수 2자리 반올림)이다.
+ */
+@Service
+public class SalesPlanGenerator {
+    private static final Logger log = LoggerFactory.getLogger(SalesPlanGenerator.class);
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final QueryConfigHelper configHelper;
+
+    public SalesPlanGenerator(JdbcTemplate jdbc, Environment env, QueryConfigHelper configHelper) {
+        this.jdbc = jdbc;
+        this.env = env;
+        this.configHelper = configHelper;
+    }
+
+    /**
+     * 기준 계획 생성 요청
+     * @param year 목표년도 (전년도 실적 기준)
+     * @param companyType 회사 구분 (TNT|DYS)
+     * @param upliftPercent 증가율(%)
+     * @param versionNo 계획 버전
+     * @param assigneeId 특정 담당자만 생성 (null이면 해당 회사 전체 담당자)
+     * @param empName emp_name 지정값 (null이면 employee.emp_name)
+     */
+    public record Request(int year, String companyType, double upliftPercent, int versionNo,
+                         String assigneeId, String empName) { }
+
+    /**
+     * @return 생성/갱신된 (거래처 × 영업관리단위) 행 수
+     */
+    public int generate(Request req) {
+        boolean mssql = configHelper.isProfileActive("mssql");
+        List<Object> args = new ArrayList<>();
+        String src = sourceCte(req, mssql, args);
+        String tblPlan = env.getProperty("app.sales.plan.table", mssql ? "dbo.sales_plan" : "public.sales_plan");
+        Date ty = Date.valueOf(LocalDate.of(req.year(), 1, 1));
+        String match = "t.target_year = ? AND t.company_type = ? AND t.plan_type = 'B' AND t.customer_seq = m.customer_seq " +
+                "AND t.item_subcategory = m.item_subcategory AND t.sales_mgmt_unit = m.sales_mgmt_unit " +
+                "AND COALESCE(t.version_no, 1) = ?";
+        String comp = req.companyType().toUpperCase();
+        int count;
+        if (mssql) {
+            String sql = src +
+                    "MERGE INTO " + tblPlan + " AS t USING m ON (" + match + ") " +
+                    "WHEN MATCHED THEN UPDATE SET " + updateSet(mssql) + " " +
+                    "WHEN NOT MATCHED BY TARGET THEN INSERT (" + insertCols() + ") VALUES (" + insertValues(mssql) + ");";
+            args.add(ty); args.add(comp); args.add(req.versionNo());
+            args.add(ty); args.add(comp); args.add(req.versionNo());
+            count = jdbc.update(sql, args.toArray());
+        } else {
+            String sql = src +
+                    ", upd AS (UPDATE " + tblPlan + " t SET " + updateSet(mssql) + " FROM m WHERE " + match + " RETURNING 1)" +
+                    ", ins AS (INSERT INTO " + tblPlan + " (" + insertCols() + ") SELECT " + insertValues(mssql) + " FROM m " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM " + tblPlan + " t WHERE " + match + ") RETURNING 1) " +
+                    "SELECT (SELECT COUNT(*) FROM m)";
+            for (int k = 0; k < 3; k++) {
+                // upd match, ins values, ins NOT EXISTS match
+                args.add(ty); args.add(comp); args.add(req.versionNo());
+            }
+            Integer n = jdbc.queryForObject(sql, Integer.class, args.toArray());
+            count = n == null ? 0 : n;
+        }
+        log.info("[Plan.Generate] year={} company={} assignee={} rows={}", req.year(), comp,
+                req.assigneeId() == null ? "ALL" : req.assigneeId(), count);
+        return count;
+    }
+
+    // 전년도 수량/평균단가 집계 → 증가율 적용 → 월 분배(m)
+    private String sourceCte(Request req, boolean mssql, List<Object> args) {
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String invTbl = invCfg.getTableName();
+        String colCust = invCfg.getCustomerSeqColumn();
+        String colAmt = invCfg.getCurAmtColumn();
+        String colQty = invCfg.getStdQtyColumn();
+        String colUnit = invCfg.getSalesMgmtUnitColumn();
+        String colSub = invCfg.getItemSubcategoryColumn();
+        String colDate = invCfg.getInvoiceDateColumn();
+        boolean dateIsText = invCfg.isDateIsText();
+        String custTbl = configHelper.getCustomerConfig().getTableName();
+        String empTbl = env.getProperty("app.employee.table", mssql ? "dbo.employee" : "public.employee");
+
+        String unitExpr, subMinExpr, yearExpr, joinOn;
+        if (mssql) {
+            unitExpr = "COALESCE(NULLIF(LTRIM(RTRIM(i." + colUnit + ")), ''), 'na')";
+            subMinExpr = "COALESCE(MIN(NULLIF(LTRIM(RTRIM(i." + colSub + ")), '')), 'na')";
+            yearExpr = dateIsText ? "CAST(LEFT(i." + colDate + ",4) AS INT)" : "YEAR(i." + colDate + ")";
+            joinOn = "CAST(i." + colCust + " AS NVARCHAR(50)) = CAST(c.customer_seq AS NVARCHAR(50))";
+        } else {
+            unitExpr = "coalesce(nullif(trim(i." + colUnit + "), ''), 'na')";
+            subMinExpr = "coalesce(MIN(NULLIF(trim(i." + colSub + "), '')), 'na')";
+            yearExpr = dateIsText ? "CAST(substring(i." + colDate + " from 1 for 4) AS int)" : "EXTRACT(YEAR FROM i." + colDate + ")";
+            joinOn = "CAST(i." + colCust + " AS TEXT) = CAST(c.customer_seq AS TEXT)";
+        }
+        String qtySum = "SUM(COALESCE(i." + colQty + ",0))";
+        String amtSum = "SUM(COALESCE(i." + colAmt + ",0))";
+        boolean single = req.assigneeId() != null && !req.assigneeId().isBlank();
+        String where = "WHERE UPPER(c.company_type) = UPPER(?) AND " + yearExpr + " = ? " +
+                "AND c.assignee_id IS NOT NULL " + (single ? "AND c.assignee_id = ? " : "");
+        int prev = Math.max(1, req.year() - 1);
+
+        StringBuilder sql = new StringBuilder("WITH src AS (")
+                .append("SELECT c.assignee_id, c.customer_seq, MIN(c.customer_name) AS customer_name, ")
+                .append(unitExpr).append(" AS sales_mgmt_unit, ").append(subMinExpr).append(" AS item_subcategory, ")
+                .append(qtySum).append(" AS qty_sum ")
+                .append("FROM ").append(custTbl).append(" c JOIN ").append(invTbl).append(" i ON ").append(joinOn).append(" ")
+                .append(where)
+                .append("GROUP BY c.assignee_id, c.customer_seq, ").append(unitExpr).append(" ")
+                .append("HAVING ").append(qtySum).append(" > 0")
+                .append("), price AS (")
+                .append("SELECT c.assignee_id, ").append(unitExpr).append(" AS sales_mgmt_unit, ")
+                .append("CASE WHEN ").append(qtySum).append(" > 0 THEN ").append(amtSum).append(" / ").append(qtySum)
+                .append(" ELSE 0 END AS unit_price ")
+                .append("FROM ").append(custTbl).append(" c JOIN ").append(invTbl).append(" i ON ").append(joinOn).append(" ")
+                .append(where)
+                .append("GROUP BY c.assignee_id, ").append(unitExpr)
+                .append("), emp AS (")
+                .append("SELECT assignee_id, MIN(emp_name) AS emp_name FROM ").append(empTbl)
+                .append(" WHERE assignee_id IS NOT NULL GROUP BY assignee_id")
+                .append("), q AS (")
+                .append("SELECT s.assignee_id, s.customer_seq, s.customer_name, s.sales_mgmt_unit, s.item_subcategory, ")
+                .append("COALESCE(CAST(? AS VARCHAR(100)), e.emp_name) AS emp_name, ")
+                .append("ROUND(CAST(COALESCE(p.unit_price, 0) AS DECIMAL(38,10)), 2) AS unit_price, ")
+                .append("CAST(ROUND(ROUND(CAST(s.qty_sum AS DECIMAL(38,10)) * ?, 2) * 100, 0) AS BIGINT) AS cents ")
+                .append("FROM src s ")
+                .append("LEFT JOIN price p ON p.assignee_id = s.assignee_id AND p.sales_mgmt_unit = s.sales_mgmt_unit ")
+                .append("LEFT JOIN emp e ON e.assignee_id = s.assignee_id")
+                .append("), m AS (SELECT q.*");
+        for (int i = 1; i <= 12; i++) {
+            sql.append(", ROUND(CAST(q.cents / 12 + CASE WHEN q.cents % 12 >= ").append(i)
+               .append(" THEN 1 ELSE 0 END AS DECIMAL(20,2)) / 100, 2) AS ").append(qtyCol(i));
+        }
+        sql.append(" FROM q) ");
+
+        String comp = req.companyType();
+        // src
+        args.add(comp); args.add(prev); if (single) args.add(req.assigneeId().trim());
+        // price
+        args.add(comp); args.add(prev); if (single) args.add(req.assigneeId().trim());
+        // q
+        args.add(req.empName() == null || req.empName().isBlank() ? null : req.empName());
+        args.add(BigDecimal.valueOf(1.0 + (req.upliftPercent() / 100.0)));
+        return sql.toString();
+    }
+
+    private static String qtyCol(int i) {
+        return String.format("qty_%02d", i);
+    }
+
+    private static String amountExpr(int i) {
+        return "ROUND(m." + qtyCol(i) + " * m.unit_price, 2)";
+    }
+
+    private static String updateSet(boolean mssql) {
+        StringBuilder s = new StringBuilder();
+        s.append("updated_at = ").append(mssql ? "SYSDATETIME()" : "now()").append(", updated_by = m.assignee_id, ")
+         .append("plan_type = 'B', target_stage = 'I', assignee_id = m.assignee_id, ")
+         .append("item_subcategory = m.item_subcategory, sales_mgmt_unit = m.sales_mgmt_unit");
+        for (int i = 1; i <= 12; i++) s.append(", ").append(qtyCol(i)).append(" = m.").append(qtyCol(i));
+        for (int i = 1; i <= 12; i++) s.append(", ").append(String.format("amount_%02d", i)).append(" = ").append(amountExpr(i));
+        return s.toString();
+    }
+
+    private static String insertCols() {
+        StringBuilder s = new StringBuilder("created_at, updated_at, target_year, company_type, plan_type, customer_seq, customer_name, " +
+                "assignee_id, emp_name, item_subcategory_seq, sales_mgmt_unit_seq, item_subcategory, sales_mgmt_unit, target_stage");
+        for (int i = 1; i <= 12; i++) s.append(", ").append(qtyCol(i));
+        for (int i = 1; i <= 12; i++) s.append(", ").append(String.format("amount_%02d", i));
+        s.append(", version_no, created_by, updated_by");
+        return s.toString();
+    }
+
+    private static String insertValues(boolean mssql) {
+        String now = mssql ? "SYSDATETIME()" : "now()";
+        StringBuilder s = new StringBuilder(now + ", " + now + ", ?, ?, 'B', m.customer_seq, m.customer_name, " +
+                "m.assignee_id, m.emp_name, NULL, NULL, m.item_subcategory, m.sales_mgmt_unit, 'I'");
+        for (int i = 1; i <= 12; i++) s.append(", m.").append(qtyCol(i));
+        for (int i = 1; i <= 12; i++) s.append(", ").append(amountExpr(i));
+        s.append(", ?, m.assignee_id, m.assignee_id");
+        return s.toString();
+    }
+}
@@ -1,5 +1,10 @@
 package com.tnt.sales.report.api;
 
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.SqlTemplateRegistry;
+import com.tnt.sales.common.SqlTemplateRegistry.Dialect;
+import com.tnt.sales.common.QueryConfigHelper.InvoiceTableConfig;
+import com.tnt.sales.config.ReadReplica;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 import java.time.LocalDate;
 import java.util.*;
 
+@ReadReplica
 @RestController
 @RequestMapping("/api/v1/sales")
 public class SalesReportController {
@@ -19,6 +25,10 @@ public class SalesReportController {
     JdbcTemplate jdbc;
     @Autowired
     Environment env;
+    @Autowired
+    QueryConfigHelper configHelper;
+    @Autowired
+    SqlTemplateRegistry templates;
 
     /**
      * Previous-year totals by employee (optionally filtering departments).
@@ -61,27 +71,17 @@ public class SalesReportController {
             }
         }
 
-        String tbl = env.getProperty("app.invoice.table", "public.invoice");
-        String colDate = env.getProperty("app.invoice.columns.invoice_date", "invoice_date");
-        String colAmt = env.getProperty("app.invoice.columns.cur_amt", "cur_amt");
+        InvoiceTableConfig invCfg = configHelper.getInvoiceConfig();
+        String tbl = invCfg.getTableName();
+        String colAmt = invCfg.getCurAmtColumn();
         // Employee columns (seq and name)
-        String colEmp = env.getProperty("app.invoice.columns.curr_emp_seq", "curr_emp_seq");
-        String colEmpName = env.getProperty("app.invoice.columns.curr_emp_name", "curr_emp_name");
+        String colEmp = invCfg.getCurrEmpSeqColumn();
+        String colEmpName = invCfg.getCurrEmpNameColumn();
 
-        boolean dateIsText = Boolean.parseBoolean(env.getProperty("app.invoice.columns.invoice_date_is_text", "false"));
-        String dateFmt = env.getProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD");
-        String dateExpr = dateIsText ? ("to_date(" + colDate + ", '" + dateFmt + "')") : (colDate + "::date");
-        String yearExpr = "EXTRACT(YEAR FROM "+dateExpr+")";
-        String yearClause;
-        if (useExact) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(yearExpr).append(" IN (");
-            for (int i=0;i<targetYears.size();i++) { if (i>0) sb.append(","); sb.append("?"); }
-            sb.append(")");
-            yearClause = sb.toString();
-        } else {
-            yearClause = yearExpr + " = ?";
-        }
+        String yearExpr = invCfg.yearExpr(null);
+        // 연도 조건은 항상 배열 1개로 바인드해 SQL 모양을 고정 (템플릿 재사용)
+        String yearClause = yearExpr + " = ANY(?)";
+        final Integer[] yearsArr = useExact ? targetYears.toArray(new Integer[0]) : new Integer[]{prev};
 
         // Optional filter by employee list (by seq) coming from center panel
         List<Long> filterEmpSeqs = new ArrayList<>();
@@ -112,20 +112,22 @@ public class SalesReportController {
         boolean groupByName = (joinKey != null && ("emp_name".equalsIgnoreCase(joinKey) || "name".equalsIgnoreCase(joinKey)))
                 || (!filterEmpNames.isEmpty());
 
-        String colCompany = env.getProperty("app.invoice.columns.company_type", "company_type");
+        String colCompany = invCfg.getCompanyTypeColumn();
         Map<String,Object> resp = new LinkedHashMap<>();
         List<Map<String,Object>> out = new ArrayList<>();
 
         if (groupByName) {
             // Name-based aggregation directly from invoice.curr_emp_name
-            String sqlName = "SELECT COALESCE(i."+colEmpName+", '') AS emp_name, COALESCE(i."+colCompany+", 'UNKNOWN') AS company_type, " +
+            int nameMask = SqlTemplateRegistry.bit(0, !filterEmpNames.isEmpty());
+            String sqlName = templates.get("report.employeeYearly.byName", nameMask, Dialect.POSTGRES, m ->
+                    "SELECT COALESCE(i."+colEmpName+", '') AS emp_name, COALESCE(i."+colCompany+", 'UNKNOWN') AS company_type, " +
                     "COALESCE(SUM(COALESCE(i."+colAmt+",0)),0)::double precision AS amount " +
                     "FROM "+tbl+" i WHERE " + yearClause + " " +
-                    (filterEmpNames.isEmpty() ? "" : " AND i."+colEmpName+" = ANY(?) ") +
-                    "GROUP BY 1,2";
+                    (SqlTemplateRegistry.has(m, 0) ? " AND i."+colEmpName+" = ANY(?) " : "") +
+                    "GROUP BY 1,2");
             List<Map<String,Object>> rowsName = jdbc.query(sqlName, ps -> {
                 int idx = 1;
-                if (useExact) { for (Integer yy : targetYears) ps.setInt(idx++, yy); } else { ps.setInt(idx++, prev); }
+                ps.setArray(idx++, ps.getConnection().createArrayOf("int4", yearsArr));
                 if (!filterEmpNames.isEmpty()) ps.setArray(idx++, ps.getConnection().createArrayOf("text", filterEmpNames.toArray()));
             }, (rs, i) -> {
                 Map<String,Object> m = new LinkedHashMap<>();
@@ -186,15 +188,16 @@ public class SalesReportController {
             });
 
             // Company-type totals filtered by name directly on invoice
-            String colCompany2 = env.getProperty("app.invoice.columns.company_type", "company_type");
-            String sqlCompByName = "SELECT COALESCE(i."+colCompany2+", 'UNKNOWN') AS company_type, " +
+            String colCompany2 = invCfg.getCompanyTypeColumn();
+            String sqlCompByName = templates.get("report.employeeYearly.companyByName", nameMask, Dialect.POSTGRES, m ->
+                    "SELECT COALESCE(i."+colCompany2+", 'UNKNOWN') AS company_type, " +
                     "COALESCE(SUM(COALESCE(i."+colAmt+",0)),0)::double precision AS amount " +
                     "FROM "+tbl+" i WHERE " + yearClause + " " +
-                    (filterEmpNames.isEmpty() ? "" : " AND i."+colEmpName+" = ANY(?) ") +
-                    "GROUP BY 1 ORDER BY 1";
+                    (SqlTemplateRegistry.has(m, 0) ? " AND i."+colEmpName+" = ANY(?) " : "") +
+                    "GROUP BY 1 ORDER BY 1");
             List<Map<String,Object>> companyTotals = jdbc.query(sqlCompByName, ps -> {
                 int idx = 1;
-                if (useExact) { for (Integer yy : targetYears) ps.setInt(idx++, yy); } else { ps.setInt(idx++, prev); }
+                ps.setArray(idx++, ps.getConnection().createArrayOf("int4", yearsArr));
                 if (!filterEmpNames.isEmpty()) ps.setArray(idx++, ps.getConnection().createArrayOf("text", filterEmpNames.toArray()));
             }, (rs, i) -> {
                 Map<String,Object> m = new LinkedHashMap<>();
@@ -209,15 +212,17 @@ public class SalesReportController {
         }
 
         // === Default seq-based path (existing behavior) ===
-        String sqlEmp = "SELECT i."+colEmp+"::bigint AS emp_seq, COALESCE(i."+colCompany+", 'UNKNOWN') AS company_type, " +
+        int seqMask = SqlTemplateRegistry.bit(0, !filterEmpSeqs.isEmpty());
+        String sqlEmp = templates.get("report.employeeYearly.bySeq", seqMask, Dialect.POSTGRES, m ->
+                "SELECT i."+colEmp+"::bigint AS emp_seq, COALESCE(i."+colCompany+", 'UNKNOWN') AS company_type, " +
                 "COALESCE(SUM(COALESCE(i."+colAmt+",0)),0)::double precision AS amount " +
                 "FROM "+tbl+" i WHERE " + yearClause + " " +
-                (filterEmpSeqs.isEmpty() ? "" : " AND i."+colEmp+" = ANY(?) ") +
-                "GROUP BY 1,2";
+                (SqlTemplateRegistry.has(m, 0) ? " AND i."+colEmp+" = ANY(?) " : "") +
+                "GROUP BY 1,2");
 
         List<Map<String,Object>> rowsEmp = jdbc.query(sqlEmp, ps -> {
             int idx = 1;
-            if (useExact) { for (Integer yy : targetYears) ps.setInt(idx++, yy); } else { ps.setInt(idx++, prev); }
+            ps.setArray(idx++, ps.getConnection().createArrayOf("int4", yearsArr));
             if (!filterEmpSeqs.isEmpty()) {
                 ps.setArray(idx++, ps.getConnection().createArrayOf("bigint", filterEmpSeqs.toArray()));
             }
@@ -246,16 +251,12 @@ public class SalesReportController {
         if (!filterEmpSeqs.isEmpty()) seqSet.addAll(filterEmpSeqs);
         if (seqSet.isEmpty()) return ResponseEntity.ok(List.of());
 
-        // Avoid ANY/ARRAY to reduce driver issues; use IN list
-        List<Long> ids = new ArrayList<>(seqSet);
-        if (ids.isEmpty()) return ResponseEntity.ok(List.of());
-        StringBuilder in = new StringBuilder("(");
-        for (int i=0;i<ids.size();i++){ if(i>0) in.append(","); in.append("?"); }
-        in.append(")");
-        String empSql = "SELECT emp_seq, emp_id, emp_name, dept_name FROM public.employee WHERE emp_seq IN " + in;
+        // 단일 배열 파라미터로 바인드 (IN 목록 길이마다 다른 SQL이 생기지 않도록)
+        Long[] ids = seqSet.toArray(new Long[0]);
+        String empSql = "SELECT emp_seq, emp_id, emp_name, dept_name FROM public.employee WHERE emp_seq = ANY(?)";
         Map<Long, Map<String,Object>> empMap = new HashMap<>();
         jdbc.query(empSql, ps -> {
-            int idx = 1; for (Long v : ids) ps.setLong(idx++, v);
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
         }, (rs, i) -> {
             Map<String,Object> m = new LinkedHashMap<>();
             m.put("emp_seq", rs.getLong(1));
@@ -305,16 +306,17 @@ public class SalesReportController {
         });
 
         // Company-type totals (restricted to the same emp filter)
-        String colCompany2 = env.getProperty("app.invoice.columns.company_type", "company_type");
+        String colCompany2 = invCfg.getCompanyTypeColumn();
         List<Map<String,Object>> companyTotals;
         if (!groupByName) {
-            String sqlComp = "SELECT COALESCE(i."+colCompany2+", 'UNKNOWN') AS company_type, COALESCE(SUM(COALESCE(i."+colAmt+",0)),0)::double precision AS amount FROM "+tbl+" i " +
+            String sqlComp = templates.get("report.employeeYearly.companyBySeq", seqMask, Dialect.POSTGRES, m ->
+                    "SELECT COALESCE(i."+colCompany2+", 'UNKNOWN') AS company_type, COALESCE(SUM(COALESCE(i."+colAmt+",0)),0)::double precision AS amount FROM "+tbl+" i " +
                     "WHERE " + yearClause + " " +
-                    (filterEmpSeqs.isEmpty() ? "" : " AND i."+colEmp+" = ANY(?) ") +
-                    "GROUP BY 1 ORDER BY 1";
+                    (SqlTemplateRegistry.has(m, 0) ? " AND i."+colEmp+" = ANY(?) " : "") +
+                    "GROUP BY 1 ORDER BY 1");
             companyTotals = jdbc.query(sqlComp, ps -> {
                 int idx = 1;
-                if (useExact) { for (Integer yy : targetYears) ps.setInt(idx++, yy); } else { ps.setInt(idx++, prev); }
+                ps.setArray(idx++, ps.getConnection().createArrayOf("int4", yearsArr));
                 if (!filterEmpSeqs.isEmpty()) ps.setArray(idx++, ps.getConnection().createArrayOf("bigint", filterEmpSeqs.toArray()));
             }, (rs, i) -> {
                 Map<String,Object> m = new LinkedHashMap<>();
@@ -325,7 +327,7 @@ public class SalesReportController {
         } else {
             String sqlCompByName = "SELECT COALESCE(i."+colCompany2+", 'UNKNOWN') AS company_type, " +
                     "COALESCE(SUM(COALESCE(i."+colAmt+",0)),0)::double precision AS amount " +
-                    "FROM "+tbl+" i WHERE EXTRACT(YEAR FROM "+dateExpr+") = ? " +
+                    "FROM "+tbl+" i WHERE "+yearExpr+" = ? " +
                     (filterEmpNames.isEmpty() ? "" : " AND i."+colEmpName+" = ANY(?) ") +
                     "GROUP BY 1 ORDER BY 1";
             companyTotals = jdbc.query(sqlCompByName, ps -> {
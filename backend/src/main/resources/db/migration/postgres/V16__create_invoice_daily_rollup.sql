@@ -0,0 +1,18 @@
+-- Daily invoice rollup (invoice_day x invoice customer_seq) used by the dashboard summary
+-- public.customer is joined at read time, so invoices whose customer is loaded later are counted once the customer
+-- exists, and company_type changes apply immediately.
+CREATE TABLE IF NOT EXISTS public.invoice_daily_rollup (
+    invoice_day DATE NOT NULL,
+    customer_seq BIGINT NOT NULL,
+    cur_amt NUMERIC(20, 2) NOT NULL DEFAULT 0,
+    row_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT invoice_daily_rollup_pk PRIMARY KEY (invoice_day, customer_seq)
+);
+
+-- Watermark of the last invoice_seq folded into each rollup
+CREATE TABLE IF NOT EXISTS public.invoice_rollup_state (
+    rollup_name VARCHAR(50) PRIMARY KEY,
+    last_invoice_seq BIGINT NOT NULL DEFAULT 0,
+    refreshed_at TIMESTAMPTZ
+);
@@ -0,0 +1,68 @@
+-- Derived columns for credit_ar_aging, computed by Postgres on every insert/update so the
+-- externally loaded snapshot carries them without loader changes.
+--   overdue_amount : sum of buckets older than 30 days (NULL buckets as 0)
+--   overdue_ratio  : overdue_amount / total_ar, 4 decimals (NULL when total_ar <= 0)
+--   risk_level     : high (> 30%), medium (> 10%), low
+--   oldest_bucket  : label of the oldest bucket with a positive amount ('0-30' .. 'over-365')
+-- Generated columns cannot reference each other, so the overdue sum is repeated.
+DO $$
+BEGIN
+    IF to_regclass('public.credit_ar_aging') IS NULL THEN
+        RAISE NOTICE 'credit_ar_aging not found, skipping derived columns';
+        RETURN;
+    END IF;
+
+    ALTER TABLE public.credit_ar_aging
+        ADD COLUMN IF NOT EXISTS overdue_amount NUMERIC GENERATED ALWAYS AS (
+            COALESCE(aging_31_60, 0) + COALESCE(aging_61_90, 0) + COALESCE(aging_91_120, 0) + COALESCE(aging_121_150, 0) +
+            COALESCE(aging_151_180, 0) + COALESCE(aging_181_210, 0) + COALESCE(aging_211_240, 0) + COALESCE(aging_241_270, 0) +
+            COALESCE(aging_271_300, 0) + COALESCE(aging_301_330, 0) + COALESCE(aging_331_365, 0) + COALESCE(aging_over_365, 0)
+        ) STORED,
+        ADD COLUMN IF NOT EXISTS overdue_ratio NUMERIC(12, 4) GENERATED ALWAYS AS (
+            CASE WHEN total_ar IS NULL OR total_ar <= 0 THEN NULL
+                 ELSE ROUND((
+                    COALESCE(aging_31_60, 0) + COALESCE(aging_61_90, 0) + COALESCE(aging_91_120, 0) + COALESCE(aging_121_150, 0) +
+                    COALESCE(aging_151_180, 0) + COALESCE(aging_181_210, 0) + COALESCE(aging_211_240, 0) + COALESCE(aging_241_270, 0) +
+                    COALESCE(aging_271_300, 0) + COALESCE(aging_301_330, 0) + COALESCE(aging_331_365, 0) + COALESCE(aging_over_365, 0)
+                 ) / total_ar, 4)
+            END
+        ) STORED,
+        ADD COLUMN IF NOT EXISTS risk_level VARCHAR(10) GENERATED ALWAYS AS (
+            CASE WHEN total_ar IS NULL OR total_ar <= 0 THEN 'low'
+                 WHEN ROUND((
+                    COALESCE(aging_31_60, 0) + COALESCE(aging_61_90, 0) + COALESCE(aging_91_120, 0) + COALESCE(aging_121_150, 0) +
+                    COALESCE(aging_151_180, 0) + COALESCE(aging_181_210, 0) + COALESCE(aging_211_240, 0) + COALESCE(aging_241_270, 0) +
+                    COALESCE(aging_271_300, 0) + COALESCE(aging_301_330, 0) + COALESCE(aging_331_365, 0) + COALESCE(aging_over_365, 0)
+                 ) / total_ar, 4) > 0.3 THEN 'high'
+                 WHEN ROUND((
+                    COALESCE(aging_31_60, 0) + COALESCE(aging_61_90, 0) + COALESCE(aging_91_120, 0) + COALESCE(aging_121_150, 0) +
+                    COALESCE(aging_151_180, 0) + COALESCE(aging_181_210, 0) + COALESCE(aging_211_240, 0) + COALESCE(aging_241_270, 0) +
+                    COALESCE(aging_271_300, 0) + COALESCE(aging_301_330, 0) + COALESCE(aging_331_365, 0) + COALESCE(aging_over_365, 0)
+                 ) / total_ar, 4) > 0.1 THEN 'medium'
+                 ELSE 'low'
+            END
+        ) STORED,
+        ADD COLUMN IF NOT EXISTS oldest_bucket VARCHAR(10) GENERATED ALWAYS AS (
+            CASE WHEN aging_over_365 > 0 THEN 'over-365'
+                 WHEN aging_331_365 > 0 THEN '331-365'
+                 WHEN aging_301_330 > 0 THEN '301-330'
+                 WHEN aging_271_300 > 0 THEN '271-300'
+                 WHEN aging_241_270 > 0 THEN '241-270'
+                 WHEN aging_211_240 > 0 THEN '211-240'
+                 WHEN aging_181_210 > 0 THEN '181-210'
+                 WHEN aging_151_180 > 0 THEN '151-180'
+                 WHEN aging_121_150 > 0 THEN '121-150'
+                 WHEN aging_91_120 > 0 THEN '91-120'
+                 WHEN aging_61_90 > 0 THEN '61-90'
+                 WHEN aging_31_60 > 0 THEN '31-60'
+                 WHEN aging_0_30 > 0 THEN '0-30'
+            END
+        ) STORED;
+
+    CREATE INDEX IF NOT EXISTS idx_credit_ar_aging_snapshot_bucket
+        ON public.credit_ar_aging (snapshot_date, oldest_bucket, company_type);
+    CREATE INDEX IF NOT EXISTS idx_credit_ar_aging_snapshot_risk
+        ON public.credit_ar_aging (snapshot_date, risk_level, company_type);
+    CREATE INDEX IF NOT EXISTS idx_credit_ar_aging_customer_snapshot
+        ON public.credit_ar_aging (customer_seq, snapshot_date DESC);
+END $$;
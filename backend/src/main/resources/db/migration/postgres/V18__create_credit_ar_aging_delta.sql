@@ -0,0 +1,30 @@
+-- Per-customer change between two credit_ar_aging snapshots (usually previous -> latest),
+-- precomputed when a new snapshot is detected so the credit committee view is a single index read.
+-- One row per (customer_seq, company_type): a customer with both TNT and DYS balances gets one row per company.
+-- NULL company_type is stored as ''.
+-- bucket ranks: 0 = no balance, 1 = 0-30 ... 13 = over-365; bucket_shift > 0 means the account aged further.
+CREATE TABLE IF NOT EXISTS public.credit_ar_aging_delta (
+    from_snapshot DATE NOT NULL,
+    to_snapshot DATE NOT NULL,
+    customer_seq BIGINT NOT NULL,
+    customer_name VARCHAR(200),
+    company_type VARCHAR(16) NOT NULL DEFAULT '',
+    emp_name VARCHAR(100),
+    from_total_ar NUMERIC,
+    to_total_ar NUMERIC,
+    total_ar_change NUMERIC NOT NULL DEFAULT 0,
+    from_overdue NUMERIC,
+    to_overdue NUMERIC,
+    overdue_change NUMERIC NOT NULL DEFAULT 0,
+    from_bucket SMALLINT NOT NULL DEFAULT 0,
+    to_bucket SMALLINT NOT NULL DEFAULT 0,
+    bucket_shift SMALLINT NOT NULL DEFAULT 0,
+    from_risk VARCHAR(10),
+    to_risk VARCHAR(10),
+    change_type VARCHAR(10) NOT NULL,
+    computed_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT credit_ar_aging_delta_pk PRIMARY KEY (to_snapshot, from_snapshot, customer_seq, company_type)
+);
+
+CREATE INDEX IF NOT EXISTS idx_credit_ar_aging_delta_worst
+    ON public.credit_ar_aging_delta (to_snapshot, from_snapshot, bucket_shift DESC, overdue_change DESC);
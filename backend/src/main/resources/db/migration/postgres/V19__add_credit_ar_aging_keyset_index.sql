@@ -0,0 +1,12 @@
+-- Keyset pagination for the credit AR aging screen: ORDER BY total_ar DESC, COALESCE(customer_seq, 0) DESC, id DESC
+-- within one snapshot (NULL customer_seq sorts as 0), so each page is an index range read instead of a sort of the whole snapshot.
+DO $$
+BEGIN
+    IF to_regclass('public.credit_ar_aging') IS NULL THEN
+        RAISE NOTICE 'credit_ar_aging not found, skipping keyset index';
+        RETURN;
+    END IF;
+
+    CREATE INDEX IF NOT EXISTS idx_credit_ar_aging_snapshot_total
+        ON public.credit_ar_aging (snapshot_date, total_ar DESC, (COALESCE(customer_seq, 0)) DESC, id DESC);
+END $$;
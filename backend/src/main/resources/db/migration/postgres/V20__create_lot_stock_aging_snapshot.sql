@@ -0,0 +1,32 @@
+-- MSSQL _TLGInOutLotStock in-date groups (item x lot x warehouse x in-out date) with a positive net balance,
+-- loaded nightly so /api/v1/inventory/stock-aging can bucket past dates without touching the ERP ledger.
+-- A group only contains movements dated in_date, so it is valid for every as-of date >= in_date;
+-- the state row records the last ledger date loaded (loaded_through).
+CREATE TABLE IF NOT EXISTS public.lot_stock_aging_snapshot (
+    item_seq BIGINT NOT NULL,
+    lot_no VARCHAR(100) NOT NULL DEFAULT '',
+    wh_seq BIGINT NOT NULL,
+    in_date DATE NOT NULL,
+    stock_qty NUMERIC NOT NULL DEFAULT 0,
+    stock_amt NUMERIC NOT NULL DEFAULT 0,
+    loaded_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT lot_stock_aging_snapshot_pk PRIMARY KEY (item_seq, lot_no, wh_seq, in_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_lot_stock_aging_snapshot_date
+    ON public.lot_stock_aging_snapshot (in_date) INCLUDE (item_seq, lot_no, wh_seq, stock_qty, stock_amt);
+
+-- Item master copy (_TDAItem) used for names and the item-name filter
+CREATE TABLE IF NOT EXISTS public.lot_stock_item (
+    item_seq BIGINT PRIMARY KEY,
+    item_name TEXT,
+    item_no VARCHAR(100),
+    spec TEXT,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS public.lot_stock_aging_state (
+    snapshot_name VARCHAR(50) PRIMARY KEY,
+    loaded_through DATE,
+    refreshed_at TIMESTAMPTZ
+);
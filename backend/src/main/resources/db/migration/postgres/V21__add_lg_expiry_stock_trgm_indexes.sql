@@ -0,0 +1,27 @@
+-- Trigram GIN indexes for the '%keyword%' searches on lg_expiry_stock
+-- (item popup, expiry-stock AG, /inventory/dex). lg_expiry_stock is loaded by an external feed,
+-- and pg_trgm needs CREATE privilege on the database, so both are optional: when either is
+-- missing the searches keep working as sequential scans.
+DO $$
+BEGIN
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    EXCEPTION WHEN insufficient_privilege OR undefined_file THEN
+        RAISE NOTICE 'pg_trgm not available (%), skipping trigram indexes', SQLERRM;
+        RETURN;
+    END;
+
+    IF to_regclass('public.lg_expiry_stock') IS NULL THEN
+        RAISE NOTICE 'lg_expiry_stock not found, skipping trigram indexes';
+        RETURN;
+    END IF;
+
+    CREATE INDEX IF NOT EXISTS idx_lg_expiry_stock_item_name_trgm
+        ON public.lg_expiry_stock USING gin (item_name gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_lg_expiry_stock_item_no_trgm
+        ON public.lg_expiry_stock USING gin (item_no gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_lg_expiry_stock_wh_name_trgm
+        ON public.lg_expiry_stock USING gin (wh_name gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_lg_expiry_stock_lot_no_trgm
+        ON public.lg_expiry_stock USING gin (lot_no gin_trgm_ops);
+END $$;
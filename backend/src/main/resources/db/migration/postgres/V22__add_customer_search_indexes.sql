@@ -0,0 +1,31 @@
+-- Customer search (GET /api/v1/customers/search):
+--   trigram GIN indexes for '%token%' / similarity() on name, province and city,
+--   and a (COALESCE(customer_name, ''), id) btree for keyset pages when no name is given.
+-- public.customer is loaded externally and pg_trgm may be unavailable, so both are optional.
+DO $$
+DECLARE
+    has_trgm BOOLEAN := true;
+BEGIN
+    IF to_regclass('public.customer') IS NULL THEN
+        RAISE NOTICE 'customer not found, skipping search indexes';
+        RETURN;
+    END IF;
+
+    CREATE INDEX IF NOT EXISTS idx_customer_name_keyset ON public.customer ((COALESCE(customer_name, '')), id);
+
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    EXCEPTION WHEN insufficient_privilege OR undefined_file THEN
+        RAISE NOTICE 'pg_trgm not available (%), skipping trigram indexes', SQLERRM;
+        has_trgm := false;
+    END;
+
+    IF has_trgm THEN
+        CREATE INDEX IF NOT EXISTS idx_customer_name_trgm
+            ON public.customer USING gin (customer_name gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_customer_province_trgm
+            ON public.customer USING gin (addr_province_name gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_customer_city_trgm
+            ON public.customer USING gin (addr_city_name gin_trgm_ops);
+    END IF;
+END $$;
@@ -0,0 +1,36 @@
+-- ERP order submissions (tnt_SWAPIMESOrderTextSave) queued by POST /api/v1/orders and sent by OrderOutboxService.
+-- order_text_no is the idempotency key: resubmitting an order returns the existing row instead of a second send.
+-- erp_row holds the DataBlock1 row only; ERP credentials are added from config at send time.
+-- erp_row_hash: SHA-256 (hex) of company_code + erp_row JSON. Resubmitting an order_text_no is treated as the same order
+--   only when the hash matches; a different body under the same number is rejected (409) instead of being dropped.
+-- status: PENDING -> SENDING (leased until locked_until) -> SENT | PENDING (retry at next_attempt_at) | FAILED
+-- outcome_unknown: the last send hit a read timeout, so the ERP may already have saved the order.
+--   The next attempt looks the OrderTextNo up in <DB>.dbo.tnt_TSLOrderText before sending again.
+CREATE TABLE IF NOT EXISTS public.order_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    order_text_no VARCHAR(50) NOT NULL,
+    company_code VARCHAR(16) NOT NULL,
+    user_id VARCHAR(100),
+    erp_row JSONB NOT NULL,
+    erp_row_hash VARCHAR(64) NOT NULL,
+    slack_payload JSONB,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    outcome_unknown BOOLEAN NOT NULL DEFAULT false,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    locked_until TIMESTAMPTZ,
+    http_status INT,
+    external_status TEXT,
+    external_results TEXT,
+    last_error TEXT,
+    slack_ok BOOLEAN,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    sent_at TIMESTAMPTZ,
+    CONSTRAINT order_outbox_order_text_no_uq UNIQUE (order_text_no),
+    CONSTRAINT order_outbox_status_chk CHECK (status IN ('PENDING', 'SENDING', 'SENT', 'FAILED'))
+);
+
+-- Dispatcher claim scan: due PENDING rows and expired SENDING leases only
+CREATE INDEX IF NOT EXISTS idx_order_outbox_due
+    ON public.order_outbox (next_attempt_at, id) WHERE status IN ('PENDING', 'SENDING');
@@ -0,0 +1,45 @@
+package com.tnt.sales.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기 복제본 경로 표시의 작업 스레드 전달
+ */
+class ReadRoutingDataSourceTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        ReadRoutingDataSource.clearReadRoute();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void markedRouteIsSetInTaskThreadAndClearedAfterwards() throws Exception {
+        ReadRoutingDataSource.markReadRoute();
+        Supplier<Boolean> task = ReadRoutingDataSource.withCurrentRoute(ReadRoutingDataSource::isReadRoute);
+
+        assertThat(CompletableFuture.supplyAsync(task, executor).get()).isTrue();
+        // 같은 스레드에서 작업이 끝난 뒤에는 표시가 남지 않음
+        ReadRoutingDataSource.clearReadRoute();
+        assertThat(task.get()).isTrue();
+        assertThat(ReadRoutingDataSource.isReadRoute()).isFalse();
+    }
+
+    @Test
+    void unmarkedRouteStaysOnPrimary() throws Exception {
+        Supplier<Boolean> task = ReadRoutingDataSource::isReadRoute;
+
+        assertThat(ReadRoutingDataSource.withCurrentRoute(task)).isSameAs(task);
+        assertThat(CompletableFuture.supplyAsync(ReadRoutingDataSource.withCurrentRoute(task), executor).get()).isFalse();
+    }
+}
@@ -0,0 +1,60 @@
+package com.tnt.sales.credit.service;
+
+import com.tnt.sales.credit.service.CreditService.ArAgingCursor;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * AR aging keyset 커서 인코딩/디코딩
+ */
+class ArAgingCursorTest {
+
+    @Test
+    void cursorRoundTripsAllKeyParts() {
+        ArAgingCursor cursor = new ArAgingCursor(new BigDecimal("12345678.90"), 42L, 7L);
+        String encoded = cursor.encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+        assertThat(ArAgingCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void nullTotalRoundTrips() {
+        ArAgingCursor cursor = new ArAgingCursor(null, 3L, 9L);
+
+        assertThat(ArAgingCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void nullCustomerSeqIsKeyedAsZero() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("total_ar", new BigDecimal("100.00"));
+        row.put("customer_seq", null);
+        row.put("id", 5L);
+
+        assertThat(ArAgingCursor.of(row)).isEqualTo(new ArAgingCursor(new BigDecimal("100.00"), 0L, 5L));
+
+        row.put("total_ar", null);
+        row.put("customer_seq", 11);
+        assertThat(ArAgingCursor.of(row)).isEqualTo(new ArAgingCursor(null, 11L, 5L));
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(ArAgingCursor.decode(null)).isNull();
+        assertThat(ArAgingCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> ArAgingCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+}
@@ -0,0 +1,191 @@
+package com.tnt.sales.credit.service;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 스냅샷 간 고객·회사별 변동 분류와 저장/재계산 조건 검증
+ * H2(PostgreSQL 모드)에 V18 마이그레이션을 그대로 적용해 실행한다.
+ */
+class ArAgingDeltaServiceTest {
+
+    private static final LocalDate D1 = LocalDate.of(2026, 9, 30);
+    private static final LocalDate D2 = LocalDate.of(2026, 10, 15);
+    private static final LocalDate D3 = LocalDate.of(2026, 10, 31);
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ArAgingDeltaService service;
+    private long id;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        jdbc = new JdbcTemplate(dataSource);
+        // H2에는 TIMESTAMPTZ 별칭이 없어 표준 타입명으로 바꿔 적용
+        String v18 = new ClassPathResource("db/migration/postgres/V18__create_credit_ar_aging_delta.sql")
+                .getContentAsString(StandardCharsets.UTF_8).replace("TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE");
+        ScriptUtils.executeSqlScript(dataSource.getConnection(), new ByteArrayResource(v18.getBytes(StandardCharsets.UTF_8)));
+        jdbc.execute("CREATE TABLE public.credit_ar_aging (id BIGINT PRIMARY KEY, snapshot_date DATE, customer_seq BIGINT, " +
+                "customer_name VARCHAR(200), company_type VARCHAR(16), emp_name VARCHAR(100), total_ar NUMERIC(20, 2), " +
+                "aging_0_30 NUMERIC(20, 2), aging_31_60 NUMERIC(20, 2), aging_61_90 NUMERIC(20, 2), aging_91_120 NUMERIC(20, 2), " +
+                "aging_121_150 NUMERIC(20, 2), aging_151_180 NUMERIC(20, 2), aging_181_210 NUMERIC(20, 2), " +
+                "aging_211_240 NUMERIC(20, 2), aging_241_270 NUMERIC(20, 2), aging_271_300 NUMERIC(20, 2), " +
+                "aging_301_330 NUMERIC(20, 2), aging_331_365 NUMERIC(20, 2), aging_over_365 NUMERIC(20, 2), " +
+                // V17 생성 컬럼 (30일 초과 버킷 합계)은 테스트에서 직접 채움, H2에서 정밀도 없는 NUMERIC은 DECFLOAT라 나눗셈이 느려 (20, 2)로 고정
+                "overdue_amount NUMERIC(20, 2))");
+
+        MockEnvironment env = new MockEnvironment().withProperty("app.credit.snapshot-cache-ttl-ms", "0");
+        ArAgingSnapshotTracker tracker = new ArAgingSnapshotTracker(jdbc, env);
+        service = new ArAgingDeltaService(jdbc, env, new QueryConfigHelper(env), tracker,
+                new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) dataSource.destroy();
+    }
+
+    @Test
+    void classifiesChangesPerCustomerAndCompany() {
+        seedTwoSnapshots();
+
+        Map<String, Object> result = service.getDelta(null, null, null, null, 100);
+
+        assertThat(result.get("fromSnapshot")).isEqualTo(D1);
+        assertThat(result.get("toSnapshot")).isEqualTo(D2);
+        assertThat(result.get("precomputed")).isEqualTo(false);
+        Map<String, Map<String, Object>> byKey = byCustomerAndCompany(result);
+        assertThat(byKey).hasSize(5);
+
+        Map<String, Object> worsened = byKey.get("1/TNT");
+        assertThat(worsened.get("change_type")).isEqualTo("WORSENED");
+        assertThat(((Number) worsened.get("bucket_shift")).intValue()).isEqualTo(2);
+        assertThat(worsened.get("from_bucket_label")).isEqualTo("0-30");
+        assertThat(worsened.get("to_bucket_label")).isEqualTo("61-90");
+        assertThat(worsened.get("from_risk")).isEqualTo("low");
+        assertThat(worsened.get("to_risk")).isEqualTo("high");
+        // 같은 고객의 다른 회사 잔액은 합산되지 않고 별도 행
+        assertThat(byKey.get("1/DYS").get("change_type")).isEqualTo("UNCHANGED");
+        assertThat(byKey.get("2/").get("change_type")).isEqualTo("NEW");
+        assertThat(byKey.get("3/TNT").get("change_type")).isEqualTo("CLEARED");
+        assertThat(byKey.get("4/TNT").get("change_type")).isEqualTo("IMPROVED");
+
+        Map<String, Object> onlyNew = service.getDelta(D1, D2, "new", null, 100);
+        assertThat(items(onlyNew)).extracting(r -> ((Number) r.get("customer_seq")).longValue()).containsExactly(2L);
+        assertThat(items(service.getDelta(D1, D2, null, "DYS", 100))).hasSize(1);
+        assertThat(items(service.getDelta(D1, D2, null, null, 2))).hasSize(2);
+    }
+
+    @Test
+    void storedDeltaMatchesOnTheFlyComputation() {
+        seedTwoSnapshots();
+        Map<String, Map<String, Object>> live = byCustomerAndCompany(service.getDelta(D1, D2, null, null, 100));
+
+        service.scheduledRefresh();
+
+        Map<String, Object> stored = service.getDelta(D1, D2, null, null, 100);
+        assertThat(stored.get("precomputed")).isEqualTo(true);
+        Map<String, Map<String, Object>> byKey = byCustomerAndCompany(stored);
+        assertThat(byKey.keySet()).isEqualTo(live.keySet());
+        for (String key : live.keySet()) {
+            assertThat(byKey.get(key).get("change_type")).as(key).isEqualTo(live.get(key).get("change_type"));
+            assertThat(byKey.get(key).get("bucket_shift")).as(key).isEqualTo(live.get(key).get("bucket_shift"));
+            assertThat(decimal(byKey.get(key).get("overdue_change"))).as(key)
+                    .isEqualByComparingTo(decimal(live.get(key).get("overdue_change")));
+        }
+    }
+
+    @Test
+    void scheduledRefreshOnlyRecomputesWhenLatestPairChanges() {
+        seedTwoSnapshots();
+        service.scheduledRefresh();
+        Timestamps first = computedAt(D1, D2);
+
+        // 같은 쌍이면 다시 계산하지 않음 (재적재는 refresh 로 명시 재계산)
+        jdbc.update("UPDATE public.credit_ar_aging SET aging_over_365 = 999, overdue_amount = overdue_amount + 999 " +
+                "WHERE snapshot_date = ? AND customer_seq = 4", D2);
+        service.scheduledRefresh();
+        assertThat(computedAt(D1, D2)).isEqualTo(first);
+        assertThat(changeType(D1, D2, 4)).isEqualTo("IMPROVED");
+
+        service.refresh(D1, D2);
+        assertThat(changeType(D1, D2, 4)).isEqualTo("WORSENED");
+
+        // 새 스냅샷이 들어오면 (D2 -> D3) 쌍을 계산
+        insert(D3, 1, "TNT", 100, 0, 0, 100);
+        service.scheduledRefresh();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM public.credit_ar_aging_delta WHERE from_snapshot = ? AND to_snapshot = ?",
+                Integer.class, D2, D3)).isPositive();
+    }
+
+    private void seedTwoSnapshots() {
+        insert(D1, 1, "TNT", 100, 100, 0, 0);
+        insert(D2, 1, "TNT", 100, 20, 0, 80);
+        insert(D1, 1, "DYS", 50, 50, 0, 0);
+        insert(D2, 1, "DYS", 50, 50, 0, 0);
+        insert(D2, 2, null, 70, 70, 0, 0);
+        insert(D1, 3, "TNT", 30, 0, 30, 0);
+        insert(D1, 4, "TNT", 200, 0, 0, 200);
+        insert(D2, 4, "TNT", 150, 100, 50, 0);
+    }
+
+    private void insert(LocalDate snapshot, long customerSeq, String company, double total,
+                        double aging030, double aging3160, double aging6190) {
+        jdbc.update("INSERT INTO public.credit_ar_aging (id, snapshot_date, customer_seq, customer_name, company_type, emp_name, " +
+                        "total_ar, aging_0_30, aging_31_60, aging_61_90, overdue_amount) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                ++id, snapshot, customerSeq, "거래처" + customerSeq, company, "담당자",
+                BigDecimal.valueOf(total), BigDecimal.valueOf(aging030), BigDecimal.valueOf(aging3160), BigDecimal.valueOf(aging6190),
+                BigDecimal.valueOf(aging3160 + aging6190));
+    }
+
+    private record Timestamps(List<Object> values) { }
+
+    private Timestamps computedAt(LocalDate from, LocalDate to) {
+        return new Timestamps(jdbc.queryForList(
+                "SELECT computed_at FROM public.credit_ar_aging_delta WHERE from_snapshot = ? AND to_snapshot = ? " +
+                "ORDER BY customer_seq, company_type", Object.class, from, to));
+    }
+
+    private String changeType(LocalDate from, LocalDate to, long customerSeq) {
+        return jdbc.queryForObject("SELECT change_type FROM public.credit_ar_aging_delta " +
+                "WHERE from_snapshot = ? AND to_snapshot = ? AND customer_seq = ?", String.class, from, to, customerSeq);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> items(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("items");
+    }
+
+    private static Map<String, Map<String, Object>> byCustomerAndCompany(Map<String, Object> result) {
+        Map<String, Map<String, Object>> byKey = new HashMap<>();
+        for (Map<String, Object> row : items(result)) {
+            byKey.put(((Number) row.get("customer_seq")).longValue() + "/" + row.get("company_type"), row);
+        }
+        return byKey;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return new BigDecimal(value.toString());
+    }
+}
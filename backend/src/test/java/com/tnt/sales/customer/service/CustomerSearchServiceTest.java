@@ -0,0 +1,57 @@
+package com.tnt.sales.customer.service;
+
+import com.tnt.sales.customer.service.CustomerSearchService.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 거래처 검색 keyset 커서 인코딩/디코딩
+ */
+class CustomerSearchServiceTest {
+
+    @Test
+    void cursorRoundTripsAllKeyParts() {
+        SearchCursor cursor = new SearchCursor(1, 0.4285714, 12345L, "강천상사 | 본점");
+        String encoded = cursor.encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+        assertThat(SearchCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void cursorIsBuiltFromLastRowOfPage() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("hasPlan", true);
+        row.put("score", 0.25d);
+        row.put("id", 7L);
+        row.put("customerName", null);
+
+        SearchCursor cursor = SearchCursor.of(row);
+
+        assertThat(cursor).isEqualTo(new SearchCursor(1, 0.25d, 7L, ""));
+        row.put("hasPlan", false);
+        assertThat(SearchCursor.of(row).plan()).isZero();
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(SearchCursor.decode(null)).isNull();
+        assertThat(SearchCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> SearchCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+        // 이전 형식(score|id|name)은 plan 자리가 실수라 거부
+        String legacy = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("0.5|3|name".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> SearchCursor.decode(legacy)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
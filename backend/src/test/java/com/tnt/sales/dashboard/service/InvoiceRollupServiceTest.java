@@ -0,0 +1,147 @@
+package com.tnt.sales.dashboard.service;
+
+import com.tnt.sales.common.QueryConfigHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 롤업 합계(sumRanges)가 원본 invoice 집계(sales-summary fallback 쿼리)와 같은지 검증
+ * H2(PostgreSQL 모드)에 V16 마이그레이션을 그대로 적용해 실행한다.
+ */
+class InvoiceRollupServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private InvoiceRollupService service;
+    private TransactionTemplate tx;
+    private QueryConfigHelper configHelper;
+    private long seq;
+
+    private void setUp(boolean dateIsText) throws Exception {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        jdbc = new JdbcTemplate(dataSource);
+        // H2에는 TIMESTAMPTZ 별칭이 없어 표준 타입명으로 바꿔 적용
+        String v16 = new ClassPathResource("db/migration/postgres/V16__create_invoice_daily_rollup.sql")
+                .getContentAsString(StandardCharsets.UTF_8).replace("TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE");
+        ScriptUtils.executeSqlScript(dataSource.getConnection(), new ByteArrayResource(v16.getBytes(StandardCharsets.UTF_8)));
+        jdbc.execute("CREATE TABLE public.customer (customer_seq BIGINT PRIMARY KEY, company_type VARCHAR(16))");
+        jdbc.execute("CREATE TABLE public.invoice (invoice_seq BIGINT PRIMARY KEY, customer_seq VARCHAR(20), " +
+                "invoice_date " + (dateIsText ? "VARCHAR(10)" : "DATE") + ", cur_amt NUMERIC(20, 2))");
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.invoice.columns.invoice_date_is_text", String.valueOf(dateIsText))
+                .withProperty("app.invoice.columns.invoice_date_format", "YYYY-MM-DD")
+                .withProperty("app.dashboard.rollup.seq-overlap", "2");
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(dataSource);
+        configHelper = new QueryConfigHelper(env);
+        service = new InvoiceRollupService(jdbc, env, configHelper, txManager);
+        tx = new TransactionTemplate(txManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) dataSource.destroy();
+    }
+
+    @Test
+    void rollupMatchesRawAggregationForTextDates() throws Exception {
+        setUp(true);
+        seedAndAssertEquivalent(true);
+    }
+
+    @Test
+    void rollupMatchesRawAggregationForDateColumn() throws Exception {
+        setUp(false);
+        seedAndAssertEquivalent(false);
+    }
+
+    @Test
+    void isReadyOnlyAfterFirstRefresh() throws Exception {
+        setUp(true);
+        assertThat(service.isReady()).isFalse();
+        tx.execute(s -> service.refresh());
+        assertThat(service.isReady()).isTrue();
+    }
+
+    private void seedAndAssertEquivalent(boolean dateIsText) {
+        jdbc.update("INSERT INTO public.customer VALUES (1, 'TNT'), (2, 'DYS'), (3, 'tnt')");
+        LocalDate day = TODAY.minusDays(400);
+        for (int k = 0; k < 120; k++, day = day.plusDays(3)) {
+            insertInvoice(String.valueOf(1 + k % 3), day, 1000 + k, dateIsText);
+        }
+        insertInvoice("9", TODAY.minusDays(10), 555, dateIsText);       // 아직 적재되지 않은 거래처
+        insertInvoice("01", TODAY.minusDays(10), 777, dateIsText);      // TEXT 조인으로는 매칭되지 않는 키
+        insertInvoice("X-1", TODAY.minusDays(10), 888, dateIsText);
+        insertInvoice("2", null, 999, dateIsText);
+
+        tx.execute(s -> service.refresh());   // 최초 갱신은 전체 재구성
+        assertEquivalent();
+
+        // 신규 행(과거 일자 소급 포함), 당일 정정, 뒤늦게 적재된 거래처
+        insertInvoice("1", TODAY.minusDays(200), 4321, dateIsText);
+        insertInvoice("2", TODAY, 100, dateIsText);
+        insertInvoice("3", TODAY.minusDays(1), 250.5, dateIsText);
+        jdbc.update("UPDATE public.invoice SET cur_amt = cur_amt + 1 WHERE invoice_date = ?",
+                dateIsText ? TODAY.toString() : java.sql.Date.valueOf(TODAY));
+        jdbc.update("INSERT INTO public.customer VALUES (9, 'DYS')");
+        tx.execute(s -> service.refresh());
+        assertEquivalent();
+
+        // 워터마크 이전 과거 일자 정정은 재구성에서 반영
+        jdbc.update("UPDATE public.invoice SET cur_amt = 0 WHERE invoice_seq = 5");
+        tx.execute(s -> service.rebuild());
+        assertEquivalent();
+    }
+
+    private void assertEquivalent() {
+        List<LocalDate[]> ranges = new ArrayList<>();
+        ranges.add(new LocalDate[]{TODAY.minusYears(2), TODAY.plusDays(1)});
+        ranges.add(new LocalDate[]{TODAY.withDayOfYear(1), TODAY.plusDays(1)});
+        ranges.add(new LocalDate[]{TODAY.minusDays(30), TODAY.minusDays(5)});
+        ranges.add(new LocalDate[]{TODAY, TODAY.plusDays(1)});
+        ranges.add(new LocalDate[]{TODAY.minusDays(201), TODAY.minusDays(199)});
+        for (String companyType : new String[]{null, "TNT", "DYS"}) {
+            double[] rolled = service.sumRanges(ranges, companyType);
+            for (int k = 0; k < ranges.size(); k++) {
+                assertThat(rolled[k]).as("range %d, company %s", k, companyType)
+                        .isEqualTo(rawSum(ranges.get(k), companyType));
+            }
+        }
+    }
+
+    // DashboardController.salesSummary의 원본 집계와 같은 조인/조건
+    private double rawSum(LocalDate[] range, String companyType) {
+        String dateExpr = configHelper.getInvoiceConfig().dateExpr("i");
+        String sql = "SELECT SUM(CASE WHEN " + dateExpr + " >= ? AND " + dateExpr + " < ? THEN COALESCE(i.cur_amt, 0) ELSE 0 END) " +
+                "FROM public.invoice i JOIN public.customer c ON CAST(i.customer_seq AS TEXT) = CAST(c.customer_seq AS TEXT)" +
+                (companyType == null ? "" : " WHERE UPPER(c.company_type) = UPPER('" + companyType + "')");
+        BigDecimal v = jdbc.queryForObject(sql, BigDecimal.class,
+                java.sql.Date.valueOf(range[0]), java.sql.Date.valueOf(range[1]));
+        return v == null ? 0 : v.doubleValue();
+    }
+
+    private void insertInvoice(String customerSeq, LocalDate day, double amt, boolean dateIsText) {
+        Object date = day == null ? null : dateIsText ? day.toString() : java.sql.Date.valueOf(day);
+        jdbc.update("INSERT INTO public.invoice VALUES (?, ?, ?, ?)", ++seq, customerSeq, date, BigDecimal.valueOf(amt));
+    }
+}
@@ -0,0 +1,212 @@
+package com.tnt.sales.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tnt.sales.common.QueryConfigHelper;
+import com.tnt.sales.common.SchemaMetadataService;
+import com.tnt.sales.order.service.OrderOutboxService.Claimed;
+import com.tnt.sales.slack.service.SlackService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.Invocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * outbox 전송 1회의 상태 전이 (SENDING → SENT / PENDING 재시도 / FAILED / 결과 미확인)
+ */
+class OrderOutboxServiceTest {
+
+    private static final String ROW = "{\"OrderTextNo\":\"ORD-1\",\"Status\":\"0\"}";
+    private static final String SLACK = "{\"orderNo\":\"ORD-1\",\"companyCode\":\"TNT\",\"requests\":\"빠른 배송\"}";
+
+    private JdbcTemplate jdbc;
+    private JdbcTemplate mssql;
+    private ErpOrderClient erpClient;
+    private SlackService slack;
+    private OrderOutboxService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        mssql = mock(JdbcTemplate.class);
+        erpClient = mock(ErpOrderClient.class);
+        slack = mock(SlackService.class);
+        ObjectProvider<SlackService> slackProvider = mock(ObjectProvider.class);
+        when(slackProvider.getIfAvailable()).thenReturn(slack);
+        when(slack.sendOrderCopyFormat(anyString(), anyString(), anyString(), anyString(), anyString(), anyString(),
+                anyString(), anyString())).thenReturn(true);
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.orders.outbox.max-attempts", "3")
+                .withProperty("app.orders.outbox.backoff-ms", "1000");
+        service = new OrderOutboxService(jdbc, mssql, env, new QueryConfigHelper(env), new SchemaMetadataService(jdbc),
+                erpClient, slackProvider, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void successfulSendIsMarkedSentAndNotifiesSlack() {
+        when(erpClient.send(any(), any(), any())).thenReturn(result(200, "0"));
+
+        service.deliver(claimed(1, false));
+
+        assertThat(updates()).anyMatch(sql -> sql.contains("SET status = 'SENT'"));
+        verify(slack).sendOrderCopyFormat("ORD-1", "TNT", "", "", "", "", "빠른 배송", "");
+        assertThat(updates()).anyMatch(sql -> sql.contains("SET slack_ok = ?"));
+    }
+
+    @Test
+    void erpRejectionOn2xxFailsWithoutRetry() {
+        when(erpClient.send(any(), any(), any())).thenReturn(result(200, "1"));
+
+        service.deliver(claimed(1, false));
+
+        assertThat(updates()).anyMatch(sql -> sql.contains("SET external_status = ?, external_results = ?"));
+        assertThat(lastUpdate()).contains("SET status = 'FAILED'");
+        assertThat(updates()).noneMatch(sql -> sql.contains("'SENT'"));
+        verify(slack, never()).sendOrderCopyFormat(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void serverErrorIsRetriedUntilMaxAttempts() {
+        when(erpClient.send(any(), any(), any())).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        service.deliver(claimed(1, false));
+        assertThat(lastUpdate()).contains("SET status = 'PENDING'").contains("next_attempt_at");
+
+        service.deliver(claimed(3, false));
+        assertThat(lastUpdate()).contains("SET status = 'FAILED'");
+    }
+
+    @Test
+    void clientErrorFailsImmediately() {
+        when(erpClient.send(any(), any(), any())).thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        service.deliver(claimed(1, false));
+
+        assertThat(lastUpdate()).contains("SET status = 'FAILED'");
+    }
+
+    @Test
+    void connectFailureIsResentWithoutVerification() {
+        when(erpClient.send(any(), any(), any()))
+                .thenThrow(new ResourceAccessException("I/O error", new ConnectException("Connection refused")));
+
+        service.deliver(claimed(1, false));
+
+        assertThat(lastUpdate()).contains("SET status = 'PENDING'").doesNotContain("outcome_unknown = true");
+    }
+
+    @Test
+    void readTimeoutLeavesOutcomeUnknown() {
+        when(erpClient.send(any(), any(), any()))
+                .thenThrow(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+
+        service.deliver(claimed(1, false));
+        assertThat(lastUpdate()).contains("SET status = 'PENDING', outcome_unknown = true");
+
+        service.deliver(claimed(3, false));
+        assertThat(lastUpdate()).contains("SET status = 'FAILED', outcome_unknown = true");
+    }
+
+    @Test
+    void unknownOutcomeFoundInErpIsMarkedSentWithoutResend() {
+        when(mssql.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(1);
+
+        service.deliver(claimed(2, true));
+
+        assertThat(updates()).anyMatch(sql -> sql.contains("SET status = 'SENT'"));
+        verify(erpClient, never()).send(any(), any(), any());
+    }
+
+    @Test
+    void unknownOutcomeMissingInErpIsResent() {
+        when(mssql.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(0);
+        when(erpClient.send(any(), any(), any())).thenReturn(result(200, "0"));
+
+        service.deliver(claimed(2, true));
+
+        assertThat(updates()).anyMatch(sql -> sql.contains("SET outcome_unknown = false"));
+        verify(erpClient).send(eq("TNT"), eq("user"), any());
+        assertThat(updates()).anyMatch(sql -> sql.contains("SET status = 'SENT'"));
+    }
+
+    @Test
+    void unknownOutcomeWithFailedLookupIsDeferred() {
+        when(mssql.queryForObject(anyString(), eq(Integer.class), any())).thenThrow(new RuntimeException("mssql down"));
+
+        service.deliver(claimed(2, true));
+
+        assertThat(lastUpdate()).contains("SET status = 'PENDING'");
+        verify(erpClient, never()).send(any(), any(), any());
+    }
+
+    @Test
+    void invalidStoredRowFails() {
+        service.deliver(new Claimed(1L, "ORD-1", "TNT", "user", "not json", SLACK, 1, false));
+
+        assertThat(lastUpdate()).contains("SET status = 'FAILED'");
+        verify(erpClient, never()).send(any(), any(), any());
+    }
+
+    @Test
+    void externalStatusZeroOrMissingIsSuccess() {
+        assertThat(ErpOrderClient.isExternalSuccess(null)).isTrue();
+        assertThat(ErpOrderClient.isExternalSuccess("0")).isTrue();
+        assertThat(ErpOrderClient.isExternalSuccess(0)).isTrue();
+        assertThat(ErpOrderClient.isExternalSuccess("1")).isFalse();
+        assertThat(ErpOrderClient.isExternalSuccess(-1)).isFalse();
+        assertThat(result(200, "1").externalFailure()).isTrue();
+        assertThat(result(503, "1").externalFailure()).isFalse();
+    }
+
+    private static Claimed claimed(int attempts, boolean outcomeUnknown) {
+        return new Claimed(1L, "ORD-1", "TNT", "user", ROW, SLACK, attempts, outcomeUnknown);
+    }
+
+    private static ErpOrderClient.Result result(int status, String externalStatus) {
+        boolean ok = status >= 200 && status < 300 && ErpOrderClient.isExternalSuccess(externalStatus);
+        return new ErpOrderClient.Result(status, ok, "http://erp", Map.of(), Map.of(), externalStatus, "results");
+    }
+
+    // jdbc.update 로 실행된 SQL (호출 순서)
+    private List<String> updates() {
+        return mockingDetails(jdbc).getInvocations().stream()
+                .filter(inv -> inv.getMethod().getName().equals("update"))
+                .map(Invocation::getArguments)
+                .map(args -> (String) args[0])
+                .toList();
+    }
+
+    private String lastUpdate() {
+        List<String> all = updates();
+        assertThat(all).isNotEmpty();
+        return all.get(all.size() - 1);
+    }
+}
@@ -32,6 +32,12 @@ export function ARAgingDashboard() {
   const [agingBucket, setAgingBucket] = useState<string>('all')
   const [snapshotDate, setSnapshotDate] = useState<string>('latest')
 
+  // Table paging (keyset cursor, 조회 시점의 필터/스냅샷 고정)
+  const [nextCursor, setNextCursor] = useState<string | null>(null)
+  const [pageParams, setPageParams] = useState<URLSearchParams | null>(null)
+  const [loadingMore, setLoadingMore] = useState(false)
+  const [totalCount, setTotalCount] = useState(0)
+
   // Summary statistics
   const [summary, setSummary] = useState({
     totalAr: 0,
@@ -64,6 +70,50 @@ export function ARAgingDashboard() {
     }
   }
 
+  const PAGE_SIZE = 200
+
+  // API 응답 행 → 화면 컬럼
+  const toItem = (item: any): ARAgingItem => ({
+    customerSeq: item.customer_seq,
+    customerCode: item.customer_no,
+    customerName: item.customer_name,
+    companyType: item.company_type,
+    salesRep: item.emp_name,
+    department: item.dept_name,
+    totalAr: item.total_ar,
+    overdue: item.overdue,
+    aging030: item.aging_0_30,
+    aging3160: item.aging_31_60,
+    aging6190: item.aging_61_90,
+    aging91120: item.aging_91_120,
+    aging121150: item.aging_121_150,
+    aging151180: item.aging_151_180,
+    aging181210: item.aging_181_210,
+    aging211240: item.aging_211_240,
+    aging241270: item.aging_241_270,
+    aging271300: item.aging_271_300,
+    aging301330: item.aging_301_330,
+    aging331365: item.aging_331_365,
+    agingOver365: item.aging_over_365,
+    riskLevel: item.riskLevel,
+    lastCollectionDate: item.last_collection_date,
+  })
+
+  // 테이블 페이지 조회 (cursor 가 있으면 이어서 추가)
+  const fetchPage = async (params: URLSearchParams, cursor: string | null) => {
+    const pageParams = new URLSearchParams(params)
+    pageParams.append('pageSize', String(PAGE_SIZE))
+    if (cursor) pageParams.append('cursor', cursor)
+    const res = await fetch(`/api/v1/credit/ar-aging?${pageParams.toString()}`)
+    if (!res.ok) throw new Error(`API 호출 실패: ${res.status}`)
+    const data = await res.json()
+    if (data.error) throw new Error(data.error)
+    const rows = (data.items || []).map(toItem)
+    setItems((prev) => (cursor ? [...prev, ...rows] : rows))
+    setNextCursor(data.hasMore && data.nextCursor ? String(data.nextCursor) : null)
+    return data
+  }
+
   const fetchARData = async () => {
     setLoading(true)
     setError(null)
@@ -78,52 +128,26 @@ export function ARAgingDashboard() {
 
       console.log('AR Aging 조회 요청:', params.toString())
 
-      const res = await fetch(`/api/v1/credit/ar-aging?${params.toString()}`)
-      if (!res.ok) throw new Error(`API 호출 실패: ${res.status}`)
-      const data = await res.json()
-
-      console.log('AR Aging 조회 응답:', data)
-
-      // Map API response to component format
-      const items = (data.items || []).map((item: any) => ({
-        customerSeq: item.customer_seq,
-        customerCode: item.customer_no,
-        customerName: item.customer_name,
-        companyType: item.company_type,
-        salesRep: item.emp_name,
-        department: item.dept_name,
-        totalAr: item.total_ar,
-        overdue: item.overdue,
-        aging030: item.aging_0_30,
-        aging3160: item.aging_31_60,
-        aging6190: item.aging_61_90,
-        aging91120: item.aging_91_120,
-        aging121150: item.aging_121_150,
-        aging151180: item.aging_151_180,
-        aging181210: item.aging_181_210,
-        aging211240: item.aging_211_240,
-        aging241270: item.aging_241_270,
-        aging271300: item.aging_271_300,
-        aging301330: item.aging_301_330,
-        aging331365: item.aging_331_365,
-        agingOver365: item.aging_over_365,
-        riskLevel: item.riskLevel,
-        lastCollectionDate: item.last_collection_date,
-      }))
-      setItems(items)
-
-      // Calculate summary
-      const highRisk = items.filter((it: ARAgingItem) => it.riskLevel === 'high')
-      const mediumRisk = items.filter((it: ARAgingItem) => it.riskLevel === 'medium')
-      const lowRisk = items.filter((it: ARAgingItem) => it.riskLevel === 'low')
+      // 첫 페이지를 먼저 받아 'latest' 를 실제 스냅샷 일자로 고정 → 요약과 이후 페이지가 같은 스냅샷을 보도록 함
+      const data = await fetchPage(params, null)
+      if (!params.has('snapshotDate') && typeof data.snapshotDate === 'string' && /^\d{4}-\d{2}-\d{2}/.test(data.snapshotDate)) {
+        params.set('snapshotDate', data.snapshotDate.slice(0, 10))
+      }
+      setPageParams(params)
 
+      // 요약 카드는 서버 집계 사용 (전체 행을 내려받지 않음)
+      const res = await fetch(`/api/v1/credit/ar-aging/summary?${params.toString()}`)
+      if (!res.ok) throw new Error(`API 호출 실패: ${res.status}`)
+      const s = await res.json()
+      if (s.error) throw new Error(s.error)
+      setTotalCount(Number(s.totalCount) || 0)
       setSummary({
-        totalAr: items.reduce((sum: number, it: ARAgingItem) => sum + (it.totalAr || 0), 0),
-        overdueAr: items.reduce((sum: number, it: ARAgingItem) => sum + (it.overdue || 0), 0),
-        overdueCount: highRisk.length,
-        aging30Ar: items.reduce((sum: number, it: ARAgingItem) => sum + (it.aging030 || 0), 0),
-        aging30Count: lowRisk.length,
-        normalAr: items.reduce((sum: number, it: ARAgingItem) => sum + (it.aging030 || 0), 0),
+        totalAr: Number(s.totalAr) || 0,
+        overdueAr: Number(s.overdueAr) || 0,
+        overdueCount: Number(s.highCount) || 0,
+        aging30Ar: Number(s.aging030Ar) || 0,
+        aging30Count: Number(s.lowCount) || 0,
+        normalAr: Number(s.aging030Ar) || 0,
       })
     } catch (err: any) {
       console.error('AR Aging 조회 실패:', err)
@@ -133,6 +157,19 @@ export function ARAgingDashboard() {
     }
   }
 
+  const fetchMore = async () => {
+    if (!nextCursor || !pageParams) return
+    setLoadingMore(true)
+    try {
+      await fetchPage(pageParams, nextCursor)
+    } catch (err: any) {
+      console.error('AR Aging 추가 조회 실패:', err)
+      setError(err.message || '데이터 조회 중 오류가 발생했습니다.')
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   useEffect(() => {
     fetchSalesReps()
     fetchSnapshotDates()
@@ -412,6 +449,14 @@ export function ARAgingDashboard() {
                 ))}
               </tbody>
             </table>
+            <div style={{ display: 'flex', alignItems: 'center', justifyContent: 'center', gap: 12, padding: 12, fontSize: 12, color: '#6b7280' }}>
+              <span>{items.length.toLocaleString('ko-KR')} / {totalCount.toLocaleString('ko-KR')}건</span>
+              {nextCursor && (
+                <button className="btn btn-sm" onClick={fetchMore} disabled={loadingMore}>
+                  {loadingMore ? '불러오는 중...' : '더 보기'}
+                </button>
+              )}
+            </div>
           </div>
         )}
       </div>
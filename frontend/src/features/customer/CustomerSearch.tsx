@@ -73,7 +73,7 @@ export function CustomerSearch({ compact = false, maxHeight, context = 'list', o
   const [totalMineCount, setTotalMineCount] = useState<number>(0)
   // Infinite scroll state
   const PAGE_SIZE = 100
-  const [pageOffset, setPageOffset] = useState(0)
+  const [pageCursor, setPageCursor] = useState<string | null>(null)
   const [hasMore, setHasMore] = useState(true)
   const [loadingMore, setLoadingMore] = useState(false)
   const listRef = React.useRef<HTMLDivElement | null>(null)
@@ -109,7 +109,7 @@ export function CustomerSearch({ compact = false, maxHeight, context = 'list', o
 
   async function runSearch(reset = true) {
     setError(null)
-    if (reset) { setLoading(true); setPageOffset(0); setHasMore(true) } else { setLoadingMore(true) }
+    if (reset) { setLoading(true); setPageCursor(null); setHasMore(true) } else { setLoadingMore(true) }
     try {
       const savedAssigneeId = localStorage.getItem('tnt.sales.assigneeId')
       if (!savedAssigneeId) {
@@ -125,7 +125,7 @@ export function CustomerSearch({ compact = false, maxHeight, context = 'list', o
       url.searchParams.set('mineOnly', mine ? 'true' : 'false')
       if (mine && savedAssigneeId) url.searchParams.set('assigneeId', savedAssigneeId)
       url.searchParams.set('limit', String(PAGE_SIZE))
-      url.searchParams.set('offset', String(reset ? 0 : pageOffset))
+      if (!reset && pageCursor) url.searchParams.set('cursor', pageCursor)
       const res = await fetch(url.toString())
       if (!res.ok) {
         let msg = `HTTP ${res.status}`
@@ -139,6 +139,7 @@ export function CustomerSearch({ compact = false, maxHeight, context = 'list', o
         throw new Error(msg)
       }
       const data = await res.json()
+      const nextCursor = res.headers.get('X-Next-Cursor')
       const list: Customer[] = Array.isArray(data) ? data : []
       const sorted = [...list].sort((a, b) => {
         const an = (a.customerName || '').toString()
@@ -183,9 +184,8 @@ export function CustomerSearch({ compact = false, maxHeight, context = 'list', o
       if (reset) setItems(sorted)
       else setItems(prev => [...prev, ...sorted])
       // hasMore detection
-      setHasMore(list.length >= PAGE_SIZE)
-      if (!reset) setPageOffset(prev => prev + PAGE_SIZE)
-      else setPageOffset(PAGE_SIZE)
+      setHasMore(!!nextCursor)
+      setPageCursor(nextCursor)
       // Select first row on initial load only
       if (reset && !initialized && sorted.length > 0 && autoSelectFirst) {
         selectCustomer(sorted[0])
@@ -256,7 +256,7 @@ export function CustomerSearch({ compact = false, maxHeight, context = 'list', o
     }
     el.addEventListener('scroll', onScroll)
     return () => el.removeEventListener('scroll', onScroll)
-  }, [hasMore, loadingMore, loading, pageOffset, q, provinceName, cityName, filterMode])
+  }, [hasMore, loadingMore, loading, pageCursor, q, provinceName, cityName, filterMode])
 
   // Close context menu when clicking anywhere outside
   useEffect(() => {
@@ -67,6 +67,9 @@ export function OrderSheet() {
   const [saving, setSaving] = useState(false)
   const [notice, setNotice] = useState<{ open: boolean; text: string }>(() => ({ open: false, text: '' }))
   const [orderNo, setOrderNo] = useState<string>('')
+  const outboxPollRef = useRef<number | null>(null)
+
+  useEffect(() => () => { if (outboxPollRef.current != null) window.clearTimeout(outboxPollRef.current) }, [])
 
   // Helper functions
   function extractAvailRows(jsonText: string): Array<{ whName: string; avail: number; unitName: string }> {
@@ -465,6 +468,28 @@ export function OrderSheet() {
     } catch { }
   }
 
+  // 접수된(202) 주문의 ERP 전송 결과를 statusUrl로 확인 (SENT/FAILED가 되면 중단)
+  function pollOutbox(statusUrl: string, no: string, startedAt = Date.now()) {
+    if (outboxPollRef.current != null) window.clearTimeout(outboxPollRef.current)
+    outboxPollRef.current = window.setTimeout(async () => {
+      outboxPollRef.current = null
+      try {
+        const rs = await fetch(statusUrl)
+        const st = await rs.json().catch(() => ({} as any))
+        if (rs.ok && st?.status === 'SENT') {
+          setNotice({ open: true, text: `주문 전송 완료 (${no})` })
+          return
+        }
+        if (rs.ok && st?.status === 'FAILED') {
+          setNotice({ open: true, text: `주문 전송 실패 (${no}): ${st?.lastError || '알 수 없는 오류'}\n관리자에게 재전송을 요청하세요.` })
+          return
+        }
+      } catch { }
+      // 10분 넘게 대기 중이면 화면 알림만 멈춤 (서버는 계속 재시도)
+      if (Date.now() - startedAt < 10 * 60 * 1000) pollOutbox(statusUrl, no, startedAt)
+    }, 3000)
+  }
+
   // Submit order
   async function submitOrder() {
     setSaving(true)
@@ -493,11 +518,27 @@ export function OrderSheet() {
           companyType: it.companyType || undefined
         })),
       }
-      const rs = await fetch('/api/v1/orders', { method: 'POST', headers, body: JSON.stringify(body) })
-      const resp = await rs.json().catch(() => ({} as any))
-      if (!rs.ok) throw new Error(resp?.error || `HTTP ${rs.status}`)
-      setOrderNo(String(resp?.orderTextNo || resp?.sendPayload?.ROOT?.data?.ROOT?.DataBlock1?.[0]?.OrderTextNo || ''))
-      setNotice({ open: true, text: '주문 전송 완료' })
+      let rs = await fetch('/api/v1/orders', { method: 'POST', headers, body: JSON.stringify(body) })
+      let resp = await rs.json().catch(() => ({} as any))
+      // 409: 수주장번호가 다른 주문과 겹침 → 서버에서 번호를 새로 받아 한 번 더 전송
+      if (rs.status === 409 && resp?.error === 'order_text_no_conflict') {
+        rs = await fetch('/api/v1/orders', { method: 'POST', headers, body: JSON.stringify(body) })
+        resp = await rs.json().catch(() => ({} as any))
+      }
+      if (!rs.ok) throw new Error(resp?.message || resp?.error || `HTTP ${rs.status}`)
+      const no = String(resp?.orderTextNo || resp?.sendPayload?.ROOT?.data?.ROOT?.DataBlock1?.[0]?.OrderTextNo || '')
+      setOrderNo(no)
+      if (resp?.queued) {
+        // outbox 접수: ERP 전송은 백그라운드에서 진행되므로 결과를 따로 확인
+        if (resp?.outboxStatus === 'SENT') setNotice({ open: true, text: `주문 전송 완료 (${no})` })
+        else if (resp?.outboxStatus === 'FAILED') setNotice({ open: true, text: `주문 전송 실패 (${no})\n관리자에게 재전송을 요청하세요.` })
+        else {
+          setNotice({ open: true, text: `주문 접수됨 (${no})\nERP 전송 결과는 잠시 후 알려드립니다.` })
+          if (resp?.statusUrl) pollOutbox(String(resp.statusUrl), no)
+        }
+      } else {
+        setNotice({ open: true, text: '주문 전송 완료' })
+      }
 
       // Dispatch event for right panel refresh
       window.dispatchEvent(new CustomEvent('tnt.sales.ordersheet.order.created') as any)
@@ -1010,7 +1051,7 @@ export function OrderSheet() {
             background: 'var(--bg-primary)', borderRadius: 8, padding: 24, minWidth: 300,
             boxShadow: '0 20px 60px rgba(0,0,0,0.3)', textAlign: 'center'
           }} onClick={e => e.stopPropagation()}>
-            <div style={{ marginBottom: 16, fontSize: 14 }}>{notice.text}</div>
+            <div style={{ marginBottom: 16, fontSize: 14, whiteSpace: 'pre-line' }}>{notice.text}</div>
             <button className="btn btn-primary" onClick={() => setNotice({ open: false, text: '' })}>확인</button>
           </div>
         </div>
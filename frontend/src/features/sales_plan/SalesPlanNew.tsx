@@ -65,7 +65,7 @@ export function SalesPlanNew() {
   const [companyType, setCompanyType] = useState<'TNT'|'DYS'>('TNT')
   // Infinite scroll for customer list
   const PAGE_SIZE = 100
-  const [pageOffset, setPageOffset] = useState(0)
+  const [pageCursor, setPageCursor] = useState<string | null>(null)
   const [hasMore, setHasMore] = useState(true)
   const [loadingMore, setLoadingMore] = useState(false)
   const listRef = React.useRef<HTMLDivElement | null>(null)
@@ -450,7 +450,7 @@ export function SalesPlanNew() {
 
   async function runSearch(reset: boolean = true) {
     setError(null)
-    if (reset) { setLoading(true); setPageOffset(0); setHasMore(true) } else { setLoadingMore(true) }
+    if (reset) { setLoading(true); setPageCursor(null); setHasMore(true) } else { setLoadingMore(true) }
     try {
       const savedAssigneeId = localStorage.getItem('tnt.sales.assigneeId')
       if (!savedAssigneeId) { setItems([]); setError(tone.loginRequired); return }
@@ -460,7 +460,7 @@ export function SalesPlanNew() {
       url.searchParams.set('companyType', companyType)
       if (custNameQ.trim()) url.searchParams.set('name', custNameQ.trim())
       url.searchParams.set('limit', String(PAGE_SIZE))
-      url.searchParams.set('offset', String(reset ? 0 : pageOffset))
+      if (!reset && pageCursor) url.searchParams.set('cursor', pageCursor)
       const res = await fetch(url.toString())
       if (!res.ok) {
         let msg = `HTTP ${res.status}`
@@ -468,11 +468,12 @@ export function SalesPlanNew() {
         throw new Error(msg)
       }
       const data = await res.json()
+      const nextCursor = res.headers.get('X-Next-Cursor')
       const list: Customer[] = Array.isArray(data) ? data : []
       if (reset) setItems(list)
       else setItems(prev => [...prev, ...list])
-      setHasMore(list.length >= PAGE_SIZE)
-      setPageOffset(prev => (reset ? PAGE_SIZE : prev + PAGE_SIZE))
+      setHasMore(!!nextCursor)
+      setPageCursor(nextCursor)
       // Fetch total my-customer count (independent of current page)
       try {
         if (savedAssigneeId) {
@@ -642,7 +643,7 @@ export function SalesPlanNew() {
     }
     el.addEventListener('scroll', onScroll)
     return () => el.removeEventListener('scroll', onScroll)
-  }, [hasMore, loadingMore, loading, pageOffset])
+  }, [hasMore, loadingMore, loading, pageCursor])
 
   // Unit price summary popup (by logged-in employee)
   const [unitPopup, setUnitPopup] = useState<{ open:boolean; loading:boolean; error:string|null; rows: Array<{ unit:string; amount:number }> }>({ open:false, loading:false, error:null, rows:[] })
@@ -66,7 +66,7 @@ export function SalesPlanS() {
   const [stageMap, setStageMap] = useState<Record<number, string>>({})
   // Infinite scroll for customer list
   const PAGE_SIZE = 100
-  const [pageOffset, setPageOffset] = useState(0)
+  const [pageCursor, setPageCursor] = useState<string | null>(null)
   const [hasMore, setHasMore] = useState(true)
   const [loadingMore, setLoadingMore] = useState(false)
   const listRef = React.useRef<HTMLDivElement | null>(null)
@@ -952,11 +952,11 @@ export function SalesPlanS() {
 
   async function runSearch(reset: boolean = true) {
     setError(null)
-    if (reset) { setLoading(true); setPageOffset(0); setHasMore(true) } else { setLoadingMore(true) }
+    if (reset) { setLoading(true); setPageCursor(null); setHasMore(true) } else { setLoadingMore(true) }
     try {
       const y = Number(simYear)
       if (!Number.isFinite(y) || y <= 0) {
-        if (reset) { setItems([]); setHasMore(true); setPageOffset(0); setRecentMap({}); setStageMap({}); }
+        if (reset) { setItems([]); setHasMore(true); setPageCursor(null); setRecentMap({}); setStageMap({}); }
         return
       }
       const savedAssigneeId = localStorage.getItem('tnt.sales.assigneeId')
@@ -968,7 +968,7 @@ export function SalesPlanS() {
       if (simYear) url.searchParams.set('year', String(simYear))
       if (custNameQ.trim()) url.searchParams.set('name', custNameQ.trim())
       url.searchParams.set('limit', String(PAGE_SIZE))
-      url.searchParams.set('offset', String(reset ? 0 : pageOffset))
+      if (!reset && pageCursor) url.searchParams.set('cursor', pageCursor)
       const res = await fetch(url.toString())
       if (!res.ok) {
         let msg = `HTTP ${res.status}`
@@ -976,11 +976,12 @@ export function SalesPlanS() {
         throw new Error(msg)
       }
       const data = await res.json()
+      const nextCursor = res.headers.get('X-Next-Cursor')
       const list: Customer[] = Array.isArray(data) ? data : []
       if (reset) setItems(list)
       else setItems(prev => [...prev, ...list])
-      setHasMore(list.length >= PAGE_SIZE)
-      setPageOffset(prev => (reset ? PAGE_SIZE : prev + PAGE_SIZE))
+      setHasMore(!!nextCursor)
+      setPageCursor(nextCursor)
       // Fetch total my-customer count (independent of current page)
       try {
         if (savedAssigneeId) {
@@ -1045,7 +1046,7 @@ export function SalesPlanS() {
   // Run search only after selecting a year; re-run on tab/company change
   useEffect(() => { if (simYear) runSearch(true) }, [simYear, companyType])
   // Clear list when year cleared
-  useEffect(() => { if (!simYear) { setItems([]); setHasMore(true); setPageOffset(0); setRecentMap({}); setStageMap({}); } }, [simYear])
+  useEffect(() => { if (!simYear) { setItems([]); setHasMore(true); setPageCursor(null); setRecentMap({}); setStageMap({}); } }, [simYear])
 
   // Load my counts per company type that have any invoice in previous year of the selected year
   useEffect(() => {
@@ -1205,7 +1206,7 @@ export function SalesPlanS() {
     }
     el.addEventListener('scroll', onScroll)
     return () => el.removeEventListener('scroll', onScroll)
-  }, [hasMore, loadingMore, loading, pageOffset])
+  }, [hasMore, loadingMore, loading, pageCursor])
 
   // Unit price summary popup (by logged-in employee)
   const [unitPopup, setUnitPopup] = useState<{ open:boolean; loading:boolean; error:string|null; rows: Array<{ unit:string; amountMy:number; amountGlobal:number; itemUnit?:string; itemStdUnit?:string }> }>({ open:false, loading:false, error:null, rows:[] })
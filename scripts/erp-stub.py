@@ -0,0 +1,73 @@
+#!/usr/bin/env python3
+"""Local stand-in for the ERP order save endpoint (tnt_SWAPIMESOrderTextSave).
+
+Accepts POST JSON, records each OrderTextNo it sees, and replies like the ERP
+(ROOT.DataBlock1.Status/Results). Latency and failures are adjustable so the
+order outbox retry/backoff path can be exercised without the real ERP.
+"""
+import argparse
+import json
+import random
+import threading
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+seen = {}
+lock = threading.Lock()
+
+
+def make_handler(args):
+    class Handler(BaseHTTPRequestHandler):
+        def do_POST(self):
+            length = int(self.headers.get("Content-Length") or 0)
+            try:
+                body = json.loads(self.rfile.read(length) or b"{}")
+                row = body["ROOT"]["data"]["ROOT"]["DataBlock1"][0]
+                order_no = str(row.get("OrderTextNo", ""))
+            except Exception:
+                self._reply(400, {"error": "bad_payload"})
+                return
+            with lock:
+                seen[order_no] = seen.get(order_no, 0) + 1
+                count = seen[order_no]
+            if args.delay_ms:
+                time.sleep(args.delay_ms / 1000.0)
+            if random.random() < args.fail_rate:
+                print(f"{order_no} #{count} -> {args.fail_status}", flush=True)
+                self._reply(args.fail_status, {"error": "stub_failure"})
+                return
+            print(f"{order_no} #{count} -> 200", flush=True)
+            self._reply(200, {"ROOT": {"DataBlock1": {"Status": "0", "Results": f"saved {order_no}"}}})
+
+        def do_GET(self):
+            with lock:
+                self._reply(200, {"received": dict(seen)})
+
+        def _reply(self, status, obj):
+            data = json.dumps(obj).encode("utf-8")
+            self.send_response(status)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("Content-Length", str(len(data)))
+            self.end_headers()
+            self.wfile.write(data)
+
+        def log_message(self, fmt, *a):
+            pass
+
+    return Handler
+
+
+def main():
+    p = argparse.ArgumentParser(description=__doc__)
+    p.add_argument("--port", type=int, default=18080)
+    p.add_argument("--delay-ms", type=int, default=0, help="latency added to every POST")
+    p.add_argument("--fail-rate", type=float, default=0.0, help="share of POSTs that fail (0..1)")
+    p.add_argument("--fail-status", type=int, default=503, help="HTTP status for failed POSTs")
+    args = p.parse_args()
+    server = ThreadingHTTPServer(("127.0.0.1", args.port), make_handler(args))
+    print(f"ERP stub on http://127.0.0.1:{args.port}/ (GET lists received OrderTextNo counts)", flush=True)
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()